@@ -24,7 +24,11 @@ package com.lespea.cef;
 
 //~--- non-JDK imports --------------------------------------------------------
 
+import com.lespea.cef.metrics.CEFMetrics;
+import com.lespea.cef.utils.CEFScanner;
+import com.lespea.cef.utils.EscapeScanner;
 import com.lespea.cef.utils.StringUtils;
+import com.lespea.cef.utils.Utf8;
 
 //~--- JDK imports ------------------------------------------------------------
 
@@ -50,11 +54,6 @@ public class CEF implements Serializable {
      */
     public static final int DEFAULT_CEF_VERSION = 0;
 
-    /**
-     * Guess as to how big the string will be
-     */
-    private static final int FIELD_SIZE_GUESS = 50;
-
     /**
      * The maximum value that a severity can be
      */
@@ -235,6 +234,33 @@ public class CEF implements Serializable {
     public CEF( final int cefVersion, final String vendor, final String product, final String version, final String id,
                 final String name, final int severity, final Extension extension )
             throws InvalidField {
+        this( cefVersion, vendor, product, version, id, name, severity, extension,
+              CEF.render( cefVersion, vendor, product, version, id, name, severity, extension, null ) );
+    }
+
+
+    /**
+     * @param cefVersion
+     *            the version of the CEF format
+     * @param vendor
+     *            the device vendor
+     * @param product
+     *            the device product
+     * @param version
+     *            the device version
+     * @param id
+     *            the signature id
+     * @param name
+     *            the event name
+     * @param severity
+     *            the event severity
+     * @param extension
+     *            the extension
+     * @param rendered
+     *            the escaped string of all the fields
+     */
+    private CEF( final int cefVersion, final String vendor, final String product, final String version, final String id,
+                 final String name, final int severity, final Extension extension, final String rendered ) {
         this.cefVersion = cefVersion;
         this.vendor     = vendor;
         this.product    = product;
@@ -253,32 +279,473 @@ public class CEF implements Serializable {
         assert ((severity >= CEF.MIN_SEVERITY) && (severity <= CEF.MAX_SEVERITY)) :
                "The severity must be between 0 and 10";
 
-        final StringBuilder sb = new StringBuilder( CEF.FIELD_SIZE_GUESS + extension.toString().length() );
+        asString = rendered;
+        hashCode = asString.hashCode();
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Create a copy with more pairs on the end of the extension. The pairs are used as they are,
+     * so neither the header nor the existing extension is escaped or rendered again. A key that's
+     * already in the extension keeps its first value.
+     *
+     * @param escapedPairs
+     *            escaped <code>key=value</code> pairs separated by spaces
+     * @return the new CEF object, or this one if there are no pairs
+     * @throws IllegalArgumentException
+     *             if the text isn't escaped pairs that split back into the same pairs
+     */
+    public CEF appendExtension( final String escapedPairs ) {
+        if (escapedPairs.length() == 0) {
+            return this;
+        }
+
+
+        CEF.checkPairs( escapedPairs );
+
+
+        final String text      = extension.toString();
+        final String separator = (text.length() == 0)
+                                 ? ""
+                                 : " ";
+
+        return new CEF( cefVersion, vendor, product, version, id, name, severity,
+                        new LazyExtension( text + separator + escapedPairs ), asString + separator + escapedPairs );
+    }
+
+
+    /**
+     * Make sure text is escaped <code>key=value</code> pairs. Every key has to be non-empty and
+     * free of whitespace, a value can't hold an unescaped <code>=</code> and nothing can hold a raw
+     * line ending, or the pairs wouldn't split back apart the way they were meant to.
+     *
+     * @param pairs
+     *            the text
+     * @throws IllegalArgumentException
+     *             if the text isn't valid pairs
+     */
+    private static void checkPairs( final String pairs ) {
+        final int length   = pairs.length();
+        int       keyStart = 0;
+        int       blank    = -1;
+        int       keys     = 0;
+
+        for (int i = 0; i < length; i++) {
+            final char c = pairs.charAt( i );
+
+            if (CEFScanner.isExtensionEscape( pairs, i, length )) {
+                i++;
+            }
+            else if ((c == '\r') || (c == '\n')) {
+                throw new IllegalArgumentException( "The pairs contain a line ending: " + pairs );
+            }
+            else if (c == ' ') {
+                if (keys == 0) {
+                    throw new IllegalArgumentException( "The pairs don't start with a key: " + pairs );
+                }
+
+
+                keyStart = i + 1;
+            }
+            else if ((c == '\t') || (c == 0x0B) || (c == '\f')) {
+                blank = i;
+            }
+            else if (c == '=') {
+                if (keyStart < 0) {
+                    throw new IllegalArgumentException( "A value contains an unescaped equals sign: " + pairs );
+                }
+                else if ((i == keyStart) || (blank >= keyStart)) {
+                    throw new IllegalArgumentException( "The pairs contain an invalid key: " + pairs );
+                }
+
+
+                keys++;
+                keyStart = -1;
+            }
+        }
+
+
+        if (keys == 0) {
+            throw new IllegalArgumentException( "The pairs don't contain a key: " + pairs );
+        }
+    }
+
+
+    /**
+     * Create an immutable CEF object without throwing anything when a field is invalid. Null
+     * values and a severity out of range are reported to the sink too, rather than being left to
+     * the assertions.
+     *
+     * @param cefVersion
+     *            the version of the CEF format
+     * @param vendor
+     *            the device vendor
+     * @param product
+     *            the device product
+     * @param version
+     *            the device version
+     * @param id
+     *            the signature id
+     * @param name
+     *            the event name
+     * @param severity
+     *            the event severity
+     * @param extension
+     *            the extension
+     * @param errors
+     *            where a problem is recorded
+     * @return the CEF object or null if something was invalid
+     * @see #CEF(int, String, String, String, String, String, int, Extension)
+     */
+    public static CEF create( final int cefVersion, final String vendor, final String product, final String version,
+                              final String id, final String name, final int severity, final Extension extension,
+                              final ErrorSink errors ) {
+        final String rendered;
+
+        try {
+            rendered = CEF.render( cefVersion, vendor, product, version, id, name, severity, extension, errors );
+        } catch (final InvalidField e) {
+
+            // Only thrown when there's no sink
+            throw new IllegalStateException( e );
+        }
+
+
+        return (rendered == null)
+               ? null
+               : new CEF( cefVersion, vendor, product, version, id, name, severity, extension, rendered );
+    }
+
+
+    /**
+     * Get the exact number of UTF-8 bytes the CEF string will have, without escaping or encoding
+     * anything but the extension (which is already rendered). The fields are assumed to be valid.
+     *
+     * @param cefVersion
+     *            the version of the CEF format
+     * @param vendor
+     *            the device vendor
+     * @param product
+     *            the device product
+     * @param version
+     *            the device version
+     * @param id
+     *            the signature id
+     * @param name
+     *            the event name
+     * @param severity
+     *            the event severity
+     * @param extension
+     *            the extension
+     * @return the number of bytes
+     */
+    public static int encodedLength( final int cefVersion, final String vendor, final String product,
+                                     final String version, final String id, final String name, final int severity,
+                                     final Extension extension ) {
+        return CEF.headerLength( cefVersion, new String[] { vendor, product, version, id, name }, severity, true )
+               + extension.getEncodedLength();
+    }
+
+
+    /**
+     * Parse a rendered CEF string, such as a line read from a file. The header is unescaped but
+     * the extension is kept as it is and only parsed into pairs when they're asked for (see
+     * {@link LazyExtension}), and the line itself becomes the rendered string, so nothing is
+     * escaped again. A trailing line ending is ignored.
+     *
+     * @param line
+     *            the rendered string
+     * @return the CEF object
+     * @throws InvalidField
+     *             if the line isn't a complete CEF header or the version or severity isn't a number
+     *             in range
+     */
+    public static CEF parse( final String line ) throws InvalidField {
+        int end = line.length();
+
+        while ((end > 0) && ((line.charAt( end - 1 ) == '\n') || (line.charAt( end - 1 ) == '\r'))) {
+            end--;
+        }
+
+
+        final String text = (end == line.length())
+                            ? line
+                            : line.substring( 0, end );
+
+        if (!text.startsWith( "CEF:" )) {
+            throw new InvalidField( "The line doesn't start with CEF:" );
+        }
+
+
+        final String[] fields = new String[CEFScanner.HEADER_FIELD_COUNT];
+        int            start  = 0;
+
+        for (int i = 0; i < fields.length; i++) {
+            final int bar = CEFScanner.headerFieldEnd( text, start );
+
+            if (bar == text.length()) {
+                throw new InvalidField( "The line has only " + i + " of the " + fields.length + " header fields" );
+            }
+
+
+            fields[i] = StringUtils.unescapeField( text, start, bar );
+            start     = bar + 1;
+        }
+
+
+        final int cefVersion = CEF.parseNumber( fields[CEFScanner.HEADER_CEF_VERSION], 4, Integer.MAX_VALUE );
+        final int severity   = CEF.parseNumber( fields[CEFScanner.HEADER_SEVERITY], 0, CEF.MAX_SEVERITY );
+
+        for (int i = CEFScanner.HEADER_VENDOR; i < CEFScanner.HEADER_SEVERITY; i++) {
+            if (EscapeScanner.indexOf( fields[i], 0, EscapeScanner.NEWLINES ) >= 0) {
+                throw new InvalidField( "The header field " + fields[i] + " contained an invalid character" );
+            }
+        }
+
+
+        return new CEF( cefVersion, fields[CEFScanner.HEADER_VENDOR], fields[CEFScanner.HEADER_PRODUCT],
+                        fields[CEFScanner.HEADER_VERSION], fields[CEFScanner.HEADER_ID],
+                        fields[CEFScanner.HEADER_NAME], severity, new LazyExtension( text.substring( start ) ), text );
+    }
+
+
+    /**
+     * Create a CEF object from fields a parser has already unescaped and checked
+     *
+     * @param cefVersion
+     *            the version of the CEF format
+     * @param vendor
+     *            the device vendor
+     * @param product
+     *            the device product
+     * @param version
+     *            the device version
+     * @param id
+     *            the signature id
+     * @param name
+     *            the event name
+     * @param severity
+     *            the event severity
+     * @param escapedExtension
+     *            the escaped extension text
+     * @param rendered
+     *            the whole line
+     * @return the CEF object
+     */
+    static CEF parsed( final int cefVersion, final String vendor, final String product, final String version,
+                       final String id, final String name, final int severity, final String escapedExtension,
+                       final String rendered ) {
+        return new CEF( cefVersion, vendor, product, version, id, name, severity,
+                        new LazyExtension( escapedExtension ), rendered );
+    }
+
+
+    /**
+     * Parse a header number
+     *
+     * @param field
+     *            the field
+     * @param from
+     *            where the digits start
+     * @param max
+     *            the largest value allowed
+     * @return the number
+     * @throws InvalidField
+     *             if the field isn't a number from 0 to the max
+     */
+    private static int parseNumber( final String field, final int from, final int max ) throws InvalidField {
+        long value = 0;
+
+        for (int i = from; i < field.length(); i++) {
+            final char c = field.charAt( i );
+
+            if ((c < '0') || (c > '9') || ((value = value * 10 + c - '0') > max)) {
+                throw new InvalidField( "The header field " + field + " isn't a number from 0 to " + max );
+            }
+        }
+
+
+        if (field.length() == from) {
+            throw new InvalidField( "The header field " + field + " isn't a number" );
+        }
+
+
+        return (int) value;
+    }
+
+
+    /**
+     * Work out the length of everything in front of the extension
+     *
+     * @param cefVersion
+     *            the version of the CEF format
+     * @param fields
+     *            the vendor, product, version, id and name
+     * @param severity
+     *            the event severity
+     * @param utf8
+     *            true for the number of UTF-8 bytes instead of chars
+     * @return the length
+     */
+    private static int headerLength( final int cefVersion, final String[] fields, final int severity,
+                                     final boolean utf8 ) {
+
+        // "CEF:" and the bars are ASCII as are the numbers
+        int length = 4 + CEF.digits( cefVersion ) + CEF.digits( severity ) + fields.length + 2;
+
+        for (final String field : fields) {
+            length += utf8
+                      ? StringUtils.escapedUtf8Length( field, EscapeScanner.FIELD )
+                      : StringUtils.escapedLength( field, EscapeScanner.FIELD );
+        }
+
+
+        return length;
+    }
+
+
+    /**
+     * Count the characters of a number
+     *
+     * @param value
+     *            the number
+     * @return the number of characters including any minus sign
+     */
+    private static int digits( final int value ) {
+        if (value < 0) {
+            return (value == Integer.MIN_VALUE)
+                   ? 11
+                   : 1 + CEF.digits( -value );
+        }
+
+
+        int count = 1;
+
+        for (int rest = value / 10; rest > 0; rest /= 10) {
+            count++;
+        }
+
+
+        return count;
+    }
+
+
+    /**
+     * Escape all of the fields into the CEF string
+     *
+     * @param cefVersion
+     *            the version of the CEF format
+     * @param vendor
+     *            the device vendor
+     * @param product
+     *            the device product
+     * @param version
+     *            the device version
+     * @param id
+     *            the signature id
+     * @param name
+     *            the event name
+     * @param severity
+     *            the event severity
+     * @param extension
+     *            the extension
+     * @param errors
+     *            where a problem is recorded or null to throw an exception instead
+     * @return the CEF string or null if something was invalid and there's a sink
+     * @throws InvalidField
+     *             if any of the fields are invalid and there's no sink
+     */
+    private static String render( final int cefVersion, final String vendor, final String product,
+                                  final String version, final String id, final String name, final int severity,
+                                  final Extension extension, final ErrorSink errors )
+            throws InvalidField {
+        final long start = CEFMetrics.CEF.start();
+
+        try {
+            return CEF.build( cefVersion, vendor, product, version, id, name, severity, extension, errors );
+        } finally {
+            CEFMetrics.CEF.stop( start );
+        }
+    }
+
+
+    /**
+     * Build the CEF string, see {@link #render(int, String, String, String, String, String, int, Extension, ErrorSink)}
+     *
+     * @param cefVersion
+     *            the CEF version
+     * @param vendor
+     *            the vendor
+     * @param product
+     *            the product
+     * @param version
+     *            the product version
+     * @param id
+     *            the signature id
+     * @param name
+     *            the event name
+     * @param severity
+     *            the event severity
+     * @param extension
+     *            the extension
+     * @param errors
+     *            where a problem is recorded or null to throw an exception instead
+     * @return the CEF string or null if something was invalid and there's a sink
+     * @throws InvalidField
+     *             if any of the fields are invalid and there's no sink
+     */
+    private static String build( final int cefVersion, final String vendor, final String product,
+                                 final String version, final String id, final String name, final int severity,
+                                 final Extension extension, final ErrorSink errors )
+            throws InvalidField {
+        final String[] fields = { vendor, product, version, id, name };
+
+        if (errors != null) {
+            if (extension == null) {
+                errors.reject( ErrorSink.NULL_VALUE, null, -1 );
+
+                return null;
+            }
+            else if ((severity < CEF.MIN_SEVERITY) || (severity > CEF.MAX_SEVERITY)) {
+                errors.reject( ErrorSink.INVALID_SEVERITY, severity, -1 );
+
+                return null;
+            }
+        }
+
+
+        final StringBuilder sb = new StringBuilder( CEF.headerLength( cefVersion, fields, severity, false )
+                                                    + extension.toString().length() );
 
         sb.append( "CEF:" );
         sb.append( cefVersion );
         sb.append( "|" );
-        sb.append( StringUtils.escapeField( vendor ) );
-        sb.append( "|" );
-        sb.append( StringUtils.escapeField( product ) );
-        sb.append( "|" );
-        sb.append( StringUtils.escapeField( version ) );
-        sb.append( "|" );
-        sb.append( StringUtils.escapeField( id ) );
-        sb.append( "|" );
-        sb.append( StringUtils.escapeField( name ) );
-        sb.append( "|" );
+
+        for (final String field : fields) {
+            final String escaped = (errors == null)
+                                   ? StringUtils.escapeField( field )
+                                   : StringUtils.escapeField( field, errors );
+
+            if ((escaped == null) && (errors != null)) {
+                return null;
+            }
+
+
+            sb.append( escaped );
+            sb.append( "|" );
+        }
+
+
         sb.append( severity );
         sb.append( "|" );
         sb.append( extension );
 
-        asString = sb.toString();
-        hashCode = asString.hashCode();
+        return sb.toString();
     }
 
 
-    //~--- methods ------------------------------------------------------------
-
     @Override
     public boolean equals( final Object obj ) {
         if (this == obj) {
@@ -338,6 +805,14 @@ public class CEF implements Serializable {
 
     //~--- get methods --------------------------------------------------------
 
+    /**
+     * @return the number of UTF-8 bytes in the CEF string
+     */
+    public int getEncodedLength() {
+        return Utf8.encodedLength( asString );
+    }
+
+
     /**
      * @return the cefVersion
      */
@@ -354,6 +829,45 @@ public class CEF implements Serializable {
     }
 
 
+    /**
+     * Get a header field as plain text by its position, such as
+     * {@link CEFScanner#HEADER_PRODUCT}
+     *
+     * @param index
+     *            the position, from {@link CEFScanner#HEADER_CEF_VERSION} to
+     *            {@link CEFScanner#HEADER_SEVERITY}
+     * @return the field
+     * @see CEFScanner#headerIndex(String)
+     */
+    public String getHeaderField( final int index ) {
+        switch (index) {
+        case CEFScanner.HEADER_CEF_VERSION :
+            return Integer.toString( cefVersion );
+
+        case CEFScanner.HEADER_VENDOR :
+            return vendor;
+
+        case CEFScanner.HEADER_PRODUCT :
+            return product;
+
+        case CEFScanner.HEADER_VERSION :
+            return version;
+
+        case CEFScanner.HEADER_ID :
+            return id;
+
+        case CEFScanner.HEADER_NAME :
+            return name;
+
+        case CEFScanner.HEADER_SEVERITY :
+            return Integer.toString( severity );
+
+        default :
+            throw new IllegalArgumentException( "There is no header field " + index );
+        }
+    }
+
+
     /**
      * @return the id
      */
@@ -0,0 +1,639 @@
+/**
+ * CEFPushParser.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.utils.CEFScanner;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.nio.ByteBuffer;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Parses CEF records out of a byte stream that arrives in pieces, such as from a socket.
+ * <p>
+ * Bytes are pushed in as they arrive, cut anywhere, and each byte is looked at exactly once: it's
+ * decoded from UTF-8, added to the record's text and run through a state machine that follows the
+ * header as it goes, unescaping the header fields into their own buffers. Everything the state
+ * machine needs is kept between calls, including a UTF-8 sequence, an escape or a CR that was cut
+ * off at the end of a chunk. As soon as a line ending arrives the record is handed to the
+ * {@link Handler} without the line being scanned again; its extension is parsed only if it's
+ * read (see {@link LazyExtension}).
+ * <p>
+ * Anything in front of <code>CEF:</code> on a line, such as a syslog header, is dropped. A line
+ * that doesn't have a valid header, or is longer than the limit, is reported to the handler and
+ * skipped; blank lines are ignored. Invalid UTF-8 becomes U+FFFD.
+ * <p>
+ * A parser isn't thread safe; use one per connection.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class CEFPushParser {
+
+    /** The text a record starts with */
+    private static final String PREFIX = "CEF:";
+
+    /** The character invalid UTF-8 becomes */
+    private static final char REPLACEMENT = '\uFFFD';
+
+    /** Looking for the prefix */
+    private static final int STATE_PREFIX = 0;
+
+    /** In the CEF version */
+    private static final int STATE_VERSION = 1;
+
+    /** In one of the text header fields */
+    private static final int STATE_FIELD = 2;
+
+    /** In the severity */
+    private static final int STATE_SEVERITY = 3;
+
+    /** In the extension */
+    private static final int STATE_EXTENSION = 4;
+
+    /** Skipping the rest of an invalid line */
+    private static final int STATE_SKIP = 5;
+
+    //~--- fields -------------------------------------------------------------
+
+    /** The code point of the UTF-8 sequence being decoded */
+    private int codePoint;
+
+    /** If the last character was a backslash in a header field */
+    private boolean escaped;
+
+    /** Number of records handed over */
+    private long events;
+
+    /** Where the extension starts in the line */
+    private int extensionStart;
+
+    /** Which text header field is being read, from 1 for the vendor */
+    private int field;
+
+    /** The unescaped text header fields, by header index */
+    private final StringBuilder[] fields = new StringBuilder[CEFScanner.HEADER_NAME + 1];
+
+    /** Where the records go */
+    private final Handler handler;
+
+    /** Number of lines reported as invalid */
+    private long invalid;
+
+    /** The text of the record from the prefix on */
+    private final StringBuilder line = new StringBuilder( 512 );
+
+    /** How many characters of the prefix have been matched */
+    private int matched;
+
+    /** The longest line allowed, in characters */
+    private final int maxLineChars;
+
+    /** The smallest code point the UTF-8 sequence being decoded may have */
+    private int minCodePoint;
+
+    /** Number of digits in the number being read */
+    private int numberDigits;
+
+    /** The version or severity being read */
+    private int number;
+
+    /** Continuation bytes still needed by the UTF-8 sequence being decoded */
+    private int pending;
+
+    /** If the last character was a CR that might start a CRLF */
+    private boolean pendingCR;
+
+    /** If anything but a line ending was seen on the line */
+    private boolean sawText;
+
+    /** The state of the header state machine */
+    private int state = CEFPushParser.STATE_PREFIX;
+
+    /** The CEF version of the record */
+    private int version;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * Create a parser with a 64K character line limit
+     *
+     * @param handler
+     *            where the records go
+     */
+    public CEFPushParser( final Handler handler ) {
+        this( handler, 64 * 1024 );
+    }
+
+
+    /**
+     * @param handler
+     *            where the records go
+     * @param maxLineChars
+     *            the longest line allowed, in characters from the prefix on
+     */
+    public CEFPushParser( final Handler handler, final int maxLineChars ) {
+        if (handler == null) {
+            throw new IllegalArgumentException( "The handler cannot be null" );
+        }
+        else if (maxLineChars <= 0) {
+            throw new IllegalArgumentException( "The line limit must be positive" );
+        }
+
+
+        this.handler      = handler;
+        this.maxLineChars = maxLineChars;
+
+        for (int i = CEFScanner.HEADER_VENDOR; i < fields.length; i++) {
+            fields[i] = new StringBuilder( 32 );
+        }
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Push in the next bytes of the stream
+     *
+     * @param bytes
+     *            the bytes
+     * @param offset
+     *            where they start
+     * @param length
+     *            how many there are
+     */
+    public void feed( final byte[] bytes, final int offset, final int length ) {
+        final int end = offset + length;
+
+        for (int i = offset; i < end; i++) {
+            final int b = bytes[i];
+
+            if ((pending == 0) && (b >= 0)) {
+                character( (char) b );
+            }
+            else {
+                decode( b );
+            }
+        }
+    }
+
+
+    /**
+     * Push in the remaining bytes of a buffer, leaving it empty
+     *
+     * @param buf
+     *            the buffer
+     */
+    public void feed( final ByteBuffer buf ) {
+        if (buf.hasArray()) {
+            feed( buf.array(), buf.arrayOffset() + buf.position(), buf.remaining() );
+            buf.position( buf.limit() );
+
+            return;
+        }
+
+
+        while (buf.hasRemaining()) {
+            final int b = buf.get();
+
+            if ((pending == 0) && (b >= 0)) {
+                character( (char) b );
+            }
+            else {
+                decode( b );
+            }
+        }
+    }
+
+
+    /**
+     * End the stream: a cut off UTF-8 sequence becomes U+FFFD and a last line without a line
+     * ending is handled as if it had one. The parser can then be used for a new stream.
+     */
+    public void finish() {
+        if (pending > 0) {
+            pending = 0;
+            character( CEFPushParser.REPLACEMENT );
+        }
+
+
+        if (pendingCR) {
+            pendingCR = false;
+            accept( '\r' );
+        }
+
+
+        endLine();
+    }
+
+
+    @Override
+    public String toString() {
+        return "CEFPushParser [events=" + events + ", invalid=" + invalid + "]";
+    }
+
+
+    /**
+     * Run a character through the header state machine
+     *
+     * @param c
+     *            the character
+     */
+    private void accept( final char c ) {
+        if (c == '\n') {
+            endLine();
+
+            return;
+        }
+
+
+        sawText = true;
+
+        switch (state) {
+        case STATE_PREFIX :
+            if (c == CEFPushParser.PREFIX.charAt( matched )) {
+                if (++matched == CEFPushParser.PREFIX.length()) {
+                    line.setLength( 0 );
+                    line.append( CEFPushParser.PREFIX );
+                    state        = CEFPushParser.STATE_VERSION;
+                    number       = 0;
+                    numberDigits = 0;
+                }
+            }
+            else {
+                matched = (c == CEFPushParser.PREFIX.charAt( 0 ))
+                          ? 1
+                          : 0;
+            }
+
+
+            return;
+
+        case STATE_SKIP :
+            return;
+
+        default :
+        }
+
+
+        if (line.length() >= maxLineChars) {
+            fail( "The line is longer than " + maxLineChars + " characters" );
+
+            return;
+        }
+
+
+        line.append( c );
+
+        switch (state) {
+        case STATE_VERSION :
+            if (c == '|') {
+                if (numberDigits == 0) {
+                    fail( "The CEF version is empty" );
+                }
+                else {
+                    version = number;
+                    state   = CEFPushParser.STATE_FIELD;
+                    field   = CEFScanner.HEADER_VENDOR;
+                    escaped = false;
+
+                    for (int i = CEFScanner.HEADER_VENDOR; i < fields.length; i++) {
+                        fields[i].setLength( 0 );
+                    }
+                }
+            }
+            else {
+                digit( c, Integer.MAX_VALUE, "CEF version" );
+            }
+
+
+            break;
+
+        case STATE_FIELD :
+            field( c );
+            break;
+
+        case STATE_SEVERITY :
+            if (c == '|') {
+                if (numberDigits == 0) {
+                    fail( "The severity is empty" );
+                }
+                else {
+                    state          = CEFPushParser.STATE_EXTENSION;
+                    extensionStart = line.length();
+                }
+            }
+            else {
+                digit( c, CEF.MAX_SEVERITY, "severity" );
+            }
+
+
+            break;
+
+        default :
+
+            // The extension is kept as it is until it's read
+        }
+    }
+
+
+    /**
+     * Handle a decoded character, holding back a CR until it's known if a LF follows
+     *
+     * @param c
+     *            the character
+     */
+    private void character( final char c ) {
+        if (pendingCR) {
+            pendingCR = false;
+
+            if (c != '\n') {
+                accept( '\r' );
+            }
+        }
+
+
+        if (c == '\r') {
+            pendingCR = true;
+        }
+        else {
+            accept( c );
+        }
+    }
+
+
+    /**
+     * Handle a byte that's part of a multi-byte UTF-8 sequence
+     *
+     * @param b
+     *            the byte
+     */
+    private void decode( final int b ) {
+        if (pending == 0) {
+            if ((b & 0xE0) == 0xC0) {
+                codePoint    = b & 0x1F;
+                minCodePoint = 0x80;
+                pending      = 1;
+            }
+            else if ((b & 0xF0) == 0xE0) {
+                codePoint    = b & 0x0F;
+                minCodePoint = 0x800;
+                pending      = 2;
+            }
+            else if ((b & 0xF8) == 0xF0) {
+                codePoint    = b & 0x07;
+                minCodePoint = 0x10000;
+                pending      = 3;
+            }
+            else {
+                character( CEFPushParser.REPLACEMENT );
+            }
+
+
+            return;
+        }
+        else if ((b & 0xC0) != 0x80) {
+
+            // The sequence was cut short; the byte starts something new
+            pending = 0;
+            character( CEFPushParser.REPLACEMENT );
+
+            if (b >= 0) {
+                character( (char) b );
+            }
+            else {
+                decode( b );
+            }
+
+
+            return;
+        }
+
+
+        codePoint = (codePoint << 6) | (b & 0x3F);
+
+        if (--pending > 0) {
+            return;
+        }
+
+
+        if ((codePoint < minCodePoint) || (codePoint > Character.MAX_CODE_POINT)
+            || ((codePoint >= Character.MIN_SURROGATE) && (codePoint <= Character.MAX_SURROGATE))) {
+            character( CEFPushParser.REPLACEMENT );
+        }
+        else if (codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+
+            // The surrogate pair worked out by hand, which also runs on Java 6 and allocates nothing
+            final int offset = codePoint - Character.MIN_SUPPLEMENTARY_CODE_POINT;
+
+            character( (char) (Character.MIN_HIGH_SURROGATE + (offset >>> 10)) );
+            character( (char) (Character.MIN_LOW_SURROGATE + (offset & 0x3FF)) );
+        }
+        else {
+            character( (char) codePoint );
+        }
+    }
+
+
+    /**
+     * Add a digit to the version or severity
+     *
+     * @param c
+     *            the character
+     * @param max
+     *            the largest value allowed
+     * @param what
+     *            what the number is
+     */
+    private void digit( final char c, final int max, final String what ) {
+        if ((c < '0') || (c > '9')) {
+            fail( "The " + what + " isn't a number" );
+
+            return;
+        }
+
+
+        final long value = number * 10L + (c - '0');
+
+        if (value > max) {
+            fail( "The " + what + " is more than " + max );
+
+            return;
+        }
+
+
+        number = (int) value;
+        numberDigits++;
+    }
+
+
+    /**
+     * Hand over the record if the line was valid and get ready for the next one
+     */
+    private void endLine() {
+        if (state == CEFPushParser.STATE_EXTENSION) {
+            final String rendered = line.toString();
+            final CEF    cef      = CEF.parsed( version, fields[CEFScanner.HEADER_VENDOR].toString(),
+                                                fields[CEFScanner.HEADER_PRODUCT].toString(),
+                                                fields[CEFScanner.HEADER_VERSION].toString(),
+                                                fields[CEFScanner.HEADER_ID].toString(),
+                                                fields[CEFScanner.HEADER_NAME].toString(), number,
+                                                rendered.substring( extensionStart ), rendered );
+
+            events++;
+            reset();
+            handler.onEvent( cef );
+
+            return;
+        }
+
+
+        final boolean report = sawText && (state != CEFPushParser.STATE_SKIP);
+        final String  reason = (state == CEFPushParser.STATE_PREFIX)
+                               ? "The line has no CEF header"
+                               : "The line ended in the middle of the header";
+
+        reset();
+
+        if (report) {
+            invalid++;
+            handler.onInvalid( reason );
+        }
+    }
+
+
+    /**
+     * Report the line as invalid and skip the rest of it
+     *
+     * @param reason
+     *            why it's invalid
+     */
+    private void fail( final String reason ) {
+        state = CEFPushParser.STATE_SKIP;
+        invalid++;
+        handler.onInvalid( reason );
+    }
+
+
+    /**
+     * Add a character to the text header field being read
+     *
+     * @param c
+     *            the character
+     */
+    private void field( final char c ) {
+        final StringBuilder text = fields[field];
+
+        if (escaped) {
+            escaped = false;
+
+            // Only a bar or backslash is escaped; any other backslash is kept
+            if ((c != '|') && (c != '\\')) {
+                text.append( '\\' );
+            }
+
+
+            text.append( c );
+        }
+        else if (c == '\\') {
+            escaped = true;
+        }
+        else if (c == '|') {
+            if (++field == fields.length) {
+                state        = CEFPushParser.STATE_SEVERITY;
+                number       = 0;
+                numberDigits = 0;
+            }
+        }
+        else if (c == '\r') {
+            fail( "A header field contained a CR" );
+        }
+        else {
+            text.append( c );
+        }
+    }
+
+
+    /**
+     * Get ready for the next line
+     */
+    private void reset() {
+        state   = CEFPushParser.STATE_PREFIX;
+        matched = 0;
+        escaped = false;
+        sawText = false;
+        line.setLength( 0 );
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * @return number of records handed over
+     */
+    public long getEvents() {
+        return events;
+    }
+
+
+    /**
+     * @return number of lines reported as invalid
+     */
+    public long getInvalid() {
+        return invalid;
+    }
+
+
+    //~--- inner interfaces ---------------------------------------------------
+
+    /**
+     * Receives what the parser finds
+     */
+    public interface Handler {
+
+        /**
+         * A complete record
+         *
+         * @param cef
+         *            the record
+         */
+        void onEvent( CEF cef );
+
+
+        /**
+         * A line that was skipped
+         *
+         * @param reason
+         *            why it was skipped
+         */
+        void onInvalid( String reason );
+    }
+}
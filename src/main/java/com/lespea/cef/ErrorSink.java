@@ -0,0 +1,189 @@
+/**
+ * ErrorSink.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef;
+
+/**
+ * Collects validation failures from the non-throwing API instead of exceptions being created.
+ * <p>
+ * The methods that take a sink return null (or an error code) when their input is invalid and
+ * record what went wrong here. Only the first error since the last {@link #clear()} is kept in
+ * detail; later ones are just counted. Recording an error doesn't allocate anything so a sink can
+ * be reused for every event a thread handles. A sink must not be shared between threads.
+ * <p>
+ * The result codes are also returned on their own by the <code>check*</code> methods of
+ * {@link com.lespea.cef.utils.StringUtils}.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class ErrorSink {
+
+    /** An extension key contains whitespace */
+    public static final int INVALID_EXTENSION_KEY = 3;
+
+    /** A header field contains a CR or LF */
+    public static final int INVALID_FIELD = 2;
+
+    /** The severity is outside of {@link CEF#MIN_SEVERITY} and {@link CEF#MAX_SEVERITY} */
+    public static final int INVALID_SEVERITY = 4;
+
+    /** A required value is null */
+    public static final int NULL_VALUE = 1;
+
+    /** Nothing is wrong */
+    public static final int VALID = 0;
+
+    //~--- fields -------------------------------------------------------------
+
+    /** The code of the first error */
+    private int code = ErrorSink.VALID;
+
+    /** Number of errors since the last clear */
+    private int count;
+
+    /** Offset of the bad character in the first error's value or -1 */
+    private int offset = -1;
+
+    /** The value that caused the first error (not copied) */
+    private Object value;
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Forget every error so the sink can be reused
+     */
+    public void clear() {
+        code   = ErrorSink.VALID;
+        count  = 0;
+        offset = -1;
+        value  = null;
+    }
+
+
+    /**
+     * Record an error
+     *
+     * @param errorCode
+     *            what went wrong
+     * @param badValue
+     *            the value that caused it
+     * @param badOffset
+     *            offset of the bad character or -1
+     */
+    public void reject( final int errorCode, final Object badValue, final int badOffset ) {
+        if (count++ == 0) {
+            code   = errorCode;
+            value  = badValue;
+            offset = badOffset;
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return hasErrors()
+               ? getMessage()
+               : "No errors";
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * @return the code of the first error or {@link #VALID}
+     */
+    public int getCode() {
+        return code;
+    }
+
+
+    /**
+     * @return the number of errors since the last clear
+     */
+    public int getCount() {
+        return count;
+    }
+
+
+    /**
+     * Describe the first error. This builds a new string so it's meant for reporting, not for
+     * deciding what to do.
+     *
+     * @return the description or null if there were no errors
+     */
+    public String getMessage() {
+        if (!hasErrors()) {
+            return null;
+        }
+
+
+        final String at = (offset >= 0)
+                          ? " at offset " + offset
+                          : "";
+
+        switch (code) {
+        case NULL_VALUE :
+            return "A required value was null";
+
+        case INVALID_FIELD :
+            return "The field string " + value + " contained an invalid character" + at;
+
+        case INVALID_EXTENSION_KEY :
+            return "The extension key " + value + " contained an invalid character" + at;
+
+        case INVALID_SEVERITY :
+            return "The severity " + value + " must be between " + CEF.MIN_SEVERITY + " and " + CEF.MAX_SEVERITY;
+
+        default :
+            return "Error " + code + " for " + value + at;
+        }
+    }
+
+
+    /**
+     * @return offset of the bad character in the first error's value or -1
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+
+    /**
+     * @return the value that caused the first error
+     */
+    public Object getValue() {
+        return value;
+    }
+
+
+    /**
+     * @return if any errors were recorded since the last clear
+     */
+    public boolean hasErrors() {
+        return count > 0;
+    }
+}
@@ -24,7 +24,11 @@ package com.lespea.cef;
 
 //~--- non-JDK imports --------------------------------------------------------
 
+import com.lespea.cef.metrics.CEFMetrics;
+import com.lespea.cef.utils.CEFTime;
+import com.lespea.cef.utils.EscapeScanner;
 import com.lespea.cef.utils.StringUtils;
+import com.lespea.cef.utils.Utf8;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -83,17 +87,133 @@ public class Extension implements Serializable {
      *             if one of the provided keys is invalid
      */
     public Extension( final Map<String, String> extensionFields ) throws InvalidExtensionKey {
+        this( extensionFields, Extension.render( extensionFields, null ) );
+    }
+
+
+    /**
+     * @param extensionFields
+     *            the mapping of extension keys and their values
+     * @param rendered
+     *            the escaped string of the mapping
+     */
+    private Extension( final Map<String, String> extensionFields, final String rendered ) {
+
+        // Should be changeable but cast it anyway
+        fields = Collections.unmodifiableMap( extensionFields );
+
+        Extension.LOG.debug( "The extension's string was calculated as {}", rendered );
+
+        asString = rendered;
+        hashCode = fields.hashCode();
+    }
+
+
+    /**
+     * Create an extension object from text that's already escaped. Only for subclasses that build
+     * the field mapping themselves by overriding {@link #fieldMap()}, {@link #get(String)} and
+     * {@link #hashCode()}.
+     *
+     * @param escaped
+     *            the escaped extension text
+     */
+    protected Extension( final String escaped ) {
+        asString = escaped;
+        fields   = null;
+        hashCode = 0;
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Create a new extension object without throwing anything when a key is invalid or a value is
+     * null
+     *
+     * @param extensionFields
+     *            the mapping of extension keys and their values
+     * @param errors
+     *            where a problem is recorded
+     * @return the extension or null if a key was invalid or a value was null
+     */
+    public static Extension create( final Map<String, String> extensionFields, final ErrorSink errors ) {
+        final String rendered;
+
+        try {
+            rendered = Extension.render( extensionFields, errors );
+        } catch (final InvalidExtensionKey e) {
+
+            // Only thrown when there's no sink
+            throw new IllegalStateException( e );
+        }
+
+
+        return (rendered == null)
+               ? null
+               : new Extension( extensionFields, rendered );
+    }
+
+
+    /**
+     * Get the exact number of UTF-8 bytes the extension's string will have, without escaping or
+     * encoding anything. The keys are assumed to be valid.
+     *
+     * @param extensionFields
+     *            the mapping of extension keys and their values
+     * @return the number of bytes
+     */
+    public static int encodedLength( final Map<String, String> extensionFields ) {
+        return Extension.renderedLength( extensionFields, true );
+    }
+
+
+    /**
+     * Escape all of the key/value pairs into the extension's string
+     *
+     * @param extensionFields
+     *            the mapping of extension keys and their values
+     * @param errors
+     *            where a problem is recorded or null to throw an exception instead
+     * @return the escaped string or null if a key was invalid or a value null and there's a sink
+     * @throws InvalidExtensionKey
+     *             if one of the keys is invalid and there's no sink
+     */
+    private static String render( final Map<String, String> extensionFields, final ErrorSink errors )
+            throws InvalidExtensionKey {
+        final long start = CEFMetrics.EXTENSION.start();
+
+        try {
+            return Extension.build( extensionFields, errors );
+        } finally {
+            CEFMetrics.EXTENSION.stop( start );
+        }
+    }
+
+
+    /**
+     * Build the escaped string, see {@link #render(Map, ErrorSink)}
+     *
+     * @param extensionFields
+     *            the mapping of extension keys and their values
+     * @param errors
+     *            where a problem is recorded or null to throw an exception instead
+     * @return the escaped string or null if a key was invalid or a value null and there's a sink
+     * @throws InvalidExtensionKey
+     *             if one of the keys is invalid and there's no sink
+     */
+    private static String build( final Map<String, String> extensionFields, final ErrorSink errors )
+            throws InvalidExtensionKey {
 
-        // Use the # of pairs * 20 as an initial best-guess for the builder size
-        final StringBuilder sb    = new StringBuilder( extensionFields.size() * 20 );
+        // Work out the exact size so the builder never has to grow
+        final StringBuilder sb    = new StringBuilder( Extension.renderedLength( extensionFields, false ) );
         Boolean             first = true;
 
         /*
          * Loop over all of the element pairs and add them to the string builder. Conveniently when
          * we escape the keys/values we also check to make sure they're valid and if they aren't an
-         * exception will be thrown. So we not only ensure everything is okay at creation, but we
-         * also pre-calculate the string variable so future calls are instant for the small price of
-         * memory space.
+         * exception will be thrown (or the sink told). So we not only ensure everything is okay at
+         * creation, but we also pre-calculate the string variable so future calls are instant for
+         * the small price of memory space.
          */
         for (final Entry<String, String> entry : extensionFields.entrySet()) {
             if (first) {
@@ -104,23 +224,68 @@ public class Extension implements Serializable {
             }
 
 
-            sb.append( StringUtils.escapeExtensionKey( entry.getKey() ) );
+            if (errors == null) {
+                sb.append( StringUtils.escapeExtensionKey( entry.getKey() ) );
+            }
+            else {
+                final String key = StringUtils.escapeExtensionKey( entry.getKey(), errors );
+
+                if (key == null) {
+                    return null;
+                }
+
+
+                sb.append( key );
+
+                if (entry.getValue() == null) {
+                    errors.reject( ErrorSink.NULL_VALUE, null, -1 );
+
+                    return null;
+                }
+            }
+
+
             sb.append( "=" );
             sb.append( StringUtils.escapeExtensionValue( entry.getValue() ) );
         }
 
 
-        // Should be changeable but cast it anyway
-        fields = Collections.unmodifiableMap( extensionFields );
+        return sb.toString();
+    }
 
-        Extension.LOG.debug( "The extension's string was calculated as {}", sb.toString() );
 
-        asString = sb.toString();
-        hashCode = fields.hashCode();
-    }
+    /**
+     * Work out the length of the extension's string
+     *
+     * @param extensionFields
+     *            the mapping of extension keys and their values
+     * @param utf8
+     *            true for the number of UTF-8 bytes instead of chars
+     * @return the length
+     */
+    private static int renderedLength( final Map<String, String> extensionFields, final boolean utf8 ) {
+        int length = 0;
 
+        for (final Entry<String, String> entry : extensionFields.entrySet()) {
+            if (length > 0) {
+                length++;
+            }
+
+
+            if (utf8) {
+                length += StringUtils.escapedUtf8Length( entry.getKey(), EscapeScanner.KEY ) + 1
+                          + StringUtils.escapedUtf8Length( entry.getValue(), EscapeScanner.VALUE );
+            }
+            else {
+                length += StringUtils.escapedLength( entry.getKey(), EscapeScanner.KEY ) + 1
+                          + StringUtils.escapedLength( entry.getValue(), EscapeScanner.VALUE );
+            }
+        }
+
+
+        return length;
+    }
 
-    //~--- methods ------------------------------------------------------------
 
     @Override
     public boolean equals( final Object obj ) {
@@ -130,10 +295,10 @@ public class Extension implements Serializable {
         else if (obj == null) {
             return false;
         }
-        else if (this.getClass() != obj.getClass()) {
+        else if (!(obj instanceof Extension)) {
             return false;
         }
-        else if (!fields.equals( ((Extension) obj).getFields() )) {
+        else if (!fieldMap().equals( ((Extension) obj).fieldMap() )) {
             return false;
         }
 
@@ -142,6 +307,35 @@ public class Extension implements Serializable {
     }
 
 
+    /**
+     * Get the value of a single key without copying the field mapping
+     *
+     * @param key
+     *            the plain extension key
+     * @return the plain value or null if the key isn't present
+     */
+    public String get( final String key ) {
+        return fieldMap().get( key );
+    }
+
+
+    /**
+     * Put a time into a field mapping in the <code>MMM dd yyyy HH:mm:ss.SSS UTC</code> format, such as
+     * for the <code>rt</code>, <code>start</code> and <code>end</code> keys
+     *
+     * @param fields
+     *            the field mapping an extension will be made from
+     * @param key
+     *            the plain extension key
+     * @param millis
+     *            the time in epoch milliseconds
+     * @see CEFTime#format(long)
+     */
+    public static void putTime( final Map<String, String> fields, final String key, final long millis ) {
+        fields.put( key, CEFTime.format( millis ) );
+    }
+
+
     @Override
     public int hashCode() {
         return hashCode;
@@ -156,10 +350,41 @@ public class Extension implements Serializable {
 
     //~--- get methods --------------------------------------------------------
 
+    /**
+     * @return the number of UTF-8 bytes in the extension's string
+     */
+    public int getEncodedLength() {
+        return Utf8.encodedLength( asString );
+    }
+
+
     /**
      * @return a copy of the fields present in the extension
      */
     public Map<String, String> getFields() {
-        return new HashMap<String, String>( fields );
+        return new HashMap<String, String>( fieldMap() );
+    }
+
+
+    /**
+     * Get the value of a time key such as <code>rt</code>, <code>start</code> or <code>end</code>.
+     * Times without a zone are in the JVM's zone.
+     *
+     * @param key
+     *            the plain extension key
+     * @return the time in epoch milliseconds or {@link CEFTime#NO_TIME} if the key is missing or
+     *         doesn't hold a time
+     * @see CEFTime#parse(CharSequence)
+     */
+    public long getTime( final String key ) {
+        return CEFTime.parse( get( key ) );
+    }
+
+
+    /**
+     * @return the read-only field mapping
+     */
+    protected Map<String, String> fieldMap() {
+        return fields;
     }
 }
@@ -37,6 +37,14 @@ public final class InvalidExtensionKey extends Exception {
      */
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Shared instance without a stack trace or the offending value. It's thrown instead of a new
+     * exception when the <code>com.lespea.cef.preallocatedExceptions</code> system property is
+     * <code>true</code> so floods of bad data don't spend their time filling in stack traces.
+     */
+    public static final InvalidExtensionKey PREALLOCATED =
+        new InvalidExtensionKey( "The extension key contained an invalid character", false );
+
 
     //~--- constructors -------------------------------------------------------
 
@@ -73,4 +81,16 @@ public final class InvalidExtensionKey extends Exception {
     public InvalidExtensionKey( final String message, final Throwable cause ) {
         super( message, cause );
     }
+
+
+    /**
+     * @param message
+     *            the message to be thrown
+     * @param writable
+     *            false for a shared instance: no stack trace is filled in, suppressed exceptions
+     *            aren't recorded and the cause can't be set, so nothing that throws it can change it
+     */
+    private InvalidExtensionKey( final String message, final boolean writable ) {
+        super( message, null, writable, writable );
+    }
 }
@@ -0,0 +1,238 @@
+/**
+ * LazyExtension.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.utils.CEFScanner;
+import com.lespea.cef.utils.StringUtils;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Extension that's backed by its escaped text, as read back from a file or the wire.
+ * <p>
+ * Nothing is parsed up front. {@link #get(String)} walks the text to the key it's asked for and
+ * only unescapes that one value, and the full field mapping is built the first time something
+ * needs it ({@link #getFields()}, {@link #equals(Object)} or {@link #hashCode()}). When a key is
+ * repeated the first value wins.
+ * <p>
+ * The text isn't validated; anything that doesn't look like a <code>key=value</code> pair is
+ * skipped. This object is immutable and equal to an {@link Extension} holding the same fields.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class LazyExtension extends Extension {
+
+    /** Serial version */
+    private static final long serialVersionUID = 1L;
+
+    //~--- fields -------------------------------------------------------------
+
+    /** The field mapping, built on first use */
+    private transient volatile Map<String, String> fields;
+
+    /** The computed hashCode (0 until it's needed) */
+    private transient int hashCode;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * @param escaped
+     *            the escaped extension text (everything after the last header bar)
+     */
+    public LazyExtension( final String escaped ) {
+        super( escaped );
+
+        if (escaped == null) {
+            throw new IllegalArgumentException( "The extension text cannot be null" );
+        }
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    @Override
+    public String get( final String key ) {
+        final Map<String, String> built = fields;
+
+        if (built != null) {
+            return built.get( key );
+        }
+
+
+        final String text     = toString();
+        final int    length   = text.length();
+        int          keyStart = 0;
+
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt( i );
+
+            if (CEFScanner.isExtensionEscape( text, i, length )) {
+                i++;
+            }
+            else if (c == ' ') {
+                keyStart = i + 1;
+            }
+            else if (c == '=') {
+                if (LazyExtension.keyEquals( text, keyStart, i, key )) {
+                    return StringUtils.unescapeExtensionValue( text, i + 1, CEFScanner.extensionValueEnd( text, i + 1 ) );
+                }
+
+
+                keyStart = i + 1;
+            }
+        }
+
+
+        return null;
+    }
+
+
+    @Override
+    public int hashCode() {
+        int hash = hashCode;
+
+        if (hash == 0) {
+            hash     = fieldMap().hashCode();
+            hashCode = hash;
+        }
+
+
+        return hash;
+    }
+
+
+    /**
+     * Tests if a region of escaped text is the plain key
+     *
+     * @param text
+     *            the escaped text
+     * @param start
+     *            the start of the region
+     * @param end
+     *            the end of the region (exclusive)
+     * @param key
+     *            the plain key
+     * @return if they're the same
+     */
+    private static boolean keyEquals( final String text, final int start, final int end, final String key ) {
+        final int keyLength = key.length();
+        int       k         = 0;
+
+        for (int i = start; i < end; i++, k++) {
+            char c = text.charAt( i );
+
+            if ((c == '\\') && (i + 1 < end) && (text.charAt( i + 1 ) == '=')) {
+                c = '=';
+                i++;
+            }
+
+
+            if ((k == keyLength) || (key.charAt( k ) != c)) {
+                return false;
+            }
+        }
+
+
+        return k == keyLength;
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    @Override
+    protected Map<String, String> fieldMap() {
+        Map<String, String> built = fields;
+
+        if (built == null) {
+            built  = Collections.unmodifiableMap( LazyExtension.parse( toString() ) );
+            fields = built;
+        }
+
+
+        return built;
+    }
+
+
+    /**
+     * Split escaped extension text into its plain pairs
+     *
+     * @param text
+     *            the escaped text
+     * @return the pairs
+     */
+    private static Map<String, String> parse( final String text ) {
+        final Map<String, String> map    = new HashMap<String, String>();
+        final int                 length = text.length();
+        int                       pos    = 0;
+
+        while (pos < length) {
+            int equals = -1;
+
+            for (int i = pos; i < length; i++) {
+                final char c = text.charAt( i );
+
+                if (CEFScanner.isExtensionEscape( text, i, length )) {
+                    i++;
+                }
+                else if (c == ' ') {
+                    pos = i + 1;
+                }
+                else if (c == '=') {
+                    equals = i;
+
+                    break;
+                }
+            }
+
+
+            if (equals < 0) {
+                break;
+            }
+
+
+            final int    valueEnd = CEFScanner.extensionValueEnd( text, equals + 1 );
+            final String key      = StringUtils.unescapeExtensionKey( text, pos, equals );
+
+            if (!map.containsKey( key )) {
+                map.put( key, StringUtils.unescapeExtensionValue( text, equals + 1, valueEnd ) );
+            }
+
+
+            pos = valueEnd + 1;
+        }
+
+
+        return map;
+    }
+}
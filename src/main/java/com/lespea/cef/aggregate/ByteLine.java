@@ -0,0 +1,124 @@
+/**
+ * ByteLine.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+
+package com.lespea.cef.aggregate;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.utils.LineField;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.nio.charset.Charset;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * A line of UTF-8 bytes read as a {@link CharSequence} with every byte as one char. All of the
+ * CEF delimiters are ASCII, so a {@link LineField} finds its value in place and only the values
+ * picked out are decoded. Offsets are relative to the start of the line.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+final class ByteLine implements CharSequence {
+
+    /** Turns every byte into the char with the same value */
+    private static final Charset LATIN1 = Charset.forName( "ISO-8859-1" );
+
+    //~--- fields -------------------------------------------------------------
+
+    /** The bytes */
+    private byte[] bytes;
+
+    /** The length of the line */
+    private int length;
+
+    /** The start of the line */
+    private int offset;
+
+
+    //~--- methods ------------------------------------------------------------
+
+    @Override
+    public char charAt( final int index ) {
+        return (char) (bytes[offset + index] & 0xFF);
+    }
+
+
+    /**
+     * Get a field's value
+     *
+     * @param field
+     *            the field
+     * @return the unescaped value or null if it's missing
+     */
+    String get( final LineField field ) {
+        final int start = field.start( this );
+
+        if (start < 0) {
+            return null;
+        }
+
+
+        return field.unescape( bytes, offset + start, offset + field.end( this, start ) );
+    }
+
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+
+    /**
+     * Point at a new line
+     *
+     * @param buf
+     *            the bytes
+     * @param from
+     *            the start of the line
+     * @param to
+     *            the end of the line (exclusive)
+     */
+    void reset( final byte[] buf, final int from, final int to ) {
+        bytes  = buf;
+        offset = from;
+        length = to - from;
+    }
+
+
+    @Override
+    public CharSequence subSequence( final int start, final int end ) {
+        return new String( bytes, offset + start, end - start, ByteLine.LATIN1 );
+    }
+
+
+    @Override
+    public String toString() {
+        return new String( bytes, offset, length, ByteLine.LATIN1 );
+    }
+}
@@ -0,0 +1,725 @@
+/**
+ * GroupBy.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.aggregate;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.filter.CEFFilter;
+import com.lespea.cef.utils.CEFScanner;
+import com.lespea.cef.utils.CEFTime;
+import com.lespea.cef.utils.LineField;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Exact group-by counts and sums over CEF files, such as records per vendor, product and id per
+ * hour or bytes in and out per source:
+ *
+ * <pre>
+ * GroupResult hourly = GroupBy.by( "vendor", "product", "id" ).per( TimeUnit.HOURS.toMillis( 1 ) ).run( file );
+ * GroupResult bytes  = GroupBy.by( "src" ).sum( "in" ).sum( "out" ).run( file );
+ * </pre>
+ *
+ * The fields are header field names or extension keys. The file is cut into chunks of about
+ * {@link #chunkBytes(int)} that each start and end on a line boundary, and the chunks are
+ * aggregated in parallel on a fork-join pool. Every line is scanned straight from the file's bytes
+ * and only the values of the fields being grouped are decoded into strings; sums and times are
+ * parsed in place, the filter runs on the bytes and no {@link com.lespea.cef.CEF} objects are
+ * made. Each pool thread adds into a {@link GroupTable} of its own, an open addressing table of
+ * <code>long</code> counters, and the threads' tables are merged once every chunk is done.
+ * <p>
+ * A record missing a grouped field goes in the group with an empty value for it. Only sums of
+ * whole numbers are kept, and a record whose summed field is missing or isn't one counts towards
+ * its group but adds nothing to that sum. Time buckets come from the <code>rt</code> field in the
+ * JVM's zone, and records without one go in the {@link CEFTime#NO_TIME} bucket. Lines that aren't
+ * records are skipped and counted.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class GroupBy {
+
+    /** Separates the values in a group's key */
+    static final char SEPARATOR = '\u0000';
+
+    /** Marks a summed value that isn't a whole number */
+    private static final long NOT_A_NUMBER = Long.MIN_VALUE;
+
+    //~--- fields -------------------------------------------------------------
+
+    /** The size of a chunk in bytes */
+    private int chunkBytes = 8 * 1024 * 1024;
+
+    /** The fields grouped on */
+    private final LineField[] fields;
+
+    /** The length of a time bucket or 0 to not split by time */
+    private long per;
+
+    /** The fields summed */
+    private final List<LineField> sums = new ArrayList<LineField>();
+
+    /** The field holding a record's time */
+    private final LineField time = new LineField( "rt" );
+
+    /** Only records matching this are aggregated, or null for every record */
+    private CEFFilter where;
+
+    /** The zone of times without one */
+    private final TimeZone zone = TimeZone.getDefault();
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * @param fields
+     *            the fields grouped on
+     */
+    private GroupBy( final String... fields ) {
+        this.fields = new LineField[fields.length];
+
+        for (int i = 0; i < fields.length; i++) {
+            this.fields[i] = new LineField( fields[i] );
+        }
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Group records by the values of some fields; with no fields every record is in one group
+     *
+     * @param fields
+     *            header field names or extension keys
+     * @return the group-by
+     */
+    public static GroupBy by( final String... fields ) {
+        return new GroupBy( fields );
+    }
+
+
+    /**
+     * Set how much of a file each fork-join task reads
+     *
+     * @param bytes
+     *            the size of a chunk
+     * @return this group-by
+     */
+    public GroupBy chunkBytes( final int bytes ) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException( "The chunk size must be positive" );
+        }
+
+
+        this.chunkBytes = bytes;
+
+        return this;
+    }
+
+
+    /**
+     * Split the groups into time buckets
+     *
+     * @param millis
+     *            the length of a bucket in milliseconds
+     * @return this group-by
+     */
+    public GroupBy per( final long millis ) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException( "The bucket length must be positive" );
+        }
+
+
+        this.per = millis;
+
+        return this;
+    }
+
+
+    /**
+     * Aggregate a file on a pool made for the call, with a thread per processor
+     *
+     * @param file
+     *            an uncompressed file of CEF lines
+     * @return the groups
+     * @throws IOException
+     *             if the file can't be read
+     */
+    public GroupResult run( final File file ) throws IOException {
+        final ForkJoinPool pool = new ForkJoinPool();
+
+        try {
+            return run( file, pool );
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+
+    /**
+     * Aggregate a file
+     *
+     * @param file
+     *            an uncompressed file of CEF lines
+     * @param pool
+     *            the pool to aggregate on
+     * @return the groups
+     * @throws IOException
+     *             if the file can't be read
+     */
+    public GroupResult run( final File file, final ForkJoinPool pool ) throws IOException {
+        final FileInputStream in = new FileInputStream( file );
+
+        try {
+            final Run run = new Run( in.getChannel() );
+
+            pool.invoke( new Chunks( run, 0, run.bounds.length - 1 ) );
+
+            if (run.failure != null) {
+                throw run.failure;
+            }
+
+
+            final GroupTable merged = new GroupTable( sums.size() + 1 );
+
+            for (final GroupTable table : run.tables) {
+                merged.merge( table );
+            }
+
+
+            return result( merged, run.lines.get(), run.skipped.get() );
+        } finally {
+            in.close();
+        }
+    }
+
+
+    /**
+     * Aggregate lines on the calling thread
+     *
+     * @param lines
+     *            the lines
+     * @return the groups
+     */
+    public GroupResult run( final Iterable<? extends CharSequence> lines ) {
+        final GroupTable    table   = new GroupTable( sums.size() + 1 );
+        final StringBuilder sb      = new StringBuilder();
+        long                count   = 0;
+        long                skipped = 0;
+
+        for (final CharSequence line : lines) {
+            count++;
+
+            if (!aggregate( line, table, sb )) {
+                skipped++;
+            }
+        }
+
+
+        return result( table, count, skipped );
+    }
+
+
+    /**
+     * Sum a field as well as counting
+     *
+     * @param field
+     *            a header field name or extension key holding whole numbers
+     * @return this group-by
+     */
+    public GroupBy sum( final String field ) {
+        sums.add( new LineField( field ) );
+
+        return this;
+    }
+
+
+    @Override
+    public String toString() {
+        return "GroupBy [fields=" + Arrays.toString( fields ) + ", sums=" + sums + ", per=" + per
+               + ", where=" + where + "]";
+    }
+
+
+    /**
+     * Only aggregate the records matching a filter
+     *
+     * @param filter
+     *            the filter
+     * @return this group-by
+     */
+    public GroupBy where( final CEFFilter filter ) {
+        this.where = filter;
+
+        return this;
+    }
+
+
+    /**
+     * Build the key of a group
+     *
+     * @param timed
+     *            if the groups are split by time
+     * @param time
+     *            the start of the time bucket
+     * @param values
+     *            the values of the fields grouped on
+     * @return the key
+     */
+    static String key( final boolean timed, final long time, final String... values ) {
+        final StringBuilder sb = new StringBuilder();
+
+        if (timed) {
+            sb.append( time ).append( GroupBy.SEPARATOR );
+        }
+
+
+        for (final String value : values) {
+            sb.append( value ).append( GroupBy.SEPARATOR );
+        }
+
+
+        return sb.toString();
+    }
+
+
+    /**
+     * Add a line to a table
+     *
+     * @param line
+     *            the line
+     * @param table
+     *            the table
+     * @param sb
+     *            a builder to reuse for the key
+     * @return false if the line isn't a record
+     */
+    private boolean aggregate( final CharSequence line, final GroupTable table, final StringBuilder sb ) {
+        if (CEFScanner.extensionStart( line ) < 0) {
+            return false;
+        }
+        else if ((where == null) || where.matches( line )) {
+            add( line, table, sb );
+        }
+
+
+        return true;
+    }
+
+
+    /**
+     * Add a record that passed the filter to a table
+     *
+     * @param line
+     *            the record, either text or a {@link ByteLine}
+     * @param table
+     *            the table
+     * @param sb
+     *            a builder to reuse for the key
+     */
+    private void add( final CharSequence line, final GroupTable table, final StringBuilder sb ) {
+        sb.setLength( 0 );
+
+        if (per > 0) {
+            final int  start  = time.start( line );
+            final long millis = (start < 0)
+                                ? CEFTime.NO_TIME
+                                : CEFTime.parse( line, start, time.end( line, start ), zone );
+
+            sb.append( (millis == CEFTime.NO_TIME)
+                       ? CEFTime.NO_TIME
+                       : millis - GroupBy.floorMod( millis, per ) ).append( GroupBy.SEPARATOR );
+        }
+
+
+        for (final LineField field : fields) {
+            final String value = (line instanceof ByteLine)
+                                 ? ((ByteLine) line).get( field )
+                                 : field.get( line );
+
+            if (value != null) {
+                sb.append( value );
+            }
+
+
+            sb.append( GroupBy.SEPARATOR );
+        }
+
+
+        final int slot = table.slot( sb.toString() );
+
+        table.add( slot, 0, 1 );
+
+        for (int i = 0; i < sums.size(); i++) {
+            final LineField field = sums.get( i );
+            final int       start = field.start( line );
+
+            if (start >= 0) {
+                final long value = GroupBy.parseLong( line, start, field.end( line, start ) );
+
+                if (value != GroupBy.NOT_A_NUMBER) {
+                    table.add( slot, i + 1, value );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * @param value
+     *            a value
+     * @param divisor
+     *            a positive divisor
+     * @return the remainder, never negative
+     */
+    private static long floorMod( final long value, final long divisor ) {
+        final long mod = value % divisor;
+
+        return (mod < 0)
+               ? mod + divisor
+               : mod;
+    }
+
+
+    /**
+     * Parse a whole number in place
+     *
+     * @param line
+     *            the text
+     * @param from
+     *            the start of the number
+     * @param to
+     *            the end of the number (exclusive)
+     * @return the number or {@link #NOT_A_NUMBER}
+     */
+    private static long parseLong( final CharSequence line, final int from, final int to ) {
+        int end = to;
+
+        while ((end > from) && (line.charAt( end - 1 ) == ' ')) {
+            end--;
+        }
+
+
+        final boolean negative = (from < end) && (line.charAt( from ) == '-');
+        int           i        = negative
+                                 ? from + 1
+                                 : from;
+
+        // Nineteen digits might not fit, so anything longer than eighteen is left out
+        if ((i == end) || (end - i > 18)) {
+            return GroupBy.NOT_A_NUMBER;
+        }
+
+
+        long value = 0;
+
+        for (; i < end; i++) {
+            final char c = line.charAt( i );
+
+            if ((c < '0') || (c > '9')) {
+                return GroupBy.NOT_A_NUMBER;
+            }
+
+
+            value = value * 10 + (c - '0');
+        }
+
+
+        return negative
+               ? -value
+               : value;
+    }
+
+
+    /**
+     * Turn a merged table into a result
+     *
+     * @param table
+     *            the table
+     * @param lines
+     *            number of lines read
+     * @param skipped
+     *            number of lines that weren't records
+     * @return the result
+     */
+    private GroupResult result( final GroupTable table, final long lines, final long skipped ) {
+        final String[] fieldNames = new String[fields.length];
+        final String[] sumNames   = new String[sums.size()];
+
+        for (int i = 0; i < fieldNames.length; i++) {
+            fieldNames[i] = fields[i].getName();
+        }
+
+
+        for (int i = 0; i < sumNames.length; i++) {
+            sumNames[i] = sums.get( i ).getName();
+        }
+
+
+        return new GroupResult( fieldNames, sumNames, per > 0, table, lines, skipped );
+    }
+
+
+    //~--- inner classes ------------------------------------------------------
+
+    /**
+     * Aggregates a range of chunks, splitting it in half until there's only one
+     */
+    private final class Chunks extends RecursiveAction {
+
+        /** Serial version */
+        private static final long serialVersionUID = 1L;
+
+        /** The first chunk */
+        private final int from;
+
+        /** The run */
+        private final Run run;
+
+        /** The chunk after the last */
+        private final int to;
+
+
+        /**
+         * @param run
+         *            the run
+         * @param from
+         *            the first chunk
+         * @param to
+         *            the chunk after the last
+         */
+        Chunks( final Run run, final int from, final int to ) {
+            this.run  = run;
+            this.from = from;
+            this.to   = to;
+        }
+
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                final int middle = (from + to) >>> 1;
+
+                ForkJoinTask.invokeAll( new Chunks( run, from, middle ), new Chunks( run, middle, to ) );
+            }
+            else if (to > from) {
+                try {
+                    run.aggregate( from );
+                } catch (final IOException e) {
+                    run.failure = e;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * The state of one aggregation of a file
+     */
+    private final class Run {
+
+        /** The offsets the chunks start at, followed by the size of the file */
+        final long[] bounds;
+
+        /** The file */
+        private final FileChannel channel;
+
+        /** The first error reading the file */
+        volatile IOException failure;
+
+        /** Number of lines read */
+        final AtomicLong lines = new AtomicLong();
+
+        /** Number of lines that weren't records */
+        final AtomicLong skipped = new AtomicLong();
+
+        /** Every thread's table */
+        final Queue<GroupTable> tables = new ConcurrentLinkedQueue<GroupTable>();
+
+        /** The current thread's table */
+        private final ThreadLocal<GroupTable> local = new ThreadLocal<GroupTable>() {
+            @Override
+            protected GroupTable initialValue() {
+                final GroupTable table = new GroupTable( sums.size() + 1 );
+
+                tables.add( table );
+
+                return table;
+            }
+        };
+
+
+        /**
+         * Cut the file into chunks on line boundaries
+         *
+         * @param channel
+         *            the file
+         * @throws IOException
+         *             if the file can't be read
+         */
+        Run( final FileChannel channel ) throws IOException {
+            this.channel = channel;
+
+            final long       size   = channel.size();
+            final List<Long> starts = new ArrayList<Long>();
+            final ByteBuffer probe  = ByteBuffer.allocate( 8192 );
+            long             start  = 0;
+
+            while (start < size) {
+                starts.add( start );
+
+                // The next chunk starts after the first line end at or past the target
+                long position = start + chunkBytes - 1;
+                long next     = size;
+
+                while (position < size) {
+                    probe.clear();
+
+                    final int read = channel.read( probe, position );
+
+                    if (read <= 0) {
+                        break;
+                    }
+
+
+                    int i = 0;
+
+                    while ((i < read) && (probe.get( i ) != '\n')) {
+                        i++;
+                    }
+
+
+                    if (i < read) {
+                        next = position + i + 1;
+
+                        break;
+                    }
+
+
+                    position += read;
+                }
+
+
+                start = next;
+            }
+
+
+            bounds = new long[starts.size() + 1];
+
+            for (int i = 0; i < starts.size(); i++) {
+                bounds[i] = starts.get( i );
+            }
+
+
+            bounds[starts.size()] = size;
+        }
+
+
+        /**
+         * Aggregate one chunk into the current thread's table
+         *
+         * @param chunk
+         *            the chunk
+         * @throws IOException
+         *             if the file can't be read
+         */
+        void aggregate( final int chunk ) throws IOException {
+            if (failure != null) {
+                return;
+            }
+
+
+            final long       start  = bounds[chunk];
+            final byte[]     bytes  = new byte[(int) (bounds[chunk + 1] - start)];
+            final ByteBuffer buffer = ByteBuffer.wrap( bytes );
+
+            while (buffer.hasRemaining()) {
+                if (channel.read( buffer, start + buffer.position() ) < 0) {
+                    throw new IOException( "The file got shorter while it was read" );
+                }
+            }
+
+
+            final GroupTable    table   = local.get();
+            final StringBuilder sb      = new StringBuilder();
+            final ByteLine      line    = new ByteLine();
+            int                 count   = 0;
+            int                 invalid = 0;
+            int                 from    = 0;
+
+            while (from < bytes.length) {
+                int end = from;
+
+                while ((end < bytes.length) && (bytes[end] != '\n')) {
+                    end++;
+                }
+
+
+                final int next = end + 1;
+
+                if ((end > from) && (bytes[end - 1] == '\r')) {
+                    end--;
+                }
+
+
+                count++;
+                line.reset( bytes, from, end );
+
+                if (CEFScanner.extensionStart( line ) < 0) {
+                    invalid++;
+                }
+                else if ((where == null) || where.matches( bytes, from, end - from )) {
+                    add( line, table, sb );
+                }
+
+
+                from = next;
+            }
+
+
+            lines.addAndGet( count );
+            skipped.addAndGet( invalid );
+        }
+    }
+}
@@ -0,0 +1,360 @@
+/**
+ * GroupResult.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.aggregate;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.utils.CEFTime;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * The groups a {@link GroupBy} found, with the number of records and the sums of each, the
+ * biggest groups first.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class GroupResult {
+
+    /** The fields grouped on */
+    private final String[] fields;
+
+    /** The groups by their key */
+    private final Map<String, Group> byKey;
+
+    /** The groups, biggest first */
+    private final List<Group> groups;
+
+    /** Number of lines read */
+    private final long lines;
+
+    /** Number of records aggregated */
+    private final long records;
+
+    /** Number of lines that weren't records */
+    private final long skipped;
+
+    /** The fields summed */
+    private final String[] sums;
+
+    /** If the groups are split by time */
+    private final boolean timed;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * @param fields
+     *            the fields grouped on
+     * @param sums
+     *            the fields summed
+     * @param timed
+     *            if the groups are split by time
+     * @param table
+     *            the merged table
+     * @param lines
+     *            number of lines read
+     * @param skipped
+     *            number of lines that weren't records
+     */
+    GroupResult( final String[] fields, final String[] sums, final boolean timed, final GroupTable table,
+                 final long lines, final long skipped ) {
+        this.fields  = fields;
+        this.sums    = sums;
+        this.timed   = timed;
+        this.lines   = lines;
+        this.skipped = skipped;
+        this.groups  = new ArrayList<Group>( table.size() );
+        this.byKey   = new HashMap<String, Group>( table.size() * 2 );
+
+        long total = 0;
+
+        for (int slot = 0; slot < table.capacity(); slot++) {
+            final String key = table.key( slot );
+
+            if (key != null) {
+                final long[] values = new long[sums.length];
+
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = table.value( slot, i + 1 );
+                }
+
+
+                final Group group = new Group( key, table.value( slot, 0 ), values );
+
+                total += group.count;
+                groups.add( group );
+                byKey.put( key, group );
+            }
+        }
+
+
+        Collections.sort( groups );
+        this.records = total;
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    @Override
+    public String toString() {
+        return "GroupResult [fields=" + Arrays.toString( fields ) + ", sums=" + Arrays.toString( sums ) + ", groups="
+               + groups.size() + ", records=" + records + ", skipped=" + skipped + "]";
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * Find a group of a result that isn't split by time
+     *
+     * @param values
+     *            the values of the fields grouped on, empty for a missing field
+     * @return the group or null if there were no records in it
+     */
+    public Group get( final String... values ) {
+        return get( CEFTime.NO_TIME, values );
+    }
+
+
+    /**
+     * Find a group
+     *
+     * @param time
+     *            the start of the group's time bucket; ignored if the result isn't split by time
+     * @param values
+     *            the values of the fields grouped on, empty for a missing field
+     * @return the group or null if there were no records in it
+     */
+    public Group get( final long time, final String... values ) {
+        return byKey.get( GroupBy.key( timed, time, values ) );
+    }
+
+
+    /**
+     * @return the fields grouped on
+     */
+    public String[] getFields() {
+        return fields.clone();
+    }
+
+
+    /**
+     * @return the groups, most records first
+     */
+    public List<Group> getGroups() {
+        return Collections.unmodifiableList( groups );
+    }
+
+
+    /**
+     * @return number of lines read
+     */
+    public long getLines() {
+        return lines;
+    }
+
+
+    /**
+     * @return number of records that went into a group
+     */
+    public long getRecords() {
+        return records;
+    }
+
+
+    /**
+     * @return number of lines that weren't records
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+
+    /**
+     * @return the fields summed
+     */
+    public String[] getSums() {
+        return sums.clone();
+    }
+
+
+    //~--- inner classes ------------------------------------------------------
+
+    /**
+     * One group: the values it was grouped on, how many records it has and their sums
+     */
+    public final class Group implements Comparable<Group> {
+
+        /** Number of records */
+        private final long count;
+
+        /** The key in the table */
+        private final String key;
+
+        /** The sums, in the order of the fields summed */
+        private final long[] totals;
+
+
+        /**
+         * @param key
+         *            the key in the table
+         * @param count
+         *            number of records
+         * @param totals
+         *            the sums
+         */
+        Group( final String key, final long count, final long[] totals ) {
+            this.key    = key;
+            this.count  = count;
+            this.totals = totals;
+        }
+
+
+        /**
+         * Most records first, then by key
+         *
+         * @param o
+         *            the other group
+         * @return the order
+         */
+        @Override
+        public int compareTo( final Group o ) {
+            if (count != o.count) {
+                return (count > o.count)
+                       ? -1
+                       : 1;
+            }
+
+
+            return key.compareTo( o.key );
+        }
+
+
+        @Override
+        public boolean equals( final Object obj ) {
+            return (obj instanceof Group) && key.equals( ((Group) obj).key ) && (count == ((Group) obj).count);
+        }
+
+
+        @Override
+        public int hashCode() {
+            return key.hashCode();
+        }
+
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder();
+
+            if (timed) {
+                sb.append( CEFTime.format( getTime() ) ).append( ' ' );
+            }
+
+
+            sb.append( Arrays.toString( getValues() ) ).append( " count=" ).append( count );
+
+            for (int i = 0; i < sums.length; i++) {
+                sb.append( ' ' ).append( sums[i] ).append( '=' ).append( totals[i] );
+            }
+
+
+            return sb.toString();
+        }
+
+
+        /**
+         * @return number of records in the group
+         */
+        public long getCount() {
+            return count;
+        }
+
+
+        /**
+         * Get the sum of a field over the group's records that have a whole number in it
+         *
+         * @param field
+         *            a field that was summed
+         * @return the sum
+         */
+        public long getSum( final String field ) {
+            for (int i = 0; i < sums.length; i++) {
+                if (sums[i].equals( field )) {
+                    return totals[i];
+                }
+            }
+
+
+            throw new IllegalArgumentException( "The field " + field + " wasn't summed" );
+        }
+
+
+        /**
+         * @return the start of the group's time bucket, or {@link CEFTime#NO_TIME} if the result
+         *         isn't split by time or the records had no time
+         */
+        public long getTime() {
+            if (!timed) {
+                return CEFTime.NO_TIME;
+            }
+
+
+            return Long.parseLong( key.substring( 0, key.indexOf( GroupBy.SEPARATOR ) ) );
+        }
+
+
+        /**
+         * @return the values of the fields grouped on, empty for a missing field
+         */
+        public String[] getValues() {
+            final String[] values = new String[fields.length];
+            int            start  = timed
+                                    ? key.indexOf( GroupBy.SEPARATOR ) + 1
+                                    : 0;
+
+            for (int i = 0; i < values.length; i++) {
+                final int end = key.indexOf( GroupBy.SEPARATOR, start );
+
+                values[i] = key.substring( start, end );
+                start     = end + 1;
+            }
+
+
+            return values;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/**
+ * GroupTable.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.aggregate;
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * An open addressing hash table from group keys to a fixed number of <code>long</code> counters,
+ * kept in parallel arrays so adding to a group is a probe and an array update with nothing boxed
+ * or allocated once the group exists.
+ * <p>
+ * Slots are probed linearly and the table doubles when it's half full. Groups are never removed.
+ * A table isn't thread safe; each thread aggregates into its own and they're merged at the end.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+final class GroupTable {
+
+    /** The hashes of the keys */
+    private int[] hashes;
+
+    /** The keys, null for an empty slot */
+    private String[] keys;
+
+    /** The slot mask */
+    private int mask;
+
+    /** Number of groups */
+    private int size;
+
+    /** Number of counters per group */
+    private final int stride;
+
+    /** The counters, <code>stride</code> per slot */
+    private long[] values;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * @param stride
+     *            number of counters per group
+     */
+    GroupTable( final int stride ) {
+        this.stride = stride;
+        allocate( 1024 );
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Add to a counter of a slot
+     *
+     * @param slot
+     *            the slot
+     * @param counter
+     *            the counter
+     * @param delta
+     *            how much to add
+     */
+    void add( final int slot, final int counter, final long delta ) {
+        values[slot * stride + counter] += delta;
+    }
+
+
+    /**
+     * @return number of slots
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+
+    /**
+     * @param slot
+     *            a slot
+     * @return the key in the slot or null if it's empty
+     */
+    String key( final int slot ) {
+        return keys[slot];
+    }
+
+
+    /**
+     * Add the counters of another table to this one
+     *
+     * @param other
+     *            the table
+     */
+    void merge( final GroupTable other ) {
+        for (int from = 0; from < other.keys.length; from++) {
+            if (other.keys[from] != null) {
+                final int to = slot( other.keys[from], other.hashes[from] );
+
+                for (int i = 0; i < stride; i++) {
+                    values[to * stride + i] += other.values[from * stride + i];
+                }
+            }
+        }
+    }
+
+
+    /**
+     * @return number of groups
+     */
+    int size() {
+        return size;
+    }
+
+
+    /**
+     * Find the slot of a key, adding the key if it's new
+     *
+     * @param key
+     *            the key
+     * @return the slot
+     */
+    int slot( final String key ) {
+        return slot( key, GroupTable.spread( key.hashCode() ) );
+    }
+
+
+    /**
+     * @param slot
+     *            a slot
+     * @param counter
+     *            a counter
+     * @return its value
+     */
+    long value( final int slot, final int counter ) {
+        return values[slot * stride + counter];
+    }
+
+
+    /**
+     * Set up empty arrays
+     *
+     * @param capacity
+     *            number of slots, a power of two
+     */
+    private void allocate( final int capacity ) {
+        keys   = new String[capacity];
+        hashes = new int[capacity];
+        values = new long[capacity * stride];
+        mask   = capacity - 1;
+    }
+
+
+    /**
+     * Double the number of slots and put every group back
+     */
+    private void grow() {
+        final String[] oldKeys   = keys;
+        final int[]    oldHashes = hashes;
+        final long[]   oldValues = values;
+
+        allocate( keys.length * 2 );
+
+        for (int from = 0; from < oldKeys.length; from++) {
+            if (oldKeys[from] != null) {
+                int to = oldHashes[from] & mask;
+
+                while (keys[to] != null) {
+                    to = (to + 1) & mask;
+                }
+
+
+                keys[to]   = oldKeys[from];
+                hashes[to] = oldHashes[from];
+                System.arraycopy( oldValues, from * stride, values, to * stride, stride );
+            }
+        }
+    }
+
+
+    /**
+     * Find the slot of a key, adding the key if it's new
+     *
+     * @param key
+     *            the key
+     * @param hash
+     *            its spread hash
+     * @return the slot
+     */
+    private int slot( final String key, final int hash ) {
+        int slot = hash & mask;
+
+        while (keys[slot] != null) {
+            if ((hashes[slot] == hash) && keys[slot].equals( key )) {
+                return slot;
+            }
+
+
+            slot = (slot + 1) & mask;
+        }
+
+
+        if (size * 2 >= keys.length) {
+            grow();
+
+            return slot( key, hash );
+        }
+
+
+        keys[slot]   = key;
+        hashes[slot] = hash;
+        size++;
+
+        return slot;
+    }
+
+
+    /**
+     * Mix the bits of a hash so keys differing only in their high bits don't cluster
+     *
+     * @param hash
+     *            the hash
+     * @return the spread hash
+     */
+    private static int spread( final int hash ) {
+        final int mixed = hash * 0x9E3779B9;
+
+        return mixed ^ (mixed >>> 16);
+    }
+}
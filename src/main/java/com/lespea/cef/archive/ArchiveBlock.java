@@ -0,0 +1,242 @@
+/**
+ * ArchiveBlock.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.archive;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Index entry describing a single compressed block of an archive.
+ * <p>
+ * This object is immutable and once created no changes can be made!
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class ArchiveBlock {
+
+    /** Checksum of the uncompressed block */
+    private final int checksum;
+
+    /** Number of compressed bytes */
+    private final int compressedLength;
+
+    /** Latest timestamp in the block */
+    private final long maxTimestamp;
+
+    /** Earliest timestamp in the block */
+    private final long minTimestamp;
+
+    /** File offset of the compressed bytes */
+    private final long offset;
+
+    /** Number of records in the block */
+    private final int records;
+
+    /** The block's search index or null if the archive doesn't have one */
+    private final BlockStats stats;
+
+    /** Number of uncompressed bytes */
+    private final int uncompressedLength;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * Create a new block description
+     *
+     * @param offset
+     *            file offset of the compressed bytes
+     * @param compressedLength
+     *            number of compressed bytes
+     * @param uncompressedLength
+     *            number of uncompressed bytes
+     * @param records
+     *            number of records in the block
+     * @param minTimestamp
+     *            earliest timestamp in the block
+     * @param maxTimestamp
+     *            latest timestamp in the block
+     * @param checksum
+     *            CRC32 of the uncompressed block
+     * @param stats
+     *            the block's search index or null if there isn't one
+     */
+    public ArchiveBlock( final long offset, final int compressedLength, final int uncompressedLength, final int records,
+                         final long minTimestamp, final long maxTimestamp, final int checksum,
+                         final BlockStats stats ) {
+        this.offset             = offset;
+        this.compressedLength   = compressedLength;
+        this.uncompressedLength = uncompressedLength;
+        this.records            = records;
+        this.minTimestamp       = minTimestamp;
+        this.maxTimestamp       = maxTimestamp;
+        this.checksum           = checksum;
+        this.stats              = stats;
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Read a block description written by {@link #write(DataOutput)}
+     *
+     * @param in
+     *            where to read from
+     * @param version
+     *            the archive format version
+     * @return the block description
+     * @throws IOException
+     *             if the description could not be read
+     */
+    static ArchiveBlock read( final DataInput in, final byte version ) throws IOException {
+        final long offset             = in.readLong();
+        final int  compressedLength   = in.readInt();
+        final int  uncompressedLength = in.readInt();
+        final int  records            = in.readInt();
+        final long minTimestamp       = in.readLong();
+        final long maxTimestamp       = in.readLong();
+        final int  checksum           = in.readInt();
+
+        return new ArchiveBlock( offset, compressedLength, uncompressedLength, records, minTimestamp, maxTimestamp,
+                                 checksum, (version >= 2)
+                                           ? BlockStats.read( in )
+                                           : null );
+    }
+
+
+    /**
+     * Tests if any record in the block could fall in the time range
+     *
+     * @param from
+     *            earliest wanted timestamp (inclusive)
+     * @param to
+     *            latest wanted timestamp (inclusive)
+     * @return if the block overlaps the range
+     */
+    public boolean overlaps( final long from, final long to ) {
+        return (minTimestamp <= to) && (maxTimestamp >= from);
+    }
+
+
+    @Override
+    public String toString() {
+        return "ArchiveBlock[offset=" + offset + ", records=" + records + ", timestamps=" + minTimestamp + "-"
+               + maxTimestamp + "]";
+    }
+
+
+    /**
+     * Write the block description
+     *
+     * @param out
+     *            where to write to
+     * @throws IOException
+     *             if the description could not be written
+     */
+    void write( final DataOutput out ) throws IOException {
+        out.writeLong( offset );
+        out.writeInt( compressedLength );
+        out.writeInt( uncompressedLength );
+        out.writeInt( records );
+        out.writeLong( minTimestamp );
+        out.writeLong( maxTimestamp );
+        out.writeInt( checksum );
+
+        if (stats != null) {
+            stats.write( out );
+        }
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * @return the CRC32 of the uncompressed block
+     */
+    public int getChecksum() {
+        return checksum;
+    }
+
+
+    /**
+     * @return the number of compressed bytes
+     */
+    public int getCompressedLength() {
+        return compressedLength;
+    }
+
+
+    /**
+     * @return the latest timestamp in the block
+     */
+    public long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+
+    /**
+     * @return the earliest timestamp in the block
+     */
+    public long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+
+    /**
+     * @return the file offset of the compressed bytes
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+
+    /**
+     * @return the number of records in the block
+     */
+    public int getRecords() {
+        return records;
+    }
+
+
+    /**
+     * @return the block's search index or null if the archive doesn't have one
+     */
+    public BlockStats getStats() {
+        return stats;
+    }
+
+
+    /**
+     * @return the number of uncompressed bytes
+     */
+    public int getUncompressedLength() {
+        return uncompressedLength;
+    }
+}
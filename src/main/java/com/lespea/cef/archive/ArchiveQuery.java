@@ -0,0 +1,244 @@
+/**
+ * ArchiveQuery.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.archive;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Conditions used to search an archive. Every condition must hold for a record to match.
+ * <p>
+ * A query is used in two steps: {@link #mightMatch(ArchiveBlock)} prunes the blocks using the
+ * index so only the blocks that can hold a match are decompressed, and
+ * {@link #matches(long, CharSequence)} checks every record of those blocks exactly.
+ * <p>
+ * The conditions are set up with the chaining methods and the query should not be changed once
+ * it's handed to a reader.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class ArchiveQuery {
+
+    /** The escaped names of the fields that must have a value */
+    private final List<String> fields = new ArrayList<String>();
+
+    /** Latest wanted timestamp */
+    private long maxTimestamp = Long.MAX_VALUE;
+
+    /** Latest wanted <code>rt</code> */
+    private long maxRt = Long.MAX_VALUE;
+
+    /** Highest wanted severity */
+    private int maxSeverity = Integer.MAX_VALUE;
+
+    /** Earliest wanted timestamp */
+    private long minTimestamp = Long.MIN_VALUE;
+
+    /** Earliest wanted <code>rt</code> */
+    private long minRt = Long.MIN_VALUE;
+
+    /** Lowest wanted severity */
+    private int minSeverity = Integer.MIN_VALUE;
+
+    /** If the <code>rt</code> field is part of the query */
+    private boolean rtWanted;
+
+    /** If the severity is part of the query */
+    private boolean severityWanted;
+
+    /** True if a condition can never be met */
+    private boolean unsatisfiable;
+
+    /** The escaped values the fields must have */
+    private final List<String> values = new ArrayList<String>();
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Only match records whose archive timestamp is in the range
+     *
+     * @param from
+     *            earliest wanted timestamp (inclusive)
+     * @param to
+     *            latest wanted timestamp (inclusive)
+     * @return this query
+     */
+    public ArchiveQuery between( final long from, final long to ) {
+        minTimestamp = from;
+        maxTimestamp = to;
+
+        return this;
+    }
+
+
+    /**
+     * Only match records where a field has exactly the value
+     *
+     * @param field
+     *            the header field name (<code>vendor</code>, <code>product</code>,
+     *            <code>version</code>, <code>id</code> or <code>name</code>) or the plain extension
+     *            key
+     * @param value
+     *            the plain (unescaped) value
+     * @return this query
+     */
+    public ArchiveQuery field( final String field, final String value ) {
+        final String escapedField = BlockStats.escapeFieldName( field );
+        final String escapedValue = BlockStats.escapeValue( escapedField, value );
+
+        if (escapedValue == null) {
+            unsatisfiable = true;
+        }
+        else {
+            fields.add( escapedField );
+            values.add( escapedValue );
+        }
+
+
+        return this;
+    }
+
+
+    /**
+     * Tests if a record matches every condition
+     *
+     * @param timestamp
+     *            the record's archive timestamp
+     * @param line
+     *            the rendered CEF string
+     * @return if the record matches
+     */
+    public boolean matches( final long timestamp, final CharSequence line ) {
+        if (unsatisfiable || (timestamp < minTimestamp) || (timestamp > maxTimestamp)) {
+            return false;
+        }
+
+
+        for (int i = 0; i < fields.size(); i++) {
+            if (!values.get( i ).equals( BlockStats.fieldValue( line, fields.get( i ) ) )) {
+                return false;
+            }
+        }
+
+
+        if (severityWanted) {
+            final int severity = BlockStats.severity( line );
+
+            if ((severity < 0) || (severity < minSeverity) || (severity > maxSeverity)) {
+                return false;
+            }
+        }
+
+
+        if (rtWanted) {
+            final long rt = BlockStats.rt( line );
+
+            if ((rt == BlockStats.NO_TIME) || (rt < minRt) || (rt > maxRt)) {
+                return false;
+            }
+        }
+
+
+        return true;
+    }
+
+
+    /**
+     * Tests if a block could hold a matching record using only its index
+     *
+     * @param block
+     *            the block to test
+     * @return false if the block definitely holds no matching records
+     */
+    public boolean mightMatch( final ArchiveBlock block ) {
+        if (unsatisfiable || !block.overlaps( minTimestamp, maxTimestamp )) {
+            return false;
+        }
+
+
+        final BlockStats stats = block.getStats();
+
+        if (stats == null) {
+            return true;
+        }
+        else if (severityWanted && !stats.mightHaveSeverity( minSeverity, maxSeverity )) {
+            return false;
+        }
+        else if (rtWanted && !stats.mightHaveRt( minRt, maxRt )) {
+            return false;
+        }
+
+
+        for (int i = 0; i < fields.size(); i++) {
+            if (!stats.mightHaveValue( fields.get( i ), values.get( i ) )) {
+                return false;
+            }
+        }
+
+
+        return true;
+    }
+
+
+    /**
+     * Only match records whose <code>rt</code> extension field is in the range
+     *
+     * @param from
+     *            earliest wanted time in epoch milliseconds (inclusive)
+     * @param to
+     *            latest wanted time in epoch milliseconds (inclusive)
+     * @return this query
+     */
+    public ArchiveQuery rt( final long from, final long to ) {
+        rtWanted = true;
+        minRt    = from;
+        maxRt    = to;
+
+        return this;
+    }
+
+
+    /**
+     * Only match records whose severity is in the range
+     *
+     * @param min
+     *            lowest wanted severity (inclusive)
+     * @param max
+     *            highest wanted severity (inclusive)
+     * @return this query
+     */
+    public ArchiveQuery severity( final int min, final int max ) {
+        severityWanted = true;
+        minSeverity    = min;
+        maxSeverity    = max;
+
+        return this;
+    }
+}
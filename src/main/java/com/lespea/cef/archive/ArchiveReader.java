@@ -0,0 +1,458 @@
+/**
+ * ArchiveReader.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.archive;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.utils.Utf8;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Reads an archive created by {@link ArchiveWriter}.
+ * <p>
+ * Only the index is read when the archive is opened. Blocks are read with positional reads so a
+ * single reader can decompress many blocks at the same time, either through
+ * {@link #read(long, long, ExecutorService)} or by calling {@link #read(ArchiveBlock, long, long)}
+ * from several threads.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class ArchiveReader implements Closeable {
+
+    /**
+     * Logger object
+     */
+    private static final Logger LOG = LoggerFactory.getLogger( ArchiveReader.class );
+
+    /**
+     * Size of the trailer at the end of the file
+     */
+    private static final int TRAILER_SIZE = 12;
+
+    //~--- fields -------------------------------------------------------------
+
+    /** The index of every block */
+    private final List<ArchiveBlock> blocks;
+
+    /** Channel used for the positional reads */
+    private final FileChannel channel;
+
+    /** The open archive */
+    private final RandomAccessFile file;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * Open an archive and read its index
+     *
+     * @param archive
+     *            the archive file
+     * @throws IOException
+     *             if the file is not a valid archive
+     */
+    public ArchiveReader( final File archive ) throws IOException {
+        file    = new RandomAccessFile( archive, "r" );
+        channel = file.getChannel();
+
+        try {
+            if ((file.length() < 5 + ArchiveReader.TRAILER_SIZE) || (file.readInt() != ArchiveWriter.MAGIC)) {
+                throw new IOException( archive + " is not a CEF archive" );
+            }
+
+
+            final byte version = file.readByte();
+
+            if ((version < 1) || (version > ArchiveWriter.VERSION)) {
+                throw new IOException( "Unsupported CEF archive version " + version );
+            }
+
+
+            file.seek( file.length() - ArchiveReader.TRAILER_SIZE );
+
+            final long indexOffset = file.readLong();
+
+            if (file.readInt() != ArchiveWriter.MAGIC) {
+                throw new IOException( archive + " is truncated (missing trailer)" );
+            }
+
+
+            final byte[]             index   = read( indexOffset,
+                                                     (int) (file.length() - ArchiveReader.TRAILER_SIZE - indexOffset) );
+            final DataInputStream    in      = new DataInputStream( new ByteArrayInputStream( index ) );
+            final int                count   = in.readInt();
+            final List<ArchiveBlock> entries = new ArrayList<ArchiveBlock>( count );
+
+            for (int i = 0; i < count; i++) {
+                entries.add( ArchiveBlock.read( in, version ) );
+            }
+
+
+            blocks = Collections.unmodifiableList( entries );
+        }
+        catch (final IOException e) {
+            file.close();
+
+            throw e;
+        }
+
+
+        ArchiveReader.LOG.debug( "Opened {} with {} blocks", archive, blocks.size() );
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Find the blocks that could hold records in the time range
+     *
+     * @param from
+     *            earliest wanted timestamp (inclusive)
+     * @param to
+     *            latest wanted timestamp (inclusive)
+     * @return the matching blocks in file order
+     */
+    public List<ArchiveBlock> blocksBetween( final long from, final long to ) {
+        return blocksMatching( new ArchiveQuery().between( from, to ) );
+    }
+
+
+    /**
+     * Use the block index to find the blocks that could hold records matching the query
+     *
+     * @param query
+     *            the search conditions
+     * @return the blocks that might match in file order
+     */
+    public List<ArchiveBlock> blocksMatching( final ArchiveQuery query ) {
+        final List<ArchiveBlock> found = new ArrayList<ArchiveBlock>();
+
+        for (final ArchiveBlock block : blocks) {
+            if (query.mightMatch( block )) {
+                found.add( block );
+            }
+        }
+
+
+        ArchiveReader.LOG.debug( "The index narrowed the search to {} of {} blocks", found.size(), blocks.size() );
+
+        return found;
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+
+    /**
+     * Decompress a block and verify its checksum
+     *
+     * @param block
+     *            the block to decompress
+     * @return the uncompressed records
+     * @throws IOException
+     *             if the block is corrupt
+     */
+    public byte[] inflate( final ArchiveBlock block ) throws IOException {
+        final byte[]   compressed = read( block.getOffset(), block.getCompressedLength() );
+        final byte[]   raw        = new byte[block.getUncompressedLength()];
+        final Inflater inflater   = new Inflater();
+
+        try {
+            inflater.setInput( compressed );
+
+            int length = 0;
+
+            while ((length < raw.length) && !inflater.finished()) {
+                final int count = inflater.inflate( raw, length, raw.length - length );
+
+                if ((count == 0) && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+
+
+                length += count;
+            }
+
+
+            if (length != raw.length) {
+                throw new IOException( "The block at " + block.getOffset() + " is truncated" );
+            }
+        }
+        catch (final DataFormatException e) {
+            throw new IOException( "The block at " + block.getOffset() + " is corrupt", e );
+        }
+        finally {
+            inflater.end();
+        }
+
+
+        final CRC32 crc = new CRC32();
+
+        crc.update( raw );
+
+        if ((int) crc.getValue() != block.getChecksum()) {
+            throw new IOException( "The block at " + block.getOffset() + " failed its checksum" );
+        }
+
+
+        return raw;
+    }
+
+
+    /**
+     * Read the records of a single block that fall in the time range
+     *
+     * @param block
+     *            the block to read
+     * @param from
+     *            earliest wanted timestamp (inclusive)
+     * @param to
+     *            latest wanted timestamp (inclusive)
+     * @return the matching records in the order they were written
+     * @throws IOException
+     *             if the block is corrupt
+     */
+    public List<String> read( final ArchiveBlock block, final long from, final long to ) throws IOException {
+        return search( block, new ArchiveQuery().between( from, to ) );
+    }
+
+
+    /**
+     * Read every record in the time range, one block at a time
+     *
+     * @param from
+     *            earliest wanted timestamp (inclusive)
+     * @param to
+     *            latest wanted timestamp (inclusive)
+     * @return the matching records in file order
+     * @throws IOException
+     *             if a block is corrupt
+     */
+    public List<String> read( final long from, final long to ) throws IOException {
+        return search( new ArchiveQuery().between( from, to ) );
+    }
+
+
+    /**
+     * Read every record in the time range, decompressing the blocks in parallel
+     *
+     * @param from
+     *            earliest wanted timestamp (inclusive)
+     * @param to
+     *            latest wanted timestamp (inclusive)
+     * @param executor
+     *            the executor the blocks are decompressed on
+     * @return the matching records in file order
+     * @throws IOException
+     *             if a block is corrupt
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting for the blocks
+     */
+    public List<String> read( final long from, final long to, final ExecutorService executor )
+            throws IOException, InterruptedException {
+        return search( new ArchiveQuery().between( from, to ), executor );
+    }
+
+
+    /**
+     * Read the records of a single block that match the query
+     *
+     * @param block
+     *            the block to read
+     * @param query
+     *            the search conditions
+     * @return the matching records in the order they were written
+     * @throws IOException
+     *             if the block is corrupt
+     */
+    public List<String> search( final ArchiveBlock block, final ArchiveQuery query ) throws IOException {
+        final ByteBuffer   raw   = ByteBuffer.wrap( inflate( block ) );
+        final List<String> lines = new ArrayList<String>();
+
+        while (raw.hasRemaining()) {
+            final long   timestamp = raw.getLong();
+            final int    length    = raw.getInt();
+            final String line      = Utf8.decode( raw, raw.position(), length );
+
+            if (query.matches( timestamp, line )) {
+                lines.add( line );
+            }
+
+
+            raw.position( raw.position() + length );
+        }
+
+
+        return lines;
+    }
+
+
+    /**
+     * Find every record matching the query, only reading the blocks the index can't rule out
+     *
+     * @param query
+     *            the search conditions
+     * @return the matching records in file order
+     * @throws IOException
+     *             if a block is corrupt
+     */
+    public List<String> search( final ArchiveQuery query ) throws IOException {
+        final List<String> lines = new ArrayList<String>();
+
+        for (final ArchiveBlock block : blocksMatching( query )) {
+            lines.addAll( search( block, query ) );
+        }
+
+
+        return lines;
+    }
+
+
+    /**
+     * Find every record matching the query, decompressing the candidate blocks in parallel
+     *
+     * @param query
+     *            the search conditions
+     * @param executor
+     *            the executor the blocks are decompressed on
+     * @return the matching records in file order
+     * @throws IOException
+     *             if a block is corrupt
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting for the blocks
+     */
+    public List<String> search( final ArchiveQuery query, final ExecutorService executor )
+            throws IOException, InterruptedException {
+        final List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+        final List<String>               lines   = new ArrayList<String>();
+        boolean                          done    = false;
+
+        try {
+            for (final ArchiveBlock block : blocksMatching( query )) {
+                futures.add( executor.submit( new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() throws IOException {
+                        return search( block, query );
+                    }
+                } ) );
+            }
+
+
+            for (final Future<List<String>> future : futures) {
+                lines.addAll( future.get() );
+            }
+
+
+            done = true;
+        }
+        catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+
+
+            throw new IOException( "Unable to read the archive", e.getCause() );
+        }
+        finally {
+
+            // However the wait ended early, stop the blocks nobody will read. Interrupting a
+            // FileChannel read closes the channel the other searches share, so they're only
+            // cancelled.
+            if (!done) {
+                for (final Future<List<String>> future : futures) {
+                    future.cancel( false );
+                }
+            }
+        }
+
+
+        return lines;
+    }
+
+
+    /**
+     * Read a run of bytes from the file without moving the file pointer
+     *
+     * @param offset
+     *            the file offset to start at
+     * @param length
+     *            the number of bytes to read
+     * @return the bytes
+     * @throws IOException
+     *             if the bytes could not be read
+     */
+    private byte[] read( final long offset, final int length ) throws IOException {
+        final ByteBuffer buf = ByteBuffer.allocate( length );
+
+        while (buf.hasRemaining()) {
+            if (channel.read( buf, offset + buf.position() ) < 0) {
+                throw new IOException( "Unexpected end of the archive at " + (offset + buf.position()) );
+            }
+        }
+
+
+        return buf.array();
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * @return the index of every block in file order
+     */
+    public List<ArchiveBlock> getBlocks() {
+        return blocks;
+    }
+}
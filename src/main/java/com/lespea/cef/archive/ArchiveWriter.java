@@ -0,0 +1,365 @@
+/**
+ * ArchiveWriter.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.archive;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.utils.Utf8;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Writes CEF events into a block compressed archive.
+ * <p>
+ * Events are collected into blocks of roughly <code>blockSize</code> uncompressed bytes, each of
+ * which is compressed on its own with a {@link Deflater}. Inside a block every record is stored as
+ * <code>[long timestamp][int length][UTF-8 bytes]</code>. Once the archive is closed an index
+ * holding the offset, size and timestamp range of every block is written at the end of the file
+ * so {@link ArchiveReader} can jump straight to the blocks it needs. Every index entry also holds
+ * the block's {@link BlockStats} so searches for a field value can skip the blocks that can't
+ * contain it.
+ * <p>
+ * The layout of the file is:
+ *
+ * <pre>
+ * [int magic][byte version]
+ * [block]...
+ * [int block count][block index entry]...
+ * [long index offset][int magic]
+ * </pre>
+ *
+ * This object is not thread safe.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class ArchiveWriter implements Closeable {
+
+    /**
+     * Default number of uncompressed bytes per block
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+    /**
+     * Logger object
+     */
+    private static final Logger LOG = LoggerFactory.getLogger( ArchiveWriter.class );
+
+    /**
+     * Marks the start and end of an archive
+     * <p>
+     * <code>"CEFA"</code>
+     */
+    static final int MAGIC = 0x43454641;
+
+    /**
+     * Number of bytes in front of every record in a block
+     */
+    static final int RECORD_HEADER_SIZE = 12;
+
+    /**
+     * Number of bits reserved per value in the block Bloom filters
+     */
+    private static final int BLOOM_BITS_PER_KEY = 10;
+
+    /**
+     * The archive format version. Version 1 archives have no per block search index.
+     */
+    static final byte VERSION = 2;
+
+    //~--- fields -------------------------------------------------------------
+
+    /** The uncompressed block being built */
+    private ByteBuffer block;
+
+    /** The number of uncompressed bytes that trigger a new block */
+    private final int blockSize;
+
+    /** Index of every block written so far */
+    private final List<ArchiveBlock> blocks = new ArrayList<ArchiveBlock>();
+
+    /** Block checksum calculator */
+    private final CRC32 crc = new CRC32();
+
+    /** Compressor reused for every block */
+    private final Deflater deflater;
+
+    /** Scratch space for the compressor's output */
+    private final byte[] deflated = new byte[64 * 1024];
+
+    /** Gathers the search index of the current block */
+    private final BlockStats.Collector indexer;
+
+    /** Latest timestamp in the current block */
+    private long maxTimestamp;
+
+    /** Earliest timestamp in the current block */
+    private long minTimestamp;
+
+    /** Where the archive is written to */
+    private final DataOutputStream out;
+
+    /** Number of bytes written to the file so far */
+    private long position;
+
+    /** Number of records in the current block */
+    private int records;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * Create an archive with the default block size, compression level and indexed fields
+     *
+     * @param file
+     *            the archive file to create
+     * @throws IOException
+     *             if the file could not be created
+     */
+    public ArchiveWriter( final File file ) throws IOException {
+        this( file, ArchiveWriter.DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION );
+    }
+
+
+    /**
+     * Create an archive that indexes the default fields
+     *
+     * @param file
+     *            the archive file to create
+     * @param blockSize
+     *            the number of uncompressed bytes collected before a block is compressed
+     * @param level
+     *            the {@link Deflater} compression level
+     * @throws IOException
+     *             if the file could not be created
+     */
+    public ArchiveWriter( final File file, final int blockSize, final int level ) throws IOException {
+        this( file, blockSize, level, BlockStats.DEFAULT_INDEXED_FIELDS );
+    }
+
+
+    /**
+     * Create an archive
+     *
+     * @param file
+     *            the archive file to create
+     * @param blockSize
+     *            the number of uncompressed bytes collected before a block is compressed
+     * @param level
+     *            the {@link Deflater} compression level
+     * @param indexedFields
+     *            the fields that get a Bloom filter in every block; header fields are named
+     *            <code>vendor</code>, <code>product</code>, <code>version</code>,
+     *            <code>id</code> and <code>name</code>, anything else is an extension key
+     * @throws IOException
+     *             if the file could not be created
+     */
+    public ArchiveWriter( final File file, final int blockSize, final int level, final String[] indexedFields )
+            throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException( "The block size must be positive" );
+        }
+
+
+        this.blockSize = blockSize;
+        this.block     = ByteBuffer.allocate( blockSize + 1024 );
+        this.deflater  = new Deflater( level );
+        this.indexer   = new BlockStats.Collector( indexedFields, ArchiveWriter.BLOOM_BITS_PER_KEY );
+        this.out       = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( file ), 64 * 1024 ) );
+
+        out.writeInt( ArchiveWriter.MAGIC );
+        out.writeByte( ArchiveWriter.VERSION );
+        position = 5;
+        resetBlock();
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Add an event to the archive
+     *
+     * @param timestamp
+     *            the event's time, in epoch milliseconds, used to build the index
+     * @param cef
+     *            the event
+     * @throws IOException
+     *             if a finished block could not be written
+     */
+    public void add( final long timestamp, final CEF cef ) throws IOException {
+        add( timestamp, cef.toString() );
+    }
+
+
+    /**
+     * Add a rendered event to the archive
+     *
+     * @param timestamp
+     *            the event's time, in epoch milliseconds, used to build the index
+     * @param cefStr
+     *            the rendered event
+     * @throws IOException
+     *             if a finished block could not be written
+     */
+    public void add( final long timestamp, final CharSequence cefStr ) throws IOException {
+        final int length = Utf8.encodedLength( cefStr );
+        final int needed = ArchiveWriter.RECORD_HEADER_SIZE + length;
+
+        if ((records > 0) && (block.position() + needed > blockSize)) {
+            flushBlock();
+        }
+
+
+        if (block.remaining() < needed) {
+            final ByteBuffer bigger = ByteBuffer.allocate( block.position() + needed );
+
+            block.flip();
+            bigger.put( block );
+            block = bigger;
+        }
+
+
+        block.putLong( timestamp );
+        block.putInt( length );
+        Utf8.encode( cefStr, block );
+        indexer.add( cefStr );
+
+        minTimestamp = Math.min( minTimestamp, timestamp );
+        maxTimestamp = Math.max( maxTimestamp, timestamp );
+        records++;
+
+        if (block.position() >= blockSize) {
+            flushBlock();
+        }
+    }
+
+
+    /**
+     * Compress any pending records and write the index
+     *
+     * @throws IOException
+     *             if the archive could not be finished
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (records > 0) {
+                flushBlock();
+            }
+
+
+            final long indexOffset = position;
+
+            writeIndex();
+            out.writeLong( indexOffset );
+            out.writeInt( ArchiveWriter.MAGIC );
+
+            ArchiveWriter.LOG.debug( "Finished an archive with {} blocks", blocks.size() );
+        }
+        finally {
+            out.close();
+            deflater.end();
+        }
+    }
+
+
+    /**
+     * Write the block index. The index starts at the current position.
+     *
+     * @throws IOException
+     *             if the index could not be written
+     */
+    private void writeIndex() throws IOException {
+        out.writeInt( blocks.size() );
+
+        for (final ArchiveBlock entry : blocks) {
+            entry.write( out );
+        }
+    }
+
+
+    /**
+     * Compress and write the current block
+     *
+     * @throws IOException
+     *             if the block could not be written
+     */
+    private void flushBlock() throws IOException {
+        final byte[] raw    = block.array();
+        final int    length = block.position();
+        final long   start  = position;
+
+        crc.reset();
+        crc.update( raw, 0, length );
+
+        deflater.reset();
+        deflater.setInput( raw, 0, length );
+        deflater.finish();
+
+        while (!deflater.finished()) {
+            final int count = deflater.deflate( deflated );
+
+            out.write( deflated, 0, count );
+            position += count;
+        }
+
+
+        final ArchiveBlock entry = new ArchiveBlock( start, (int) (position - start), length, records, minTimestamp,
+                                                     maxTimestamp, (int) crc.getValue(), indexer.finish() );
+
+        blocks.add( entry );
+        resetBlock();
+    }
+
+
+    /**
+     * Start a new empty block
+     */
+    private void resetBlock() {
+        block.clear();
+        records      = 0;
+        minTimestamp = Long.MAX_VALUE;
+        maxTimestamp = Long.MIN_VALUE;
+    }
+}
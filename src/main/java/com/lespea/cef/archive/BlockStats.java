@@ -0,0 +1,526 @@
+/**
+ * BlockStats.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.archive;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.InvalidExtensionKey;
+import com.lespea.cef.InvalidField;
+import com.lespea.cef.utils.CEFScanner;
+import com.lespea.cef.utils.CEFTime;
+import com.lespea.cef.utils.StringUtils;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Per block search index: a Bloom filter for every indexed field plus the range of the
+ * <code>severity</code> header field and the <code>rt</code> extension field.
+ * <p>
+ * Indexed fields are named with the header field names (<code>vendor</code>,
+ * <code>product</code>, <code>version</code>, <code>id</code> and <code>name</code>); any other
+ * name is taken to be an extension key. The filters hold the escaped values, exactly as they
+ * appear in the rendered CEF string.
+ * <p>
+ * This object is immutable and once created no changes can be made!
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class BlockStats {
+
+    /**
+     * The fields that are indexed by default
+     */
+    public static final String[] DEFAULT_INDEXED_FIELDS = new String[] {
+        "id", "name", "src", "dst", "suser", "fname"
+    };
+
+    /**
+     * Returned when a field has no usable time
+     */
+    static final long NO_TIME = CEFTime.NO_TIME;
+
+    //~--- fields -------------------------------------------------------------
+
+    /** The Bloom filter of every indexed field */
+    private final Map<String, BloomFilter> filters;
+
+    /** The latest <code>rt</code> in the block */
+    private final long maxRt;
+
+    /** The highest severity in the block */
+    private final int maxSeverity;
+
+    /** The earliest <code>rt</code> in the block */
+    private final long minRt;
+
+    /** The lowest severity in the block */
+    private final int minSeverity;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * @param filters
+     *            the Bloom filter of every indexed field
+     * @param minSeverity
+     *            the lowest severity in the block
+     * @param maxSeverity
+     *            the highest severity in the block
+     * @param minRt
+     *            the earliest <code>rt</code> in the block
+     * @param maxRt
+     *            the latest <code>rt</code> in the block
+     */
+    BlockStats( final Map<String, BloomFilter> filters, final int minSeverity, final int maxSeverity, final long minRt,
+                final long maxRt ) {
+        this.filters     = Collections.unmodifiableMap( filters );
+        this.minSeverity = minSeverity;
+        this.maxSeverity = maxSeverity;
+        this.minRt       = minRt;
+        this.maxRt       = maxRt;
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Get the escaped value of a named field from a rendered CEF string
+     *
+     * @param line
+     *            the rendered CEF string
+     * @param field
+     *            the header field name or the escaped extension key
+     * @return the escaped value or null if it isn't present
+     */
+    static String fieldValue( final CharSequence line, final String field ) {
+        final int header = BlockStats.headerIndex( field );
+
+        return (header >= 0)
+               ? CEFScanner.headerField( line, header )
+               : CEFScanner.extensionValue( line, field );
+    }
+
+
+    /**
+     * Map a field name to its header index
+     *
+     * @param field
+     *            the field name
+     * @return the header index or -1 if the field is an extension key
+     */
+    static int headerIndex( final String field ) {
+        return CEFScanner.headerIndex( field );
+    }
+
+
+    /**
+     * Escape a field name so it can be used with {@link #fieldValue(CharSequence, String)}
+     *
+     * @param field
+     *            the header field name or the plain extension key
+     * @return the header field name or the escaped extension key
+     */
+    static String escapeFieldName( final String field ) {
+        if (BlockStats.headerIndex( field ) >= 0) {
+            return field;
+        }
+
+
+        try {
+            return StringUtils.escapeExtensionKey( field );
+        }
+        catch (final InvalidExtensionKey e) {
+            throw new IllegalArgumentException( "Invalid extension key " + field, e );
+        }
+    }
+
+
+    /**
+     * Escape a plain value the way it would appear for the field
+     *
+     * @param field
+     *            the header field name or the escaped extension key
+     * @param value
+     *            the plain value
+     * @return the escaped value or null if the value can never appear in the field
+     */
+    static String escapeValue( final String field, final String value ) {
+        if (BlockStats.headerIndex( field ) < 0) {
+            return StringUtils.escapeExtensionValue( value );
+        }
+
+
+        try {
+            return StringUtils.escapeField( value );
+        }
+        catch (final InvalidField e) {
+
+            // Header values can't hold newlines, so a value with one can never match anything
+            return null;
+        }
+    }
+
+
+    /**
+     * Parse the <code>rt</code> extension field of a rendered CEF string
+     *
+     * @param line
+     *            the rendered CEF string
+     * @return the time in epoch milliseconds or {@link #NO_TIME} if it's missing or unparsable
+     */
+    static long rt( final CharSequence line ) {
+        final String value = CEFScanner.extensionValue( line, "rt" );
+
+        return (value == null)
+               ? BlockStats.NO_TIME
+               : CEFTime.parse( value );
+    }
+
+
+    /**
+     * Parse the severity header field of a rendered CEF string
+     *
+     * @param line
+     *            the rendered CEF string
+     * @return the severity or -1 if it's missing or not a number
+     */
+    static int severity( final CharSequence line ) {
+        final int start = CEFScanner.headerFieldStart( line, CEFScanner.HEADER_SEVERITY );
+
+        if (start < 0) {
+            return -1;
+        }
+
+
+        final int end      = CEFScanner.headerFieldEnd( line, start );
+        int       severity = 0;
+
+        if (end == start) {
+            return -1;
+        }
+
+
+        for (int i = start; i < end; i++) {
+            final char c = line.charAt( i );
+
+            if ((c < '0') || (c > '9') || (severity > 1000)) {
+                return -1;
+            }
+
+
+            severity = severity * 10 + (c - '0');
+        }
+
+
+        return severity;
+    }
+
+
+    /**
+     * Read block stats written by {@link #write(DataOutput)}
+     *
+     * @param in
+     *            where to read from
+     * @return the block stats
+     * @throws IOException
+     *             if the stats could not be read
+     */
+    static BlockStats read( final DataInput in ) throws IOException {
+        final int                      minSeverity = in.readInt();
+        final int                      maxSeverity = in.readInt();
+        final long                     minRt       = in.readLong();
+        final long                     maxRt       = in.readLong();
+        final int                      count       = in.readUnsignedShort();
+        final Map<String, BloomFilter> filters     = new LinkedHashMap<String, BloomFilter>();
+
+        for (int i = 0; i < count; i++) {
+            final String field = in.readUTF();
+
+            filters.put( field, BloomFilter.read( in ) );
+        }
+
+
+        return new BlockStats( filters, minSeverity, maxSeverity, minRt, maxRt );
+    }
+
+
+    /**
+     * Tests if any record in the block could have an <code>rt</code> in the range
+     *
+     * @param from
+     *            earliest wanted time (inclusive)
+     * @param to
+     *            latest wanted time (inclusive)
+     * @return false if no record in the block can match
+     */
+    public boolean mightHaveRt( final long from, final long to ) {
+        return (minRt <= to) && (maxRt >= from);
+    }
+
+
+    /**
+     * Tests if any record in the block could have a severity in the range
+     *
+     * @param min
+     *            lowest wanted severity (inclusive)
+     * @param max
+     *            highest wanted severity (inclusive)
+     * @return false if no record in the block can match
+     */
+    public boolean mightHaveSeverity( final int min, final int max ) {
+        return (minSeverity <= max) && (maxSeverity >= min);
+    }
+
+
+    /**
+     * Tests if any record in the block could have the value for the field. Fields that aren't
+     * indexed always might have the value.
+     *
+     * @param field
+     *            the header field name or the escaped extension key
+     * @param escapedValue
+     *            the escaped value
+     * @return false if no record in the block can match
+     */
+    public boolean mightHaveValue( final String field, final String escapedValue ) {
+        final BloomFilter filter = filters.get( field );
+
+        return (filter == null) || filter.mightContain( escapedValue );
+    }
+
+
+    /**
+     * Write the block stats
+     *
+     * @param out
+     *            where to write to
+     * @throws IOException
+     *             if the stats could not be written
+     */
+    void write( final DataOutput out ) throws IOException {
+        out.writeInt( minSeverity );
+        out.writeInt( maxSeverity );
+        out.writeLong( minRt );
+        out.writeLong( maxRt );
+        out.writeShort( filters.size() );
+
+        for (final Entry<String, BloomFilter> entry : filters.entrySet()) {
+            out.writeUTF( entry.getKey() );
+            entry.getValue().write( out );
+        }
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * @return the names of the indexed fields
+     */
+    public Iterable<String> getIndexedFields() {
+        return filters.keySet();
+    }
+
+
+    /**
+     * @return the latest <code>rt</code> in the block
+     */
+    public long getMaxRt() {
+        return maxRt;
+    }
+
+
+    /**
+     * @return the highest severity in the block
+     */
+    public int getMaxSeverity() {
+        return maxSeverity;
+    }
+
+
+    /**
+     * @return the earliest <code>rt</code> in the block
+     */
+    public long getMinRt() {
+        return minRt;
+    }
+
+
+    /**
+     * @return the lowest severity in the block
+     */
+    public int getMinSeverity() {
+        return minSeverity;
+    }
+
+
+    //~--- inner classes ------------------------------------------------------
+
+    /**
+     * Gathers the stats of a block while it's being written
+     */
+    static final class Collector {
+
+        /** The escaped names of the indexed fields */
+        private final String[] fields;
+
+        /** The hashes of every indexed value in the block, per field */
+        private final long[][] hashes;
+
+        /** Bits reserved per value in the filters */
+        private final int bitsPerKey;
+
+        /** The latest <code>rt</code> seen */
+        private long maxRt;
+
+        /** The highest severity seen */
+        private int maxSeverity;
+
+        /** The earliest <code>rt</code> seen */
+        private long minRt;
+
+        /** The lowest severity seen */
+        private int minSeverity;
+
+        /** Number of hashes collected per field */
+        private final int[] sizes;
+
+
+        /**
+         * @param indexedFields
+         *            the names of the fields to index
+         * @param bitsPerKey
+         *            bits reserved per value in the filters
+         */
+        Collector( final String[] indexedFields, final int bitsPerKey ) {
+            this.fields     = new String[indexedFields.length];
+            this.hashes     = new long[indexedFields.length][64];
+            this.sizes      = new int[indexedFields.length];
+            this.bitsPerKey = bitsPerKey;
+
+            for (int i = 0; i < indexedFields.length; i++) {
+                fields[i] = BlockStats.escapeFieldName( indexedFields[i] );
+            }
+
+
+            reset();
+        }
+
+
+        /**
+         * Index a record
+         *
+         * @param line
+         *            the rendered CEF string
+         */
+        void add( final CharSequence line ) {
+            for (int i = 0; i < fields.length; i++) {
+                final String value = BlockStats.fieldValue( line, fields[i] );
+
+                if (value != null) {
+                    if (sizes[i] == hashes[i].length) {
+                        final long[] bigger = new long[sizes[i] * 2];
+
+                        System.arraycopy( hashes[i], 0, bigger, 0, sizes[i] );
+                        hashes[i] = bigger;
+                    }
+
+
+                    hashes[i][sizes[i]++] = BloomFilter.hash( value );
+                }
+            }
+
+
+            final int severity = BlockStats.severity( line );
+
+            if (severity >= 0) {
+                minSeverity = Math.min( minSeverity, severity );
+                maxSeverity = Math.max( maxSeverity, severity );
+            }
+
+
+            final long rt = BlockStats.rt( line );
+
+            if (rt != BlockStats.NO_TIME) {
+                minRt = Math.min( minRt, rt );
+                maxRt = Math.max( maxRt, rt );
+            }
+        }
+
+
+        /**
+         * Build the stats for everything added since the last call and start over
+         *
+         * @return the block's stats
+         */
+        BlockStats finish() {
+            final Map<String, BloomFilter> filters = new LinkedHashMap<String, BloomFilter>();
+
+            for (int i = 0; i < fields.length; i++) {
+                final BloomFilter filter = new BloomFilter( sizes[i], bitsPerKey );
+
+                for (int j = 0; j < sizes[i]; j++) {
+                    filter.add( hashes[i][j] );
+                }
+
+
+                filters.put( fields[i], filter );
+            }
+
+
+            final BlockStats stats = new BlockStats( filters, minSeverity, maxSeverity, minRt, maxRt );
+
+            reset();
+
+            return stats;
+        }
+
+
+        /**
+         * Forget everything collected so far
+         */
+        private void reset() {
+            for (int i = 0; i < sizes.length; i++) {
+                sizes[i] = 0;
+            }
+
+
+            minSeverity = Integer.MAX_VALUE;
+            maxSeverity = Integer.MIN_VALUE;
+            minRt       = Long.MAX_VALUE;
+            maxRt       = Long.MIN_VALUE;
+        }
+    }
+}
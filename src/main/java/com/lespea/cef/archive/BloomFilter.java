@@ -0,0 +1,226 @@
+/**
+ * BloomFilter.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.archive;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Small fixed size Bloom filter over strings, used to skip archive blocks that can't contain a
+ * value.
+ * <p>
+ * The bit positions are derived from a single 64 bit hash using double hashing, so callers that
+ * probe many filters for the same value can hash it once with {@link #hash(CharSequence)}.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class BloomFilter {
+
+    /**
+     * Number of bits set per key, which gives roughly a 1% false positive rate at ten bits per key
+     */
+    public static final int DEFAULT_HASHES = 7;
+
+    //~--- fields -------------------------------------------------------------
+
+    /** The filter's bits */
+    private final long[] bits;
+
+    /** Number of bits set per key */
+    private final int hashes;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * Create an empty filter sized for the expected number of keys
+     *
+     * @param expectedKeys
+     *            the number of keys that will be added
+     * @param bitsPerKey
+     *            the number of bits to reserve for every key
+     */
+    public BloomFilter( final int expectedKeys, final int bitsPerKey ) {
+        this( new long[Math.max( 1, (int) (((long) expectedKeys * bitsPerKey + 63) / 64) )], BloomFilter.DEFAULT_HASHES );
+    }
+
+
+    /**
+     * @param bits
+     *            the filter's bits
+     * @param hashes
+     *            the number of bits set per key
+     */
+    private BloomFilter( final long[] bits, final int hashes ) {
+        this.bits   = bits;
+        this.hashes = hashes;
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Hash a string for use with {@link #add(long)} and {@link #mightContain(long)}
+     *
+     * @param str
+     *            the string to hash
+     * @return the 64 bit hash
+     */
+    public static long hash( final CharSequence str ) {
+        long h = 0xcbf29ce484222325L;
+
+        for (int i = 0; i < str.length(); i++) {
+            h ^= str.charAt( i );
+            h *= 0x100000001b3L;
+        }
+
+
+        // Final avalanche so the low bits are usable on their own
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+
+        return h;
+    }
+
+
+    /**
+     * Read a filter written by {@link #write(DataOutput)}
+     *
+     * @param in
+     *            where to read from
+     * @return the filter
+     * @throws IOException
+     *             if the filter could not be read
+     */
+    static BloomFilter read( final DataInput in ) throws IOException {
+        final int    hashes = in.readUnsignedByte();
+        final long[] bits   = new long[in.readInt()];
+
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = in.readLong();
+        }
+
+
+        return new BloomFilter( bits, hashes );
+    }
+
+
+    /**
+     * Add a string to the filter
+     *
+     * @param str
+     *            the string to add
+     */
+    public void add( final CharSequence str ) {
+        add( BloomFilter.hash( str ) );
+    }
+
+
+    /**
+     * Add a pre-hashed string to the filter
+     *
+     * @param hash
+     *            the string's hash
+     */
+    public void add( final long hash ) {
+        final long total = (long) bits.length * 64;
+        final long step  = (hash >>> 32) | 1;
+        long       probe = hash;
+
+        for (int i = 0; i < hashes; i++) {
+            final long bit = (probe & Long.MAX_VALUE) % total;
+
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+            probe                   += step;
+        }
+    }
+
+
+    /**
+     * Tests if the string might have been added. False positives are possible but false negatives
+     * are not.
+     *
+     * @param str
+     *            the string to look for
+     * @return false if the string was definitely never added
+     */
+    public boolean mightContain( final CharSequence str ) {
+        return mightContain( BloomFilter.hash( str ) );
+    }
+
+
+    /**
+     * Tests if a pre-hashed string might have been added
+     *
+     * @param hash
+     *            the string's hash
+     * @return false if the string was definitely never added
+     */
+    public boolean mightContain( final long hash ) {
+        final long total = (long) bits.length * 64;
+        final long step  = (hash >>> 32) | 1;
+        long       probe = hash;
+
+        for (int i = 0; i < hashes; i++) {
+            final long bit = (probe & Long.MAX_VALUE) % total;
+
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+
+
+            probe += step;
+        }
+
+
+        return true;
+    }
+
+
+    /**
+     * Write the filter
+     *
+     * @param out
+     *            where to write to
+     * @throws IOException
+     *             if the filter could not be written
+     */
+    void write( final DataOutput out ) throws IOException {
+        out.writeByte( hashes );
+        out.writeInt( bits.length );
+
+        for (final long word : bits) {
+            out.writeLong( word );
+        }
+    }
+}
@@ -0,0 +1,746 @@
+/**
+ * CEFView.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.buffer;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.utils.CEFScanner;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.nio.ByteBuffer;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Flyweight that reads a UTF-8 CEF record in place without creating any objects.
+ * <p>
+ * {@link #wrap(byte[], int, int)} and {@link #wrap(ByteBuffer, int, int)} point the view at a
+ * record and index every header field and extension pair in a single pass. The offsets are kept
+ * in int arrays that are reused for the next record; they only grow when a record has more
+ * extension pairs than any record before it.
+ * <p>
+ * The accessors compare and copy the escaped bytes directly. Methods that take plain text (a
+ * {@link CharSequence}) escape and encode it on the fly while comparing, so
+ * <code>extensionEquals("msg", "a=b")</code> matches the bytes <code>msg=a\=b</code>. The
+ * extension keys are given as plain text everywhere.
+ * <p>
+ * A view must not be shared between threads and the bytes must not change while it's pointed at
+ * them.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class CEFView {
+
+    /** Returned by the value lookups when the key or field isn't present */
+    public static final int MISSING = -1;
+
+    /** Escape rules for header fields */
+    private static final int ESCAPE_HEADER = 0;
+
+    /** Escape rules for extension keys */
+    private static final int ESCAPE_KEY = 1;
+
+    /** Escape rules for extension values */
+    private static final int ESCAPE_VALUE = 2;
+
+    /** Number of extension pairs the arrays start out holding */
+    private static final int INITIAL_PAIRS = 32;
+
+    //~--- fields -------------------------------------------------------------
+
+    /** The record when it's held in an array */
+    private byte[] array;
+
+    /** The record when it's held in a buffer */
+    private ByteBuffer buffer;
+
+    /** The end of the record (exclusive) */
+    private int end;
+
+    /** Number of header fields found */
+    private int headerCount;
+
+    /** Where each header field ends (exclusive) */
+    private final int[] headerEnds = new int[CEFScanner.HEADER_FIELD_COUNT];
+
+    /** Where each header field starts */
+    private final int[] headerStarts = new int[CEFScanner.HEADER_FIELD_COUNT];
+
+    /** Where each extension key starts */
+    private int[] keyStarts = new int[CEFView.INITIAL_PAIRS];
+
+    /** Number of extension pairs found */
+    private int pairCount;
+
+    /** Where each extension value ends (exclusive); the key ends just before its value */
+    private int[] valueEnds = new int[CEFView.INITIAL_PAIRS];
+
+    /** Where each extension value starts */
+    private int[] valueStarts = new int[CEFView.INITIAL_PAIRS];
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Compare a header field against escaped bytes, ordering by unsigned byte values
+     *
+     * @param index
+     *            the header index (see {@link CEFScanner})
+     * @param escaped
+     *            the escaped UTF-8 bytes
+     * @return negative, zero or positive as the field is less than, equal to or greater than the
+     *         bytes; a missing field is less than everything
+     */
+    public int compareField( final int index, final byte[] escaped ) {
+        if (index >= headerCount) {
+            return -1;
+        }
+
+
+        final int start  = headerStarts[index];
+        final int length = headerEnds[index] - start;
+        final int common = Math.min( length, escaped.length );
+
+        for (int i = 0; i < common; i++) {
+            final int diff = (byteAt( start + i ) & 0xFF) - (escaped[i] & 0xFF);
+
+            if (diff != 0) {
+                return diff;
+            }
+        }
+
+
+        return length - escaped.length;
+    }
+
+
+    /**
+     * Copy the escaped bytes of a header field
+     *
+     * @param index
+     *            the header index (see {@link CEFScanner})
+     * @param dst
+     *            where to copy the bytes
+     * @param dstOffset
+     *            where to start in the destination
+     * @return the number of bytes copied or {@link #MISSING}
+     */
+    public int copyFieldTo( final int index, final byte[] dst, final int dstOffset ) {
+        if (index >= headerCount) {
+            return CEFView.MISSING;
+        }
+
+
+        return copy( headerStarts[index], headerEnds[index], dst, dstOffset );
+    }
+
+
+    /**
+     * Copy the escaped bytes of an extension value
+     *
+     * @param key
+     *            the plain key
+     * @param dst
+     *            where to copy the bytes
+     * @param dstOffset
+     *            where to start in the destination
+     * @return the number of bytes copied or {@link #MISSING}
+     * @throws IndexOutOfBoundsException
+     *             if the value doesn't fit
+     */
+    public int copyValueTo( final CharSequence key, final byte[] dst, final int dstOffset ) {
+        final int pair = indexOf( key );
+
+        if (pair < 0) {
+            return CEFView.MISSING;
+        }
+
+
+        return copy( valueStarts[pair], valueEnds[pair], dst, dstOffset );
+    }
+
+
+    /**
+     * Copy the escaped bytes of an extension value to the buffer's position
+     *
+     * @param key
+     *            the plain key
+     * @param dst
+     *            where to copy the bytes
+     * @return the number of bytes copied or {@link #MISSING}
+     * @throws java.nio.BufferOverflowException
+     *             if the value doesn't fit
+     */
+    public int copyValueTo( final CharSequence key, final ByteBuffer dst ) {
+        final int pair = indexOf( key );
+
+        if (pair < 0) {
+            return CEFView.MISSING;
+        }
+
+
+        for (int i = valueStarts[pair]; i < valueEnds[pair]; i++) {
+            dst.put( byteAt( i ) );
+        }
+
+
+        return valueEnds[pair] - valueStarts[pair];
+    }
+
+
+    /**
+     * Tests if an extension value is exactly the escaped bytes
+     *
+     * @param key
+     *            the plain key
+     * @param escaped
+     *            the escaped UTF-8 bytes
+     * @return false if they differ or the key isn't present
+     */
+    public boolean extensionEquals( final CharSequence key, final byte[] escaped ) {
+        final int pair = indexOf( key );
+
+        if ((pair < 0) || (valueEnds[pair] - valueStarts[pair] != escaped.length)) {
+            return false;
+        }
+
+
+        final int start = valueStarts[pair];
+
+        for (int i = 0; i < escaped.length; i++) {
+            if (byteAt( start + i ) != escaped[i]) {
+                return false;
+            }
+        }
+
+
+        return true;
+    }
+
+
+    /**
+     * Tests if an extension value is the plain text
+     *
+     * @param key
+     *            the plain key
+     * @param value
+     *            the plain value
+     * @return false if they differ or the key isn't present
+     */
+    public boolean extensionEquals( final CharSequence key, final CharSequence value ) {
+        final int pair = indexOf( key );
+
+        return (pair >= 0) && plainEquals( valueStarts[pair], valueEnds[pair], value, CEFView.ESCAPE_VALUE );
+    }
+
+
+    /**
+     * Parse an extension value as a whole number
+     *
+     * @param key
+     *            the plain key
+     * @param missing
+     *            returned if the key isn't present or its value isn't a number
+     * @return the number
+     */
+    public long extensionLong( final CharSequence key, final long missing ) {
+        final int pair = indexOf( key );
+
+        if (pair < 0) {
+            return missing;
+        }
+
+
+        return parseLong( valueStarts[pair], valueEnds[pair], missing );
+    }
+
+
+    /**
+     * Tests if a header field is the plain text
+     *
+     * @param index
+     *            the header index (see {@link CEFScanner})
+     * @param value
+     *            the plain value
+     * @return false if they differ or the field isn't present
+     */
+    public boolean fieldEquals( final int index, final CharSequence value ) {
+        return (index < headerCount) && plainEquals( headerStarts[index], headerEnds[index], value, CEFView.ESCAPE_HEADER );
+    }
+
+
+    /**
+     * Find an extension pair
+     *
+     * @param key
+     *            the plain key
+     * @return the pair's index or {@link #MISSING}
+     */
+    public int indexOf( final CharSequence key ) {
+        for (int pair = 0; pair < pairCount; pair++) {
+            if (plainEquals( keyStarts[pair], valueStarts[pair] - 1, key, CEFView.ESCAPE_KEY )) {
+                return pair;
+            }
+        }
+
+
+        return CEFView.MISSING;
+    }
+
+
+    /**
+     * Parse the severity
+     *
+     * @return the severity or {@link #MISSING} if it's absent or not a number
+     */
+    public int severity() {
+        if (headerCount <= CEFScanner.HEADER_SEVERITY) {
+            return CEFView.MISSING;
+        }
+
+
+        final long severity = parseLong( headerStarts[CEFScanner.HEADER_SEVERITY],
+                                         headerEnds[CEFScanner.HEADER_SEVERITY], CEFView.MISSING );
+
+        return ((severity < 0) || (severity > Integer.MAX_VALUE))
+               ? CEFView.MISSING
+               : (int) severity;
+    }
+
+
+    /**
+     * Point the view at a record held in an array
+     *
+     * @param bytes
+     *            the bytes
+     * @param offset
+     *            the start of the record
+     * @param length
+     *            the length of the record (a trailing line ending is ignored)
+     * @return true if the record has a complete header
+     */
+    public boolean wrap( final byte[] bytes, final int offset, final int length ) {
+        array  = bytes;
+        buffer = null;
+
+        return index( offset, offset + length );
+    }
+
+
+    /**
+     * Point the view at a record held in a buffer. The buffer's position and limit aren't used or
+     * changed.
+     *
+     * @param buf
+     *            the bytes
+     * @param offset
+     *            the absolute offset of the record
+     * @param length
+     *            the length of the record (a trailing line ending is ignored)
+     * @return true if the record has a complete header
+     */
+    public boolean wrap( final ByteBuffer buf, final int offset, final int length ) {
+        array  = null;
+        buffer = buf;
+
+        return index( offset, offset + length );
+    }
+
+
+    /**
+     * Add an extension pair, growing the arrays if needed
+     *
+     * @param keyStart
+     *            where the key starts
+     * @param valueStart
+     *            where the value starts
+     */
+    private void addPair( final int keyStart, final int valueStart ) {
+        if (pairCount == keyStarts.length) {
+            final int size = pairCount * 2;
+
+            keyStarts   = CEFView.grow( keyStarts, size );
+            valueStarts = CEFView.grow( valueStarts, size );
+            valueEnds   = CEFView.grow( valueEnds, size );
+        }
+
+
+        keyStarts[pairCount]   = keyStart;
+        valueStarts[pairCount] = valueStart;
+        valueEnds[pairCount]   = end;
+        pairCount++;
+    }
+
+
+    /**
+     * Copy a region of the record
+     *
+     * @param from
+     *            the start of the region
+     * @param to
+     *            the end of the region (exclusive)
+     * @param dst
+     *            where to copy the bytes
+     * @param dstOffset
+     *            where to start in the destination
+     * @return the number of bytes copied
+     */
+    private int copy( final int from, final int to, final byte[] dst, final int dstOffset ) {
+        final int length = to - from;
+
+        if (dstOffset + length > dst.length) {
+            throw new IndexOutOfBoundsException( "The value needs " + length + " bytes" );
+        }
+
+
+        if (array != null) {
+            System.arraycopy( array, from, dst, dstOffset, length );
+        }
+        else {
+            for (int i = 0; i < length; i++) {
+                dst[dstOffset + i] = buffer.get( from + i );
+            }
+        }
+
+
+        return length;
+    }
+
+
+    /**
+     * Copy an array into a bigger one
+     *
+     * @param old
+     *            the old array
+     * @param size
+     *            the new size
+     * @return the new array
+     */
+    private static int[] grow( final int[] old, final int size ) {
+        final int[] grown = new int[size];
+
+        System.arraycopy( old, 0, grown, 0, old.length );
+
+        return grown;
+    }
+
+
+    /**
+     * Index the header fields and extension pairs in one pass
+     *
+     * @param from
+     *            the start of the record
+     * @param to
+     *            the end of the record (exclusive)
+     * @return true if the header is complete
+     */
+    private boolean index( final int from, final int to ) {
+        int last = to;
+
+        while ((last > from) && ((byteAt( last - 1 ) == '\n') || (byteAt( last - 1 ) == '\r'))) {
+            last--;
+        }
+
+
+        end         = last;
+        headerCount = 0;
+        pairCount   = 0;
+
+        int fieldStart = from;
+        int i          = from;
+
+        for (; (i < end) && (headerCount < CEFScanner.HEADER_FIELD_COUNT); i++) {
+            final byte c = byteAt( i );
+
+            if (c == '\\') {
+                i++;
+            }
+            else if (c == '|') {
+                headerStarts[headerCount] = fieldStart;
+                headerEnds[headerCount]   = i;
+                headerCount++;
+                fieldStart = i + 1;
+            }
+        }
+
+
+        if (headerCount < CEFScanner.HEADER_FIELD_COUNT) {
+
+            // A record without an extension may not have the last bar
+            if (headerCount == CEFScanner.HEADER_FIELD_COUNT - 1) {
+                headerStarts[headerCount] = fieldStart;
+                headerEnds[headerCount]   = end;
+                headerCount++;
+
+                return true;
+            }
+
+
+            return false;
+        }
+
+
+        /*
+         * A value runs up to the last space in front of the next unescaped '=' and the text
+         * between that space and the '=' is the next key. Until the first '=' every space starts a
+         * new candidate key.
+         */
+        int keyStart  = i;
+        int lastSpace = -1;
+
+        for (; i < end; i++) {
+            final byte c = byteAt( i );
+
+            // Only \\ and \= change where the pairs split (see CEFScanner.isExtensionEscape)
+            if ((c == '\\') && (i + 1 < end) && ((byteAt( i + 1 ) == '\\') || (byteAt( i + 1 ) == '='))) {
+                i++;
+            }
+            else if (c == ' ') {
+                if (pairCount == 0) {
+                    keyStart = i + 1;
+                }
+                else {
+                    lastSpace = i;
+                }
+            }
+            else if (c == '=') {
+                if (pairCount == 0) {
+                    addPair( keyStart, i + 1 );
+                }
+                else if (lastSpace >= valueStarts[pairCount - 1]) {
+                    valueEnds[pairCount - 1] = lastSpace;
+                    addPair( lastSpace + 1, i + 1 );
+                }
+
+
+                lastSpace = -1;
+            }
+        }
+
+
+        return true;
+    }
+
+
+    /**
+     * Parse a region as a whole number
+     *
+     * @param from
+     *            the start of the region
+     * @param to
+     *            the end of the region (exclusive)
+     * @param invalid
+     *            returned if the region isn't a number
+     * @return the number
+     */
+    private long parseLong( final int from, final int to, final long invalid ) {
+        int     i        = from;
+        boolean negative = false;
+
+        if ((i < to) && (byteAt( i ) == '-')) {
+            negative = true;
+            i++;
+        }
+
+
+        if ((i == to) || (to - i > 18)) {
+            return invalid;
+        }
+
+
+        long value = 0;
+
+        for (; i < to; i++) {
+            final int c = byteAt( i );
+
+            if ((c < '0') || (c > '9')) {
+                return invalid;
+            }
+
+
+            value = value * 10 + (c - '0');
+        }
+
+
+        return negative
+               ? -value
+               : value;
+    }
+
+
+    /**
+     * Tests if a region is the escaped UTF-8 form of plain text. The text is escaped and encoded
+     * while it's compared.
+     *
+     * @param from
+     *            the start of the region
+     * @param to
+     *            the end of the region (exclusive)
+     * @param plain
+     *            the plain text
+     * @param rules
+     *            which escape rules apply
+     * @return if they're the same
+     */
+    private boolean plainEquals( final int from, final int to, final CharSequence plain, final int rules ) {
+        int       pos    = from;
+        final int length = plain.length();
+
+        for (int i = 0; i < length; i++) {
+            int  c       = plain.charAt( i );
+            char escaped = 0;
+
+            if (rules == CEFView.ESCAPE_HEADER) {
+                if ((c == '|') || (c == '\\')) {
+                    escaped = (char) c;
+                }
+            }
+            else if (c == '=') {
+                escaped = '=';
+            }
+            else if (rules == CEFView.ESCAPE_VALUE) {
+                if (c == '\\') {
+                    escaped = '\\';
+                }
+                else if (c == '\n') {
+                    escaped = 'n';
+                }
+                else if (c == '\r') {
+                    escaped = 'r';
+                }
+            }
+
+
+            if (escaped != 0) {
+                if ((pos + 2 > to) || (byteAt( pos ) != '\\') || (byteAt( pos + 1 ) != escaped)) {
+                    return false;
+                }
+
+
+                pos += 2;
+
+                continue;
+            }
+
+
+            if (c < 0x80) {
+                if ((pos >= to) || (byteAt( pos++ ) != c)) {
+                    return false;
+                }
+
+
+                continue;
+            }
+
+
+            if (Character.isHighSurrogate( (char) c ) && (i + 1 < length)
+                    && Character.isLowSurrogate( plain.charAt( i + 1 ) )) {
+                c = Character.toCodePoint( (char) c, plain.charAt( ++i ) );
+            }
+            else if ((c >= Character.MIN_SURROGATE) && (c <= Character.MAX_SURROGATE)) {
+                c = '?';
+            }
+
+
+            final int bytes = (c < 0x800)
+                              ? 2
+                              : (c < 0x10000)
+                                ? 3
+                                : 4;
+
+            if (pos + bytes > to) {
+                return false;
+            }
+
+
+            int lead = (bytes == 2)
+                       ? 0xC0
+                       : (bytes == 3)
+                         ? 0xE0
+                         : 0xF0;
+
+            lead |= c >> (6 * (bytes - 1));
+
+            if ((byteAt( pos++ ) & 0xFF) != lead) {
+                return false;
+            }
+
+
+            for (int shift = 6 * (bytes - 2); shift >= 0; shift -= 6) {
+                if ((byteAt( pos++ ) & 0xFF) != (0x80 | ((c >> shift) & 0x3F))) {
+                    return false;
+                }
+            }
+        }
+
+
+        return pos == to;
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * @return the number of extension pairs in the record
+     */
+    public int getPairCount() {
+        return pairCount;
+    }
+
+
+    /**
+     * @param pair
+     *            the pair's index
+     * @return the number of escaped bytes in the pair's value
+     */
+    public int getValueLength( final int pair ) {
+        return valueEnds[pair] - valueStarts[pair];
+    }
+
+
+    /**
+     * @param pair
+     *            the pair's index
+     * @return the absolute offset of the pair's escaped value
+     */
+    public int getValueOffset( final int pair ) {
+        return valueStarts[pair];
+    }
+
+
+    /**
+     * Get a byte of the record
+     *
+     * @param i
+     *            the absolute offset
+     * @return the byte
+     */
+    private byte byteAt( final int i ) {
+        return (array != null)
+               ? array[i]
+               : buffer.get( i );
+    }
+}
@@ -0,0 +1,649 @@
+/**
+ * EventArena.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.buffer;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.utils.EscapeScanner;
+import com.lespea.cef.utils.Utf8;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Append-only buffer that holds encoded CEF events outside of the java heap.
+ * <p>
+ * Events are stored as their UTF-8 encoded string followed by a newline inside fixed size
+ * segments. A rendered CEF string can never contain a raw newline (the extension escapes them and
+ * the header fields reject them) so the segments are already in wire format and can be drained to
+ * a channel in bulk. Once a segment has been completely drained it is returned to a small pool to
+ * be reused, so the heap only ever holds a handful of segment descriptors no matter how many
+ * events are buffered.
+ * <p>
+ * All of the public methods are synchronized so a single producer and a single consumer can share
+ * an arena.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class EventArena implements Iterable<String> {
+
+    /**
+     * Logger object
+     */
+    private static final Logger LOG = LoggerFactory.getLogger( EventArena.class );
+
+    /**
+     * The byte that terminates every record
+     */
+    private static final byte RECORD_END = '\n';
+
+    //~--- fields -------------------------------------------------------------
+
+    /** Total number of bytes currently held */
+    private long bytes;
+
+    /** Number of events currently held */
+    private long events;
+
+    /** Segments that have been drained and can be reused */
+    private final ArrayDeque<Segment> freeSegments = new ArrayDeque<Segment>();
+
+    /** The maximum number of segments that can be live at once */
+    private final int maxSegments;
+
+    /** The maximum number of drained segments that are kept around for reuse */
+    private final int maxFreeSegments;
+
+    /** The mapping directory or null if direct buffers are used */
+    private final File mappedDir;
+
+    /** The size of every segment */
+    private final int segmentSize;
+
+    /** Live segments, oldest first */
+    private final ArrayDeque<Segment> segments = new ArrayDeque<Segment>();
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * Create a new arena. Use {@link #direct(int, int)} or {@link #mapped(File, int, int)}.
+     *
+     * @param mappedDir
+     *            directory to create mapped segment files in or null for direct buffers
+     * @param segmentSize
+     *            the size of every segment in bytes
+     * @param maxSegments
+     *            the maximum number of live segments
+     */
+    protected EventArena( final File mappedDir, final int segmentSize, final int maxSegments ) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException( "The segment size must be positive" );
+        }
+        else if (maxSegments <= 0) {
+            throw new IllegalArgumentException( "The maximum segment count must be positive" );
+        }
+
+
+        this.mappedDir       = mappedDir;
+        this.segmentSize     = segmentSize;
+        this.maxSegments     = maxSegments;
+        this.maxFreeSegments = Math.min( 4, maxSegments );
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Create an arena backed by direct byte buffers
+     *
+     * @param segmentSize
+     *            the size of every segment in bytes (also the largest event that can be stored)
+     * @param maxSegments
+     *            the maximum number of live segments, which bounds the arena to
+     *            <code>segmentSize * maxSegments</code> bytes
+     * @return the new arena
+     */
+    public static EventArena direct( final int segmentSize, final int maxSegments ) {
+        return new EventArena( null, segmentSize, maxSegments );
+    }
+
+
+    /**
+     * Create an arena backed by memory mapped temporary files. The files are deleted as soon as
+     * they are mapped so nothing is left behind if the process dies.
+     *
+     * @param dir
+     *            the directory to create the segment files in
+     * @param segmentSize
+     *            the size of every segment in bytes (also the largest event that can be stored)
+     * @param maxSegments
+     *            the maximum number of live segments, which bounds the arena to
+     *            <code>segmentSize * maxSegments</code> bytes
+     * @return the new arena
+     */
+    public static EventArena mapped( final File dir, final int segmentSize, final int maxSegments ) {
+        if (dir == null) {
+            throw new IllegalArgumentException( "The mapping directory cannot be null" );
+        }
+
+
+        return new EventArena( dir, segmentSize, maxSegments );
+    }
+
+
+    /**
+     * Append a CEF event to the arena
+     *
+     * @param cef
+     *            the event to store
+     * @return false if the arena is full and the event was not stored
+     * @throws IOException
+     *             if a mapped segment could not be created
+     */
+    public boolean append( final CEF cef ) throws IOException {
+        return append( cef.toString() );
+    }
+
+
+    /**
+     * Append an already rendered CEF string to the arena. The string is encoded straight into the
+     * segment without any intermediate byte array.
+     *
+     * @param cefStr
+     *            the rendered event, which must not contain a newline
+     * @return false if the arena is full and the event was not stored
+     * @throws IOException
+     *             if a mapped segment could not be created
+     */
+    public synchronized boolean append( final CharSequence cefStr ) throws IOException {
+        final int size = Utf8.encodedLength( cefStr ) + 1;
+        final Segment segment = writableSegment( size );
+
+        if (segment == null) {
+            return false;
+        }
+
+
+        final ByteBuffer buf   = segment.buf;
+        final int        start = buf.position();
+
+        Utf8.encode( cefStr, buf );
+
+        for (int i = start; i < buf.position(); i++) {
+            if (buf.get( i ) == EventArena.RECORD_END) {
+                buf.position( start );
+
+                throw new IllegalArgumentException( "A CEF record cannot contain a newline" );
+            }
+        }
+
+
+        buf.put( EventArena.RECORD_END );
+        recordAdded( size );
+
+        return true;
+    }
+
+
+    /**
+     * Append an already encoded event to the arena
+     *
+     * @param encoded
+     *            the UTF-8 bytes of the event, which must not contain a newline
+     * @param offset
+     *            the offset of the first byte
+     * @param length
+     *            the number of bytes in the event
+     * @return false if the arena is full and the event was not stored
+     * @throws IOException
+     *             if a mapped segment could not be created
+     */
+    public synchronized boolean append( final byte[] encoded, final int offset, final int length )
+            throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            if (encoded[i] == EventArena.RECORD_END) {
+                throw new IllegalArgumentException( "A CEF record cannot contain a newline" );
+            }
+        }
+
+
+        final Segment segment = writableSegment( length + 1 );
+
+        if (segment == null) {
+            return false;
+        }
+
+
+        segment.buf.put( encoded, offset, length );
+        segment.buf.put( EventArena.RECORD_END );
+        recordAdded( length + 1 );
+
+        return true;
+    }
+
+
+    /**
+     * Throw away every buffered event
+     */
+    public synchronized void clear() {
+        while (!segments.isEmpty()) {
+            release( segments.pollFirst() );
+        }
+
+
+        bytes  = 0;
+        events = 0;
+    }
+
+
+    /**
+     * Write as many buffered events as the channel will accept. Every fully written segment is
+     * reclaimed immediately. For blocking channels this empties the arena.
+     *
+     * @param channel
+     *            the channel to write to
+     * @return the number of bytes written
+     * @throws IOException
+     *             if the channel could not be written to
+     */
+    public synchronized long drainTo( final WritableByteChannel channel ) throws IOException {
+        long written = 0;
+
+        while (!segments.isEmpty()) {
+            final Segment    segment = segments.peekFirst();
+            final ByteBuffer view    = segment.view;
+
+            view.limit( segment.buf.position() );
+            view.position( segment.readPos );
+
+            if (!view.hasRemaining()) {
+                if (segments.size() == 1) {
+                    break;
+                }
+
+
+                release( segments.pollFirst() );
+
+                continue;
+            }
+
+
+            final int wrote = channel.write( view );
+
+            segment.readPos = view.position();
+            written         += wrote;
+            bytes           -= wrote;
+            events          -= segment.consumedRecords();
+
+            if (wrote == 0) {
+                break;
+            }
+        }
+
+
+        if (segments.size() == 1) {
+            final Segment last = segments.peekFirst();
+
+            if (last.readPos == last.buf.position()) {
+                release( segments.pollFirst() );
+            }
+        }
+
+
+        EventArena.LOG.debug( "Drained {} bytes from the arena", written );
+
+        return written;
+    }
+
+
+    /**
+     * @return if there are no buffered events
+     */
+    public synchronized boolean isEmpty() {
+        return events == 0;
+    }
+
+
+    /**
+     * Iterate over the buffered events without removing them. Each event is decoded into a new
+     * string, so use {@link #visit(RecordVisitor)} when the bytes are all that's needed. The arena
+     * must not be drained or cleared while the iterator is in use.
+     *
+     * @return an iterator over a snapshot of the buffered events
+     */
+    public synchronized Iterator<String> iterator() {
+        final Segment[] snapshot = segments.toArray( new Segment[segments.size()] );
+        final int[]     limits   = new int[snapshot.length];
+
+        for (int i = 0; i < snapshot.length; i++) {
+            limits[i] = snapshot[i].buf.position();
+        }
+
+
+        return new Iterator<String>() {
+            private int index = 0;
+            private int pos   = (snapshot.length > 0)
+                                ? snapshot[0].readPos
+                                : 0;
+
+            @Override
+            public boolean hasNext() {
+                while ((index < snapshot.length) && (pos >= limits[index])) {
+                    index++;
+
+                    if (index < snapshot.length) {
+                        pos = snapshot[index].readPos;
+                    }
+                }
+
+
+                return index < snapshot.length;
+            }
+
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+
+                final ByteBuffer buf   = snapshot[index].view;
+                final int        start = pos;
+                int              end   = start;
+
+                while (buf.get( end ) != EventArena.RECORD_END) {
+                    end++;
+                }
+
+
+                pos = end + 1;
+
+                return Utf8.decode( buf, start, end - start );
+            }
+
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException( "The arena is append-only" );
+            }
+        };
+    }
+
+
+    /**
+     * Walk over the buffered events without removing them or creating any objects
+     *
+     * @param visitor
+     *            called once per event until it returns false
+     * @return the number of events visited
+     */
+    public synchronized long visit( final RecordVisitor visitor ) {
+        long visited = 0;
+
+        for (final Segment segment : segments) {
+            final ByteBuffer buf   = segment.view;
+            final int        limit = segment.buf.position();
+            int              start = segment.readPos;
+
+            for (int i = start; i < limit; i++) {
+                if (buf.get( i ) == EventArena.RECORD_END) {
+                    visited++;
+
+                    if (!visitor.visit( buf, start, i - start )) {
+                        return visited;
+                    }
+
+
+                    start = i + 1;
+                }
+            }
+        }
+
+
+        return visited;
+    }
+
+
+    /**
+     * Get a segment with enough room for the record, sealing the current one if needed
+     *
+     * @param size
+     *            the number of bytes needed
+     * @return the segment or null if the arena is full
+     * @throws IOException
+     *             if a mapped segment could not be created
+     */
+    private Segment writableSegment( final int size ) throws IOException {
+        if (size > segmentSize) {
+            throw new IllegalArgumentException( "The record (" + size + " bytes) is larger than a segment ("
+                                                + segmentSize + " bytes)" );
+        }
+
+
+        final Segment last = segments.peekLast();
+
+        if ((last != null) && (last.buf.remaining() >= size)) {
+            return last;
+        }
+        else if (segments.size() >= maxSegments) {
+            EventArena.LOG.debug( "The arena is full with {} events", events );
+
+            return null;
+        }
+
+
+        final Segment segment = freeSegments.isEmpty()
+                                ? allocate()
+                                : freeSegments.pollFirst();
+
+        segments.addLast( segment );
+
+        return segment;
+    }
+
+
+    /**
+     * Allocate a brand new segment
+     *
+     * @return the new segment
+     * @throws IOException
+     *             if a mapped segment could not be created
+     */
+    private Segment allocate() throws IOException {
+        if (mappedDir == null) {
+            return new Segment( ByteBuffer.allocateDirect( segmentSize ) );
+        }
+
+
+        final File             file = File.createTempFile( "cef-arena", ".seg", mappedDir );
+        final RandomAccessFile raf  = new RandomAccessFile( file, "rw" );
+
+        try {
+            raf.setLength( segmentSize );
+
+            final MappedByteBuffer buf = raf.getChannel().map( FileChannel.MapMode.READ_WRITE, 0, segmentSize );
+
+            return new Segment( buf );
+        }
+        finally {
+            raf.close();
+
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+
+
+    /**
+     * Account for a newly appended record
+     *
+     * @param size
+     *            the number of bytes the record took up
+     */
+    private void recordAdded( final int size ) {
+        bytes  += size;
+        events += 1;
+    }
+
+
+    /**
+     * Reset a segment and return it to the free pool if there is room
+     *
+     * @param segment
+     *            the segment to release
+     */
+    private void release( final Segment segment ) {
+        if (freeSegments.size() < maxFreeSegments) {
+            segment.reset();
+            freeSegments.addLast( segment );
+        }
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * @return the number of encoded bytes currently held
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+
+    /**
+     * @return the number of events currently held
+     */
+    public synchronized long getEvents() {
+        return events;
+    }
+
+
+    /**
+     * @return the number of live segments
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+
+    //~--- inner interfaces ---------------------------------------------------
+
+    /**
+     * Callback used to walk the buffered records without copying them
+     */
+    public interface RecordVisitor {
+
+        /**
+         * Look at a record. The buffer must not be modified or kept after the call returns.
+         *
+         * @param buf
+         *            the buffer holding the record
+         * @param offset
+         *            absolute offset of the record's first byte
+         * @param length
+         *            number of bytes in the record (without the trailing newline)
+         * @return true to keep visiting records
+         */
+        boolean visit( ByteBuffer buf, int offset, int length );
+    }
+
+
+    //~--- inner classes ------------------------------------------------------
+
+    /**
+     * A single fixed size chunk of the arena
+     */
+    private static final class Segment {
+
+        /** The buffer that is written to, its position is the write position */
+        private final ByteBuffer buf;
+
+        /** The position up to which the segment has been drained */
+        private int readPos;
+
+        /** The offset up to which the drained records have been counted */
+        private int recordsCounted;
+
+        /** Reusable view used for draining and reading */
+        private final ByteBuffer view;
+
+
+        /**
+         * @param buf
+         *            the buffer backing the segment
+         */
+        private Segment( final ByteBuffer buf ) {
+            this.buf  = buf;
+            this.view = buf.duplicate();
+        }
+
+
+        /**
+         * Count the newly drained records since the last call by counting the record ends in the
+         * bytes drained since then, a word at a time
+         *
+         * @return the number of records that were completely drained since the last call
+         */
+        private int consumedRecords() {
+            final int total = EscapeScanner.count( view, recordsCounted, readPos, EscapeScanner.LF );
+
+            recordsCounted = readPos;
+
+            return total;
+        }
+
+
+        /**
+         * Empty the segment so it can be reused
+         */
+        private void reset() {
+            buf.clear();
+            view.clear();
+            readPos        = 0;
+            recordsCounted = 0;
+        }
+    }
+}
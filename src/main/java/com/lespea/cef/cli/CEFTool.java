@@ -0,0 +1,941 @@
+/**
+ * CEFTool.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.cli;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.filter.CEFFilter;
+import com.lespea.cef.filter.InvalidFilter;
+import com.lespea.cef.utils.CEFScanner;
+import com.lespea.cef.utils.LineField;
+import com.lespea.cef.utils.StringUtils;
+import com.lespea.cef.utils.Utf8;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.GZIPInputStream;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * A command line tool to filter, convert, count and group CEF files.
+ *
+ * <pre>
+ * java com.lespea.cef.cli.CEFTool [-f filter] [-k key,...] [-o cef|csv|tsv|json] [-H] [-c] [-g field]
+ *                                 [-t threads] [file ...]
+ * </pre>
+ *
+ * <ul>
+ * <li><code>-f</code> keeps the records that match a {@link CEFFilter} expression</li>
+ * <li><code>-k</code> picks the fields to print, header names or extension keys, unescaped; the
+ * output is CSV unless <code>-o</code> says otherwise</li>
+ * <li><code>-o</code> is the output format; JSON without <code>-k</code> prints every header field
+ * and extension pair</li>
+ * <li><code>-H</code> prints a header row for CSV and TSV</li>
+ * <li><code>-c</code> prints only the number of matching records</li>
+ * <li><code>-g</code> prints each value of a field with the number of matching records that have
+ * it, most common first, separated by a tab unless the format is CSV or JSON</li>
+ * <li><code>-t</code> is the number of threads, one per processor by default</li>
+ * </ul>
+ *
+ * The files are read in order, standard in if there are none or one is <code>-</code>, and files
+ * ending in <code>.gz</code> are decompressed. The input is cut into chunks of lines that are
+ * filtered and formatted on a pool of threads while the next chunks are read, and the results are
+ * written in the order they were read, so the output matches a single threaded run. Records are
+ * only scanned as far as the filter and the picked fields need; nothing is fully parsed. Lines
+ * that aren't CEF never match a filter and have empty fields.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class CEFTool {
+
+    /** Number of lines in a chunk */
+    private static final int CHUNK_LINES = 4096;
+
+    /** How the tool is used */
+    private static final String USAGE = "Usage: CEFTool [-f filter] [-k key,...] [-o cef|csv|tsv|json] [-H] [-c]"
+                                        + " [-g field] [-t threads] [file ...]";
+
+    //~--- fields -------------------------------------------------------------
+
+    /** If only the matches are counted */
+    private boolean count;
+
+    /** The fields picked by <code>-k</code> */
+    private String[] fields;
+
+    /** The files to read */
+    private final List<String> files = new ArrayList<String>();
+
+    /** The filter or null for every record */
+    private CEFFilter filter;
+
+    /** The output format */
+    private Format format;
+
+    /** The field grouped by or null */
+    private LineField groupBy;
+
+    /** If CSV and TSV get a header row */
+    private boolean headerRow;
+
+    /** How the picked fields are found */
+    private LineField[] picks;
+
+    /** Number of threads */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+
+    //~--- constant enums -----------------------------------------------------
+
+    /**
+     * The output formats
+     */
+    private enum Format { CEF, CSV, JSON, TSV }
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * @param args
+     *            the command line
+     * @throws IllegalArgumentException
+     *             if the command line is invalid
+     */
+    private CEFTool( final String[] args ) {
+        for (int i = 0; i < args.length; i++) {
+            final String arg = args[i];
+
+            if ("-c".equals( arg )) {
+                count = true;
+            }
+            else if ("-H".equals( arg )) {
+                headerRow = true;
+            }
+            else if ("-f".equals( arg ) || "-k".equals( arg ) || "-o".equals( arg ) || "-g".equals( arg )
+                     || "-t".equals( arg )) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException( "The option " + arg + " needs a value" );
+                }
+
+
+                option( arg.charAt( 1 ), args[++i] );
+            }
+            else if (arg.startsWith( "-" ) && (arg.length() > 1)) {
+                throw new IllegalArgumentException( "Unknown option " + arg );
+            }
+            else {
+                files.add( arg );
+            }
+        }
+
+
+        if (format == null) {
+            format = (fields == null)
+                     ? Format.CEF
+                     : Format.CSV;
+        }
+        else if ((fields == null) && (groupBy == null) && !count
+                 && ((format == Format.CSV) || (format == Format.TSV))) {
+            throw new IllegalArgumentException( "CSV and TSV output need the fields picked with -k" );
+        }
+
+
+        if (files.isEmpty()) {
+            files.add( "-" );
+        }
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Run the tool from the command line
+     *
+     * @param args
+     *            the options and files, see the class description
+     */
+    public static void main( final String[] args ) {
+        System.exit( CEFTool.run( args, System.in, System.out, System.err ) );
+    }
+
+
+    /**
+     * Run the tool
+     *
+     * @param args
+     *            the options and files, see the class description
+     * @param in
+     *            standard in
+     * @param out
+     *            where the results are written
+     * @param err
+     *            where problems are reported
+     * @return the exit code: 0 on success, 1 if the input couldn't be read and 2 for a bad command
+     *         line
+     */
+    public static int run( final String[] args, final InputStream in, final OutputStream out,
+                           final PrintStream err ) {
+        final CEFTool tool;
+
+        try {
+            tool = new CEFTool( args );
+        } catch (final IllegalArgumentException e) {
+            err.println( e.getMessage() );
+            err.println( CEFTool.USAGE );
+
+            return 2;
+        }
+
+
+        try {
+            tool.process( in, out );
+        } catch (final IOException e) {
+            err.println( e.getMessage() );
+
+            return 1;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            return 1;
+        }
+
+
+        return 0;
+    }
+
+
+    /**
+     * Append text as a CSV cell
+     *
+     * @param sb
+     *            where to append
+     * @param text
+     *            the text or null
+     */
+    private static void appendCsv( final StringBuilder sb, final String text ) {
+        if (text == null) {
+            return;
+        }
+
+
+        boolean quote = false;
+
+        for (int i = 0; (i < text.length()) && !quote; i++) {
+            final char c = text.charAt( i );
+
+            quote = (c == ',') || (c == '"') || (c == '\r') || (c == '\n');
+        }
+
+
+        if (!quote) {
+            sb.append( text );
+
+            return;
+        }
+
+
+        sb.append( '"' );
+
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt( i );
+
+            if (c == '"') {
+                sb.append( '"' );
+            }
+
+
+            sb.append( c );
+        }
+
+
+        sb.append( '"' );
+    }
+
+
+    /**
+     * Append text as a JSON string
+     *
+     * @param sb
+     *            where to append
+     * @param text
+     *            the text or null
+     */
+    private static void appendJson( final StringBuilder sb, final String text ) {
+        if (text == null) {
+            sb.append( "null" );
+
+            return;
+        }
+
+
+        sb.append( '"' );
+
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt( i );
+
+            switch (c) {
+            case '"' :
+                sb.append( "\\\"" );
+                break;
+
+            case '\\' :
+                sb.append( "\\\\" );
+                break;
+
+            case '\n' :
+                sb.append( "\\n" );
+                break;
+
+            case '\r' :
+                sb.append( "\\r" );
+                break;
+
+            case '\t' :
+                sb.append( "\\t" );
+                break;
+
+            default :
+                if (c < 0x20) {
+                    sb.append( String.format( "\\u%04x", (int) c ) );
+                }
+                else {
+                    sb.append( c );
+                }
+            }
+        }
+
+
+        sb.append( '"' );
+    }
+
+
+    /**
+     * Append text as a TSV cell, with tabs, line endings and backslashes escaped
+     *
+     * @param sb
+     *            where to append
+     * @param text
+     *            the text or null
+     */
+    private static void appendTsv( final StringBuilder sb, final String text ) {
+        if (text == null) {
+            return;
+        }
+
+
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt( i );
+
+            switch (c) {
+            case '\t' :
+                sb.append( "\\t" );
+                break;
+
+            case '\n' :
+                sb.append( "\\n" );
+                break;
+
+            case '\r' :
+                sb.append( "\\r" );
+                break;
+
+            case '\\' :
+                sb.append( "\\\\" );
+                break;
+
+            default :
+                sb.append( c );
+            }
+        }
+    }
+
+
+    /**
+     * Append a whole record as a JSON object of its header fields and extension pairs
+     *
+     * @param sb
+     *            where to append
+     * @param line
+     *            the record
+     */
+    private static void appendRecord( final StringBuilder sb, final String line ) {
+        final int extension = CEFScanner.extensionStart( line );
+
+        sb.append( '{' );
+
+        if (extension < 0) {
+            sb.append( '}' );
+
+            return;
+        }
+
+
+        final String[] names = { "cefVersion", "vendor", "product", "version", "id", "name", "severity" };
+        int            start = 0;
+
+        for (int i = 0; i < names.length; i++) {
+            final int end = CEFScanner.headerFieldEnd( line, start );
+
+            if (i > 0) {
+                sb.append( ',' );
+            }
+
+
+            CEFTool.appendJson( sb, names[i] );
+            sb.append( ':' );
+            CEFTool.appendJson( sb, (i == 0)
+                                    ? line.substring( line.indexOf( ':' ) + 1, end )
+                                    : StringUtils.unescapeField( line, start, end ) );
+            start = end + 1;
+        }
+
+
+        // Walk the pairs: a key runs to the next unescaped equals sign
+        int keyStart = extension;
+
+        while (keyStart < line.length()) {
+            int equals = keyStart;
+
+            while ((equals < line.length()) && (line.charAt( equals ) != '=')) {
+                equals += CEFScanner.isExtensionEscape( line, equals, line.length() )
+                          ? 2
+                          : 1;
+            }
+
+
+            if (equals >= line.length()) {
+                break;
+            }
+
+
+            final int valueEnd = CEFScanner.extensionValueEnd( line, equals + 1 );
+
+            sb.append( ',' );
+            CEFTool.appendJson( sb, StringUtils.unescapeExtensionKey( line, keyStart, equals ).trim() );
+            sb.append( ':' );
+            CEFTool.appendJson( sb, StringUtils.unescapeExtensionValue( line, equals + 1, valueEnd ) );
+            keyStart = valueEnd + 1;
+        }
+
+
+        sb.append( '}' );
+    }
+
+
+    /**
+     * Handle one chunk of lines
+     *
+     * @param lines
+     *            the lines
+     * @return what the chunk adds to the output
+     */
+    private Result chunk( final List<String> lines ) {
+        final Result result = new Result();
+
+        for (final String line : lines) {
+            if ((filter != null) && !filter.matches( line )) {
+                continue;
+            }
+
+
+            result.matched++;
+
+            if (count) {
+                continue;
+            }
+            else if (groupBy != null) {
+                final String value = groupBy.get( line );
+                final long[] seen  = result.groups.get( value );
+
+                if (seen == null) {
+                    result.groups.put( value, new long[] { 1 } );
+                }
+                else {
+                    seen[0]++;
+                }
+
+
+                continue;
+            }
+
+
+            final StringBuilder sb = result.output;
+
+            if (format == Format.CEF) {
+                sb.append( line );
+            }
+            else if ((format == Format.JSON) && (picks == null)) {
+                CEFTool.appendRecord( sb, line );
+            }
+            else {
+                row( sb, line );
+            }
+
+
+            sb.append( '\n' );
+        }
+
+
+        return result;
+    }
+
+
+    /**
+     * Open an input
+     *
+     * @param name
+     *            the file name or <code>-</code>
+     * @param in
+     *            standard in
+     * @return a reader of the input
+     * @throws IOException
+     *             if the file couldn't be opened
+     */
+    private static BufferedReader open( final String name, final InputStream in ) throws IOException {
+        InputStream stream = "-".equals( name )
+                             ? in
+                             : new FileInputStream( name );
+
+        if (name.endsWith( ".gz" )) {
+            try {
+                stream = new GZIPInputStream( stream, 64 * 1024 );
+            } catch (final IOException e) {
+
+                // The header is read right away, so a file that isn't really gzip fails here
+                stream.close();
+
+                throw e;
+            }
+        }
+
+
+        return new BufferedReader( new InputStreamReader( stream, Utf8.CHARSET ), 256 * 1024 );
+    }
+
+
+    /**
+     * Handle an option that takes a value
+     *
+     * @param option
+     *            the option letter
+     * @param value
+     *            its value
+     */
+    private void option( final char option, final String value ) {
+        switch (option) {
+        case 'f' :
+            try {
+                filter = CEFFilter.compile( value );
+            } catch (final InvalidFilter e) {
+                throw new IllegalArgumentException( "Invalid filter: " + e.getMessage() );
+            }
+
+
+            break;
+
+        case 'k' :
+            fields = value.split( "," );
+            picks  = new LineField[fields.length];
+
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = fields[i].trim();
+                picks[i]  = new LineField( fields[i] );
+            }
+
+
+            break;
+
+        case 'o' :
+            try {
+                format = Format.valueOf( value.toUpperCase() );
+            } catch (final IllegalArgumentException e) {
+                throw new IllegalArgumentException( "Unknown format " + value );
+            }
+
+
+            break;
+
+        case 'g' :
+            groupBy = new LineField( value.trim() );
+            break;
+
+        default :
+            threads = Integer.parseInt( value );
+
+            if (threads <= 0) {
+                throw new IllegalArgumentException( "The number of threads must be positive" );
+            }
+        }
+    }
+
+
+    /**
+     * Read every input, handing chunks to the threads, and write the results in order
+     *
+     * @param in
+     *            standard in
+     * @param stream
+     *            where the results are written
+     * @throws IOException
+     *             if an input couldn't be read or the output written
+     * @throws InterruptedException
+     *             if interrupted while waiting for a chunk
+     */
+    private void process( final InputStream in, final OutputStream stream ) throws IOException, InterruptedException {
+        final Writer out = new BufferedWriter( new OutputStreamWriter( stream, Utf8.CHARSET ), 256 * 1024 );
+        final ExecutorService pool = Executors.newFixedThreadPool( threads, new ThreadFactory() {
+            @Override
+            public Thread newThread( final Runnable r ) {
+                final Thread thread = new Thread( r, "cef-tool" );
+
+                thread.setDaemon( true );
+
+                return thread;
+            }
+        } );
+        final Queue<Future<Result>> pending = new ArrayDeque<Future<Result>>();
+        final Result                total   = new Result();
+
+        try {
+            if (headerRow && (fields != null) && !count && (groupBy == null) && (format != Format.JSON)) {
+                final StringBuilder sb = new StringBuilder();
+
+                for (int i = 0; i < fields.length; i++) {
+                    if (i > 0) {
+                        sb.append( (format == Format.TSV)
+                                   ? '\t'
+                                   : ',' );
+                    }
+
+
+                    if (format == Format.TSV) {
+                        CEFTool.appendTsv( sb, fields[i] );
+                    }
+                    else {
+                        CEFTool.appendCsv( sb, fields[i] );
+                    }
+                }
+
+
+                out.write( sb.append( '\n' ).toString() );
+            }
+
+
+            for (final String file : files) {
+                final BufferedReader reader = CEFTool.open( file, in );
+
+                try {
+                    List<String> lines = new ArrayList<String>( CEFTool.CHUNK_LINES );
+                    String       line;
+
+                    while ((line = reader.readLine()) != null) {
+                        if (line.length() == 0) {
+                            continue;
+                        }
+
+
+                        lines.add( line );
+
+                        if (lines.size() == CEFTool.CHUNK_LINES) {
+                            submit( pool, pending, lines, out, total );
+                            lines = new ArrayList<String>( CEFTool.CHUNK_LINES );
+                        }
+                    }
+
+
+                    if (!lines.isEmpty()) {
+                        submit( pool, pending, lines, out, total );
+                    }
+                } finally {
+                    if (!"-".equals( file )) {
+                        reader.close();
+                    }
+                }
+            }
+
+
+            while (!pending.isEmpty()) {
+                write( pending.remove(), out, total );
+            }
+
+
+            if (count) {
+                out.write( total.matched + "\n" );
+            }
+            else if (groupBy != null) {
+                writeGroups( total.groups, out );
+            }
+
+
+            out.flush();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Append the picked fields of a record as a row
+     *
+     * @param sb
+     *            where to append
+     * @param line
+     *            the record
+     */
+    private void row( final StringBuilder sb, final String line ) {
+        if (format == Format.JSON) {
+            sb.append( '{' );
+        }
+
+
+        for (int i = 0; i < picks.length; i++) {
+            final String value = picks[i].get( line );
+
+            switch (format) {
+            case JSON :
+                if (i > 0) {
+                    sb.append( ',' );
+                }
+
+
+                CEFTool.appendJson( sb, fields[i] );
+                sb.append( ':' );
+                CEFTool.appendJson( sb, value );
+                break;
+
+            case TSV :
+                if (i > 0) {
+                    sb.append( '\t' );
+                }
+
+
+                CEFTool.appendTsv( sb, value );
+                break;
+
+            default :
+                if (i > 0) {
+                    sb.append( ',' );
+                }
+
+
+                CEFTool.appendCsv( sb, value );
+            }
+        }
+
+
+        if (format == Format.JSON) {
+            sb.append( '}' );
+        }
+    }
+
+
+    /**
+     * Hand a chunk to the threads, first writing out the oldest result if enough are waiting
+     *
+     * @param pool
+     *            the threads
+     * @param pending
+     *            the results not written yet, oldest first
+     * @param lines
+     *            the chunk
+     * @param out
+     *            where the results are written
+     * @param total
+     *            the totals so far
+     * @throws IOException
+     *             if the output couldn't be written
+     * @throws InterruptedException
+     *             if interrupted while waiting for a chunk
+     */
+    private void submit( final ExecutorService pool, final Queue<Future<Result>> pending, final List<String> lines,
+                         final Writer out, final Result total )
+            throws IOException, InterruptedException {
+
+        // Keeps every thread busy while bounding how much is held in memory
+        if (pending.size() >= threads * 2) {
+            write( pending.remove(), out, total );
+        }
+
+
+        pending.add( pool.submit( new Callable<Result>() {
+            @Override
+            public Result call() {
+                return chunk( lines );
+            }
+        } ) );
+    }
+
+
+    /**
+     * Wait for a chunk and write out its result
+     *
+     * @param future
+     *            the chunk
+     * @param out
+     *            where the results are written
+     * @param total
+     *            the totals so far
+     * @throws IOException
+     *             if the output couldn't be written or the chunk failed
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    private static void write( final Future<Result> future, final Writer out, final Result total )
+            throws IOException, InterruptedException {
+        final Result result;
+
+        try {
+            result = future.get();
+        } catch (final ExecutionException e) {
+            throw new IOException( "Failed to process the input: " + e.getCause(), e.getCause() );
+        }
+
+
+        total.matched += result.matched;
+
+        for (final Entry<String, long[]> entry : result.groups.entrySet()) {
+            final long[] seen = total.groups.get( entry.getKey() );
+
+            if (seen == null) {
+                total.groups.put( entry.getKey(), entry.getValue() );
+            }
+            else {
+                seen[0] += entry.getValue()[0];
+            }
+        }
+
+
+        final StringBuilder output = result.output;
+
+        for (int i = 0; i < output.length(); i += 8192) {
+            out.append( output, i, Math.min( output.length(), i + 8192 ) );
+        }
+    }
+
+
+    /**
+     * Write the groups, most common first
+     *
+     * @param groups
+     *            the groups and their counts
+     * @param out
+     *            where they're written
+     * @throws IOException
+     *             if the output couldn't be written
+     */
+    private void writeGroups( final Map<String, long[]> groups, final Writer out ) throws IOException {
+        final List<Entry<String, long[]>> sorted = new ArrayList<Entry<String, long[]>>( groups.entrySet() );
+
+        Collections.sort( sorted, new Comparator<Entry<String, long[]>>() {
+            @Override
+            public int compare( final Entry<String, long[]> a, final Entry<String, long[]> b ) {
+                final long diff = b.getValue()[0] - a.getValue()[0];
+
+                if (diff != 0) {
+                    return (diff > 0)
+                           ? 1
+                           : -1;
+                }
+
+
+                return String.valueOf( a.getKey() ).compareTo( String.valueOf( b.getKey() ) );
+            }
+        } );
+
+        final StringBuilder sb = new StringBuilder();
+
+        for (final Entry<String, long[]> entry : sorted) {
+            sb.setLength( 0 );
+
+            switch (format) {
+            case JSON :
+                sb.append( "{\"value\":" );
+                CEFTool.appendJson( sb, entry.getKey() );
+                sb.append( ",\"count\":" ).append( entry.getValue()[0] ).append( '}' );
+                break;
+
+            case TSV :
+            case CEF :
+                CEFTool.appendTsv( sb, entry.getKey() );
+                sb.append( '\t' ).append( entry.getValue()[0] );
+                break;
+
+            default :
+                CEFTool.appendCsv( sb, entry.getKey() );
+                sb.append( ',' ).append( entry.getValue()[0] );
+            }
+
+
+            out.write( sb.append( '\n' ).toString() );
+        }
+    }
+
+
+    //~--- inner classes ------------------------------------------------------
+
+    /**
+     * What a chunk adds to the output
+     */
+    private static final class Result {
+
+        /** The groups and their counts */
+        final Map<String, long[]> groups = new HashMap<String, long[]>();
+
+        /** Number of matching records */
+        long matched;
+
+        /** The formatted records */
+        final StringBuilder output = new StringBuilder();
+    }
+}
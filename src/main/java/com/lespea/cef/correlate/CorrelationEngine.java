@@ -0,0 +1,478 @@
+/**
+ * CorrelationEngine.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.correlate;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.Extension;
+import com.lespea.cef.InvalidExtensionKey;
+import com.lespea.cef.InvalidField;
+import com.lespea.cef.pipeline.Emitter;
+import com.lespea.cef.pipeline.Stage;
+import com.lespea.cef.utils.CEFTime;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Looks for the patterns of a set of {@link CorrelationRule}s in a stream of CEF records and
+ * emits a new record every time one fires.
+ * <p>
+ * Every rule has a hash index from the value of its key field to that key's state. The index is
+ * kept in the order the keys were last seen, so expiring the keys that have dropped out of the
+ * window only ever looks at the front of it: each record checks a few of the oldest keys of the
+ * rules it touches, which spreads the expiry out instead of sweeping the whole index now and then.
+ * Within a key, the values and times are kept in the order they were seen and expired the same
+ * way.
+ * <p>
+ * The time of a record is its <code>rt</code> field, or the current time if it has none. The
+ * record emitted when a rule fires has the vendor {@value #VENDOR}, the product {@value #PRODUCT},
+ * the rule's name as its id and the rule's severity; its extension holds the key field and value,
+ * <code>cnt</code> (the number of values or records that made it fire) and the <code>start</code>
+ * and <code>end</code> times of the pattern. A distinct rule also puts the values it saw in
+ * <code>cs1</code>, labeled with the field's name in <code>cs1Label</code>.
+ * <p>
+ * The state is kept per thread, so on a {@link com.lespea.cef.pipeline.PartitionedExecutor}
+ * partitioned on the rules' key field every lane correlates its own keys without locking. On a
+ * stage with several unpartitioned threads the records of a key would be split between them.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class CorrelationEngine implements Stage<CEF, CEF> {
+
+    /** The product of the records emitted */
+    public static final String PRODUCT = "CEF Correlation";
+
+    /** The vendor of the records emitted */
+    public static final String VENDOR = "lespea";
+
+    /** The version of the records emitted */
+    public static final String VERSION = "1.0";
+
+    /** Number of the oldest keys of an index checked for expiry per record */
+    private static final int EXPIRE_STEP = 2;
+
+    //~--- fields -------------------------------------------------------------
+
+    /** Number of keys dropped because an index was full */
+    private final AtomicLong evicted = new AtomicLong();
+
+    /** Number of times a rule fired */
+    private final AtomicLong fired = new AtomicLong();
+
+    /** The indexes of every thread that has correlated */
+    private final List<Index[]> indexes = new CopyOnWriteArrayList<Index[]>();
+
+    /** The rules */
+    private final CorrelationRule[] rules;
+
+    /** The indexes of the current thread */
+    private final ThreadLocal<Index[]> local = new ThreadLocal<Index[]>() {
+        @Override
+        protected Index[] initialValue() {
+            final Index[] created = new Index[rules.length];
+
+            for (int i = 0; i < rules.length; i++) {
+                created[i] = new Index( rules[i] );
+            }
+
+
+            indexes.add( created );
+
+            return created;
+        }
+    };
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * @param rules
+     *            the rules to look for
+     */
+    public CorrelationEngine( final CorrelationRule... rules ) {
+        if (rules.length == 0) {
+            throw new IllegalArgumentException( "At least one rule is needed" );
+        }
+
+
+        this.rules = rules.clone();
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Correlate a record at a given time
+     *
+     * @param cef
+     *            the record
+     * @param time
+     *            the time of the record in epoch milliseconds
+     * @param out
+     *            where the records of the rules that fire go
+     * @throws InvalidField
+     *             if a rule's name can't be used as an id
+     * @throws InvalidExtensionKey
+     *             if a rule's key field can't be used as an extension key
+     * @throws InterruptedException
+     *             if interrupted while emitting
+     */
+    public void correlate( final CEF cef, final long time, final Emitter<? super CEF> out )
+            throws InvalidField, InvalidExtensionKey, InterruptedException {
+        final Extension extension = cef.getExtension();
+
+        for (final Index index : local.get()) {
+            final CorrelationRule rule = index.rule;
+
+            index.expire( time );
+
+            final String key = extension.get( rule.getKeyField() );
+
+            if ((key == null) || ((rule.getWhere() != null) && !rule.getWhere().matches( cef ))) {
+                continue;
+            }
+
+
+            KeyState state = index.get( key );
+
+            if (state == null) {
+                state = new KeyState( rule );
+                index.put( key, state );
+            }
+
+
+            state.last = time;
+
+            final Map<String, String> fields = rule.isDistinct()
+                                               ? state.distinct( rule, cef, time )
+                                               : state.sequence( rule, cef, time );
+
+            if (fields != null) {
+                fields.put( rule.getKeyField(), key );
+                Extension.putTime( fields, "end", time );
+                fired.incrementAndGet();
+                out.emit( new CEF( CorrelationEngine.VENDOR, CorrelationEngine.PRODUCT, CorrelationEngine.VERSION,
+                                   rule.getName(), CorrelationEngine.describe( rule ), rule.getSeverity(),
+                                   new Extension( fields ) ) );
+            }
+        }
+    }
+
+
+    /**
+     * Correlate a record at the time in its <code>rt</code> field, or now if it has none
+     *
+     * @param cef
+     *            the record
+     * @param out
+     *            where the records of the rules that fire go
+     * @throws InvalidField
+     *             if a rule's name can't be used as an id
+     * @throws InvalidExtensionKey
+     *             if a rule's key field can't be used as an extension key
+     * @throws InterruptedException
+     *             if interrupted while emitting
+     */
+    @Override
+    public void process( final CEF cef, final Emitter<? super CEF> out )
+            throws InvalidField, InvalidExtensionKey, InterruptedException {
+        final long time = cef.getExtension().getTime( "rt" );
+
+        correlate( cef, (time == CEFTime.NO_TIME)
+                        ? System.currentTimeMillis()
+                        : time, out );
+    }
+
+
+    @Override
+    public String toString() {
+        return "CorrelationEngine [rules=" + rules.length + ", keys=" + getKeys() + ", fired=" + getFired()
+               + ", evicted=" + getEvicted() + "]";
+    }
+
+
+    /**
+     * @param rule
+     *            the rule
+     * @return the name of the records the rule emits
+     */
+    private static String describe( final CorrelationRule rule ) {
+        if (rule.isDistinct()) {
+            return rule.getThreshold() + " distinct " + rule.getValueField() + " for one " + rule.getKeyField()
+                   + " within " + rule.getWindowMillis() + "ms";
+        }
+
+
+        return rule.getThreshold() + " x (" + rule.getFirst() + ") then (" + rule.getThen() + ") for one "
+               + rule.getKeyField() + " within " + rule.getWindowMillis() + "ms";
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * @return number of keys dropped because a rule had too many
+     */
+    public long getEvicted() {
+        return evicted.get();
+    }
+
+
+    /**
+     * @return number of times a rule fired
+     */
+    public long getFired() {
+        return fired.get();
+    }
+
+
+    /**
+     * @return number of keys with state, over every rule and thread; read while the engine is
+     *         running it's only an estimate
+     */
+    public long getKeys() {
+        long keys = 0;
+
+        for (final Index[] thread : indexes) {
+            for (final Index index : thread) {
+                keys += index.size();
+            }
+        }
+
+
+        return keys;
+    }
+
+
+    //~--- inner classes ------------------------------------------------------
+
+    /**
+     * The state of every key of a rule in the order they were last seen
+     */
+    private final class Index extends LinkedHashMap<String, KeyState> {
+
+        /** Serial version */
+        private static final long serialVersionUID = 1L;
+
+        /** The rule */
+        final CorrelationRule rule;
+
+
+        /**
+         * @param rule
+         *            the rule
+         */
+        Index( final CorrelationRule rule ) {
+            super( 64, 0.75f, true );
+            this.rule = rule;
+        }
+
+
+        /**
+         * Drop the oldest keys that have dropped out of the window
+         *
+         * @param time
+         *            the current time
+         */
+        void expire( final long time ) {
+            final long               cutoff = time - rule.getWindowMillis();
+            final Iterator<KeyState> states = values().iterator();
+
+            for (int i = 0; (i < CorrelationEngine.EXPIRE_STEP) && states.hasNext(); i++) {
+                if (states.next().last >= cutoff) {
+                    return;
+                }
+
+
+                states.remove();
+            }
+        }
+
+
+        @Override
+        protected boolean removeEldestEntry( final Map.Entry<String, KeyState> eldest ) {
+            if (size() > rule.getMaxKeys()) {
+                evicted.incrementAndGet();
+
+                return true;
+            }
+
+
+            return false;
+        }
+    }
+
+
+    /**
+     * What's been seen for one key of a rule
+     */
+    private static final class KeyState {
+
+        /** The time the key was last seen */
+        long last;
+
+        /** Number of starting times held */
+        private int count;
+
+        /** The next slot in the starting times */
+        private int next;
+
+        /** The times of the starting records of a sequence, oldest at {@link #next} once full */
+        private final long[] times;
+
+        /** The distinct values and when each was last seen, oldest first */
+        private final LinkedHashMap<String, Long> values;
+
+
+        /**
+         * @param rule
+         *            the rule
+         */
+        KeyState( final CorrelationRule rule ) {
+            if (rule.isDistinct()) {
+                this.values = new LinkedHashMap<String, Long>();
+                this.times  = null;
+            }
+            else {
+                this.values = null;
+                this.times  = new long[rule.getThreshold()];
+            }
+        }
+
+
+        /**
+         * Add a record to a distinct rule
+         *
+         * @param rule
+         *            the rule
+         * @param cef
+         *            the record
+         * @param time
+         *            the time of the record
+         * @return the fields of the record to emit or null if the rule didn't fire
+         */
+        Map<String, String> distinct( final CorrelationRule rule, final CEF cef, final long time ) {
+            final String value = CorrelationRule.ID_FIELD.equals( rule.getValueField() )
+                                 ? cef.getId()
+                                 : cef.getExtension().get( rule.getValueField() );
+
+            if (value == null) {
+                return null;
+            }
+
+
+            // Move the value to the back so the front is always the oldest
+            values.remove( value );
+            values.put( value, time );
+
+            final long           cutoff = time - rule.getWindowMillis();
+            final Iterator<Long> seen   = values.values().iterator();
+
+            while (seen.hasNext() && (seen.next() < cutoff)) {
+                seen.remove();
+            }
+
+
+            if (values.size() < rule.getThreshold()) {
+                return null;
+            }
+
+
+            final Map<String, String> fields = new HashMap<String, String>();
+            final StringBuilder       joined = new StringBuilder();
+            long                      start  = time;
+
+            for (final Map.Entry<String, Long> entry : values.entrySet()) {
+                if (joined.length() > 0) {
+                    joined.append( ',' );
+                }
+
+
+                joined.append( entry.getKey() );
+                start = Math.min( start, entry.getValue() );
+            }
+
+
+            fields.put( "cnt", Integer.toString( values.size() ) );
+            fields.put( "cs1", joined.toString() );
+            fields.put( "cs1Label", rule.getValueField() );
+            Extension.putTime( fields, "start", start );
+            values.clear();
+
+            return fields;
+        }
+
+
+        /**
+         * Add a record to a sequence rule
+         *
+         * @param rule
+         *            the rule
+         * @param cef
+         *            the record
+         * @param time
+         *            the time of the record
+         * @return the fields of the record to emit or null if the rule didn't fire
+         */
+        Map<String, String> sequence( final CorrelationRule rule, final CEF cef, final long time ) {
+            if ((count == times.length) && rule.getThen().matches( cef )) {
+                final long start = times[next];
+
+                if (start >= time - rule.getWindowMillis()) {
+                    final Map<String, String> fields = new HashMap<String, String>();
+
+                    fields.put( "cnt", Integer.toString( count + 1 ) );
+                    Extension.putTime( fields, "start", start );
+                    count = 0;
+
+                    return fields;
+                }
+            }
+
+
+            if (rule.getFirst().matches( cef )) {
+                times[next] = time;
+                next        = (next + 1) % times.length;
+                count       = Math.min( count + 1, times.length );
+            }
+
+
+            return null;
+        }
+    }
+}
@@ -0,0 +1,340 @@
+/**
+ * CorrelationRule.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.correlate;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.filter.CEFFilter;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * A pattern for a {@link CorrelationEngine} to look for in the records sharing the value of a key
+ * extension field, such as <code>src</code> or <code>suser</code>. There are two kinds:
+ * <ul>
+ * <li>{@link #distinct(String, String, String, int, long)}: the key shows up with a number of
+ * different values of another field within the window, such as one source triggering three
+ * different signature ids within a minute</li>
+ * <li>{@link #sequence(String, String, CEFFilter, CEFFilter, int, long)}: a number of records
+ * matching one filter are followed by one matching another within the window, such as login
+ * failures followed by a success for the same user</li>
+ * </ul>
+ * Only records that have the key field (and match the filter given to {@link #where(CEFFilter)},
+ * if any) are looked at. Once a rule fires for a key that key starts over, so a burst fires once
+ * rather than once per record.
+ * <p>
+ * The state kept for a key never holds more than the threshold's worth of values or times, and
+ * no more than {@link #maxKeys(int)} keys are kept per rule; when there are too many the key that
+ * was seen the longest ago is dropped.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class CorrelationRule {
+
+    /** The key field name used for the header fields instead of an extension field */
+    static final String ID_FIELD = "id";
+
+    //~--- fields -------------------------------------------------------------
+
+    /** The filter that starts a sequence or null for a distinct rule */
+    private final CEFFilter first;
+
+    /** The field keying the rule */
+    private final String keyField;
+
+    /** Most keys kept */
+    private int maxKeys = 100000;
+
+    /** The name of the rule, used as the id of what it emits */
+    private final String name;
+
+    /** The severity of what the rule emits */
+    private int severity = 8;
+
+    /** The filter that ends a sequence or null for a distinct rule */
+    private final CEFFilter then;
+
+    /** Number of distinct values or starting records it takes to fire */
+    private final int threshold;
+
+    /** The field whose distinct values are counted or null for a sequence rule */
+    private final String valueField;
+
+    /** Only records matching this are looked at, or null for every record */
+    private CEFFilter where;
+
+    /** The length of the window in milliseconds */
+    private final long windowMillis;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * @param name
+     *            the name of the rule
+     * @param keyField
+     *            the field keying the rule
+     * @param valueField
+     *            the field whose distinct values are counted or null
+     * @param first
+     *            the filter that starts a sequence or null
+     * @param then
+     *            the filter that ends a sequence or null
+     * @param threshold
+     *            number of distinct values or starting records it takes to fire
+     * @param windowMillis
+     *            the length of the window in milliseconds
+     */
+    private CorrelationRule( final String name, final String keyField, final String valueField, final CEFFilter first,
+                             final CEFFilter then, final int threshold, final long windowMillis ) {
+        if ((name == null) || (keyField == null)) {
+            throw new IllegalArgumentException( "The name and key field cannot be null" );
+        }
+        else if ((threshold <= 0) || (windowMillis <= 0)) {
+            throw new IllegalArgumentException( "The threshold and window must be positive" );
+        }
+
+
+        this.name         = name;
+        this.keyField     = keyField;
+        this.valueField   = valueField;
+        this.first        = first;
+        this.then         = then;
+        this.threshold    = threshold;
+        this.windowMillis = windowMillis;
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Create a rule that fires when a key shows up with a number of different values of another
+     * field within the window. The value field can be <code>id</code> for the signature id in the
+     * header.
+     *
+     * @param name
+     *            the name of the rule, used as the id of what it emits
+     * @param keyField
+     *            the extension field keying the rule
+     * @param valueField
+     *            the extension field whose distinct values are counted, or <code>id</code>
+     * @param threshold
+     *            number of distinct values it takes to fire
+     * @param windowMillis
+     *            the length of the window in milliseconds
+     * @return the rule
+     */
+    public static CorrelationRule distinct( final String name, final String keyField, final String valueField,
+                                            final int threshold, final long windowMillis ) {
+        if (valueField == null) {
+            throw new IllegalArgumentException( "The value field cannot be null" );
+        }
+
+
+        return new CorrelationRule( name, keyField, valueField, null, null, threshold, windowMillis );
+    }
+
+
+    /**
+     * Set the largest number of keys the rule keeps state for
+     *
+     * @param maxKeys
+     *            the number of keys
+     * @return this rule
+     */
+    public CorrelationRule maxKeys( final int maxKeys ) {
+        if (maxKeys <= 0) {
+            throw new IllegalArgumentException( "The number of keys must be positive" );
+        }
+
+
+        this.maxKeys = maxKeys;
+
+        return this;
+    }
+
+
+    /**
+     * Create a rule that fires when a number of records matching one filter are followed by a
+     * record matching another, all for the same key and within the window
+     *
+     * @param name
+     *            the name of the rule, used as the id of what it emits
+     * @param keyField
+     *            the extension field keying the rule
+     * @param first
+     *            the filter of the records that start the sequence
+     * @param then
+     *            the filter of the record that ends it
+     * @param threshold
+     *            number of starting records it takes
+     * @param windowMillis
+     *            the length of the window in milliseconds
+     * @return the rule
+     */
+    public static CorrelationRule sequence( final String name, final String keyField, final CEFFilter first,
+                                            final CEFFilter then, final int threshold, final long windowMillis ) {
+        if ((first == null) || (then == null)) {
+            throw new IllegalArgumentException( "The filters cannot be null" );
+        }
+
+
+        return new CorrelationRule( name, keyField, null, first, then, threshold, windowMillis );
+    }
+
+
+    /**
+     * Set the severity of the records the rule emits
+     *
+     * @param severity
+     *            the severity, from 0 to 10
+     * @return this rule
+     */
+    public CorrelationRule severity( final int severity ) {
+        if ((severity < 0) || (severity > 10)) {
+            throw new IllegalArgumentException( "The severity must be from 0 to 10" );
+        }
+
+
+        this.severity = severity;
+
+        return this;
+    }
+
+
+    @Override
+    public String toString() {
+        return "CorrelationRule [name=" + name + ", key=" + keyField + ", " + ((valueField == null)
+                                                                               ? first + " then " + then
+                                                                               : "distinct " + valueField)
+               + ", threshold=" + threshold + ", windowMillis=" + windowMillis + "]";
+    }
+
+
+    /**
+     * Only look at the records matching a filter
+     *
+     * @param filter
+     *            the filter
+     * @return this rule
+     */
+    public CorrelationRule where( final CEFFilter filter ) {
+        this.where = filter;
+
+        return this;
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * @return the filter that starts a sequence or null for a distinct rule
+     */
+    public CEFFilter getFirst() {
+        return first;
+    }
+
+
+    /**
+     * @return the field keying the rule
+     */
+    public String getKeyField() {
+        return keyField;
+    }
+
+
+    /**
+     * @return the largest number of keys the rule keeps state for
+     */
+    public int getMaxKeys() {
+        return maxKeys;
+    }
+
+
+    /**
+     * @return the name of the rule
+     */
+    public String getName() {
+        return name;
+    }
+
+
+    /**
+     * @return the severity of the records the rule emits
+     */
+    public int getSeverity() {
+        return severity;
+    }
+
+
+    /**
+     * @return the filter that ends a sequence or null for a distinct rule
+     */
+    public CEFFilter getThen() {
+        return then;
+    }
+
+
+    /**
+     * @return number of distinct values or starting records it takes to fire
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+
+    /**
+     * @return the field whose distinct values are counted or null for a sequence rule
+     */
+    public String getValueField() {
+        return valueField;
+    }
+
+
+    /**
+     * @return the filter records must match to be looked at or null
+     */
+    public CEFFilter getWhere() {
+        return where;
+    }
+
+
+    /**
+     * @return the length of the window in milliseconds
+     */
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+
+    /**
+     * @return if this is a distinct rule rather than a sequence rule
+     */
+    public boolean isDistinct() {
+        return valueField != null;
+    }
+}
@@ -0,0 +1,356 @@
+/**
+ * Enricher.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.enrich;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.InvalidExtensionKey;
+import com.lespea.cef.utils.CEFScanner;
+import com.lespea.cef.utils.StringUtils;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Adds fields to events by joining one of their extension values against lookup tables, for
+ * example the owner and zone of the asset in <code>src</code>.
+ * <p>
+ * The new pairs are put together from the table's escaped values and are appended to the rendered
+ * event, so the existing header and extension are never escaped or rendered again. The added keys
+ * are the table's column names with the join's prefix in front; a key the event already has keeps
+ * its original value.
+ * <p>
+ * Add every join before the enricher is shared; once it's built any number of threads can enrich
+ * events at the same time.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class Enricher {
+
+    /** Per thread space used while enriching */
+    private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    //~--- fields -------------------------------------------------------------
+
+    /** The joins in the order they were added */
+    private final List<Join> joins = new ArrayList<Join>();
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Enrich an event
+     *
+     * @param cef
+     *            the event
+     * @return the enriched event, or the same one if no table had a row for it
+     */
+    public CEF enrich( final CEF cef ) {
+        final Scratch scratch = Enricher.SCRATCH.get();
+
+        scratch.pairs.setLength( 0 );
+
+        for (final Join join : joins) {
+            final String value = cef.getExtension().get( join.key );
+
+            if (value != null) {
+                join.append( value, 0, value.length(), scratch );
+            }
+        }
+
+
+        return (scratch.pairs.length() == 0)
+               ? cef
+               : cef.appendExtension( scratch.pairs.toString() );
+    }
+
+
+    /**
+     * Enrich a rendered event. Line endings on the end of the line are kept on the end.
+     *
+     * @param line
+     *            the rendered event
+     * @return the enriched event, or the same line if no table had a row for it
+     */
+    public String enrich( final String line ) {
+        final Scratch scratch = Enricher.SCRATCH.get();
+
+        scratch.pairs.setLength( 0 );
+
+        for (final Join join : joins) {
+            final int start = CEFScanner.extensionValueStart( line, join.escapedKey );
+
+            if (start < 0) {
+                continue;
+            }
+
+
+            int end = CEFScanner.extensionValueEnd( line, start );
+
+            while ((end > start) && ((line.charAt( end - 1 ) == '\n') || (line.charAt( end - 1 ) == '\r'))) {
+                end--;
+            }
+
+
+            if (line.lastIndexOf( '\\', end - 1 ) < start) {
+                join.append( line, start, end, scratch );
+            }
+            else {
+                final String value = StringUtils.unescapeExtensionValue( line, start, end );
+
+                join.append( value, 0, value.length(), scratch );
+            }
+        }
+
+
+        if (scratch.pairs.length() == 0) {
+            return line;
+        }
+
+
+        int body = line.length();
+
+        while ((body > 0) && ((line.charAt( body - 1 ) == '\n') || (line.charAt( body - 1 ) == '\r'))) {
+            body--;
+        }
+
+
+        final StringBuilder sb = new StringBuilder( line.length() + scratch.pairs.length() + 1 );
+
+        sb.append( line, 0, body );
+
+        if ((body > 0) && (line.charAt( body - 1 ) != '|')) {
+            sb.append( ' ' );
+        }
+
+
+        return sb.append( scratch.pairs ).append( line, body, line.length() ).toString();
+    }
+
+
+    /**
+     * Join an extension value against a table, adding its columns as they are named
+     *
+     * @param key
+     *            the plain extension key whose value is looked up
+     * @param source
+     *            the table
+     * @return this enricher
+     * @throws InvalidExtensionKey
+     *             if the key isn't valid
+     */
+    public Enricher join( final String key, final TableSource source ) throws InvalidExtensionKey {
+        return join( key, source, "" );
+    }
+
+
+    /**
+     * Join an extension value against a table
+     *
+     * @param key
+     *            the plain extension key whose value is looked up
+     * @param source
+     *            the table
+     * @param prefix
+     *            put in front of the column names to make the added keys, so two joins against
+     *            the same table (such as on <code>src</code> and <code>dst</code>) don't collide
+     * @return this enricher
+     * @throws InvalidExtensionKey
+     *             if the key or the prefix isn't valid
+     */
+    public Enricher join( final String key, final TableSource source, final String prefix )
+            throws InvalidExtensionKey {
+        StringUtils.escapeExtensionKey( prefix + "x" );
+        joins.add( new Join( key, StringUtils.escapeExtensionKey( key ), source, prefix ) );
+
+        return this;
+    }
+
+
+    @Override
+    public String toString() {
+        return "Enricher [" + joins.size() + " joins]";
+    }
+
+
+    //~--- inner classes ------------------------------------------------------
+
+    /**
+     * An extension key joined against a table
+     */
+    private static final class Join {
+
+        /** The escaped extension key */
+        final String escapedKey;
+
+        /** The plain extension key */
+        final String key;
+
+        /** Put in front of the column names */
+        private final String prefix;
+
+        /** The table */
+        private final TableSource source;
+
+        /** The last table seen and its escaped output keys */
+        private volatile Keys keys;
+
+
+        /**
+         * @param key
+         *            the plain extension key
+         * @param escapedKey
+         *            the escaped extension key
+         * @param source
+         *            the table
+         * @param prefix
+         *            put in front of the column names
+         */
+        Join( final String key, final String escapedKey, final TableSource source, final String prefix ) {
+            this.key        = key;
+            this.escapedKey = escapedKey;
+            this.source     = source;
+            this.prefix     = prefix;
+        }
+
+
+        /**
+         * Look up a value and append the pairs of its row
+         *
+         * @param text
+         *            the text holding the plain value
+         * @param from
+         *            the start of the value
+         * @param to
+         *            the end of the value (exclusive)
+         * @param scratch
+         *            the thread's scratch space
+         */
+        void append( final CharSequence text, final int from, final int to, final Scratch scratch ) {
+            final LookupTable table = source.table();
+            final int         row   = table.find( text, from, to, scratch.address );
+
+            if (row == LookupTable.NOT_FOUND) {
+                return;
+            }
+
+
+            final String[]      names = keysFor( table );
+            final StringBuilder pairs = scratch.pairs;
+
+            for (int c = 0; c < names.length; c++) {
+                final String value = table.getValue( row, c );
+
+                if (value != null) {
+                    if (pairs.length() > 0) {
+                        pairs.append( ' ' );
+                    }
+
+
+                    pairs.append( names[c] ).append( '=' ).append( value );
+                }
+            }
+        }
+
+
+        /**
+         * Get the escaped output keys for a table, working them out again after a reload
+         *
+         * @param table
+         *            the table
+         * @return the escaped keys
+         */
+        private String[] keysFor( final LookupTable table ) {
+            Keys current = keys;
+
+            if ((current == null) || (current.table != table)) {
+                final String[] columns = table.getColumns();
+
+                for (int c = 0; c < columns.length; c++) {
+                    try {
+                        columns[c] = StringUtils.escapeExtensionKey( prefix + columns[c] );
+                    } catch (final InvalidExtensionKey e) {
+                        throw new IllegalStateException( "The table and prefix were already checked", e );
+                    }
+                }
+
+
+                current = new Keys( table, columns );
+                keys    = current;
+            }
+
+
+            return current.names;
+        }
+    }
+
+
+    /**
+     * The escaped output keys for one version of a table
+     */
+    private static final class Keys {
+
+        /** The escaped keys */
+        final String[] names;
+
+        /** The table */
+        final LookupTable table;
+
+
+        /**
+         * @param table
+         *            the table
+         * @param names
+         *            the escaped keys
+         */
+        Keys( final LookupTable table, final String[] names ) {
+            this.table = table;
+            this.names = names;
+        }
+    }
+
+
+    /**
+     * Space a thread reuses for every event
+     */
+    private static final class Scratch {
+
+        /** Holds a parsed address */
+        final long[] address = new long[2];
+
+        /** The pairs being added */
+        final StringBuilder pairs = new StringBuilder();
+    }
+}
@@ -0,0 +1,495 @@
+/**
+ * LookupTable.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.enrich;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.InvalidExtensionKey;
+import com.lespea.cef.net.IPAddress;
+import com.lespea.cef.utils.StringUtils;
+import com.lespea.cef.utils.Utf8;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * An immutable table of extension values keyed by an IP address or a name, loaded from CSV.
+ * <p>
+ * The first line of the CSV names the columns: the first column is the key and every other column
+ * is an extension key whose value is added to a matching event. Fields may be double quoted (with
+ * <code>""</code> standing for a quote) but can't span lines. Blank lines and lines starting with
+ * <code>#</code> are skipped, empty values aren't added and the first row wins when a key repeats.
+ * <p>
+ * Keys that are IPv4 or IPv6 addresses are held as pairs of longs in an open addressing table, so
+ * <code>10.0.0.1</code> and <code>::ffff:10.0.0.1</code> are the same key. Any other key is
+ * compared without regard to ASCII case, which suits host names. Lookups read the key straight out
+ * of a region of text and don't allocate. The values are escaped once, when the table is loaded.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class LookupTable implements TableSource {
+
+    /** Returned by the find methods when there's no row for the key */
+    public static final int NOT_FOUND = -1;
+
+    /** Multiplier used to spread the hash codes */
+    private static final int SPREAD = 0x9E3779B9;
+
+    //~--- fields -------------------------------------------------------------
+
+    /** The high 64 bits of the address keys */
+    private final long[] addressHighs;
+
+    /** The low 64 bits of the address keys */
+    private final long[] addressLows;
+
+    /** Row of each address key plus one (0 for an empty slot) */
+    private final int[] addressRows;
+
+    /** The plain names of the value columns */
+    private final String[] columns;
+
+    /** The number of rows */
+    private final int rows;
+
+    /** The name keys */
+    private final String[] texts;
+
+    /** Row of each name key plus one (0 for an empty slot) */
+    private final int[] textRows;
+
+    /** The escaped values of every row, null where the value is empty */
+    private final String[][] values;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * @param columns
+     *            the plain names of the value columns
+     * @param keys
+     *            the key of every row
+     * @param values
+     *            the escaped values of every row
+     */
+    private LookupTable( final String[] columns, final List<String> keys, final List<String[]> values ) {
+        this.columns = columns;
+        this.values  = values.toArray( new String[values.size()][] );
+        this.rows    = this.values.length;
+
+        final int capacity = LookupTable.capacity( keys.size() );
+
+        addressHighs = new long[capacity];
+        addressLows  = new long[capacity];
+        addressRows  = new int[capacity];
+        texts        = new String[capacity];
+        textRows     = new int[capacity];
+
+        final long[] address = new long[2];
+
+        for (int row = 0; row < keys.size(); row++) {
+            final String key = keys.get( row );
+
+            if (IPAddress.parse( key, 0, key.length(), address ) != IPAddress.INVALID) {
+                final int slot = addressSlot( address[0], address[1] );
+
+                if (addressRows[slot] == 0) {
+                    addressHighs[slot] = address[0];
+                    addressLows[slot]  = address[1];
+                    addressRows[slot]  = row + 1;
+                }
+            }
+            else {
+                final int slot = textSlot( key, 0, key.length() );
+
+                if (textRows[slot] == 0) {
+                    texts[slot]    = key;
+                    textRows[slot] = row + 1;
+                }
+            }
+        }
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Find the row for a key held in a region of text
+     *
+     * @param text
+     *            the text
+     * @param from
+     *            the start of the key
+     * @param to
+     *            the end of the key (exclusive)
+     * @param scratch
+     *            two longs an address key is parsed into, so nothing is allocated
+     * @return the row or {@link #NOT_FOUND}
+     */
+    public int find( final CharSequence text, final int from, final int to, final long[] scratch ) {
+        if (IPAddress.parse( text, from, to, scratch ) != IPAddress.INVALID) {
+            return addressRows[addressSlot( scratch[0], scratch[1] )] - 1;
+        }
+
+
+        return textRows[textSlot( text, from, to )] - 1;
+    }
+
+
+    /**
+     * Find the row for a key
+     *
+     * @param key
+     *            the plain key
+     * @return the row or {@link #NOT_FOUND}
+     */
+    public int find( final String key ) {
+        return (key == null)
+               ? LookupTable.NOT_FOUND
+               : find( key, 0, key.length(), new long[2] );
+    }
+
+
+    /**
+     * Load a table from a UTF-8 CSV file
+     *
+     * @param file
+     *            the file
+     * @return the table
+     * @throws IOException
+     *             if the file can't be read
+     * @throws InvalidExtensionKey
+     *             if a column name isn't a valid extension key
+     */
+    public static LookupTable load( final File file ) throws IOException, InvalidExtensionKey {
+        final Reader reader = new InputStreamReader( new FileInputStream( file ), Utf8.CHARSET );
+
+        try {
+            return LookupTable.load( reader );
+        } finally {
+            reader.close();
+        }
+    }
+
+
+    /**
+     * Load a table from CSV text. The reader isn't closed.
+     *
+     * @param reader
+     *            the CSV text
+     * @return the table
+     * @throws IOException
+     *             if the text can't be read or has no header line
+     * @throws InvalidExtensionKey
+     *             if a column name isn't a valid extension key
+     */
+    public static LookupTable load( final Reader reader ) throws IOException, InvalidExtensionKey {
+        final BufferedReader buffered = new BufferedReader( reader );
+        final List<String>   fields   = new ArrayList<String>();
+        final List<String>   keys     = new ArrayList<String>();
+        final List<String[]> values   = new ArrayList<String[]>();
+        String[]             columns  = null;
+        String               line;
+
+        while ((line = buffered.readLine()) != null) {
+            if ((line.trim().length() == 0) || line.startsWith( "#" )) {
+                continue;
+            }
+
+
+            LookupTable.split( line, fields );
+
+            if (columns == null) {
+                columns = new String[fields.size() - 1];
+
+                for (int c = 0; c < columns.length; c++) {
+                    columns[c] = fields.get( c + 1 );
+
+                    // Fail now rather than on every event
+                    StringUtils.escapeExtensionKey( columns[c] );
+                }
+
+
+                continue;
+            }
+
+
+            final String[] row = new String[columns.length];
+
+            for (int c = 0; (c < row.length) && (c + 1 < fields.size()); c++) {
+                final String value = fields.get( c + 1 );
+
+                if (value.length() > 0) {
+                    row[c] = StringUtils.escapeExtensionValue( value );
+                }
+            }
+
+
+            keys.add( fields.get( 0 ) );
+            values.add( row );
+        }
+
+
+        if (columns == null) {
+            throw new IOException( "The lookup table has no header line" );
+        }
+
+
+        return new LookupTable( columns, keys, values );
+    }
+
+
+    /**
+     * @return this table, which never changes
+     */
+    @Override
+    public LookupTable table() {
+        return this;
+    }
+
+
+    @Override
+    public String toString() {
+        return "LookupTable [" + rows + " rows of " + columns.length + " columns]";
+    }
+
+
+    /**
+     * Find the slot for an address key; either the one holding it or the empty one it would go in
+     *
+     * @param high
+     *            the high 64 bits
+     * @param low
+     *            the low 64 bits
+     * @return the slot
+     */
+    private int addressSlot( final long high, final long low ) {
+        final long mixed = high * 31 + low;
+        final int  mask  = addressRows.length - 1;
+        int        slot  = LookupTable.spread( (int) (mixed ^ (mixed >>> 32)) ) & mask;
+
+        while ((addressRows[slot] != 0) && ((addressHighs[slot] != high) || (addressLows[slot] != low))) {
+            slot = (slot + 1) & mask;
+        }
+
+
+        return slot;
+    }
+
+
+    /**
+     * Get a table size that's a power of two and at most half full
+     *
+     * @param keys
+     *            the number of keys
+     * @return the size
+     */
+    private static int capacity( final int keys ) {
+        int capacity = 16;
+
+        while (capacity < keys * 2) {
+            capacity <<= 1;
+        }
+
+
+        return capacity;
+    }
+
+
+    /**
+     * Split a CSV line into its fields
+     *
+     * @param line
+     *            the line
+     * @param fields
+     *            gets the unquoted fields
+     */
+    private static void split( final String line, final List<String> fields ) {
+        final StringBuilder field  = new StringBuilder();
+        boolean             quoted = false;
+
+        fields.clear();
+
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt( i );
+
+            if (quoted) {
+                if (c != '"') {
+                    field.append( c );
+                }
+                else if ((i + 1 < line.length()) && (line.charAt( i + 1 ) == '"')) {
+                    field.append( '"' );
+                    i++;
+                }
+                else {
+                    quoted = false;
+                }
+            }
+            else if (c == '"') {
+                quoted = true;
+            }
+            else if (c == ',') {
+                fields.add( field.toString().trim() );
+                field.setLength( 0 );
+            }
+            else {
+                field.append( c );
+            }
+        }
+
+
+        fields.add( field.toString().trim() );
+    }
+
+
+    /**
+     * Spread the bits of a hash code so the low ones can be used as an index
+     *
+     * @param hash
+     *            the hash code
+     * @return the spread hash code
+     */
+    private static int spread( final int hash ) {
+        final int h = hash * LookupTable.SPREAD;
+
+        return h ^ (h >>> 16);
+    }
+
+
+    /**
+     * Find the slot for a name key; either the one holding it or the empty one it would go in
+     *
+     * @param text
+     *            the text
+     * @param from
+     *            the start of the key
+     * @param to
+     *            the end of the key (exclusive)
+     * @return the slot
+     */
+    private int textSlot( final CharSequence text, final int from, final int to ) {
+        int hash = 0;
+
+        for (int i = from; i < to; i++) {
+            hash = hash * 31 + LookupTable.lower( text.charAt( i ) );
+        }
+
+
+        final int mask = textRows.length - 1;
+        int       slot = LookupTable.spread( hash ) & mask;
+
+        while ((textRows[slot] != 0) && !LookupTable.equalsIgnoreCase( texts[slot], text, from, to )) {
+            slot = (slot + 1) & mask;
+        }
+
+
+        return slot;
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * @return the plain names of the value columns
+     */
+    public String[] getColumns() {
+        return columns.clone();
+    }
+
+
+    /**
+     * @return the number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+
+    /**
+     * Get an escaped value
+     *
+     * @param row
+     *            the row
+     * @param column
+     *            the index of the value column (0 for the column after the key)
+     * @return the escaped value or null if it's empty
+     */
+    public String getValue( final int row, final int column ) {
+        return values[row][column];
+    }
+
+
+    /**
+     * Compare a key to a region of text without regard to ASCII case
+     *
+     * @param key
+     *            the key
+     * @param text
+     *            the text
+     * @param from
+     *            the start of the region
+     * @param to
+     *            the end of the region (exclusive)
+     * @return if they're the same
+     */
+    private static boolean equalsIgnoreCase( final String key, final CharSequence text, final int from, final int to ) {
+        if (key.length() != to - from) {
+            return false;
+        }
+
+
+        for (int i = from; i < to; i++) {
+            if (LookupTable.lower( key.charAt( i - from ) ) != LookupTable.lower( text.charAt( i ) )) {
+                return false;
+            }
+        }
+
+
+        return true;
+    }
+
+
+    /**
+     * @param c
+     *            a character
+     * @return the character with ASCII letters in lower case
+     */
+    private static char lower( final char c ) {
+        return ((c >= 'A') && (c <= 'Z'))
+               ? (char) (c + ('a' - 'A'))
+               : c;
+    }
+}
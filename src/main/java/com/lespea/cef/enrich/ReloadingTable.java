@@ -0,0 +1,145 @@
+/**
+ * ReloadingTable.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.enrich;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.InvalidExtensionKey;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * A lookup table loaded from a CSV file that's loaded again when the file changes.
+ * <p>
+ * The file's modification time is checked at most once per interval, by whichever thread asks for
+ * the table first after the interval is up; that thread also does the reload while every other
+ * thread keeps using the old table. If the new file can't be loaded the old table stays in use and
+ * the problem is logged. Writers should replace the file with a rename so a half written file is
+ * never read.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class ReloadingTable implements TableSource {
+
+    /**
+     * Logger object
+     */
+    private static final Logger LOG = LoggerFactory.getLogger( ReloadingTable.class );
+
+    //~--- fields -------------------------------------------------------------
+
+    /** Milliseconds between checks of the file */
+    private final long checkMillis;
+
+    /** The CSV file */
+    private final File file;
+
+    /** The modification time of the loaded file */
+    private volatile long modified;
+
+    /** When the file should next be checked */
+    private final AtomicLong nextCheck = new AtomicLong();
+
+    /** The loaded table */
+    private volatile LookupTable table;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * Load the table for the first time
+     *
+     * @param file
+     *            the CSV file
+     * @param checkMillis
+     *            milliseconds between checks of the file
+     * @throws IOException
+     *             if the file can't be read
+     * @throws InvalidExtensionKey
+     *             if a column name isn't a valid extension key
+     */
+    public ReloadingTable( final File file, final long checkMillis ) throws IOException, InvalidExtensionKey {
+        this.file        = file;
+        this.checkMillis = checkMillis;
+
+        reload();
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Load the file now whether or not it changed
+     *
+     * @throws IOException
+     *             if the file can't be read; the old table is kept
+     * @throws InvalidExtensionKey
+     *             if a column name isn't a valid extension key; the old table is kept
+     */
+    public synchronized void reload() throws IOException, InvalidExtensionKey {
+        final long stamp = file.lastModified();
+
+        table    = LookupTable.load( file );
+        modified = stamp;
+        nextCheck.set( System.currentTimeMillis() + checkMillis );
+        ReloadingTable.LOG.debug( "Loaded {} from {}", table, file );
+    }
+
+
+    @Override
+    public LookupTable table() {
+        final long now  = System.currentTimeMillis();
+        final long next = nextCheck.get();
+
+        if ((now >= next) && nextCheck.compareAndSet( next, now + checkMillis ) && (file.lastModified() != modified)) {
+            try {
+                reload();
+            } catch (final IOException e) {
+                ReloadingTable.LOG.warn( "Unable to reload the lookup table " + file, e );
+            } catch (final InvalidExtensionKey e) {
+                ReloadingTable.LOG.warn( "Unable to reload the lookup table " + file, e );
+            }
+        }
+
+
+        return table;
+    }
+
+
+    @Override
+    public String toString() {
+        return "ReloadingTable [" + file + "]";
+    }
+}
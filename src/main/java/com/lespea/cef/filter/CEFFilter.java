@@ -0,0 +1,193 @@
+/**
+ * CEFFilter.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.filter;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.nio.ByteBuffer;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * A compiled filter expression that's tested against rendered CEF records without parsing them.
+ * <p>
+ * Records are scanned in their raw form (a string or the UTF-8 bytes) only as far as needed to
+ * decide, so a record that's rejected by its severity never has its extension looked at and
+ * nothing is allocated either way.
+ * <p>
+ * An expression is made of comparisons joined with <code>and</code>/<code>&amp;&amp;</code>,
+ * <code>or</code>/<code>||</code>, <code>not</code>/<code>!</code> and parentheses:
+ * <ul>
+ * <li><code>field = value</code> and <code>field != value</code> compare the exact text</li>
+ * <li><code>field &lt; 5</code>, <code>&lt;=</code>, <code>&gt;</code> and <code>&gt;=</code>
+ * compare whole numbers; a field that isn't a number never matches</li>
+ * <li><code>field in (a, b, c)</code> matches any of the values</li>
+ * <li><code>field within (10.0.0.0/8, fe80::/10)</code> matches an IPv4 or IPv6 address inside
+ * any of the CIDR ranges</li>
+ * <li><code>exists field</code> matches if the field is present</li>
+ * </ul>
+ * The field names <code>vendor</code>, <code>product</code>, <code>version</code>,
+ * <code>id</code>, <code>name</code> and <code>severity</code> refer to the header and anything
+ * else is an extension key. Values are plain (unescaped) text and can be double quoted with
+ * <code>\</code> escaping the next character. A comparison against a missing extension key never
+ * matches, so <code>act != blocked</code> requires <code>act</code> to be present.
+ * <p>
+ * For example: <code>severity &gt;= 7 and (act = blocked or dpt in (22, 3389))</code>
+ * <p>
+ * Filters are immutable and can be shared between threads. The <code>matches</code> methods here
+ * use a matcher cached per thread; use {@link #matcher()} to hold on to one directly.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class CEFFilter {
+
+    /** The expression the filter was compiled from */
+    private final String expression;
+
+    /** Matchers cached per thread */
+    private final ThreadLocal<FilterMatcher> matchers = new ThreadLocal<FilterMatcher>() {
+        @Override
+        protected FilterMatcher initialValue() {
+            return matcher();
+        }
+    };
+
+    /** The compiled filter */
+    private final FilterNode root;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * @param expression
+     *            the expression the filter was compiled from
+     * @param root
+     *            the compiled filter
+     */
+    private CEFFilter( final String expression, final FilterNode root ) {
+        this.expression = expression;
+        this.root       = root;
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Compile a filter expression
+     *
+     * @param expression
+     *            the expression
+     * @return the compiled filter
+     * @throws InvalidFilter
+     *             if the expression isn't valid
+     */
+    public static CEFFilter compile( final String expression ) throws InvalidFilter {
+        if (expression == null) {
+            throw new InvalidFilter( "The expression cannot be null" );
+        }
+
+
+        return new CEFFilter( expression, FilterParser.parse( expression ) );
+    }
+
+
+    /**
+     * Create a new matcher for this filter
+     *
+     * @return the matcher
+     */
+    public FilterMatcher matcher() {
+        return new FilterMatcher( root );
+    }
+
+
+    /**
+     * Tests a UTF-8 record held in a byte array
+     *
+     * @param bytes
+     *            the bytes
+     * @param offset
+     *            the start of the record
+     * @param length
+     *            the length of the record
+     * @return if the record matches
+     */
+    public boolean matches( final byte[] bytes, final int offset, final int length ) {
+        return matchers.get().matches( bytes, offset, length );
+    }
+
+
+    /**
+     * Tests a UTF-8 record held in a byte buffer
+     *
+     * @param buf
+     *            the bytes
+     * @param offset
+     *            the absolute offset of the record
+     * @param length
+     *            the length of the record
+     * @return if the record matches
+     */
+    public boolean matches( final ByteBuffer buf, final int offset, final int length ) {
+        return matchers.get().matches( buf, offset, length );
+    }
+
+
+    /**
+     * Tests a CEF object using its rendered form
+     *
+     * @param cef
+     *            the CEF object
+     * @return if the record matches
+     */
+    public boolean matches( final CEF cef ) {
+        return matchers.get().matches( cef.toString() );
+    }
+
+
+    /**
+     * Tests a rendered CEF string
+     *
+     * @param line
+     *            the rendered CEF string
+     * @return if the record matches
+     */
+    public boolean matches( final CharSequence line ) {
+        return matchers.get().matches( line );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
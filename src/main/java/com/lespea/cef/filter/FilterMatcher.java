@@ -0,0 +1,119 @@
+/**
+ * FilterMatcher.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.filter;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.nio.ByteBuffer;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Evaluates a {@link CEFFilter} against rendered CEF records.
+ * <p>
+ * A matcher keeps the scanning state for the record it's looking at so it can be reused for any
+ * number of records without allocating, but it must not be shared between threads. Get one per
+ * thread from {@link CEFFilter#matcher()}.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class FilterMatcher {
+
+    /** Window used for byte arrays */
+    private final RawLine.ArrayLine arrayLine = new RawLine.ArrayLine();
+
+    /** Window used for byte buffers */
+    private final RawLine.BufferLine bufferLine = new RawLine.BufferLine();
+
+    /** Window used for characters */
+    private final RawLine.CharLine charLine = new RawLine.CharLine();
+
+    /** The compiled filter */
+    private final FilterNode root;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * @param root
+     *            the compiled filter
+     */
+    FilterMatcher( final FilterNode root ) {
+        this.root = root;
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Tests a UTF-8 record held in a byte array
+     *
+     * @param bytes
+     *            the bytes
+     * @param offset
+     *            the start of the record
+     * @param length
+     *            the length of the record (a trailing line ending is ignored)
+     * @return if the record matches
+     */
+    public boolean matches( final byte[] bytes, final int offset, final int length ) {
+        arrayLine.reset( bytes, offset, length );
+
+        return root.matches( arrayLine );
+    }
+
+
+    /**
+     * Tests a UTF-8 record held in a byte buffer. The buffer's position and limit aren't used or
+     * changed.
+     *
+     * @param buf
+     *            the bytes
+     * @param offset
+     *            the absolute offset of the record
+     * @param length
+     *            the length of the record (a trailing line ending is ignored)
+     * @return if the record matches
+     */
+    public boolean matches( final ByteBuffer buf, final int offset, final int length ) {
+        bufferLine.reset( buf, offset, length );
+
+        return root.matches( bufferLine );
+    }
+
+
+    /**
+     * Tests a rendered CEF string
+     *
+     * @param line
+     *            the rendered CEF string
+     * @return if the record matches
+     */
+    public boolean matches( final CharSequence line ) {
+        charLine.reset( line );
+
+        return root.matches( charLine );
+    }
+}
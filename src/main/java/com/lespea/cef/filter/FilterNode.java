@@ -0,0 +1,362 @@
+/**
+ * FilterNode.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.filter;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.filter.RawLine.Literal;
+import com.lespea.cef.net.CIDRSet;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * A compiled piece of a filter expression.
+ * <p>
+ * The nodes only read the line they're handed so a tree can be shared between threads.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+abstract class FilterNode {
+
+    /**
+     * Tests a record
+     *
+     * @param line
+     *            the record
+     * @return if the record matches
+     */
+    abstract boolean matches( RawLine line );
+
+
+    //~--- inner classes ------------------------------------------------------
+
+    /**
+     * Both sides must match; the right side is skipped when the left side fails
+     */
+    static final class And extends FilterNode {
+
+        /** The left side */
+        private final FilterNode left;
+
+        /** The right side */
+        private final FilterNode right;
+
+
+        /**
+         * @param left
+         *            the left side
+         * @param right
+         *            the right side
+         */
+        And( final FilterNode left, final FilterNode right ) {
+            this.left  = left;
+            this.right = right;
+        }
+
+
+        @Override
+        boolean matches( final RawLine line ) {
+            return left.matches( line ) && right.matches( line );
+        }
+    }
+
+
+    /**
+     * Compare a field against a constant
+     */
+    static final class Compare extends FilterNode {
+
+        /** The field being compared */
+        private final Field field;
+
+        /** The numeric form of the constant (only used by the ordering operators) */
+        private final long number;
+
+        /** The comparison */
+        private final Op op;
+
+        /** The escaped constant */
+        private final Literal value;
+
+
+        /**
+         * @param field
+         *            the field being compared
+         * @param op
+         *            the comparison
+         * @param value
+         *            the escaped constant or null if it can never be in the field
+         * @param number
+         *            the numeric form of the constant
+         */
+        Compare( final Field field, final Op op, final Literal value, final long number ) {
+            this.field  = field;
+            this.op     = op;
+            this.value  = value;
+            this.number = number;
+        }
+
+
+        @Override
+        boolean matches( final RawLine line ) {
+            if (!field.locate( line )) {
+                return false;
+            }
+
+
+            switch (op) {
+            case EQ :
+                return (value != null) && line.regionEquals( line.valueStart, line.valueEnd, value );
+
+            case NE :
+                return (value == null) || !line.regionEquals( line.valueStart, line.valueEnd, value );
+
+            default :
+                final long found = line.number();
+
+                if (found == Long.MIN_VALUE) {
+                    return false;
+                }
+
+
+                switch (op) {
+                case LT :
+                    return found < number;
+
+                case LE :
+                    return found <= number;
+
+                case GT :
+                    return found > number;
+
+                default :
+                    return found >= number;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * The field is present
+     */
+    static final class Exists extends FilterNode {
+
+        /** The field */
+        private final Field field;
+
+
+        /**
+         * @param field
+         *            the field
+         */
+        Exists( final Field field ) {
+            this.field = field;
+        }
+
+
+        @Override
+        boolean matches( final RawLine line ) {
+            return field.locate( line );
+        }
+    }
+
+
+    /**
+     * A header field or extension key
+     */
+    static final class Field {
+
+        /** The header index or -1 for an extension key */
+        private final int header;
+
+        /** The escaped extension key */
+        private final Literal key;
+
+
+        /**
+         * @param header
+         *            the header index or -1 for an extension key
+         * @param key
+         *            the escaped extension key
+         */
+        Field( final int header, final Literal key ) {
+            this.header = header;
+            this.key    = key;
+        }
+
+
+        /**
+         * Locate the field in the record
+         *
+         * @param line
+         *            the record
+         * @return false if the field isn't present
+         */
+        boolean locate( final RawLine line ) {
+            return (header >= 0)
+                   ? line.header( header )
+                   : line.extension( key );
+        }
+    }
+
+
+    /**
+     * The field equals one of a set of constants
+     */
+    static final class In extends FilterNode {
+
+        /** The field */
+        private final Field field;
+
+        /** The escaped constants */
+        private final Literal[] values;
+
+
+        /**
+         * @param field
+         *            the field
+         * @param values
+         *            the escaped constants
+         */
+        In( final Field field, final Literal[] values ) {
+            this.field  = field;
+            this.values = values;
+        }
+
+
+        @Override
+        boolean matches( final RawLine line ) {
+            if (!field.locate( line )) {
+                return false;
+            }
+
+
+            for (final Literal value : values) {
+                if (line.regionEquals( line.valueStart, line.valueEnd, value )) {
+                    return true;
+                }
+            }
+
+
+            return false;
+        }
+    }
+
+
+    /**
+     * Inverts a node
+     */
+    static final class Not extends FilterNode {
+
+        /** The node being inverted */
+        private final FilterNode node;
+
+
+        /**
+         * @param node
+         *            the node being inverted
+         */
+        Not( final FilterNode node ) {
+            this.node = node;
+        }
+
+
+        @Override
+        boolean matches( final RawLine line ) {
+            return !node.matches( line );
+        }
+    }
+
+
+    /**
+     * Either side must match; the right side is skipped when the left side matches
+     */
+    static final class Or extends FilterNode {
+
+        /** The left side */
+        private final FilterNode left;
+
+        /** The right side */
+        private final FilterNode right;
+
+
+        /**
+         * @param left
+         *            the left side
+         * @param right
+         *            the right side
+         */
+        Or( final FilterNode left, final FilterNode right ) {
+            this.left  = left;
+            this.right = right;
+        }
+
+
+        @Override
+        boolean matches( final RawLine line ) {
+            return left.matches( line ) || right.matches( line );
+        }
+    }
+
+
+    /**
+     * The field holds an IP address inside one of a set of CIDR ranges
+     */
+    static final class Within extends FilterNode {
+
+        /** The field */
+        private final Field field;
+
+        /** The ranges */
+        private final CIDRSet ranges;
+
+
+        /**
+         * @param field
+         *            the field
+         * @param ranges
+         *            the ranges
+         */
+        Within( final Field field, final CIDRSet ranges ) {
+            this.field  = field;
+            this.ranges = ranges;
+        }
+
+
+        @Override
+        boolean matches( final RawLine line ) {
+            return field.locate( line ) && ranges.contains( line, line.valueStart, line.valueEnd, line.address );
+        }
+    }
+
+
+    //~--- enums --------------------------------------------------------------
+
+    /**
+     * The comparison operators
+     */
+    enum Op { EQ, NE, LT, LE, GT, GE }
+}
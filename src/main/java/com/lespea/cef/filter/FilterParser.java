@@ -0,0 +1,486 @@
+/**
+ * FilterParser.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.filter;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.InvalidExtensionKey;
+import com.lespea.cef.InvalidField;
+import com.lespea.cef.filter.FilterNode.Field;
+import com.lespea.cef.filter.FilterNode.Op;
+import com.lespea.cef.filter.RawLine.Literal;
+import com.lespea.cef.net.CIDRSet;
+import com.lespea.cef.utils.CEFScanner;
+import com.lespea.cef.utils.StringUtils;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Recursive descent parser that turns a filter expression into a tree of {@link FilterNode}s.
+ * <p>
+ * The constants are escaped here, once, so the compiled tree compares them straight against the
+ * escaped text of the records.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+final class FilterParser {
+
+    /** The expression being parsed */
+    private final String expr;
+
+    /** The current position in the expression */
+    private int pos;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * @param expr
+     *            the expression being parsed
+     */
+    private FilterParser( final String expr ) {
+        this.expr = expr;
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Parse an expression
+     *
+     * @param expr
+     *            the expression
+     * @return the root of the compiled tree
+     * @throws InvalidFilter
+     *             if the expression isn't valid
+     */
+    static FilterNode parse( final String expr ) throws InvalidFilter {
+        final FilterParser parser = new FilterParser( expr );
+        final FilterNode   root   = parser.or();
+
+        parser.skipSpace();
+
+        if (parser.pos < expr.length()) {
+            throw parser.error( "Unexpected text" );
+        }
+
+
+        return root;
+    }
+
+
+    /**
+     * <code>and := not (("and" | "&amp;&amp;") not)*</code>
+     *
+     * @return the node
+     * @throws InvalidFilter
+     *             if the expression isn't valid
+     */
+    private FilterNode and() throws InvalidFilter {
+        FilterNode node = not();
+
+        while (symbol( "&&" ) || keyword( "and" )) {
+            node = new FilterNode.And( node, not() );
+        }
+
+
+        return node;
+    }
+
+
+    /**
+     * Build a comparison against a single constant
+     *
+     * @param field
+     *            the field
+     * @param header
+     *            the header index or -1 for an extension key
+     * @param op
+     *            the comparison
+     * @param value
+     *            the plain constant
+     * @return the node
+     * @throws InvalidFilter
+     *             if an ordering operator is used with a non numeric constant
+     */
+    private FilterNode compare( final Field field, final int header, final Op op, final String value )
+            throws InvalidFilter {
+        if ((op == Op.EQ) || (op == Op.NE)) {
+            return new FilterNode.Compare( field, op, literal( header, value ), 0 );
+        }
+
+
+        try {
+            return new FilterNode.Compare( field, op, null, Long.parseLong( value ) );
+        } catch (final NumberFormatException e) {
+            throw error( "Ordering comparisons need a whole number but got '" + value + "'" );
+        }
+    }
+
+
+    /**
+     * Create an exception with the position in the expression
+     *
+     * @param message
+     *            what went wrong
+     * @return the exception
+     */
+    private InvalidFilter error( final String message ) {
+        return new InvalidFilter( message + " at position " + pos + " of: " + expr );
+    }
+
+
+    /**
+     * Consume a keyword if it's next and is a whole word
+     *
+     * @param keyword
+     *            the lowercase keyword
+     * @return if it was consumed
+     */
+    private boolean keyword( final String keyword ) {
+        skipSpace();
+
+        final int end = pos + keyword.length();
+
+        if (!expr.regionMatches( true, pos, keyword, 0, keyword.length() )
+                || ((end < expr.length()) && isWordChar( expr.charAt( end ) ))) {
+            return false;
+        }
+
+
+        pos = end;
+
+        return true;
+    }
+
+
+    /**
+     * Escape a constant the same way the field it's compared against is escaped
+     *
+     * @param header
+     *            the header index or -1 for an extension key
+     * @param value
+     *            the plain constant
+     * @return the literal or null if the field can never hold the value
+     */
+    private Literal literal( final int header, final String value ) {
+        if (header < 0) {
+            return new Literal( StringUtils.escapeExtensionValue( value ) );
+        }
+
+
+        try {
+            return new Literal( StringUtils.escapeField( value ) );
+        } catch (final InvalidField e) {
+            return null;
+        }
+    }
+
+
+    /**
+     * <code>not := ("not" | "!") not | primary</code>
+     *
+     * @return the node
+     * @throws InvalidFilter
+     *             if the expression isn't valid
+     */
+    private FilterNode not() throws InvalidFilter {
+        skipSpace();
+
+        if ((pos + 1 < expr.length()) && (expr.charAt( pos ) == '!') && (expr.charAt( pos + 1 ) != '=')) {
+            pos++;
+
+            return new FilterNode.Not( not() );
+        }
+        else if (keyword( "not" )) {
+            return new FilterNode.Not( not() );
+        }
+
+
+        return primary();
+    }
+
+
+    /**
+     * Read a comparison operator
+     *
+     * @return the operator
+     * @throws InvalidFilter
+     *             if there isn't one
+     */
+    private Op op() throws InvalidFilter {
+        if (symbol( "!=" )) {
+            return Op.NE;
+        }
+        else if (symbol( "<=" )) {
+            return Op.LE;
+        }
+        else if (symbol( ">=" )) {
+            return Op.GE;
+        }
+        else if (symbol( "==" ) || symbol( "=" )) {
+            return Op.EQ;
+        }
+        else if (symbol( "<" )) {
+            return Op.LT;
+        }
+        else if (symbol( ">" )) {
+            return Op.GT;
+        }
+
+
+        throw error( "Expected a comparison operator" );
+    }
+
+
+    /**
+     * <code>or := and (("or" | "||") and)*</code>
+     *
+     * @return the node
+     * @throws InvalidFilter
+     *             if the expression isn't valid
+     */
+    private FilterNode or() throws InvalidFilter {
+        FilterNode node = and();
+
+        while (symbol( "||" ) || keyword( "or" )) {
+            node = new FilterNode.Or( node, and() );
+        }
+
+
+        return node;
+    }
+
+
+    /**
+     * <code>primary := "(" or ")" | "exists" field | field ("in" | "within") "(" value ("," value)* ")" | field op value</code>
+     *
+     * @return the node
+     * @throws InvalidFilter
+     *             if the expression isn't valid
+     */
+    private FilterNode primary() throws InvalidFilter {
+        if (symbol( "(" )) {
+            final FilterNode node = or();
+
+            if (!symbol( ")" )) {
+                throw error( "Expected ')'" );
+            }
+
+
+            return node;
+        }
+
+
+        final boolean exists = keyword( "exists" );
+        final String  name   = word();
+        final int     header = CEFScanner.headerIndex( name );
+        final Field   field;
+
+        if (header >= 0) {
+            field = new Field( header, null );
+        }
+        else {
+            try {
+                field = new Field( -1, new Literal( StringUtils.escapeExtensionKey( name ) ) );
+            } catch (final InvalidExtensionKey e) {
+                throw error( "Invalid extension key '" + name + "'" );
+            }
+        }
+
+
+        if (exists) {
+            return new FilterNode.Exists( field );
+        }
+        else if (keyword( "in" )) {
+            if (!symbol( "(" )) {
+                throw error( "Expected '('" );
+            }
+
+
+            final List<Literal> values = new ArrayList<Literal>();
+
+            do {
+                final Literal literal = literal( header, value() );
+
+                if (literal != null) {
+                    values.add( literal );
+                }
+            } while (symbol( "," ));
+
+            if (!symbol( ")" )) {
+                throw error( "Expected ')'" );
+            }
+
+
+            return new FilterNode.In( field, values.toArray( new Literal[values.size()] ) );
+        }
+        else if (keyword( "within" )) {
+            if (!symbol( "(" )) {
+                throw error( "Expected '('" );
+            }
+
+
+            final CIDRSet ranges = new CIDRSet();
+
+            do {
+                final String range = value();
+
+                try {
+                    ranges.add( range );
+                } catch (final IllegalArgumentException e) {
+                    throw error( "Invalid CIDR range '" + range + "'" );
+                }
+            } while (symbol( "," ));
+
+            if (!symbol( ")" )) {
+                throw error( "Expected ')'" );
+            }
+
+
+            return new FilterNode.Within( field, ranges );
+        }
+
+
+        final Op op = op();
+
+        return compare( field, header, op, value() );
+    }
+
+
+    /**
+     * Skip any whitespace
+     */
+    private void skipSpace() {
+        while ((pos < expr.length()) && Character.isWhitespace( expr.charAt( pos ) )) {
+            pos++;
+        }
+    }
+
+
+    /**
+     * Consume a symbol if it's next
+     *
+     * @param symbol
+     *            the symbol
+     * @return if it was consumed
+     */
+    private boolean symbol( final String symbol ) {
+        skipSpace();
+
+        if (expr.startsWith( symbol, pos )) {
+            pos += symbol.length();
+
+            return true;
+        }
+
+
+        return false;
+    }
+
+
+    /**
+     * Read a constant; either a bare word or a double quoted string where <code>\</code> escapes
+     * the next character
+     *
+     * @return the plain constant
+     * @throws InvalidFilter
+     *             if there isn't one
+     */
+    private String value() throws InvalidFilter {
+        skipSpace();
+
+        if ((pos >= expr.length()) || (expr.charAt( pos ) != '"')) {
+            return word();
+        }
+
+
+        final StringBuilder sb = new StringBuilder();
+
+        for (pos++; pos < expr.length(); pos++) {
+            char c = expr.charAt( pos );
+
+            if (c == '"') {
+                pos++;
+
+                return sb.toString();
+            }
+            else if ((c == '\\') && (pos + 1 < expr.length())) {
+                c = expr.charAt( ++pos );
+            }
+
+
+            sb.append( c );
+        }
+
+
+        throw error( "Unterminated string" );
+    }
+
+
+    /**
+     * Read a bare word
+     *
+     * @return the word
+     * @throws InvalidFilter
+     *             if there isn't one
+     */
+    private String word() throws InvalidFilter {
+        skipSpace();
+
+        final int start = pos;
+
+        while ((pos < expr.length()) && isWordChar( expr.charAt( pos ) )) {
+            pos++;
+        }
+
+
+        if (start == pos) {
+            throw error( "Expected a field name or value" );
+        }
+
+
+        return expr.substring( start, pos );
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * Tests if a character can be part of a bare word
+     *
+     * @param c
+     *            the character
+     * @return if it can
+     */
+    private static boolean isWordChar( final char c ) {
+        return !Character.isWhitespace( c ) && ("()=!<>,&|\"".indexOf( c ) < 0);
+    }
+}
@@ -0,0 +1,469 @@
+/**
+ * RawLine.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.filter;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.utils.CEFScanner;
+import com.lespea.cef.utils.Utf8;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.nio.ByteBuffer;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Reusable window over a single rendered CEF record that locates fields lazily.
+ * <p>
+ * The header bars are only found as far as the fields being asked for, and the located value is
+ * left in {@link #valueStart} and {@link #valueEnd} rather than being returned, so nothing is
+ * allocated while a filter is evaluated. All of the CEF delimiters are ASCII so the byte and char
+ * versions can share the scanning logic.
+ * <p>
+ * The record is also a {@link CharSequence} indexed by absolute offset, with bytes read as
+ * single chars, so text parsers like {@link com.lespea.cef.net.IPAddress} can read a located
+ * value in place.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+abstract class RawLine implements CharSequence {
+
+    /** Scratch space for an address parsed out of a value */
+    final long[] address = new long[2];
+
+    /** Offsets of the header bars found so far */
+    private final int[] bars = new int[CEFScanner.HEADER_FIELD_COUNT];
+
+    /** Number of header bars found so far */
+    private int barsFound;
+
+    /** The end of the record (exclusive) */
+    protected int end;
+
+    /** Where the search for the next header bar resumes */
+    private int scanPos;
+
+    /** The start of the record */
+    protected int start;
+
+    /** End of the last located value (exclusive) */
+    int valueEnd;
+
+    /** Start of the last located value */
+    int valueStart;
+
+
+    //~--- methods ------------------------------------------------------------
+
+    @Override
+    public final char charAt( final int index ) {
+        return (char) at( index );
+    }
+
+
+    @Override
+    public final int length() {
+        return end;
+    }
+
+
+    @Override
+    public final CharSequence subSequence( final int from, final int to ) {
+        final StringBuilder sb = new StringBuilder( to - from );
+
+        for (int i = from; i < to; i++) {
+            sb.append( charAt( i ) );
+        }
+
+
+        return sb;
+    }
+
+
+    @Override
+    public final String toString() {
+        return subSequence( start, end ).toString();
+    }
+
+
+    /**
+     * Get a character of the record
+     *
+     * @param i
+     *            the absolute offset
+     * @return the byte (as an unsigned value) or char at the offset
+     */
+    abstract int at( int i );
+
+
+    /**
+     * Tests if a region of the record is exactly the literal
+     *
+     * @param from
+     *            the start of the region
+     * @param to
+     *            the end of the region (exclusive)
+     * @param literal
+     *            the literal to compare against
+     * @return if they are the same
+     */
+    abstract boolean regionEquals( int from, int to, Literal literal );
+
+
+    /**
+     * Locate an extension value. The keys are walked from the start of the extension and the walk
+     * stops as soon as the key is found.
+     *
+     * @param key
+     *            the escaped key
+     * @return false if the key isn't present
+     */
+    final boolean extension( final Literal key ) {
+        if (!bar( CEFScanner.HEADER_FIELD_COUNT - 1 )) {
+            return false;
+        }
+
+
+        int keyStart = bars[CEFScanner.HEADER_FIELD_COUNT - 1] + 1;
+
+        for (int i = keyStart; i < end; i++) {
+            final int c = at( i );
+
+            if (CEFScanner.isExtensionEscape( this, i, end )) {
+                i++;
+            }
+            else if (c == ' ') {
+                keyStart = i + 1;
+            }
+            else if (c == '=') {
+                if (regionEquals( keyStart, i, key )) {
+                    valueStart = i + 1;
+                    valueEnd   = CEFScanner.extensionValueEnd( this, valueStart );
+
+                    return true;
+                }
+
+
+                keyStart = i + 1;
+            }
+        }
+
+
+        return false;
+    }
+
+
+    /**
+     * Locate a header field
+     *
+     * @param index
+     *            the index of the header field
+     * @return false if the header doesn't have that many fields
+     */
+    final boolean header( final int index ) {
+        if ((index > 0) && !bar( index - 1 )) {
+            return false;
+        }
+
+
+        valueStart = (index == 0)
+                     ? start
+                     : bars[index - 1] + 1;
+
+        if (bar( index )) {
+            valueEnd = bars[index];
+        }
+        else if (index == CEFScanner.HEADER_FIELD_COUNT - 1) {
+
+            // A record without an extension may not have the last bar
+            valueEnd = end;
+        }
+        else {
+            return false;
+        }
+
+
+        return true;
+    }
+
+
+    /**
+     * Parse the located value as a whole number
+     *
+     * @return the number or {@link Long#MIN_VALUE} if the value isn't one
+     */
+    final long number() {
+        int     i        = valueStart;
+        boolean negative = false;
+
+        if ((i < valueEnd) && (at( i ) == '-')) {
+            negative = true;
+            i++;
+        }
+
+
+        if ((i == valueEnd) || (valueEnd - i > 18)) {
+            return Long.MIN_VALUE;
+        }
+
+
+        long value = 0;
+
+        for (; i < valueEnd; i++) {
+            final int c = at( i );
+
+            if ((c < '0') || (c > '9')) {
+                return Long.MIN_VALUE;
+            }
+
+
+            value = value * 10 + (c - '0');
+        }
+
+
+        return negative
+               ? -value
+               : value;
+    }
+
+
+    /**
+     * Point at a new record and forget everything found in the last one. Trailing line endings
+     * are ignored.
+     *
+     * @param from
+     *            the start of the record
+     * @param to
+     *            the end of the record (exclusive)
+     */
+    protected final void reset( final int from, final int to ) {
+        int last = to;
+
+        while ((last > from) && ((at( last - 1 ) == '\n') || (at( last - 1 ) == '\r'))) {
+            last--;
+        }
+
+
+        start     = from;
+        end       = last;
+        scanPos   = from;
+        barsFound = 0;
+    }
+
+
+    /**
+     * Make sure the header bar with the index has been found
+     *
+     * @param index
+     *            the index of the bar (the bar that ends the header field with the same index)
+     * @return false if the record doesn't have that many bars
+     */
+    private boolean bar( final int index ) {
+        while (barsFound <= index) {
+            int i = scanPos;
+
+            while ((i < end) && (at( i ) != '|')) {
+                if (at( i ) == '\\') {
+                    i++;
+                }
+
+
+                i++;
+            }
+
+
+            if (i >= end) {
+                scanPos = end;
+
+                return false;
+            }
+
+
+            bars[barsFound++] = i;
+            scanPos           = i + 1;
+        }
+
+
+        return true;
+    }
+
+
+    //~--- inner classes ------------------------------------------------------
+
+    /**
+     * A record held in a byte array
+     */
+    static final class ArrayLine extends RawLine {
+
+        /** The bytes */
+        private byte[] bytes;
+
+
+        @Override
+        int at( final int i ) {
+            return bytes[i] & 0xFF;
+        }
+
+
+        @Override
+        boolean regionEquals( final int from, final int to, final Literal literal ) {
+            final byte[] wanted = literal.utf8;
+
+            if (to - from != wanted.length) {
+                return false;
+            }
+
+
+            for (int i = 0; i < wanted.length; i++) {
+                if (bytes[from + i] != wanted[i]) {
+                    return false;
+                }
+            }
+
+
+            return true;
+        }
+
+
+        /**
+         * @param buf
+         *            the bytes
+         * @param offset
+         *            the start of the record
+         * @param length
+         *            the length of the record
+         */
+        void reset( final byte[] buf, final int offset, final int length ) {
+            bytes = buf;
+            reset( offset, offset + length );
+        }
+    }
+
+
+    /**
+     * A record held in a byte buffer
+     */
+    static final class BufferLine extends RawLine {
+
+        /** The bytes */
+        private ByteBuffer buf;
+
+
+        @Override
+        int at( final int i ) {
+            return buf.get( i ) & 0xFF;
+        }
+
+
+        @Override
+        boolean regionEquals( final int from, final int to, final Literal literal ) {
+            final byte[] wanted = literal.utf8;
+
+            if (to - from != wanted.length) {
+                return false;
+            }
+
+
+            for (int i = 0; i < wanted.length; i++) {
+                if (buf.get( from + i ) != wanted[i]) {
+                    return false;
+                }
+            }
+
+
+            return true;
+        }
+
+
+        /**
+         * @param bytes
+         *            the bytes
+         * @param offset
+         *            absolute offset of the record
+         * @param length
+         *            the length of the record
+         */
+        void reset( final ByteBuffer bytes, final int offset, final int length ) {
+            buf = bytes;
+            reset( offset, offset + length );
+        }
+    }
+
+
+    /**
+     * A record held as characters
+     */
+    static final class CharLine extends RawLine {
+
+        /** The characters */
+        private CharSequence chars;
+
+
+        @Override
+        int at( final int i ) {
+            return chars.charAt( i );
+        }
+
+
+        @Override
+        boolean regionEquals( final int from, final int to, final Literal literal ) {
+            return CEFScanner.regionEquals( chars, from, to, literal.text );
+        }
+
+
+        /**
+         * @param line
+         *            the characters
+         */
+        void reset( final CharSequence line ) {
+            chars = line;
+            reset( 0, line.length() );
+        }
+    }
+
+
+    /**
+     * Text that's compared against a record, kept in both of its forms
+     */
+    static final class Literal {
+
+        /** The text */
+        final String text;
+
+        /** The UTF-8 bytes of the text */
+        final byte[] utf8;
+
+
+        /**
+         * @param text
+         *            the (escaped) text
+         */
+        Literal( final String text ) {
+            this.text = text;
+            this.utf8 = text.getBytes( Utf8.CHARSET );
+        }
+    }
+}
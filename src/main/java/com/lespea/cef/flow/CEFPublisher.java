@@ -0,0 +1,416 @@
+/**
+ * CEFPublisher.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.flow;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.InvalidField;
+import com.lespea.cef.utils.Utf8;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Publishes the CEF records in a file or channel, one per line, reading and parsing only as many
+ * as the subscriber has asked for.
+ * <p>
+ * Nothing is read until {@link Subscription#request(long)} is called, and reading stops as soon
+ * as the outstanding demand is used up, so a slow subscriber holds back the reads rather than
+ * items piling up in a buffer. Lines are read and delivered on the executor (a shared pool of
+ * daemon threads unless one is given), one subscription at a time per thread, and the subscriber
+ * is never called from two threads at once. Lines that aren't valid CEF are skipped and counted.
+ * <p>
+ * A file publisher opens the file again for each subscriber. A channel can only be read once, so
+ * a channel publisher takes a single subscriber and sends any others an error.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class CEFPublisher implements Publisher<CEF> {
+
+    /** The executor used when none is given */
+    private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool( new ThreadFactory() {
+        @Override
+        public Thread newThread( final Runnable r ) {
+            final Thread thread = new Thread( r, "cef-publisher" );
+
+            thread.setDaemon( true );
+
+            return thread;
+        }
+    } );
+
+    /**
+     * Logger object
+     */
+    private static final Logger LOG = LoggerFactory.getLogger( CEFPublisher.class );
+
+    //~--- fields -------------------------------------------------------------
+
+    /** The channel or null for a file */
+    private final ReadableByteChannel channel;
+
+    /** Where lines are read and delivered */
+    private final Executor executor;
+
+    /** The file or null for a channel */
+    private final File file;
+
+    /** Number of lines skipped over every subscription */
+    private final AtomicLong skipped = new AtomicLong();
+
+    /** If the channel has been subscribed to */
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * @param file
+     *            the file to read
+     */
+    public CEFPublisher( final File file ) {
+        this( file, CEFPublisher.DEFAULT_EXECUTOR );
+    }
+
+
+    /**
+     * @param file
+     *            the file to read
+     * @param executor
+     *            where lines are read and delivered
+     */
+    public CEFPublisher( final File file, final Executor executor ) {
+        this( file, null, executor );
+    }
+
+
+    /**
+     * @param channel
+     *            the channel to read, which is closed once it's finished
+     */
+    public CEFPublisher( final ReadableByteChannel channel ) {
+        this( channel, CEFPublisher.DEFAULT_EXECUTOR );
+    }
+
+
+    /**
+     * @param channel
+     *            the channel to read, which is closed once it's finished
+     * @param executor
+     *            where lines are read and delivered
+     */
+    public CEFPublisher( final ReadableByteChannel channel, final Executor executor ) {
+        this( null, channel, executor );
+    }
+
+
+    /**
+     * @param file
+     *            the file or null
+     * @param channel
+     *            the channel or null
+     * @param executor
+     *            where lines are read and delivered
+     */
+    private CEFPublisher( final File file, final ReadableByteChannel channel, final Executor executor ) {
+        if (((file == null) == (channel == null)) || (executor == null)) {
+            throw new IllegalArgumentException( "A source and an executor are needed" );
+        }
+
+
+        this.file     = file;
+        this.channel  = channel;
+        this.executor = executor;
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    @Override
+    public void subscribe( final Subscriber<? super CEF> subscriber ) {
+        if (subscriber == null) {
+            throw new NullPointerException( "The subscriber cannot be null" );
+        }
+
+
+        if ((channel != null) && !subscribed.compareAndSet( false, true )) {
+            subscriber.onSubscribe( new Subscription() {
+                @Override
+                public void cancel() {}
+
+
+                @Override
+                public void request( final long n ) {}
+            } );
+            subscriber.onError( new IllegalStateException( "A channel can only be read by one subscriber" ) );
+
+            return;
+        }
+
+
+        subscriber.onSubscribe( new LineSubscription( subscriber ) );
+    }
+
+
+    @Override
+    public String toString() {
+        return "CEFPublisher of " + ((file == null)
+                                     ? channel
+                                     : file);
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * @return number of lines that weren't valid CEF, over every subscription
+     */
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+
+    //~--- inner classes ------------------------------------------------------
+
+    /**
+     * Reads lines for one subscriber as it asks for them
+     */
+    private final class LineSubscription implements Subscription, Runnable {
+
+        /** If the subscription was cancelled or finished */
+        private volatile boolean done;
+
+        /** Items asked for and not sent yet */
+        private final AtomicLong demand = new AtomicLong();
+
+        /** An error to send the subscriber */
+        private volatile Throwable failure;
+
+        /** The reader, opened on the first request */
+        private BufferedReader reader;
+
+        /** The subscriber */
+        private final Subscriber<? super CEF> subscriber;
+
+
+        /**
+         * @param subscriber
+         *            the subscriber
+         */
+        LineSubscription( final Subscriber<? super CEF> subscriber ) {
+            this.subscriber = subscriber;
+        }
+
+
+        @Override
+        public void cancel() {
+            if (!done) {
+                done = true;
+
+                // Only kick off a run to close the source if one isn't going already
+                if (demand.getAndIncrement() == 0) {
+                    executor.execute( this );
+                }
+            }
+        }
+
+
+        @Override
+        public void request( final long n ) {
+            if (done) {
+                return;
+            }
+            else if (n <= 0) {
+
+                // The error is sent by the run so the subscriber is never called from two threads
+                failure = new IllegalArgumentException( "The number requested must be positive" );
+                cancel();
+
+                return;
+            }
+
+
+            long before;
+            long after;
+
+            do {
+                before = demand.get();
+                after  = before + n;
+
+                // Saturate at unbounded
+                if (after < 0) {
+                    after = Long.MAX_VALUE;
+                }
+            } while (!demand.compareAndSet( before, after ));
+
+            if (before == 0) {
+                executor.execute( this );
+            }
+        }
+
+
+        /**
+         * Read and send lines until the demand runs out
+         */
+        @Override
+        public void run() {
+            long sent = 0;
+
+            while (true) {
+                final long wanted = demand.get();
+
+                while ((sent < wanted) && !done) {
+                    final CEF cef;
+
+                    try {
+                        cef = next();
+                    } catch (final IOException e) {
+                        done = true;
+                        close();
+                        subscriber.onError( e );
+
+                        return;
+                    }
+
+
+                    if (cef == null) {
+                        done = true;
+                        close();
+                        subscriber.onComplete();
+
+                        return;
+                    }
+
+
+                    subscriber.onNext( cef );
+                    sent++;
+                }
+
+
+                if (done) {
+                    close();
+
+                    if (failure != null) {
+                        subscriber.onError( failure );
+                        failure = null;
+                    }
+
+
+                    return;
+                }
+
+
+                // Leave if nothing more was asked for while sending; the next request starts a new run
+                final long left = (wanted == Long.MAX_VALUE)
+                                  ? Long.MAX_VALUE
+                                  : demand.addAndGet( -sent );
+
+                sent = 0;
+
+                if (left == 0) {
+                    return;
+                }
+            }
+        }
+
+
+        /**
+         * Close the source
+         */
+        private void close() {
+            try {
+                if (reader != null) {
+                    reader.close();
+                    reader = null;
+                }
+                else if (channel != null) {
+                    channel.close();
+                }
+            } catch (final IOException e) {
+                CEFPublisher.LOG.debug( "Couldn't close " + CEFPublisher.this, e );
+            }
+        }
+
+
+        /**
+         * Read the next valid record
+         *
+         * @return the record or null at the end
+         * @throws IOException
+         *             if it couldn't be read
+         */
+        private CEF next() throws IOException {
+            if (reader == null) {
+                reader = new BufferedReader( new InputStreamReader( (file == null)
+                                                                    ? Channels.newInputStream( channel )
+                                                                    : new FileInputStream( file ), Utf8.CHARSET ),
+                                             64 * 1024 );
+            }
+
+
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                if (line.length() == 0) {
+                    continue;
+                }
+
+
+                try {
+                    return CEF.parse( line );
+                } catch (final InvalidField e) {
+                    skipped.incrementAndGet();
+                    CEFPublisher.LOG.debug( "Skipped a line that isn't CEF: {}", e.getMessage() );
+                }
+            }
+
+
+            return null;
+        }
+    }
+}
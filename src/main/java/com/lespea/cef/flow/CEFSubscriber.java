@@ -0,0 +1,343 @@
+/**
+ * CEFSubscriber.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.flow;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.utils.Utf8;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Writes the CEF records it's sent to a channel, one per line, in batches.
+ * <p>
+ * The subscriber asks for a batch of records at a time and only asks for the next batch once the
+ * last one is written, so no more than a batch is ever waiting on it. Records are encoded straight
+ * into a reused buffer, which is written out whenever it fills up and at the end of each batch;
+ * the channel sees a few large writes rather than one per record. When a write fails the
+ * subscription is cancelled. Use {@link #await()} to wait for the stream to finish and find out if
+ * it failed.
+ * <p>
+ * A subscriber can only be subscribed once.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class CEFSubscriber implements Subscriber<CEF> {
+
+    /**
+     * Logger object
+     */
+    private static final Logger LOG = LoggerFactory.getLogger( CEFSubscriber.class );
+
+    //~--- fields -------------------------------------------------------------
+
+    /** Number of records asked for at a time */
+    private final int batchSize;
+
+    /** The buffer records are encoded into */
+    private final ByteBuffer buffer;
+
+    /** The channel written to */
+    private final WritableByteChannel channel;
+
+    /** If the channel is closed once the stream is finished */
+    private final boolean closeChannel;
+
+    /** Released once the stream is finished */
+    private final CountDownLatch finished = new CountDownLatch( 1 );
+
+    /** What went wrong or null */
+    private volatile Throwable failure;
+
+    /** Records left in the current batch */
+    private int remaining;
+
+    /** The subscription or null */
+    private Subscription subscription;
+
+    /** Number of records written */
+    private volatile long written;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * @param channel
+     *            the channel to write to
+     * @param batchSize
+     *            number of records to ask for at a time
+     * @param bufferBytes
+     *            size of the write buffer
+     * @param closeChannel
+     *            if the channel is closed once the stream is finished
+     */
+    public CEFSubscriber( final WritableByteChannel channel, final int batchSize, final int bufferBytes,
+                          final boolean closeChannel ) {
+        if ((batchSize <= 0) || (bufferBytes <= 0)) {
+            throw new IllegalArgumentException( "The batch and buffer sizes must be positive" );
+        }
+
+
+        this.channel      = channel;
+        this.batchSize    = batchSize;
+        this.closeChannel = closeChannel;
+        this.buffer       = ByteBuffer.allocate( bufferBytes );
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Wait for the stream to finish
+     *
+     * @throws IOException
+     *             if the stream failed or couldn't be written
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    public void await() throws IOException, InterruptedException {
+        finished.await();
+        rethrow();
+    }
+
+
+    /**
+     * Wait for the stream to finish
+     *
+     * @param timeout
+     *            how long to wait
+     * @param unit
+     *            the unit of the timeout
+     * @return if the stream finished in time
+     * @throws IOException
+     *             if the stream failed or couldn't be written
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    public boolean await( final long timeout, final TimeUnit unit ) throws IOException, InterruptedException {
+        if (!finished.await( timeout, unit )) {
+            return false;
+        }
+
+
+        rethrow();
+
+        return true;
+    }
+
+
+    @Override
+    public void onComplete() {
+        try {
+            flush();
+        } catch (final IOException e) {
+            failure = e;
+        }
+
+
+        finish();
+    }
+
+
+    @Override
+    public void onError( final Throwable error ) {
+        failure = error;
+
+        try {
+            flush();
+        } catch (final IOException e) {
+            CEFSubscriber.LOG.debug( "Couldn't write the last records after the stream failed", e );
+        }
+
+
+        finish();
+    }
+
+
+    @Override
+    public void onNext( final CEF item ) {
+        if (failure != null) {
+            return;
+        }
+
+
+        try {
+            final String text   = item.toString();
+            final int    length = item.getEncodedLength() + 1;
+
+            if (length > buffer.remaining()) {
+                flush();
+            }
+
+
+            if (length > buffer.capacity()) {
+
+                // Too big for the buffer so it goes out on its own
+                final ByteBuffer big = ByteBuffer.allocate( length );
+
+                Utf8.encode( text, big );
+                big.put( (byte) '\n' );
+                big.flip();
+                write( big );
+            }
+            else {
+                Utf8.encode( text, buffer );
+                buffer.put( (byte) '\n' );
+            }
+
+
+            written++;
+
+            if (--remaining == 0) {
+                flush();
+                remaining = batchSize;
+                subscription.request( batchSize );
+            }
+        } catch (final IOException e) {
+            failure = e;
+            subscription.cancel();
+            finish();
+        }
+    }
+
+
+    @Override
+    public void onSubscribe( final Subscription subscription ) {
+        if (this.subscription != null) {
+            subscription.cancel();
+
+            return;
+        }
+
+
+        this.subscription = subscription;
+        this.remaining    = batchSize;
+        subscription.request( batchSize );
+    }
+
+
+    @Override
+    public String toString() {
+        return "CEFSubscriber to " + channel + " [written=" + written + "]";
+    }
+
+
+    /**
+     * Release anyone waiting and close the channel if asked to
+     */
+    private void finish() {
+        if (finished.getCount() == 0) {
+            return;
+        }
+
+
+        if (closeChannel) {
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+
+
+        finished.countDown();
+    }
+
+
+    /**
+     * Write out whatever is in the buffer
+     *
+     * @throws IOException
+     *             if it couldn't be written
+     */
+    private void flush() throws IOException {
+        if (buffer.position() > 0) {
+            buffer.flip();
+            write( buffer );
+            buffer.clear();
+        }
+    }
+
+
+    /**
+     * Throw the failure if there is one
+     *
+     * @throws IOException
+     *             the failure
+     */
+    private void rethrow() throws IOException {
+        final Throwable error = failure;
+
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        }
+        else if (error != null) {
+            throw new IOException( "The stream failed", error );
+        }
+    }
+
+
+    /**
+     * Write a whole buffer
+     *
+     * @param buf
+     *            the buffer
+     * @throws IOException
+     *             if it couldn't be written
+     */
+    private void write( final ByteBuffer buf ) throws IOException {
+        while (buf.hasRemaining()) {
+            channel.write( buf );
+        }
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * @return number of records written
+     */
+    public long getWritten() {
+        return written;
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * Publisher.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.flow;
+
+/**
+ * A source of items that are sent to a {@link Subscriber} only as fast as it asks for them. This
+ * has the same shape as <code>java.util.concurrent.Flow.Publisher</code> and the Reactive Streams
+ * interface, so it can be bridged to either with a one line adapter.
+ *
+ * @param <T>
+ *            the type of item
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public interface Publisher<T> {
+
+    /**
+     * Start sending items to a subscriber. Its {@link Subscriber#onSubscribe(Subscription)} is
+     * always called first, then nothing more until it requests items.
+     *
+     * @param subscriber
+     *            the subscriber
+     */
+    void subscribe( Subscriber<? super T> subscriber );
+}
@@ -0,0 +1,69 @@
+/**
+ * Subscriber.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.flow;
+
+/**
+ * Receives items from a {@link Publisher}. The calls for one subscription are never made at the
+ * same time, and after {@link #onError(Throwable)} or {@link #onComplete()} there are no more.
+ *
+ * @param <T>
+ *            the type of item
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public interface Subscriber<T> {
+
+    /**
+     * The stream is finished
+     */
+    void onComplete();
+
+
+    /**
+     * The stream failed
+     *
+     * @param error
+     *            what went wrong
+     */
+    void onError( Throwable error );
+
+
+    /**
+     * The next item
+     *
+     * @param item
+     *            the item
+     */
+    void onNext( T item );
+
+
+    /**
+     * The subscription started; nothing is sent until items are requested through it
+     *
+     * @param subscription
+     *            the subscription
+     */
+    void onSubscribe( Subscription subscription );
+}
@@ -0,0 +1,607 @@
+/**
+ * RateLimiter.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.limit;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.Extension;
+import com.lespea.cef.InvalidExtensionKey;
+import com.lespea.cef.InvalidField;
+import com.lespea.cef.pipeline.Emitter;
+import com.lespea.cef.pipeline.Stage;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Limits the rate of records per signature, <code>vendor|product|id</code> and optionally the
+ * value of an extension key such as <code>dvc</code>, so that one misbehaving device can't flood
+ * what's downstream.
+ * <p>
+ * Every key has a token bucket that refills at the given rate and holds up to the burst. The
+ * bucket is kept as the single time at which it will be full again, so taking a token is one
+ * compare-and-set and threads never block each other. Over the limit a record is dropped or, when
+ * sampling is on, one in every so many is let through. The keys live in a bounded concurrent
+ * table; once it's full the keys that have been idle longer than it takes their bucket to refill
+ * are dropped, and if that's not enough, any keys are.
+ * <p>
+ * Nothing is suppressed silently: {@link #summarize(long, Emitter)} emits a record for every key
+ * that had records dropped or sampled since the last summary, with the vendor {@value #VENDOR},
+ * the product {@value #PRODUCT} and the id {@value #SUMMARY_ID}. Its extension holds the
+ * signature in <code>cs1</code>, the extension key's value in <code>cs2</code> (if there is one),
+ * the number dropped in <code>cnt</code>, the number sampled in <code>cn1</code> and the
+ * <code>start</code> and <code>end</code> of the period. Run as a {@link Stage}, the limiter
+ * passes on the records it allows and emits the summaries itself at every summary interval.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class RateLimiter implements Stage<CEF, CEF> {
+
+    /** The product of the summaries */
+    public static final String PRODUCT = "CEF Rate Limit";
+
+    /** The id of the summaries */
+    public static final String SUMMARY_ID = "suppressed";
+
+    /** The vendor of the summaries */
+    public static final String VENDOR = "lespea";
+
+    /** The version of the summaries */
+    public static final String VERSION = "1.0";
+
+    /** Separates the parts of a key */
+    private static final char SEPARATOR = '\u0000';
+
+    //~--- fields -------------------------------------------------------------
+
+    /** The buckets by key */
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<String, Bucket>();
+
+    /** Nanoseconds of refill the burst is worth */
+    private final long burstNanos;
+
+    /** Number of records dropped from keys evicted before they were summarized */
+    private final AtomicLong evictedDropped = new AtomicLong();
+
+    /** Number of records sampled from keys evicted before they were summarized */
+    private final AtomicLong evictedSampled = new AtomicLong();
+
+    /** Nanoseconds it takes to refill one token */
+    private final long intervalNanos;
+
+    /** The extension key that's part of the key, or null */
+    private String keyField;
+
+    /** The most keys kept */
+    private int maxKeys = 100000;
+
+    /** When the next summary is due, in epoch milliseconds, or 0 before the first record */
+    private final AtomicLong nextSummary = new AtomicLong();
+
+    /** Let one in this many records over the limit through, or 0 to drop them all */
+    private int sampleEvery;
+
+    /** The severity of the summaries */
+    private int severity = 3;
+
+    /** The time between summaries in milliseconds */
+    private long summaryMillis = 60000;
+
+    /** When the current summary period started, in epoch milliseconds */
+    private volatile long summaryStart;
+
+    /** If a thread is sweeping the table */
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * @param perSecond
+     *            the records per second each key may sustain
+     * @param burst
+     *            the records a key may send at once after being quiet
+     */
+    public RateLimiter( final double perSecond, final int burst ) {
+        if ((perSecond <= 0) || (burst <= 0)) {
+            throw new IllegalArgumentException( "The rate and burst must be positive" );
+        }
+
+
+        this.intervalNanos = Math.max( 1, (long) (TimeUnit.SECONDS.toNanos( 1 ) / perSecond) );
+        this.burstNanos    = intervalNanos * (burst - 1);
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Decide if a record may go through now
+     *
+     * @param cef
+     *            the record
+     * @return true if it may
+     */
+    public boolean allow( final CEF cef ) {
+        return allow( cef, System.nanoTime() );
+    }
+
+
+    /**
+     * Decide if a record may go through at a given time
+     *
+     * @param cef
+     *            the record
+     * @param nanos
+     *            the time from {@link System#nanoTime()}
+     * @return true if it may
+     */
+    public boolean allow( final CEF cef, final long nanos ) {
+        final String key    = key( cef );
+        Bucket       bucket = buckets.get( key );
+
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys) {
+                sweep( nanos );
+            }
+
+
+            final Bucket created = new Bucket( cef, nanos );
+
+            bucket = buckets.putIfAbsent( key, created );
+
+            if (bucket == null) {
+                bucket = created;
+            }
+        }
+
+
+        // Generic cell rate algorithm: the bucket has a token while the time it's full again isn't
+        // more than the burst ahead of now
+        while (true) {
+            final long full = bucket.full.get();
+
+            if (full - nanos > burstNanos) {
+                break;
+            }
+            else if (bucket.full.compareAndSet( full, Math.max( full, nanos ) + intervalNanos )) {
+                return true;
+            }
+        }
+
+
+        final boolean sampled = (sampleEvery > 0) && (bucket.over.incrementAndGet() % sampleEvery == 0);
+
+        if (sampled) {
+            bucket.sampled.incrementAndGet();
+        }
+        else {
+            bucket.dropped.incrementAndGet();
+        }
+
+
+        // A sweep may have evicted the bucket after it was looked up; its counts then go to the
+        // evicted totals so they still make a summary
+        if (bucket.evicted) {
+            harvest( bucket );
+        }
+
+
+        return sampled;
+    }
+
+
+    /**
+     * Make an extension key's value part of the key, such as <code>dvc</code> to limit each
+     * device on its own
+     *
+     * @param field
+     *            the extension key
+     * @return this limiter
+     */
+    public RateLimiter key( final String field ) {
+        this.keyField = field;
+
+        return this;
+    }
+
+
+    /**
+     * Set the most keys kept
+     *
+     * @param keys
+     *            the number of keys
+     * @return this limiter
+     */
+    public RateLimiter maxKeys( final int keys ) {
+        if (keys <= 0) {
+            throw new IllegalArgumentException( "The number of keys must be positive" );
+        }
+
+
+        this.maxKeys = keys;
+
+        return this;
+    }
+
+
+    /**
+     * Pass the record on if it's allowed, and emit the summaries when they're due
+     *
+     * @param cef
+     *            the record
+     * @param out
+     *            where allowed records and summaries go
+     * @throws InterruptedException
+     *             if interrupted while emitting
+     */
+    @Override
+    public void process( final CEF cef, final Emitter<? super CEF> out ) throws InterruptedException {
+        if (allow( cef )) {
+            out.emit( cef );
+        }
+
+
+        final long now  = System.currentTimeMillis();
+        final long next = nextSummary.get();
+
+        if (next == 0) {
+            if (nextSummary.compareAndSet( 0, now + summaryMillis )) {
+                summaryStart = now;
+            }
+        }
+        else if ((now >= next) && nextSummary.compareAndSet( next, now + summaryMillis )) {
+            summarize( now, out );
+        }
+    }
+
+
+    /**
+     * Let one in this many records over the limit through instead of dropping them all
+     *
+     * @param every
+     *            how many records one is picked from, or 0 to drop them all
+     * @return this limiter
+     */
+    public RateLimiter sample( final int every ) {
+        if (every < 0) {
+            throw new IllegalArgumentException( "The sampling rate can't be negative" );
+        }
+
+
+        this.sampleEvery = every;
+
+        return this;
+    }
+
+
+    /**
+     * Set the severity of the summaries
+     *
+     * @param severity
+     *            the severity, from 0 to 10
+     * @return this limiter
+     */
+    public RateLimiter severity( final int severity ) {
+        if ((severity < 0) || (severity > 10)) {
+            throw new IllegalArgumentException( "The severity must be from 0 to 10" );
+        }
+
+
+        this.severity = severity;
+
+        return this;
+    }
+
+
+    /**
+     * Set how often the limiter emits summaries when it runs as a stage
+     *
+     * @param millis
+     *            the time between summaries in milliseconds
+     * @return this limiter
+     */
+    public RateLimiter summaryEvery( final long millis ) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException( "The summary interval must be positive" );
+        }
+
+
+        this.summaryMillis = millis;
+
+        return this;
+    }
+
+
+    /**
+     * Emit a summary for every key that had records dropped or sampled since the last one, and
+     * start a new period
+     *
+     * @param now
+     *            the end of the period in epoch milliseconds
+     * @param out
+     *            where the summaries go
+     * @return number of summaries emitted
+     * @throws InterruptedException
+     *             if interrupted while emitting
+     */
+    public int summarize( final long now, final Emitter<? super CEF> out ) throws InterruptedException {
+        final long start   = summaryStart;
+        int        emitted = 0;
+
+        summaryStart = now;
+
+        for (final Bucket bucket : buckets.values()) {
+            final long dropped = bucket.dropped.getAndSet( 0 );
+            final long sampled = bucket.sampled.getAndSet( 0 );
+
+            if ((dropped > 0) || (sampled > 0)) {
+                out.emit( summary( bucket.signature, bucket.value, dropped, sampled, start, now ) );
+                emitted++;
+            }
+        }
+
+
+        final long dropped = evictedDropped.getAndSet( 0 );
+        final long sampled = evictedSampled.getAndSet( 0 );
+
+        if ((dropped > 0) || (sampled > 0)) {
+            out.emit( summary( "*", null, dropped, sampled, start, now ) );
+            emitted++;
+        }
+
+
+        return emitted;
+    }
+
+
+    @Override
+    public String toString() {
+        return "RateLimiter [perSecond=" + (TimeUnit.SECONDS.toNanos( 1 ) / (double) intervalNanos) + ", burst="
+               + (burstNanos / intervalNanos + 1) + ", key=" + keyField + ", keys=" + buckets.size() + "]";
+    }
+
+
+    /**
+     * Build the key of a record. The parts are separated by a NUL, which can't be confused with
+     * text in them the way a bar could (vendor <code>A|B</code> and product <code>C</code> against
+     * vendor <code>A</code> and product <code>B|C</code>).
+     *
+     * @param cef
+     *            the record
+     * @return the key
+     */
+    private String key( final CEF cef ) {
+        final StringBuilder sb = new StringBuilder( 64 );
+
+        sb.append( cef.getVendor() ).append( RateLimiter.SEPARATOR ).append( cef.getProduct() )
+          .append( RateLimiter.SEPARATOR ).append( cef.getId() );
+
+        if (keyField != null) {
+            final String value = cef.getExtension().get( keyField );
+
+            sb.append( RateLimiter.SEPARATOR );
+
+            if (value != null) {
+                sb.append( value );
+            }
+        }
+
+
+        return sb.toString();
+    }
+
+
+    /**
+     * Build a summary record
+     *
+     * @param signature
+     *            the signature
+     * @param value
+     *            the key field's value or null
+     * @param dropped
+     *            number of records dropped
+     * @param sampled
+     *            number of records sampled
+     * @param start
+     *            the start of the period
+     * @param end
+     *            the end of the period
+     * @return the record
+     */
+    private CEF summary( final String signature, final String value, final long dropped, final long sampled,
+                         final long start, final long end ) {
+        final Map<String, String> fields = new HashMap<String, String>();
+
+        fields.put( "cs1Label", "signature" );
+        fields.put( "cs1", signature );
+
+        if (value != null) {
+            fields.put( "cs2Label", keyField );
+            fields.put( "cs2", value );
+        }
+
+
+        fields.put( "cnt", Long.toString( dropped ) );
+        fields.put( "cn1Label", "sampled" );
+        fields.put( "cn1", Long.toString( sampled ) );
+        Extension.putTime( fields, "start", (start == 0)
+                                            ? end
+                                            : start );
+        Extension.putTime( fields, "end", end );
+
+        try {
+            return new CEF( RateLimiter.VENDOR, RateLimiter.PRODUCT, RateLimiter.VERSION, RateLimiter.SUMMARY_ID,
+                            "Records suppressed by rate limiting", severity, new Extension( fields ) );
+        } catch (final InvalidField e) {
+            throw new IllegalStateException( e );
+        } catch (final InvalidExtensionKey e) {
+            throw new IllegalStateException( e );
+        }
+    }
+
+
+    /**
+     * Make room in the table: drop the keys whose buckets have filled back up, which forgets
+     * nothing, and if the table is still full, any keys. Only one thread sweeps at a time; the
+     * others go on without waiting.
+     *
+     * @param nanos
+     *            the current time
+     */
+    private void sweep( final long nanos ) {
+        if (!sweeping.compareAndSet( false, true )) {
+            return;
+        }
+
+
+        try {
+            final Iterator<Bucket> all = buckets.values().iterator();
+
+            while (all.hasNext()) {
+                final Bucket bucket = all.next();
+
+                if (bucket.full.get() <= nanos) {
+                    evict( all, bucket );
+                }
+            }
+
+
+            // Leave a tenth free so the next sweep isn't right away
+            final Iterator<Bucket> any = buckets.values().iterator();
+
+            while ((buckets.size() >= maxKeys - maxKeys / 10) && any.hasNext()) {
+                evict( any, any.next() );
+            }
+        } finally {
+            sweeping.set( false );
+        }
+    }
+
+
+    /**
+     * Remove a bucket, keeping its counts of dropped and sampled records for the next summary
+     *
+     * @param iterator
+     *            the iterator at the bucket
+     * @param bucket
+     *            the bucket
+     */
+    private void evict( final Iterator<Bucket> iterator, final Bucket bucket ) {
+        iterator.remove();
+
+        // Flag it first so a thread still counting into it sees the flag and moves its own count
+        bucket.evicted = true;
+        harvest( bucket );
+    }
+
+
+    /**
+     * Move the counts of an evicted bucket to the evicted totals
+     *
+     * @param bucket
+     *            the bucket
+     */
+    private void harvest( final Bucket bucket ) {
+        evictedDropped.addAndGet( bucket.dropped.getAndSet( 0 ) );
+        evictedSampled.addAndGet( bucket.sampled.getAndSet( 0 ) );
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * @return number of keys being tracked
+     */
+    public int getKeys() {
+        return buckets.size();
+    }
+
+
+    //~--- inner classes ------------------------------------------------------
+
+    /**
+     * The token bucket of one key
+     */
+    private final class Bucket {
+
+        /** Number of records dropped since the last summary */
+        final AtomicLong dropped = new AtomicLong();
+
+        /** If the bucket was taken out of the table */
+        volatile boolean evicted;
+
+        /** When the bucket is full again, in {@link System#nanoTime()} terms */
+        final AtomicLong full;
+
+        /** Number of records over the limit, for sampling */
+        final AtomicLong over = new AtomicLong();
+
+        /** Number of records sampled since the last summary */
+        final AtomicLong sampled = new AtomicLong();
+
+        /** The signature as it's shown in the summaries, <code>vendor|product|id</code> */
+        final String signature;
+
+        /** The key field's value, or null */
+        final String value;
+
+
+        /**
+         * @param cef
+         *            the first record of the key
+         * @param nanos
+         *            the current time
+         */
+        Bucket( final CEF cef, final long nanos ) {
+            this.full      = new AtomicLong( nanos );
+            this.signature = cef.getVendor() + "|" + cef.getProduct() + "|" + cef.getId();
+
+            if (keyField == null) {
+                this.value = null;
+            }
+            else {
+                final String value = cef.getExtension().get( keyField );
+
+                this.value = (value == null)
+                             ? ""
+                             : value;
+            }
+        }
+    }
+}
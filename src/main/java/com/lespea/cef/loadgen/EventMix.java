@@ -0,0 +1,534 @@
+/**
+ * EventMix.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.loadgen;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.Extension;
+import com.lespea.cef.InvalidExtensionKey;
+import com.lespea.cef.InvalidField;
+import com.lespea.cef.net.IPAddress;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * The distributions synthetic {@link CEF} events are drawn from.
+ * <p>
+ * An event picks a product by weight, then one of the product's signatures (a few signatures fire
+ * far more often than the rest, the way real rule sets do), a severity by weight and a set of
+ * extension keys by weight. Addresses, ports and times get values of the right shape and every
+ * other key gets text of a random length. With the escape rate above zero, that fraction of the
+ * characters in the text values and event names is replaced by one of the characters CEF
+ * escapes, so the escaping paths get their share of the work.
+ * <p>
+ * Out of the box the mix has a firewall, an IDS and an authentication product; calling
+ * {@link #product(String, String, String, int)} or {@link #keys(int, String...)} the first time
+ * replaces the defaults rather than adding to them. A mix isn't thread safe while it's being set
+ * up, but once it is {@link #next(Random)} can be called from any number of threads, each with its
+ * own {@link Random}.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class EventMix {
+
+    /** Keys that hold IPv4 addresses */
+    private static final String[] ADDRESS_KEYS = { "dst", "dvc", "src", "sourceTranslatedAddress",
+            "destinationTranslatedAddress" };
+
+    /** Characters CEF escapes in a header field */
+    private static final String NAME_ESCAPES = "|\\";
+
+    /** Keys that hold ports */
+    private static final String[] PORT_KEYS = { "dpt", "spt", "sourceTranslatedPort", "destinationTranslatedPort" };
+
+    /** Keys that hold times */
+    private static final String[] TIME_KEYS = { "end", "rt", "start" };
+
+    /** Characters CEF escapes in a value */
+    private static final String VALUE_ESCAPES = "=\\\r\n";
+
+    /** Letters and the odd space for text values */
+    private static final String TEXT = "abcdefghijklmnopqrstuvwxyz ABCDEFGHIJKLMNOPQRSTUVWXYZ 0123456789 ";
+
+    /** Words the signature names are made from */
+    private static final String[] WORDS = { "Denied", "Allowed", "Login", "Failed", "Port", "Scan", "Policy",
+            "Violation", "Malware", "Detected", "Session", "Closed", "Brute", "Force", "Outbound", "Traffic" };
+
+    //~--- fields -------------------------------------------------------------
+
+    /** If the key sets are still the defaults */
+    private boolean defaultKeys = true;
+
+    /** If the products are still the defaults */
+    private boolean defaultProducts = true;
+
+    /** Fraction of value characters that need escaping */
+    private double escapeRate;
+
+    /** The extension key sets */
+    private final List<String[]> keySets = new ArrayList<String[]>();
+
+    /** The weights of the extension key sets */
+    private final List<Integer> keyWeights = new ArrayList<Integer>();
+
+    /** Longest text value */
+    private int maxLength = 64;
+
+    /** Shortest text value */
+    private int minLength = 4;
+
+    /** The products as vendor, product and version */
+    private final List<String[]> products = new ArrayList<String[]>();
+
+    /** The weights of the products */
+    private final List<Integer> productWeights = new ArrayList<Integer>();
+
+    /** The weight of each severity */
+    private int[] severities = { 5, 10, 15, 20, 15, 12, 8, 6, 4, 3, 2 };
+
+    /** Number of signatures each product has */
+    private int signatures = 50;
+
+    /** How much the first signatures are favoured; 0 for not at all */
+    private double skew = 1.0;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * Create the default mix
+     */
+    public EventMix() {
+        addProduct( "Acme", "Firewall", "4.2", 60 );
+        addProduct( "Acme", "IDS", "2.0.1", 25 );
+        addProduct( "Contoso", "Directory", "11", 15 );
+        addKeys( 60, "src", "spt", "dst", "dpt", "proto", "act", "rt" );
+        addKeys( 25, "src", "dst", "dpt", "cs1Label", "cs1", "msg", "rt" );
+        addKeys( 15, "suser", "duser", "shost", "outcome", "msg", "start", "end" );
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Set the fraction of characters in text values and event names that are replaced by one CEF
+     * escapes
+     *
+     * @param rate
+     *            the fraction, from 0 to 1
+     * @return this mix
+     */
+    public EventMix escapeRate( final double rate ) {
+        if ((rate < 0) || (rate > 1)) {
+            throw new IllegalArgumentException( "The escape rate must be between 0 and 1" );
+        }
+
+
+        escapeRate = rate;
+
+        return this;
+    }
+
+
+    /**
+     * Add a set of extension keys an event can have
+     *
+     * @param weight
+     *            how often the set is picked compared to the others
+     * @param keys
+     *            the keys, which must be valid
+     * @return this mix
+     */
+    public EventMix keys( final int weight, final String... keys ) {
+        if (defaultKeys) {
+            defaultKeys = false;
+            keySets.clear();
+            keyWeights.clear();
+        }
+
+
+        addKeys( weight, keys );
+
+        return this;
+    }
+
+
+    /**
+     * Draw an event
+     *
+     * @param random
+     *            the source of randomness, which shouldn't be shared between threads
+     * @return the event
+     */
+    public CEF next( final Random random ) {
+        final String[] product   = products.get( EventMix.pick( productWeights, random ) );
+        final int      signature = signature( random );
+        final String[] keys      = keySets.get( EventMix.pick( keyWeights, random ) );
+
+        final Map<String, String> fields = new HashMap<String, String>( keys.length * 2 );
+
+        for (final String key : keys) {
+            fields.put( key, value( key, random ) );
+        }
+
+
+        try {
+            return new CEF( 0, product[0], product[1], product[2], Integer.toString( 100 + signature ),
+                            name( signature, random ), severity( random ), new Extension( fields ) );
+        } catch (final InvalidField e) {
+            throw new IllegalStateException( e );
+        } catch (final InvalidExtensionKey e) {
+            throw new IllegalArgumentException( "A key in the mix is invalid", e );
+        }
+    }
+
+
+    /**
+     * Add a product that events come from
+     *
+     * @param vendor
+     *            the vendor
+     * @param product
+     *            the product
+     * @param version
+     *            the product version
+     * @param weight
+     *            how often the product is picked compared to the others
+     * @return this mix
+     */
+    public EventMix product( final String vendor, final String product, final String version, final int weight ) {
+        if (defaultProducts) {
+            defaultProducts = false;
+            products.clear();
+            productWeights.clear();
+        }
+
+
+        addProduct( vendor, product, version, weight );
+
+        return this;
+    }
+
+
+    /**
+     * Set how often each severity is picked
+     *
+     * @param weights
+     *            the weight of each severity from 0 to 10
+     * @return this mix
+     */
+    public EventMix severities( final int... weights ) {
+        if ((weights.length != CEF.MAX_SEVERITY + 1) || (EventMix.total( weights ) <= 0)) {
+            throw new IllegalArgumentException( "There must be a weight for each of the 11 severities" );
+        }
+
+
+        severities = weights.clone();
+
+        return this;
+    }
+
+
+    /**
+     * Set the signatures of each product
+     *
+     * @param count
+     *            number of signatures
+     * @param skew
+     *            how much the first signatures are favoured: 0 picks them all equally, 1 picks the
+     *            n'th about 1/n as often as the first, and higher is steeper
+     * @return this mix
+     */
+    public EventMix signatures( final int count, final double skew ) {
+        if ((count <= 0) || (skew < 0)) {
+            throw new IllegalArgumentException( "There must be at least one signature and the skew can't be negative" );
+        }
+
+
+        this.signatures = count;
+        this.skew       = skew;
+
+        return this;
+    }
+
+
+    /**
+     * Set the length of text values
+     *
+     * @param min
+     *            the shortest
+     * @param max
+     *            the longest
+     * @return this mix
+     */
+    public EventMix valueLength( final int min, final int max ) {
+        if ((min < 0) || (max < min)) {
+            throw new IllegalArgumentException( "The lengths must satisfy 0 <= min <= max" );
+        }
+
+
+        minLength = min;
+        maxLength = max;
+
+        return this;
+    }
+
+
+    /**
+     * @param weight
+     *            the weight of the key set
+     * @param keys
+     *            the keys
+     */
+    private void addKeys( final int weight, final String... keys ) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException( "The weight must be positive" );
+        }
+
+
+        keySets.add( keys.clone() );
+        keyWeights.add( weight );
+    }
+
+
+    /**
+     * @param vendor
+     *            the vendor
+     * @param product
+     *            the product
+     * @param version
+     *            the product version
+     * @param weight
+     *            the weight of the product
+     */
+    private void addProduct( final String vendor, final String product, final String version, final int weight ) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException( "The weight must be positive" );
+        }
+
+
+        products.add( new String[] { vendor, product, version } );
+        productWeights.add( weight );
+    }
+
+
+    /**
+     * @param keys
+     *            the keys
+     * @param key
+     *            the key to look for
+     * @return if it's one of the keys
+     */
+    private static boolean contains( final String[] keys, final String key ) {
+        for (final String k : keys) {
+            if (k.equals( key )) {
+                return true;
+            }
+        }
+
+
+        return false;
+    }
+
+
+    /**
+     * Build the name of a signature, with the odd character that needs escaping
+     *
+     * @param signature
+     *            the signature
+     * @param random
+     *            the source of randomness
+     * @return the name
+     */
+    private String name( final int signature, final Random random ) {
+        final StringBuilder sb = new StringBuilder( 32 );
+
+        sb.append( EventMix.WORDS[signature % EventMix.WORDS.length] );
+        sb.append( ' ' );
+        sb.append( EventMix.WORDS[(signature / EventMix.WORDS.length + 3) % EventMix.WORDS.length] );
+
+        if ((escapeRate > 0) && (random.nextDouble() < escapeRate * sb.length())) {
+            sb.insert( random.nextInt( sb.length() + 1 ),
+                       EventMix.NAME_ESCAPES.charAt( random.nextInt( EventMix.NAME_ESCAPES.length() ) ) );
+        }
+
+
+        return sb.toString();
+    }
+
+
+    /**
+     * @param weights
+     *            the weights
+     * @param random
+     *            the source of randomness
+     * @return the index picked
+     */
+    private static int pick( final List<Integer> weights, final Random random ) {
+        int total = 0;
+
+        for (final Integer weight : weights) {
+            total += weight;
+        }
+
+
+        int roll = random.nextInt( total );
+
+        for (int i = 0; i < weights.size(); i++) {
+            roll -= weights.get( i );
+
+            if (roll < 0) {
+                return i;
+            }
+        }
+
+
+        return weights.size() - 1;
+    }
+
+
+    /**
+     * @param random
+     *            the source of randomness
+     * @return the severity picked
+     */
+    private int severity( final Random random ) {
+        int roll = random.nextInt( EventMix.total( severities ) );
+
+        for (int i = 0; i < severities.length; i++) {
+            roll -= severities[i];
+
+            if (roll < 0) {
+                return i;
+            }
+        }
+
+
+        return CEF.MAX_SEVERITY;
+    }
+
+
+    /**
+     * Pick a signature with a power law, so the first is the most common
+     *
+     * @param random
+     *            the source of randomness
+     * @return the signature from 0 up to the number of signatures
+     */
+    private int signature( final Random random ) {
+        if ((skew == 0) || (signatures == 1)) {
+            return random.nextInt( signatures );
+        }
+
+
+        // Inverse of the continuous power law over [1, n + 1)
+        final double u = random.nextDouble();
+        final double n = signatures + 1;
+        final double x = (skew == 1)
+                         ? Math.pow( n, u )
+                         : Math.pow( 1 + u * (Math.pow( n, 1 - skew ) - 1), 1 / (1 - skew) );
+
+        return Math.min( signatures - 1, (int) x - 1 );
+    }
+
+
+    /**
+     * @param weights
+     *            the weights
+     * @return their sum
+     */
+    private static int total( final int[] weights ) {
+        int total = 0;
+
+        for (final int weight : weights) {
+            if (weight < 0) {
+                throw new IllegalArgumentException( "The weights can't be negative" );
+            }
+
+
+            total += weight;
+        }
+
+
+        return total;
+    }
+
+
+    /**
+     * Draw a value shaped for its key
+     *
+     * @param key
+     *            the key
+     * @param random
+     *            the source of randomness
+     * @return the value
+     */
+    private String value( final String key, final Random random ) {
+        if (EventMix.contains( EventMix.ADDRESS_KEYS, key )) {
+            return IPAddress.toString( 0x0A000000L | random.nextInt( 1 << 24 ) );
+        }
+        else if (EventMix.contains( EventMix.PORT_KEYS, key )) {
+            return Integer.toString( 1 + random.nextInt( 65535 ) );
+        }
+        else if (EventMix.contains( EventMix.TIME_KEYS, key )) {
+            return Long.toString( System.currentTimeMillis() - random.nextInt( 60000 ) );
+        }
+
+
+        final int    length = minLength + random.nextInt( maxLength - minLength + 1 );
+        final char[] chars  = new char[length];
+
+        for (int i = 0; i < length; i++) {
+            chars[i] = ((escapeRate > 0) && (random.nextDouble() < escapeRate))
+                       ? EventMix.VALUE_ESCAPES.charAt( random.nextInt( EventMix.VALUE_ESCAPES.length() ) )
+                       : EventMix.TEXT.charAt( random.nextInt( EventMix.TEXT.length() ) );
+        }
+
+
+        // Spaces at the ends of a value don't survive parsing
+        if ((length > 0) && (chars[0] == ' ')) {
+            chars[0] = '_';
+        }
+
+
+        if ((length > 0) && (chars[length - 1] == ' ')) {
+            chars[length - 1] = '_';
+        }
+
+
+        return new String( chars );
+    }
+}
@@ -0,0 +1,371 @@
+/**
+ * LoadGenerator.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.loadgen;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.utils.Utf8;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.net.InetAddress;
+import java.net.Socket;
+
+import java.nio.ByteBuffer;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Writes synthetic CEF events, one per line, at a steady rate.
+ * <p>
+ * A pool of events is drawn from an {@link EventMix} and encoded up front, and the generator
+ * cycles through it, so drawing and escaping events doesn't limit the rate and what's measured
+ * downstream is the collector rather than the generator. Each event has a due time worked out
+ * from when the run started rather than from the event before it, so the rate doesn't drift when
+ * a write stalls: a late generator catches up with a short burst. While it's ahead the generator
+ * parks, spinning only for the last few microseconds, which keeps the rate precise at tens of
+ * thousands of events a second and beyond without burning a core at low rates. The output is
+ * flushed before a long wait or once it's been held for ten milliseconds, so high rates still
+ * write in large chunks and low rates don't sit on events.
+ * <p>
+ * The events sent so far and the achieved rate can be read from another thread while a run is
+ * going, and progress is logged every few seconds.
+ * <p>
+ * From the command line:
+ *
+ * <pre>
+ * java com.lespea.cef.loadgen.LoadGenerator [-r events/sec] [-n events] [-d seconds] [-o file|-|tcp:port]
+ *                                          [-e escape rate] [-l min-max] [-p pool] [-s seed]
+ * </pre>
+ *
+ * The output is standard out unless it's a file or <code>tcp:port</code>, which connects to that
+ * port on the loopback address. A rate of 0 writes as fast as possible. It runs until either limit
+ * is hit, or forever if there's neither, and prints the achieved throughput to standard error.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class LoadGenerator {
+
+    /**
+     * Logger object
+     */
+    private static final Logger LOG = LoggerFactory.getLogger( LoadGenerator.class );
+
+    /** How long written events may be held in the buffer while the generator waits */
+    private static final long FLUSH_NANOS = TimeUnit.MILLISECONDS.toNanos( 10 );
+
+    /** How long before an event is due to stop parking and spin */
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos( 50 );
+
+    /** How often progress is logged */
+    private static final long REPORT_NANOS = TimeUnit.SECONDS.toNanos( 5 );
+
+    //~--- fields -------------------------------------------------------------
+
+    /** How long the last run took */
+    private volatile long elapsedNanos;
+
+    /** The encoded events, each ending with a newline */
+    private final byte[][] pool;
+
+    /** Number of events sent by the current or last run */
+    private volatile long sent;
+
+    /** When the current run started or 0 */
+    private volatile long startNanos;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * @param mix
+     *            where the events are drawn from
+     * @param poolSize
+     *            number of different events to cycle through
+     * @param seed
+     *            the random seed, so runs can be repeated
+     */
+    public LoadGenerator( final EventMix mix, final int poolSize, final long seed ) {
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException( "The pool must hold at least one event" );
+        }
+
+
+        final Random random = new Random( seed );
+
+        pool = new byte[poolSize][];
+
+        for (int i = 0; i < poolSize; i++) {
+            final CEF        cef = mix.next( random );
+            final ByteBuffer buf = ByteBuffer.allocate( cef.getEncodedLength() + 1 );
+
+            Utf8.encode( cef.toString(), buf );
+            buf.put( (byte) '\n' );
+            pool[i] = buf.array();
+        }
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Run the generator from the command line
+     *
+     * @param args
+     *            the options, see the class description
+     * @throws IOException
+     *             if the output couldn't be written
+     */
+    public static void main( final String[] args ) throws IOException {
+        final EventMix mix     = new EventMix();
+        double         rate    = 1000;
+        long           events  = 0;
+        long           seconds = 0;
+        String         target  = "-";
+        int            size    = 10000;
+        long           seed    = System.nanoTime();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                final String option = args[i];
+
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException( "The option " + option + " needs a value" );
+                }
+
+
+                final String value = args[++i];
+
+                if ("-r".equals( option )) {
+                    rate = Double.parseDouble( value );
+                }
+                else if ("-n".equals( option )) {
+                    events = Long.parseLong( value );
+                }
+                else if ("-d".equals( option )) {
+                    seconds = Long.parseLong( value );
+                }
+                else if ("-o".equals( option )) {
+                    target = value;
+                }
+                else if ("-e".equals( option )) {
+                    mix.escapeRate( Double.parseDouble( value ) );
+                }
+                else if ("-l".equals( option )) {
+                    final int dash = value.indexOf( '-' );
+
+                    mix.valueLength( Integer.parseInt( value.substring( 0, dash ) ),
+                                     Integer.parseInt( value.substring( dash + 1 ) ) );
+                }
+                else if ("-p".equals( option )) {
+                    size = Integer.parseInt( value );
+                }
+                else if ("-s".equals( option )) {
+                    seed = Long.parseLong( value );
+                }
+                else {
+                    throw new IllegalArgumentException( "Unknown option " + option );
+                }
+            }
+        } catch (final RuntimeException e) {
+            System.err.println( e.getMessage() );
+            System.err.println( "Usage: LoadGenerator [-r events/sec] [-n events] [-d seconds] [-o file|-|tcp:port]"
+                                + " [-e escape rate] [-l min-max] [-p pool] [-s seed]" );
+            System.exit( 2 );
+
+            return;
+        }
+
+
+        final LoadGenerator generator = new LoadGenerator( mix, size, seed );
+        Socket              socket    = null;
+        final OutputStream  out;
+
+        if ("-".equals( target )) {
+            out = System.out;
+        }
+        else if (target.startsWith( "tcp:" )) {
+            socket = new Socket( InetAddress.getByName( null ), Integer.parseInt( target.substring( 4 ) ) );
+            out    = socket.getOutputStream();
+        }
+        else {
+            out = new FileOutputStream( target );
+        }
+
+
+        try {
+            generator.run( out, rate, events, TimeUnit.SECONDS.toMillis( seconds ) );
+        } finally {
+            if (socket != null) {
+                socket.close();
+            }
+            else if (out != System.out) {
+                out.close();
+            }
+        }
+
+
+        System.err.println( generator );
+    }
+
+
+    /**
+     * Write events until one of the limits is hit. The stream is flushed but not closed.
+     *
+     * @param out
+     *            where the events are written
+     * @param rate
+     *            events per second, or 0 for as fast as possible
+     * @param maxEvents
+     *            number of events to write, or 0 for no limit
+     * @param maxMillis
+     *            how long to run for, or 0 for no limit
+     * @return number of events written
+     * @throws IOException
+     *             if the output couldn't be written
+     */
+    public long run( final OutputStream out, final double rate, final long maxEvents, final long maxMillis )
+            throws IOException {
+        if (rate < 0) {
+            throw new IllegalArgumentException( "The rate can't be negative" );
+        }
+
+
+        final OutputStream buffered = new BufferedOutputStream( out, 64 * 1024 );
+        final double       interval = (rate > 0)
+                                      ? TimeUnit.SECONDS.toNanos( 1 ) / rate
+                                      : 0;
+        final long         limit    = (maxMillis > 0)
+                                      ? TimeUnit.MILLISECONDS.toNanos( maxMillis )
+                                      : Long.MAX_VALUE;
+        final long         start    = System.nanoTime();
+        long               count    = 0;
+        long               report   = start + LoadGenerator.REPORT_NANOS;
+        long               flushed  = start;
+
+        startNanos   = start;
+        elapsedNanos = 0;
+        sent         = 0;
+
+        try {
+            while ((maxEvents <= 0) || (count < maxEvents)) {
+                long now = System.nanoTime();
+
+                if (now - start >= limit) {
+                    break;
+                }
+                else if (now - report >= 0) {
+                    report = now + LoadGenerator.REPORT_NANOS;
+                    LoadGenerator.LOG.info( "{}", this );
+                }
+
+
+                if (interval > 0) {
+                    final long due = start + (long) (count * interval);
+
+                    if (due - start >= limit) {
+                        break;
+                    }
+                    else if (due - now > 0) {
+                        if ((due - now > LoadGenerator.FLUSH_NANOS) || (now - flushed > LoadGenerator.FLUSH_NANOS)) {
+                            buffered.flush();
+                            flushed = now;
+                        }
+
+
+                        while (due - LoadGenerator.SPIN_NANOS - (now = System.nanoTime()) > 0) {
+                            LockSupport.parkNanos( due - LoadGenerator.SPIN_NANOS - now );
+                        }
+
+
+                        while (due - System.nanoTime() > 0) {
+
+                            // Spin for the last few microseconds
+                        }
+                    }
+                }
+
+
+                buffered.write( pool[(int) (count % pool.length)] );
+                sent = ++count;
+            }
+
+
+            buffered.flush();
+        } finally {
+            elapsedNanos = System.nanoTime() - start;
+            startNanos   = 0;
+        }
+
+
+        return count;
+    }
+
+
+    @Override
+    public String toString() {
+        return "Sent " + getSent() + " events at " + Math.round( getAchievedRate() ) + " per second";
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * @return events per second achieved by the current or last run
+     */
+    public double getAchievedRate() {
+        final long start   = startNanos;
+        final long elapsed = (start == 0)
+                             ? elapsedNanos
+                             : System.nanoTime() - start;
+
+        return (elapsed <= 0)
+               ? 0
+               : getSent() * (double) TimeUnit.SECONDS.toNanos( 1 ) / elapsed;
+    }
+
+
+    /**
+     * @return number of events sent by the current or last run
+     */
+    public long getSent() {
+        return sent;
+    }
+}
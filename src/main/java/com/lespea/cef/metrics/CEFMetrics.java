@@ -0,0 +1,168 @@
+/**
+ * CEFMetrics.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.metrics;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * The latency histograms the library records into, and their JMX registration.
+ * <p>
+ * Three things are timed: building a {@link com.lespea.cef.CEF} string, building an
+ * {@link com.lespea.cef.Extension} string and encoding an event to UTF-8 for the spool, arena and
+ * archive writers. Recording is off unless the <code>com.lespea.cef.metrics</code> system property
+ * is true, and can be turned on and off at any time with {@link #setEnabled(boolean)} or through
+ * the <code>Enabled</code> attribute of each MBean. Once {@link #register()} is called the
+ * histograms show up in the platform MBean server as
+ * <code>com.lespea.cef:type=Latency,name=CEF</code>, <code>name=Extension</code> and
+ * <code>name=Serialization</code>.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class CEFMetrics {
+
+    /** If recording starts out enabled */
+    private static final boolean ENABLED = Boolean.getBoolean( "com.lespea.cef.metrics" );
+
+    /** Time taken to build a CEF string */
+    public static final LatencyHistogram CEF = new LatencyHistogram( CEFMetrics.ENABLED );
+
+    /** Time taken to build an extension string */
+    public static final LatencyHistogram EXTENSION = new LatencyHistogram( CEFMetrics.ENABLED );
+
+    /**
+     * Logger object
+     */
+    private static final Logger LOG = LoggerFactory.getLogger( CEFMetrics.class );
+
+    /** Time taken to encode an event to UTF-8 */
+    public static final LatencyHistogram SERIALIZATION = new LatencyHistogram( CEFMetrics.ENABLED );
+
+    /** The histograms with their names */
+    private static final Object[][] HISTOGRAMS = {
+        { "CEF", CEFMetrics.CEF }, { "Extension", CEFMetrics.EXTENSION }, { "Serialization", CEFMetrics.SERIALIZATION }
+    };
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * Only static methods
+     */
+    private CEFMetrics() {}
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Register every histogram with the platform MBean server. Histograms that are already
+     * registered are left alone.
+     *
+     * @throws JMException
+     *             if a histogram couldn't be registered
+     */
+    public static synchronized void register() throws JMException {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        for (final Object[] histogram : CEFMetrics.HISTOGRAMS) {
+            final ObjectName name = CEFMetrics.objectName( (String) histogram[0] );
+
+            if (!server.isRegistered( name )) {
+                server.registerMBean( histogram[1], name );
+                CEFMetrics.LOG.debug( "Registered " + name );
+            }
+        }
+    }
+
+
+    /**
+     * Forget everything recorded by every histogram
+     */
+    public static void reset() {
+        for (final Object[] histogram : CEFMetrics.HISTOGRAMS) {
+            ((LatencyHistogram) histogram[1]).reset();
+        }
+    }
+
+
+    /**
+     * Remove every histogram from the platform MBean server
+     *
+     * @throws JMException
+     *             if a histogram couldn't be removed
+     */
+    public static synchronized void unregister() throws JMException {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        for (final Object[] histogram : CEFMetrics.HISTOGRAMS) {
+            final ObjectName name = CEFMetrics.objectName( (String) histogram[0] );
+
+            if (server.isRegistered( name )) {
+                server.unregisterMBean( name );
+            }
+        }
+    }
+
+
+    /**
+     * @param name
+     *            the name of a histogram
+     * @return its JMX name
+     * @throws JMException
+     *             never, the names are all valid
+     */
+    public static ObjectName objectName( final String name ) throws JMException {
+        return new ObjectName( "com.lespea.cef:type=Latency,name=" + name );
+    }
+
+
+    //~--- set methods --------------------------------------------------------
+
+    /**
+     * Turn recording on or off for every histogram
+     *
+     * @param enabled
+     *            if latencies should be recorded
+     */
+    public static void setEnabled( final boolean enabled ) {
+        for (final Object[] histogram : CEFMetrics.HISTOGRAMS) {
+            ((LatencyHistogram) histogram[1]).setEnabled( enabled );
+        }
+    }
+}
@@ -0,0 +1,504 @@
+/**
+ * LatencyHistogram.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.metrics;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.lang.ref.WeakReference;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * A latency histogram with fixed log-linear buckets that threads record into without contending.
+ * <p>
+ * Every power of two is split into 32 equal buckets, so a latency is known to within about 3%
+ * from 32 nanoseconds up to about 36 minutes (values under 32 are exact and longer ones land in
+ * the last bucket). Each thread records into its own set of counters, which only that thread
+ * writes, and reading the histogram adds the threads' counters together. Recording is a
+ * <code>ThreadLocal</code> lookup and two counter updates, and when the histogram is disabled the
+ * {@link #start()} and {@link #stop(long)} pair doesn't even read the clock.
+ * <p>
+ * The counters of a thread that has finished are folded into a running total the next time the
+ * histogram is read, so nothing it recorded is lost and threads that come and go don't pile up
+ * counters.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class LatencyHistogram implements LatencyHistogramMBean {
+
+    /** Number of bits of sub-bucket precision */
+    private static final int SUB_BITS = 5;
+
+    /** Number of buckets in each power of two */
+    private static final int SUB_COUNT = 1 << LatencyHistogram.SUB_BITS;
+
+    /** The largest power of two with its own buckets */
+    private static final int MAX_EXPONENT = 40;
+
+    /** Number of buckets */
+    private static final int BUCKETS = (LatencyHistogram.MAX_EXPONENT - LatencyHistogram.SUB_BITS + 2)
+                                       << LatencyHistogram.SUB_BITS;
+
+    /** Counter holding the largest value */
+    private static final int MAX = LatencyHistogram.BUCKETS;
+
+    /** Counter holding the sum of the values */
+    private static final int SUM = LatencyHistogram.BUCKETS + 1;
+
+    //~--- fields -------------------------------------------------------------
+
+    /** The counters at the last reset, taken away from what's read */
+    private volatile long[] baseline = new long[LatencyHistogram.BUCKETS + 2];
+
+    /** If latencies are recorded */
+    private volatile boolean enabled;
+
+    /** The count when the rate was last read */
+    private long lastCount;
+
+    /** When the rate was last read */
+    private long lastNanos = System.nanoTime();
+
+    /** The counters of every live thread that has recorded */
+    private final List<Recorder> recorders = new CopyOnWriteArrayList<Recorder>();
+
+    /** The counters of the current thread */
+    private final ThreadLocal<AtomicLongArray> recorder = new ThreadLocal<AtomicLongArray>() {
+        @Override
+        protected AtomicLongArray initialValue() {
+            final AtomicLongArray counters = new AtomicLongArray( LatencyHistogram.BUCKETS + 2 );
+
+            recorders.add( new Recorder( Thread.currentThread(), counters ) );
+
+            return counters;
+        }
+    };
+
+    /** The counters of the threads that have finished */
+    private final long[] retired = new long[LatencyHistogram.BUCKETS + 2];
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * @param enabled
+     *            if latencies are recorded to begin with
+     */
+    public LatencyHistogram( final boolean enabled ) {
+        this.enabled = enabled;
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Record a latency
+     *
+     * @param nanos
+     *            the latency in nanoseconds
+     */
+    public void record( final long nanos ) {
+        final long            value    = Math.max( nanos, 0 );
+        final AtomicLongArray counters = recorder.get();
+        final int             index    = LatencyHistogram.index( value );
+
+        // Only this thread writes these counters so a plain read and ordered write is enough
+        counters.lazySet( index, counters.get( index ) + 1 );
+        counters.lazySet( LatencyHistogram.SUM, counters.get( LatencyHistogram.SUM ) + value );
+
+        if (value > counters.get( LatencyHistogram.MAX )) {
+            counters.lazySet( LatencyHistogram.MAX, value );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void reset() {
+        baseline = merge( false );
+    }
+
+
+    /**
+     * Read every counter into a snapshot
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        return new Snapshot( merge( true ) );
+    }
+
+
+    /**
+     * Start timing something
+     *
+     * @return the start time, or 0 if the histogram is disabled
+     */
+    public long start() {
+        return enabled
+               ? System.nanoTime()
+               : 0;
+    }
+
+
+    /**
+     * Finish timing something
+     *
+     * @param start
+     *            what {@link #start()} returned
+     */
+    public void stop( final long start ) {
+        if (start != 0) {
+            record( System.nanoTime() - start );
+        }
+    }
+
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+
+
+    /**
+     * Get the bucket of a value
+     *
+     * @param value
+     *            the value
+     * @return the bucket
+     */
+    static int index( final long value ) {
+        if (value < LatencyHistogram.SUB_COUNT) {
+            return (int) value;
+        }
+
+
+        final int exponent = 63 - Long.numberOfLeadingZeros( value );
+
+        if (exponent > LatencyHistogram.MAX_EXPONENT) {
+            return LatencyHistogram.BUCKETS - 1;
+        }
+
+
+        return ((exponent - LatencyHistogram.SUB_BITS + 1) << LatencyHistogram.SUB_BITS)
+               | (int) ((value >>> (exponent - LatencyHistogram.SUB_BITS)) & (LatencyHistogram.SUB_COUNT - 1));
+    }
+
+
+    /**
+     * Get the largest value that goes in a bucket
+     *
+     * @param index
+     *            the bucket
+     * @return the value
+     */
+    static long highestValue( final int index ) {
+        if (index < LatencyHistogram.SUB_COUNT) {
+            return index;
+        }
+        else if (index == LatencyHistogram.BUCKETS - 1) {
+
+            // The last bucket also holds everything too big for the others
+            return Long.MAX_VALUE;
+        }
+
+
+        final int shift = (index >> LatencyHistogram.SUB_BITS) - 1;
+
+        return (((long) (LatencyHistogram.SUB_COUNT | (index & (LatencyHistogram.SUB_COUNT - 1)))) << shift)
+               + (1L << shift) - 1;
+    }
+
+
+    /**
+     * Add one set of counters to another
+     *
+     * @param merged
+     *            the counters added to
+     * @param counters
+     *            the counters to add
+     */
+    private static void add( final long[] merged, final AtomicLongArray counters ) {
+        for (int i = 0; i < LatencyHistogram.MAX; i++) {
+            merged[i] += counters.get( i );
+        }
+
+
+        merged[LatencyHistogram.SUM] += counters.get( LatencyHistogram.SUM );
+        merged[LatencyHistogram.MAX] = Math.max( merged[LatencyHistogram.MAX], counters.get( LatencyHistogram.MAX ) );
+    }
+
+
+    /**
+     * Add up the counters of every thread, first folding the ones of finished threads into the
+     * retired total
+     *
+     * @param sinceReset
+     *            if the counters at the last reset are taken away
+     * @return the counters
+     */
+    private synchronized long[] merge( final boolean sinceReset ) {
+        for (final Recorder each : recorders) {
+            final Thread thread = each.owner.get();
+
+            // A finished thread won't record again, and seeing it finished makes its counts visible
+            if ((thread == null) || !thread.isAlive()) {
+                LatencyHistogram.add( retired, each.counters );
+                recorders.remove( each );
+            }
+        }
+
+
+        final long[] merged = retired.clone();
+
+        for (final Recorder live : recorders) {
+            LatencyHistogram.add( merged, live.counters );
+        }
+
+
+        if (sinceReset) {
+            final long[] base = baseline;
+
+            for (int i = 0; i < LatencyHistogram.MAX; i++) {
+                merged[i] -= base[i];
+            }
+
+
+            merged[LatencyHistogram.SUM] -= base[LatencyHistogram.SUM];
+
+            // The largest value can't be taken back, so it's only kept if it was seen since
+            if (merged[LatencyHistogram.MAX] <= base[LatencyHistogram.MAX]) {
+                merged[LatencyHistogram.MAX] = 0;
+
+                for (int i = LatencyHistogram.MAX - 1; i >= 0; i--) {
+                    if (merged[i] > 0) {
+                        merged[LatencyHistogram.MAX] = LatencyHistogram.highestValue( i );
+
+                        break;
+                    }
+                }
+            }
+        }
+
+
+        return merged;
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    @Override
+    public long getCount() {
+        return snapshot().getCount();
+    }
+
+
+    @Override
+    public synchronized double getEventsPerSecond() {
+        final long now     = System.nanoTime();
+        final long count   = getCount();
+        final long elapsed = now - lastNanos;
+        final long events  = count - lastCount;
+
+        lastNanos = now;
+        lastCount = count;
+
+        return (elapsed <= 0)
+               ? 0
+               : events * 1e9 / elapsed;
+    }
+
+
+    @Override
+    public long getMax() {
+        return snapshot().getMax();
+    }
+
+
+    @Override
+    public double getMean() {
+        return snapshot().getMean();
+    }
+
+
+    @Override
+    public long getP50() {
+        return snapshot().getValueAtPercentile( 50 );
+    }
+
+
+    @Override
+    public long getP99() {
+        return snapshot().getValueAtPercentile( 99 );
+    }
+
+
+    @Override
+    public long getP999() {
+        return snapshot().getValueAtPercentile( 99.9 );
+    }
+
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+
+    //~--- set methods --------------------------------------------------------
+
+    @Override
+    public void setEnabled( final boolean enabled ) {
+        this.enabled = enabled;
+    }
+
+
+    //~--- inner classes ------------------------------------------------------
+
+    /**
+     * The merged counters of a histogram at one point in time
+     */
+    public static final class Snapshot {
+
+        /** The bucket counts followed by the largest value and the sum */
+        private final long[] counters;
+
+        /** Number of values */
+        private final long count;
+
+
+        /**
+         * @param counters
+         *            the merged counters
+         */
+        Snapshot( final long[] counters ) {
+            this.counters = counters;
+
+            long total = 0;
+
+            for (int i = 0; i < LatencyHistogram.MAX; i++) {
+                total += counters[i];
+            }
+
+
+            this.count = total;
+        }
+
+
+        @Override
+        public String toString() {
+            return "count=" + count + ", mean=" + Math.round( getMean() ) + ", p50=" + getValueAtPercentile( 50 )
+                   + ", p99=" + getValueAtPercentile( 99 ) + ", p999=" + getValueAtPercentile( 99.9 ) + ", max="
+                   + getMax();
+        }
+
+
+        /**
+         * @return number of values
+         */
+        public long getCount() {
+            return count;
+        }
+
+
+        /**
+         * @return the largest value
+         */
+        public long getMax() {
+            return counters[LatencyHistogram.MAX];
+        }
+
+
+        /**
+         * @return the mean value
+         */
+        public double getMean() {
+            return (count == 0)
+                   ? 0
+                   : (double) counters[LatencyHistogram.SUM] / count;
+        }
+
+
+        /**
+         * Get the value that a percentage of the values are at or under. The value is the top of
+         * its bucket, so it's never under the real one by more than the bucket width.
+         *
+         * @param percentile
+         *            the percentage (0 to 100)
+         * @return the value, or 0 if there are no values
+         */
+        public long getValueAtPercentile( final double percentile ) {
+            if (count == 0) {
+                return 0;
+            }
+
+
+            final long wanted = Math.max( 1, (long) Math.ceil( count * Math.min( percentile, 100 ) / 100 ) );
+            long       seen   = 0;
+
+            for (int i = 0; i < LatencyHistogram.MAX; i++) {
+                seen += counters[i];
+
+                if (seen >= wanted) {
+                    return Math.min( LatencyHistogram.highestValue( i ), getMax() );
+                }
+            }
+
+
+            return getMax();
+        }
+    }
+
+
+    /**
+     * The counters of one thread
+     */
+    private static final class Recorder {
+
+        /** The counters */
+        final AtomicLongArray counters;
+
+        /** The thread that records into them, held weakly so a finished thread can be collected */
+        final WeakReference<Thread> owner;
+
+
+        /**
+         * @param owner
+         *            the thread that records into the counters
+         * @param counters
+         *            the counters
+         */
+        Recorder( final Thread owner, final AtomicLongArray counters ) {
+            this.owner    = new WeakReference<Thread>( owner );
+            this.counters = counters;
+        }
+    }
+}
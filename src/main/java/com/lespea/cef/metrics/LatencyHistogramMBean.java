@@ -0,0 +1,96 @@
+/**
+ * LatencyHistogramMBean.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.metrics;
+
+/**
+ * The JMX view of a {@link LatencyHistogram}. Latencies are in nanoseconds.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public interface LatencyHistogramMBean {
+
+    /**
+     * Forget everything recorded so far
+     */
+    void reset();
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * @return number of latencies recorded
+     */
+    long getCount();
+
+
+    /**
+     * @return latencies recorded per second since this was last read
+     */
+    double getEventsPerSecond();
+
+
+    /**
+     * @return the largest latency
+     */
+    long getMax();
+
+
+    /**
+     * @return the mean latency
+     */
+    double getMean();
+
+
+    /**
+     * @return the median latency
+     */
+    long getP50();
+
+
+    /**
+     * @return the 99th percentile latency
+     */
+    long getP99();
+
+
+    /**
+     * @return the 99.9th percentile latency
+     */
+    long getP999();
+
+
+    /**
+     * @return if latencies are being recorded
+     */
+    boolean isEnabled();
+
+
+    //~--- set methods --------------------------------------------------------
+
+    /**
+     * @param enabled
+     *            if latencies should be recorded
+     */
+    void setEnabled( boolean enabled );
+}
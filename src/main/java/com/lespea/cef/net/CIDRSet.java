@@ -0,0 +1,414 @@
+/**
+ * CIDRSet.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.net;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.Arrays;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * A set of IPv4 and IPv6 CIDR ranges that answers membership tests without allocating.
+ * <p>
+ * The ranges are kept in two prefix tries, one per address family, that branch on four bits at a
+ * time. Every node is sixteen slots in a single int array; a slot either points at a child node,
+ * is empty or marks everything below it as covered. A prefix that doesn't end on a four bit
+ * boundary covers a run of slots, so a lookup is at most 8 steps for IPv4 and 32 for IPv6 and
+ * stops at the first covered slot. IPv4-mapped IPv6 addresses are looked up as IPv4.
+ * <p>
+ * Add every range before the set is shared; once it's built any number of threads can test
+ * addresses at the same time.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class CIDRSet {
+
+    /** A slot whose whole subtree is in the set */
+    private static final int COVERED = -1;
+
+    /** Number of slots in a node */
+    private static final int FANOUT = 16;
+
+    //~--- fields -------------------------------------------------------------
+
+    /** The IPv4 ranges */
+    private final Trie v4 = new Trie( 32 );
+
+    /** The IPv6 ranges */
+    private final Trie v6 = new Trie( 128 );
+
+    /** Number of ranges added */
+    private int size;
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Add a range written as <code>address/prefix</code>, or a single address
+     *
+     * @param cidr
+     *            the range
+     * @return this set
+     * @throws IllegalArgumentException
+     *             if the text isn't a range
+     */
+    public CIDRSet add( final CharSequence cidr ) {
+        final long[] address = new long[2];
+        int          slash   = cidr.length();
+
+        for (int i = 0; i < cidr.length(); i++) {
+            if (cidr.charAt( i ) == '/') {
+                slash = i;
+
+                break;
+            }
+        }
+
+
+        final int type = IPAddress.parse( cidr, 0, slash, address );
+
+        if (type == IPAddress.INVALID) {
+            throw new IllegalArgumentException( "Not an IP address: " + cidr );
+        }
+
+
+        final int max    = (type == IPAddress.IPV4)
+                           ? 32
+                           : 128;
+        int       prefix = max;
+
+        if (slash < cidr.length()) {
+            prefix = 0;
+
+            for (int i = slash + 1; i < cidr.length(); i++) {
+                final char c = cidr.charAt( i );
+
+                if ((c < '0') || (c > '9') || (prefix > max)) {
+                    throw new IllegalArgumentException( "Bad prefix length: " + cidr );
+                }
+
+
+                prefix = prefix * 10 + (c - '0');
+            }
+
+
+            if ((slash + 1 == cidr.length()) || (prefix > max)) {
+                throw new IllegalArgumentException( "Bad prefix length: " + cidr );
+            }
+        }
+
+
+        return (type == IPAddress.IPV4)
+               ? addIPv4( address[1], prefix )
+               : addIPv6( address[0], address[1], prefix );
+    }
+
+
+    /**
+     * Add an IPv4 range. The bits past the prefix are ignored.
+     *
+     * @param address
+     *            the address in the low 32 bits
+     * @param prefix
+     *            the prefix length (0 to 32)
+     * @return this set
+     */
+    public CIDRSet addIPv4( final long address, final int prefix ) {
+        if ((prefix < 0) || (prefix > 32)) {
+            throw new IllegalArgumentException( "Bad prefix length: " + prefix );
+        }
+
+
+        v4.add( address << 32, 0, prefix );
+        size++;
+
+        return this;
+    }
+
+
+    /**
+     * Add an IPv6 range. The bits past the prefix are ignored and a range inside the IPv4-mapped
+     * addresses is added as IPv4.
+     *
+     * @param high
+     *            the high 64 bits
+     * @param low
+     *            the low 64 bits
+     * @param prefix
+     *            the prefix length (0 to 128)
+     * @return this set
+     */
+    public CIDRSet addIPv6( final long high, final long low, final int prefix ) {
+        if ((prefix < 0) || (prefix > 128)) {
+            throw new IllegalArgumentException( "Bad prefix length: " + prefix );
+        }
+        else if ((prefix >= 96) && CIDRSet.isMapped( high, low )) {
+            return addIPv4( low & 0xFFFFFFFFL, prefix - 96 );
+        }
+
+
+        v6.add( high, low, prefix );
+        size++;
+
+        return this;
+    }
+
+
+    /**
+     * Tests if an address written as text is in the set
+     *
+     * @param text
+     *            the text
+     * @param from
+     *            the start of the address
+     * @param to
+     *            the end of the address (exclusive)
+     * @param scratch
+     *            two longs the parsed address is kept in, so nothing is allocated
+     * @return false if it isn't in the set or isn't an address
+     */
+    public boolean contains( final CharSequence text, final int from, final int to, final long[] scratch ) {
+        return (IPAddress.parse( text, from, to, scratch ) != IPAddress.INVALID)
+               && containsIPv6( scratch[0], scratch[1] );
+    }
+
+
+    /**
+     * Tests if an address written as text is in the set
+     *
+     * @param text
+     *            the address
+     * @return false if it isn't in the set or isn't an address
+     */
+    public boolean contains( final CharSequence text ) {
+        return (text != null) && contains( text, 0, text.length(), new long[2] );
+    }
+
+
+    /**
+     * Tests if an IPv4 address is in the set
+     *
+     * @param address
+     *            the address in the low 32 bits
+     * @return if it's in the set
+     */
+    public boolean containsIPv4( final long address ) {
+        return v4.contains( address << 32, 0 );
+    }
+
+
+    /**
+     * Tests if an IPv6 address is in the set
+     *
+     * @param high
+     *            the high 64 bits
+     * @param low
+     *            the low 64 bits
+     * @return if it's in the set
+     */
+    public boolean containsIPv6( final long high, final long low ) {
+        return (CIDRSet.isMapped( high, low ) && containsIPv4( low & 0xFFFFFFFFL )) || v6.contains( high, low );
+    }
+
+
+    @Override
+    public String toString() {
+        return "CIDRSet [" + size + " ranges]";
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * @return the number of ranges added
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * @param high
+     *            the high 64 bits
+     * @param low
+     *            the low 64 bits
+     * @return if the address is an IPv4-mapped address
+     */
+    private static boolean isMapped( final long high, final long low ) {
+        return (high == 0) && ((low >>> 32) == 0xFFFF);
+    }
+
+
+    //~--- inner classes ------------------------------------------------------
+
+    /**
+     * A four bit stride prefix trie over left aligned addresses
+     */
+    private static final class Trie {
+
+        /** If the zero length prefix was added */
+        private boolean all;
+
+        /** Number of bits in an address */
+        private final int bits;
+
+        /** The nodes, sixteen slots each; the root is the first */
+        private int[] slots = new int[CIDRSet.FANOUT * 4];
+
+        /** Number of slots in use */
+        private int used = CIDRSet.FANOUT;
+
+
+        /**
+         * @param bits
+         *            number of bits in an address
+         */
+        Trie( final int bits ) {
+            this.bits = bits;
+        }
+
+
+        /**
+         * Add a range
+         *
+         * @param high
+         *            the high 64 bits of the left aligned address
+         * @param low
+         *            the low 64 bits of the left aligned address
+         * @param prefix
+         *            the prefix length
+         */
+        void add( final long high, final long low, final int prefix ) {
+            if (prefix == 0) {
+                all = true;
+
+                return;
+            }
+
+
+            final int full  = prefix / 4;
+            final int rest  = prefix % 4;
+            final int depth = (rest == 0)
+                              ? full - 1
+                              : full;
+            int       node  = 0;
+
+            for (int d = 0; d < depth; d++) {
+                final int slot = node + Trie.nibble( high, low, d );
+                int       next = slots[slot];
+
+                if (next == CIDRSet.COVERED) {
+                    return;
+                }
+                else if (next == 0) {
+                    next        = allocate();
+                    slots[slot] = next;
+                }
+
+
+                node = next;
+            }
+
+
+            // A partial nibble covers every slot that shares its leading bits
+            final int span  = 1 << ((4 - rest) & 3);
+            final int first = Trie.nibble( high, low, depth ) & ~(span - 1);
+
+            Arrays.fill( slots, node + first, node + first + span, CIDRSet.COVERED );
+        }
+
+
+        /**
+         * Tests if an address is in the trie
+         *
+         * @param high
+         *            the high 64 bits of the left aligned address
+         * @param low
+         *            the low 64 bits of the left aligned address
+         * @return if it's in the trie
+         */
+        boolean contains( final long high, final long low ) {
+            if (all) {
+                return true;
+            }
+
+
+            final int[] nodes = slots;
+            int         node  = 0;
+
+            for (int d = 0, depth = bits / 4; d < depth; d++) {
+                node = nodes[node + Trie.nibble( high, low, d )];
+
+                if (node == CIDRSet.COVERED) {
+                    return true;
+                }
+                else if (node == 0) {
+                    return false;
+                }
+            }
+
+
+            return false;
+        }
+
+
+        /**
+         * Make room for a new node
+         *
+         * @return the offset of the node
+         */
+        private int allocate() {
+            if (used + CIDRSet.FANOUT > slots.length) {
+                slots = Arrays.copyOf( slots, slots.length * 2 );
+            }
+
+
+            final int node = used;
+
+            used += CIDRSet.FANOUT;
+
+            return node;
+        }
+
+
+        /**
+         * Get four bits of an address
+         *
+         * @param high
+         *            the high 64 bits of the left aligned address
+         * @param low
+         *            the low 64 bits of the left aligned address
+         * @param depth
+         *            the depth in the trie
+         * @return the bits
+         */
+        private static int nibble( final long high, final long low, final int depth ) {
+            return (int) (((depth < 16)
+                           ? high >>> (60 - 4 * depth)
+                           : low >>> (60 - 4 * (depth - 16))) & 0xF);
+        }
+    }
+}
@@ -0,0 +1,463 @@
+/**
+ * IPAddress.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.net;
+
+/**
+ * Parses and formats IPv4 and IPv6 literals without {@link java.net.InetAddress}, so a value like
+ * <code>src</code> or <code>dst</code> is never sent to a resolver and nothing is allocated.
+ * <p>
+ * IPv4 addresses are held in the low 32 bits of a long. IPv6 addresses are held in two longs, the
+ * high 64 bits first, which the parse methods write into an array the caller supplies and reuses.
+ * {@link #parse(CharSequence, int, int, long[])} reads either kind and stores IPv4 addresses in
+ * their IPv4-mapped IPv6 form (<code>::ffff:a.b.c.d</code>) so both can be handled the same way.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class IPAddress {
+
+    /** Returned when text isn't an address */
+    public static final int INVALID = 0;
+
+    /** Returned for an IPv4 address */
+    public static final int IPV4 = 4;
+
+    /** The high 96 bits of an IPv4-mapped IPv6 address (kept in the low long) */
+    public static final long IPV4_MAPPED = 0xFFFF00000000L;
+
+    /** Returned for an IPv6 address */
+    public static final int IPV6 = 6;
+
+    /** The hex digits used when formatting */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * Null constructor for utility class
+     */
+    private IPAddress() {}
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Format an IPv4 address in dotted decimal
+     *
+     * @param address
+     *            the address in the low 32 bits
+     * @param sb
+     *            where to append the address
+     * @return the builder
+     */
+    public static StringBuilder formatIPv4( final long address, final StringBuilder sb ) {
+        return sb.append( (address >>> 24) & 0xFF ).append( '.' ).append( (address >>> 16) & 0xFF ).append( '.' )
+                 .append( (address >>> 8) & 0xFF ).append( '.' ).append( address & 0xFF );
+    }
+
+
+    /**
+     * Format an IPv6 address in the canonical text form of RFC 5952: lowercase, no leading zeros,
+     * the longest run of two or more zero groups shortened to <code>::</code> and IPv4-mapped
+     * addresses written as <code>::ffff:a.b.c.d</code>
+     *
+     * @param high
+     *            the high 64 bits
+     * @param low
+     *            the low 64 bits
+     * @param sb
+     *            where to append the address
+     * @return the builder
+     */
+    public static StringBuilder formatIPv6( final long high, final long low, final StringBuilder sb ) {
+        if ((high == 0) && ((low >>> 32) == 0xFFFF)) {
+            return IPAddress.formatIPv4( low, sb.append( "::ffff:" ) );
+        }
+
+
+        // Find the longest run of zero groups, the first one on a tie
+        int bestStart = -1;
+        int bestRun   = 1;
+        int run       = 0;
+
+        for (int g = 0; g < 8; g++) {
+            if (IPAddress.group( high, low, g ) == 0) {
+                run++;
+
+                if (run > bestRun) {
+                    bestRun   = run;
+                    bestStart = g - run + 1;
+                }
+            }
+            else {
+                run = 0;
+            }
+        }
+
+
+        for (int g = 0; g < 8; g++) {
+            if (g == bestStart) {
+                sb.append( "::" );
+                g += bestRun - 1;
+
+                continue;
+            }
+            else if ((g > 0) && (g != bestStart + bestRun)) {
+                sb.append( ':' );
+            }
+
+
+            final int group = IPAddress.group( high, low, g );
+            boolean   digit = false;
+
+            for (int shift = 12; shift >= 0; shift -= 4) {
+                final int nibble = (group >>> shift) & 0xF;
+
+                if (digit || (nibble != 0) || (shift == 0)) {
+                    sb.append( IPAddress.HEX[nibble] );
+                    digit = true;
+                }
+            }
+        }
+
+
+        return sb;
+    }
+
+
+    /**
+     * Parse an IPv4 or IPv6 address. IPv4 addresses are stored in their IPv4-mapped IPv6 form.
+     *
+     * @param text
+     *            the text
+     * @param from
+     *            the start of the address
+     * @param to
+     *            the end of the address (exclusive)
+     * @param address
+     *            gets the high and low 64 bits of the address
+     * @return {@link #IPV4}, {@link #IPV6} or {@link #INVALID}
+     */
+    public static int parse( final CharSequence text, final int from, final int to, final long[] address ) {
+        for (int i = from; i < to; i++) {
+            final char c = text.charAt( i );
+
+            if (c == '.') {
+                final long v4 = IPAddress.parseIPv4( text, from, to );
+
+                if (v4 < 0) {
+                    return IPAddress.INVALID;
+                }
+
+
+                address[0] = 0;
+                address[1] = IPAddress.IPV4_MAPPED | v4;
+
+                return IPAddress.IPV4;
+            }
+            else if (c == ':') {
+                return IPAddress.parseIPv6( text, from, to, address )
+                       ? IPAddress.IPV6
+                       : IPAddress.INVALID;
+            }
+        }
+
+
+        return IPAddress.INVALID;
+    }
+
+
+    /**
+     * Parse a dotted decimal IPv4 address
+     *
+     * @param text
+     *            the text
+     * @param from
+     *            the start of the address
+     * @param to
+     *            the end of the address (exclusive)
+     * @return the address in the low 32 bits or -1 if the text isn't an IPv4 address
+     */
+    public static long parseIPv4( final CharSequence text, final int from, final int to ) {
+        long address = 0;
+        int  octets  = 0;
+        int  i       = from;
+
+        while (octets < 4) {
+            final int start = i;
+            int       octet = 0;
+
+            while ((i < to) && (i - start < 3)) {
+                final char c = text.charAt( i );
+
+                if ((c < '0') || (c > '9')) {
+                    break;
+                }
+
+
+                octet = octet * 10 + (c - '0');
+                i++;
+            }
+
+
+            if ((i == start) || (octet > 255)) {
+                return -1;
+            }
+
+
+            address = (address << 8) | octet;
+
+            if (++octets < 4) {
+                if ((i >= to) || (text.charAt( i ) != '.')) {
+                    return -1;
+                }
+
+
+                i++;
+            }
+        }
+
+
+        return (i == to)
+               ? address
+               : -1;
+    }
+
+
+    /**
+     * Parse an IPv6 address, including the <code>::</code> shorthand and a trailing dotted IPv4
+     * part. Zone ids (<code>%eth0</code>) and brackets aren't accepted.
+     *
+     * @param text
+     *            the text
+     * @param from
+     *            the start of the address
+     * @param to
+     *            the end of the address (exclusive)
+     * @param address
+     *            gets the high and low 64 bits of the address
+     * @return false if the text isn't an IPv6 address
+     */
+    public static boolean parseIPv6( final CharSequence text, final int from, final int to, final long[] address ) {
+        if (to - from < 2) {
+            return false;
+        }
+
+
+        // The groups before and after the "::" are gathered separately
+        long    headHigh   = 0;
+        long    headLow    = 0;
+        int     headCount  = 0;
+        long    tailHigh   = 0;
+        long    tailLow    = 0;
+        int     tailCount  = 0;
+        boolean compressed = false;
+        int     i          = from;
+
+        if (text.charAt( i ) == ':') {
+            if (text.charAt( i + 1 ) != ':') {
+                return false;
+            }
+
+
+            compressed = true;
+            i          += 2;
+        }
+
+
+        while (i < to) {
+            final int start = i;
+            int       group = 0;
+
+            while ((i < to) && (i - start <= 4)) {
+                final int nibble = IPAddress.hex( text.charAt( i ) );
+
+                if (nibble < 0) {
+                    break;
+                }
+
+
+                group = (group << 4) | nibble;
+                i++;
+            }
+
+
+            final int groups;
+
+            if ((i < to) && (text.charAt( i ) == '.')) {
+                final long v4 = IPAddress.parseIPv4( text, start, to );
+
+                if (v4 < 0) {
+                    return false;
+                }
+
+
+                group  = (int) v4;
+                groups = 2;
+                i      = to;
+            }
+            else if ((i == start) || (i - start > 4)) {
+                return false;
+            }
+            else {
+                groups = 1;
+            }
+
+
+            if (headCount + tailCount + groups > 8) {
+                return false;
+            }
+            else if (compressed) {
+                tailHigh  = (tailHigh << (16 * groups)) | (tailLow >>> (64 - 16 * groups));
+                tailLow   = (tailLow << (16 * groups)) | (group & 0xFFFFFFFFL);
+                tailCount += groups;
+            }
+            else {
+                headHigh  = (headHigh << (16 * groups)) | (headLow >>> (64 - 16 * groups));
+                headLow   = (headLow << (16 * groups)) | (group & 0xFFFFFFFFL);
+                headCount += groups;
+            }
+
+
+            if (i == to) {
+                break;
+            }
+            else if (text.charAt( i ) != ':') {
+                return false;
+            }
+
+
+            i++;
+
+            if ((i < to) && (text.charAt( i ) == ':')) {
+                if (compressed) {
+                    return false;
+                }
+
+
+                compressed = true;
+                i++;
+            }
+            else if (i == to) {
+                return false;
+            }
+        }
+
+
+        if (compressed
+            ? headCount + tailCount > 7
+            : headCount != 8) {
+            return false;
+        }
+
+
+        // Move the head groups up to the top of the address
+        final int shift = 16 * (8 - headCount);
+
+        if (shift >= 128) {
+            headHigh = 0;
+            headLow  = 0;
+        }
+        else if (shift >= 64) {
+            headHigh = headLow << (shift - 64);
+            headLow  = 0;
+        }
+        else if (shift > 0) {
+            headHigh = (headHigh << shift) | (headLow >>> (64 - shift));
+            headLow  <<= shift;
+        }
+
+
+        address[0] = headHigh | tailHigh;
+        address[1] = headLow | tailLow;
+
+        return true;
+    }
+
+
+    /**
+     * Format an IPv4 address in dotted decimal
+     *
+     * @param address
+     *            the address in the low 32 bits
+     * @return the text
+     */
+    public static String toString( final long address ) {
+        return IPAddress.formatIPv4( address, new StringBuilder( 15 ) ).toString();
+    }
+
+
+    /**
+     * Format an IPv6 address in its canonical text form
+     *
+     * @param high
+     *            the high 64 bits
+     * @param low
+     *            the low 64 bits
+     * @return the text
+     * @see #formatIPv6(long, long, StringBuilder)
+     */
+    public static String toString( final long high, final long low ) {
+        return IPAddress.formatIPv6( high, low, new StringBuilder( 39 ) ).toString();
+    }
+
+
+    /**
+     * Get one of the eight 16 bit groups of an IPv6 address
+     *
+     * @param high
+     *            the high 64 bits
+     * @param low
+     *            the low 64 bits
+     * @param index
+     *            the index of the group
+     * @return the group
+     */
+    private static int group( final long high, final long low, final int index ) {
+        return (int) (((index < 4)
+                       ? high >>> (48 - 16 * index)
+                       : low >>> (48 - 16 * (index - 4))) & 0xFFFF);
+    }
+
+
+    /**
+     * @param c
+     *            a character
+     * @return the value of an ASCII hex digit or -1
+     */
+    private static int hex( final char c ) {
+        if ((c >= '0') && (c <= '9')) {
+            return c - '0';
+        }
+        else if ((c >= 'a') && (c <= 'f')) {
+            return c - 'a' + 10;
+        }
+        else if ((c >= 'A') && (c <= 'F')) {
+            return c - 'A' + 10;
+        }
+
+
+        return -1;
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Emitter.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.pipeline;
+
+/**
+ * Takes the items a {@link Stage} produces and hands them to the next stage in batches
+ *
+ * @param <T>
+ *            the type of item
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public interface Emitter<T> {
+
+    /**
+     * Pass an item on. This blocks when the next stage is too far behind.
+     *
+     * @param item
+     *            the item
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting for room
+     */
+    void emit( T item ) throws InterruptedException;
+}
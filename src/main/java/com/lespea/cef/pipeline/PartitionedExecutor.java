@@ -0,0 +1,445 @@
+/**
+ * PartitionedExecutor.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.pipeline;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.utils.CEFScanner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Runs CEF records through a {@link Stage} on a fixed set of lanes, each a single thread, so that
+ * records with the same key are handled in the order they were submitted while different keys
+ * are spread over every core.
+ * <p>
+ * The key is one or more fields, each a header field name (<code>vendor</code>,
+ * <code>product</code>, <code>version</code>, <code>id</code>, <code>name</code> or
+ * <code>severity</code>) or an extension key, and its hash picks the lane. As in a
+ * {@link Pipeline}, records are handed to a lane in batches through a bounded queue, so the
+ * handoff cost is paid per batch and a lane that falls behind blocks {@link #submit(CEF)}. A
+ * stage can keep per-key state without locking as long as it only touches the state of the keys
+ * on its own lane.
+ * <p>
+ * For example, to keep each source's records in order:
+ *
+ * <pre>
+ * PartitionedExecutor&lt;Alert&gt; executor = new PartitionedExecutor&lt;Alert&gt;( correlator, alerts, 0, 256, 8,
+ *                                                                     "src" ).start();
+ * </pre>
+ *
+ * Each lane has its own {@link StageStats}, and {@link #getSkew()} shows how unevenly the keys are
+ * spread; one very busy key can only ever use one lane. An exception from the stage is counted and
+ * the record dropped; after an {@link Error} the lane drops everything it's handed, counting it as
+ * failed, so the executor can still be closed.
+ *
+ * @param <O>
+ *            the type of item the stage emits
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class PartitionedExecutor<O> {
+
+    /** Marks the end of the records in a queue */
+    private static final List<CEF> END = Collections.unmodifiableList( new ArrayList<CEF>( 0 ) );
+
+    /**
+     * Logger object
+     */
+    private static final Logger LOG = LoggerFactory.getLogger( PartitionedExecutor.class );
+
+    //~--- fields -------------------------------------------------------------
+
+    /** Number of records in a full batch */
+    private final int batchSize;
+
+    /** If no more records can be submitted */
+    private boolean closed;
+
+    /** The header index of each key field or -1 for an extension key */
+    private final int[] headers;
+
+    /** The key fields */
+    private final String[] keys;
+
+    /** The lanes */
+    private final List<Lane> lanes;
+
+    /** Where the stage's items go */
+    private final Emitter<? super O> output;
+
+    /** The stage */
+    private final Stage<? super CEF, ? extends O> stage;
+
+    /** If the threads were started */
+    private volatile boolean started;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * @param stage
+     *            the stage run on every record
+     * @param output
+     *            where the stage's items go, called from every lane so it must be thread safe; null
+     *            to drop them
+     * @param lanes
+     *            number of lanes; zero for one per processor
+     * @param batchSize
+     *            number of records in a full batch
+     * @param queueBatches
+     *            number of batches each lane's queue holds
+     * @param keys
+     *            the fields that make up the key
+     */
+    public PartitionedExecutor( final Stage<? super CEF, ? extends O> stage, final Emitter<? super O> output,
+                                final int lanes, final int batchSize, final int queueBatches, final String... keys ) {
+        if ((batchSize <= 0) || (queueBatches <= 0) || (lanes < 0)) {
+            throw new IllegalArgumentException( "The batch size and queue length must be positive" );
+        }
+        else if (keys.length == 0) {
+            throw new IllegalArgumentException( "At least one key field is needed" );
+        }
+
+
+        this.stage     = stage;
+        this.output    = output;
+        this.batchSize = batchSize;
+        this.keys      = keys.clone();
+        this.headers   = new int[keys.length];
+
+        for (int i = 0; i < keys.length; i++) {
+            headers[i] = CEFScanner.headerIndex( keys[i] );
+        }
+
+
+        final int count = (lanes > 0)
+                          ? lanes
+                          : Runtime.getRuntime().availableProcessors();
+
+        this.lanes = new ArrayList<Lane>( count );
+
+        for (int i = 0; i < count; i++) {
+            this.lanes.add( new Lane( i, new ArrayBlockingQueue<List<CEF>>( queueBatches ) ) );
+        }
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Finish: push out the partial batches, let every lane work through what's queued and wait
+     * for the threads to stop. Nothing can be submitted afterwards.
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    public void close() throws InterruptedException {
+        if (!started) {
+            throw new IllegalStateException( "The executor was never started" );
+        }
+
+
+        synchronized (this) {
+            flush();
+            closed = true;
+
+            for (final Lane lane : lanes) {
+                lane.queue.put( PartitionedExecutor.END );
+            }
+        }
+
+
+        for (final Lane lane : lanes) {
+            lane.thread.join();
+        }
+    }
+
+
+    /**
+     * Hand every partial batch to its lane now rather than waiting for it to fill up
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting for room
+     */
+    public synchronized void flush() throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException( "The executor is closed" );
+        }
+
+
+        for (final Lane lane : lanes) {
+            lane.handOff();
+        }
+    }
+
+
+    /**
+     * Work out which lane a record goes to
+     *
+     * @param cef
+     *            the record
+     * @return the lane
+     */
+    public int laneOf( final CEF cef ) {
+        int hash = 1;
+
+        for (int i = 0; i < keys.length; i++) {
+            final String value = (headers[i] < 0)
+                                 ? cef.getExtension().get( keys[i] )
+                                 : cef.getHeaderField( headers[i] );
+
+            hash = 31 * hash + ((value == null)
+                                ? 0
+                                : value.hashCode());
+        }
+
+
+        // Mix the bits so keys that differ only in their high bits still spread out
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+
+        return (hash & Integer.MAX_VALUE) % lanes.size();
+    }
+
+
+    /**
+     * Start the lanes
+     *
+     * @return this executor
+     */
+    public synchronized PartitionedExecutor<O> start() {
+        if (started) {
+            throw new IllegalStateException( "The executor is already started" );
+        }
+
+
+        started = true;
+
+        for (final Lane lane : lanes) {
+            lane.start();
+        }
+
+
+        return this;
+    }
+
+
+    /**
+     * Submit a record to the lane of its key. This blocks when that lane is full.
+     *
+     * @param cef
+     *            the record
+     * @throws InterruptedException
+     *             if interrupted while waiting for room
+     */
+    public synchronized void submit( final CEF cef ) throws InterruptedException {
+        if (!started) {
+            throw new IllegalStateException( "The executor isn't started" );
+        }
+        else if (closed) {
+            throw new IllegalStateException( "The executor is closed" );
+        }
+
+
+        final Lane lane = lanes.get( laneOf( cef ) );
+
+        lane.pending.add( cef );
+
+        if (lane.pending.size() >= batchSize) {
+            lane.handOff();
+        }
+    }
+
+
+    @Override
+    public String toString() {
+        return "PartitionedExecutor [skew=" + getSkew() + ", lanes=" + getLaneStats() + "]";
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * @return the stats of every lane in order
+     */
+    public List<StageStats> getLaneStats() {
+        final List<StageStats> stats = new ArrayList<StageStats>( lanes.size() );
+
+        for (final Lane lane : lanes) {
+            stats.add( lane.stats );
+        }
+
+
+        return stats;
+    }
+
+
+    /**
+     * @return number of records the busiest lane has taken over the mean of every lane; 1 is a
+     *         perfect spread and the number of lanes means everything went to one lane
+     */
+    public double getSkew() {
+        long total = 0;
+        long most  = 0;
+
+        for (final Lane lane : lanes) {
+            final long items = lane.stats.getItemsIn();
+
+            total += items;
+            most  = Math.max( most, items );
+        }
+
+
+        return (total == 0)
+               ? 1
+               : most * (double) lanes.size() / total;
+    }
+
+
+    //~--- inner classes ------------------------------------------------------
+
+    /**
+     * A single threaded lane
+     */
+    private final class Lane extends StageLoop.CountingEmitter<O> {
+
+        /** The index of the lane */
+        private final int index;
+
+        /** The batch being filled by the submitter */
+        List<CEF> pending = new ArrayList<CEF>( batchSize );
+
+        /** The queue in front of the lane */
+        final BlockingQueue<List<CEF>> queue;
+
+        /** The lane's stats */
+        final StageStats stats;
+
+        /** The thread */
+        Thread thread;
+
+
+        /**
+         * @param index
+         *            the index of the lane
+         * @param queue
+         *            the queue in front of the lane
+         */
+        Lane( final int index, final BlockingQueue<List<CEF>> queue ) {
+            this.index = index;
+            this.queue = queue;
+            this.stats = new StageStats( "lane-" + index, 1, queue );
+        }
+
+
+        @Override
+        public void emit( final O item ) throws InterruptedException {
+            emitted++;
+
+            if (output != null) {
+                output.emit( item );
+            }
+        }
+
+
+        /**
+         * Hand the pending batch to the lane
+         *
+         * @throws InterruptedException
+         *             if interrupted while waiting for room
+         */
+        void handOff() throws InterruptedException {
+            if (!pending.isEmpty()) {
+                queue.put( pending );
+                pending = new ArrayList<CEF>( batchSize );
+            }
+        }
+
+
+        /**
+         * Take batches until the end marker shows up
+         *
+         * @throws InterruptedException
+         *             if interrupted while waiting
+         */
+        void run() throws InterruptedException {
+            boolean done = false;
+
+            try {
+                StageLoop.run( queue, PartitionedExecutor.END, stage, this, stats, PartitionedExecutor.LOG,
+                               "Lane " + index + " failed to process a record" );
+
+                done = true;
+            } catch (final InterruptedException e) {
+                done = true;
+
+                throw e;
+            } finally {
+
+                // An Error killed the stage: drop the rest so submit() doesn't block on a queue
+                // nobody takes from
+                if (!done) {
+                    PartitionedExecutor.LOG.error( "Lane " + index + " died; dropping its records until closed" );
+                    StageLoop.drain( queue, PartitionedExecutor.END, stats );
+                }
+            }
+        }
+
+
+        /**
+         * Start the thread
+         */
+        void start() {
+            stats.started();
+            thread = new Thread( new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Lane.this.run();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }, "cef-lane-" + index );
+            thread.setDaemon( true );
+            thread.start();
+        }
+    }
+}
@@ -0,0 +1,491 @@
+/**
+ * Pipeline.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.pipeline;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Runs items through a chain of {@link Stage}s, each on its own threads, with a bounded queue in
+ * front of every stage.
+ * <p>
+ * Items move between stages in batches so the cost of a queue handoff is paid once per batch
+ * rather than once per item. Every queue holds a fixed number of batches; when a stage falls
+ * behind, the stages in front of it block on its full queue, and in the end so does
+ * {@link #submit(Object)}, which pushes the back pressure all the way to the source. Each stage
+ * runs on as many threads as it's given (zero means one per processor), so the slow stages can be
+ * widened without touching the others. Items from a stage with more than one thread can come out
+ * in a different order.
+ * <p>
+ * For example:
+ *
+ * <pre>
+ * Pipeline&lt;String, CEF&gt; pipeline = Pipeline.&lt;String&gt;create( 256, 16 )
+ *                                        .stage( "parse", 0, parser )
+ *                                        .stage( "filter", 2, filter )
+ *                                        .stage( "send", 1, sender )
+ *                                        .start();
+ * </pre>
+ *
+ * An exception from a stage is counted in its {@link StageStats} and the item is dropped; the
+ * first one per stage is logged as a warning and the rest at debug. An {@link Error} kills the
+ * thread it's thrown on; once every thread of a stage is gone its items are counted as failed and
+ * dropped so the pipeline can still be closed.
+ *
+ * @param <I>
+ *            the type of item submitted to the pipeline
+ * @param <O>
+ *            the type of item the last stage emits
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class Pipeline<I, O> {
+
+    /** Marks the end of the items in a queue */
+    private static final List<Object> END = Collections.unmodifiableList( new ArrayList<Object>( 0 ) );
+
+    /**
+     * Logger object
+     */
+    private static final Logger LOG = LoggerFactory.getLogger( Pipeline.class );
+
+    //~--- fields -------------------------------------------------------------
+
+    /** Number of items in a full batch */
+    private final int batchSize;
+
+    /** The batch being filled by {@link #submit(Object)} */
+    private List<Object> pending;
+
+    /** Number of batches each queue holds */
+    private final int queueBatches;
+
+    /** The stages in order */
+    private final List<Runner> runners = new ArrayList<Runner>();
+
+    /** If the threads were started */
+    private volatile boolean started;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * @param batchSize
+     *            number of items in a full batch
+     * @param queueBatches
+     *            number of batches each queue holds
+     */
+    private Pipeline( final int batchSize, final int queueBatches ) {
+        if ((batchSize <= 0) || (queueBatches <= 0)) {
+            throw new IllegalArgumentException( "The batch size and queue length must be positive" );
+        }
+
+
+        this.batchSize    = batchSize;
+        this.queueBatches = queueBatches;
+        this.pending      = new ArrayList<Object>( batchSize );
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Finish the pipeline: push out the last partial batch, let every stage work through what's
+     * queued and wait for the threads to stop. Nothing can be submitted afterwards.
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    public void close() throws InterruptedException {
+        if (!started) {
+            throw new IllegalStateException( "The pipeline was never started" );
+        }
+
+
+        synchronized (this) {
+            flush();
+            pending = null;
+            runners.get( 0 ).queue.put( Pipeline.END );
+        }
+
+
+        for (final Runner runner : runners) {
+            for (final Thread worker : runner.workers) {
+                worker.join();
+            }
+        }
+    }
+
+
+    /**
+     * Create an empty pipeline
+     *
+     * @param <T>
+     *            the type of item submitted to the pipeline
+     * @param batchSize
+     *            number of items in a full batch
+     * @param queueBatches
+     *            number of batches the queue in front of each stage holds
+     * @return the pipeline
+     */
+    public static <T> Pipeline<T, T> create( final int batchSize, final int queueBatches ) {
+        return new Pipeline<T, T>( batchSize, queueBatches );
+    }
+
+
+    /**
+     * Hand the partly filled batch of submitted items to the first stage now rather than waiting
+     * for it to fill up, such as when the source goes idle
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting for room
+     */
+    public synchronized void flush() throws InterruptedException {
+        if (pending == null) {
+            throw new IllegalStateException( "The pipeline is closed" );
+        }
+        else if (!pending.isEmpty()) {
+            runners.get( 0 ).queue.put( pending );
+            pending = new ArrayList<Object>( batchSize );
+        }
+    }
+
+
+    /**
+     * Add a stage to the end of the pipeline
+     *
+     * @param <N>
+     *            the type of item the stage emits
+     * @param name
+     *            the name of the stage, used for its threads and stats
+     * @param threads
+     *            number of threads to run the stage on; zero for one per processor
+     * @param stage
+     *            the stage
+     * @return this pipeline, typed by what the new stage emits
+     */
+    @SuppressWarnings("unchecked")
+    public <N> Pipeline<I, N> stage( final String name, final int threads, final Stage<? super O, ? extends N> stage ) {
+        if (started) {
+            throw new IllegalStateException( "Stages can't be added once the pipeline is started" );
+        }
+
+
+        final int    count = (threads > 0)
+                             ? threads
+                             : Runtime.getRuntime().availableProcessors();
+        final Runner added = new Runner( name, count, (Stage<Object, Object>) stage,
+                                         new ArrayBlockingQueue<List<Object>>( queueBatches ) );
+
+        if (!runners.isEmpty()) {
+            runners.get( runners.size() - 1 ).next = added;
+        }
+
+
+        runners.add( added );
+
+        return (Pipeline<I, N>) this;
+    }
+
+
+    /**
+     * Start the threads of every stage
+     *
+     * @return this pipeline
+     */
+    public Pipeline<I, O> start() {
+        if (runners.isEmpty()) {
+            throw new IllegalStateException( "The pipeline has no stages" );
+        }
+        else if (started) {
+            throw new IllegalStateException( "The pipeline is already started" );
+        }
+
+
+        started = true;
+
+        for (final Runner runner : runners) {
+            runner.start();
+        }
+
+
+        return this;
+    }
+
+
+    /**
+     * Submit an item to the first stage. This blocks when the pipeline is full.
+     *
+     * @param item
+     *            the item
+     * @throws InterruptedException
+     *             if interrupted while waiting for room
+     */
+    public synchronized void submit( final I item ) throws InterruptedException {
+        if (pending == null) {
+            throw new IllegalStateException( "The pipeline is closed" );
+        }
+        else if (runners.isEmpty()) {
+            throw new IllegalStateException( "The pipeline has no stages" );
+        }
+
+
+        pending.add( item );
+
+        if (pending.size() >= batchSize) {
+            flush();
+        }
+    }
+
+
+    @Override
+    public String toString() {
+        return "Pipeline " + getStats();
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * @return the stats of every stage in order
+     */
+    public List<StageStats> getStats() {
+        final List<StageStats> stats = new ArrayList<StageStats>( runners.size() );
+
+        for (final Runner runner : runners) {
+            stats.add( runner.stats );
+        }
+
+
+        return stats;
+    }
+
+
+    //~--- inner classes ------------------------------------------------------
+
+    /**
+     * Collects what a worker emits into batches for the next stage
+     */
+    private final class BatchEmitter extends StageLoop.CountingEmitter<Object> {
+
+        /** The batch being filled */
+        private List<Object> batch = new ArrayList<Object>( batchSize );
+
+        /** The next stage or null if this is the last */
+        private final Runner next;
+
+        /** The stats of the stage doing the emitting */
+        private final StageStats stats;
+
+
+        /**
+         * @param next
+         *            the next stage or null
+         * @param stats
+         *            the stats of the stage doing the emitting
+         */
+        BatchEmitter( final Runner next, final StageStats stats ) {
+            this.next  = next;
+            this.stats = stats;
+        }
+
+
+        @Override
+        public void emit( final Object item ) throws InterruptedException {
+            emitted++;
+
+            if (next != null) {
+                batch.add( item );
+
+                if (batch.size() >= batchSize) {
+                    flush();
+                }
+            }
+        }
+
+
+        /**
+         * Hand the batch to the next stage
+         *
+         * @throws InterruptedException
+         *             if interrupted while waiting for room
+         */
+        @Override
+        void flush() throws InterruptedException {
+            if (batch.isEmpty()) {
+                return;
+            }
+
+
+            final long start = System.nanoTime();
+
+            next.queue.put( batch );
+            stats.blocked( System.nanoTime() - start );
+            batch = new ArrayList<Object>( batchSize );
+        }
+    }
+
+
+    /**
+     * A stage and the threads running it
+     */
+    private final class Runner {
+
+        /** Number of threads still running */
+        private final AtomicInteger live;
+
+        /** The name of the stage */
+        private final String name;
+
+        /** The next stage or null if this is the last */
+        Runner next;
+
+        /** The queue in front of the stage */
+        final BlockingQueue<List<Object>> queue;
+
+        /** The stage */
+        private final Stage<Object, Object> stage;
+
+        /** The stage's stats */
+        final StageStats stats;
+
+        /** The threads */
+        final Thread[] workers;
+
+
+        /**
+         * @param name
+         *            the name of the stage
+         * @param threads
+         *            number of threads
+         * @param stage
+         *            the stage
+         * @param queue
+         *            the queue in front of the stage
+         */
+        Runner( final String name, final int threads, final Stage<Object, Object> stage,
+                final BlockingQueue<List<Object>> queue ) {
+            this.name    = name;
+            this.stage   = stage;
+            this.queue   = queue;
+            this.live    = new AtomicInteger( threads );
+            this.stats   = new StageStats( name, threads, queue );
+            this.workers = new Thread[threads];
+        }
+
+
+        /**
+         * Take batches until the end marker shows up
+         *
+         * @throws InterruptedException
+         *             if interrupted while waiting
+         */
+        void run() throws InterruptedException {
+            boolean ended       = false;
+            boolean interrupted = false;
+
+            try {
+                StageLoop.run( queue, Pipeline.END, stage, new BatchEmitter( next, stats ), stats, Pipeline.LOG,
+                               "The " + name + " stage failed to process an item" );
+
+                // Leave the marker for the other threads of this stage
+                queue.put( Pipeline.END );
+
+                ended = true;
+            } catch (final InterruptedException e) {
+                interrupted = true;
+
+                throw e;
+            } finally {
+
+                // Every way out counts down, even an Error from the stage, so close() doesn't wait forever
+                if ((live.decrementAndGet() == 0) && !interrupted) {
+                    finish( ended );
+                }
+            }
+        }
+
+
+        /**
+         * Called by the last thread out to take away the marker and tell the next stage there's
+         * nothing more. If the threads died before the marker showed up, whatever is still
+         * submitted is dropped until it does so the stages in front don't block on a full queue
+         * nobody takes from.
+         *
+         * @param ended
+         *            true if the thread got here by reaching the end marker
+         * @throws InterruptedException
+         *             if interrupted while waiting
+         */
+        private void finish( final boolean ended ) throws InterruptedException {
+            if (!ended) {
+                Pipeline.LOG.error( "Every thread of the " + name + " stage died; dropping its items until closed" );
+                StageLoop.drain( queue, Pipeline.END, stats );
+            }
+
+
+            queue.clear();
+
+            if (next != null) {
+                next.queue.put( Pipeline.END );
+            }
+        }
+
+
+        /**
+         * Start the threads
+         */
+        void start() {
+            stats.started();
+
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = new Thread( new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            Runner.this.run();
+                        } catch (final InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                }, "cef-pipeline-" + name + "-" + i );
+                workers[i].setDaemon( true );
+                workers[i].start();
+            }
+        }
+    }
+}
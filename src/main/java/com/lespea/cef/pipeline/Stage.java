@@ -0,0 +1,52 @@
+/**
+ * Stage.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.pipeline;
+
+/**
+ * One step of a {@link Pipeline}, such as parsing, filtering or enriching. A stage can emit any
+ * number of items for each one it gets, so it can also drop or split them.
+ * <p>
+ * A stage that runs on more than one thread is called from all of them at once, so it must be
+ * thread safe; per thread state belongs in a {@link ThreadLocal}.
+ *
+ * @param <I>
+ *            the type of item the stage takes
+ * @param <O>
+ *            the type of item the stage emits
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public interface Stage<I, O> {
+
+    /**
+     * Process a single item
+     *
+     * @param item
+     *            the item
+     * @param out
+     *            where the results go
+     * @throws Exception
+     *             if the item can't be processed; it's counted as an error and dropped
+     */
+    void process( I item, Emitter<? super O> out ) throws Exception;
+}
@@ -0,0 +1,173 @@
+/**
+ * StageLoop.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+
+package com.lespea.cef.pipeline;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import org.slf4j.Logger;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * The loop shared by the threads of a {@link Pipeline} stage and the lanes of a
+ * {@link PartitionedExecutor}: batches are taken from a queue until the end marker shows up,
+ * every item is run through the stage and the stats are updated once per batch.
+ * <p>
+ * An exception from the stage is counted and the item dropped; the first one per stage is logged
+ * as a warning and the rest at debug. An {@link Error} ends the loop, after which
+ * {@link #drain(BlockingQueue, List, StageStats)} keeps the queue moving so nothing in front of
+ * it blocks forever.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+final class StageLoop {
+
+    /**
+     * Null constructor for utility class
+     */
+    private StageLoop() {}
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Take whatever is queued and drop it, counting every item as failed, until the end marker
+     * shows up. This is for a stage whose threads have died so the queue in front of it doesn't
+     * fill up with nobody taking from it.
+     *
+     * @param queue
+     *            the queue in front of the stage
+     * @param end
+     *            the end marker
+     * @param stats
+     *            the stage's stats
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    static void drain( final BlockingQueue<? extends List<?>> queue, final List<?> end, final StageStats stats )
+            throws InterruptedException {
+        List<?> batch;
+
+        while ((batch = queue.take()) != end) {
+            stats.processed( batch.size(), 0, batch.size(), 0 );
+        }
+    }
+
+
+    /**
+     * Take batches and run them through the stage until the end marker shows up. The marker is
+     * taken off the queue.
+     *
+     * @param <I>
+     *            the type of item taken
+     * @param <O>
+     *            the type of item emitted
+     * @param queue
+     *            the queue in front of the stage
+     * @param end
+     *            the end marker
+     * @param stage
+     *            the stage
+     * @param out
+     *            where the stage's items go
+     * @param stats
+     *            the stage's stats
+     * @param log
+     *            where failures are logged
+     * @param failure
+     *            the message a failure is logged with
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    static <I, O> void run( final BlockingQueue<? extends List<? extends I>> queue, final List<?> end,
+                            final Stage<? super I, ? extends O> stage, final CountingEmitter<O> out,
+                            final StageStats stats, final Logger log, final String failure )
+            throws InterruptedException {
+        while (true) {
+            final List<? extends I> batch = queue.take();
+
+            if (batch == end) {
+                return;
+            }
+
+
+            final long start  = System.nanoTime();
+            int        failed = 0;
+
+            out.emitted = 0;
+
+            for (final I item : batch) {
+                try {
+                    stage.process( item, out );
+                } catch (final InterruptedException e) {
+                    throw e;
+                } catch (final Exception e) {
+                    if ((failed++ == 0) && (stats.getErrors() == 0)) {
+                        log.warn( failure, e );
+                    }
+                    else {
+                        log.debug( failure, e );
+                    }
+                }
+            }
+
+
+            out.flush();
+            stats.processed( batch.size(), out.emitted, failed, System.nanoTime() - start );
+        }
+    }
+
+
+    //~--- inner classes ------------------------------------------------------
+
+    /**
+     * An emitter that counts what the stage emits for each batch
+     *
+     * @param <O>
+     *            the type of item emitted
+     */
+    abstract static class CountingEmitter<O> implements Emitter<O> {
+
+        /** Number of items emitted for the current batch */
+        long emitted;
+
+
+        /**
+         * Called once the batch is done, to hand on anything held back
+         *
+         * @throws InterruptedException
+         *             if interrupted while waiting for room
+         */
+        void flush() throws InterruptedException {}
+    }
+}
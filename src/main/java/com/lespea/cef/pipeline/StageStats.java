@@ -0,0 +1,251 @@
+/**
+ * StageStats.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.pipeline;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Live counters for one stage of a {@link Pipeline}.
+ * <p>
+ * The counters are updated once per batch rather than once per item. The time a stage spends
+ * processing is kept apart from the time it spends blocked waiting for the next stage, so the
+ * slowest stage is the one with the highest busy time per thread and the stages in front of it
+ * show up as blocked.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class StageStats {
+
+    /** Number of batches taken */
+    private final AtomicLong batches = new AtomicLong();
+
+    /** Nanoseconds spent waiting for room in the next stage's queue */
+    private final AtomicLong blockedNanos = new AtomicLong();
+
+    /** Nanoseconds spent processing */
+    private final AtomicLong busyNanos = new AtomicLong();
+
+    /** Number of items that failed */
+    private final AtomicLong errors = new AtomicLong();
+
+    /** The queue in front of the stage */
+    private final BlockingQueue<?> queue;
+
+    /** Number of items taken */
+    private final AtomicLong itemsIn = new AtomicLong();
+
+    /** Number of items emitted */
+    private final AtomicLong itemsOut = new AtomicLong();
+
+    /** The name of the stage */
+    private final String name;
+
+    /** When the stage was started or 0 */
+    private volatile long startNanos;
+
+    /** Number of threads running the stage */
+    private final int threads;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * @param name
+     *            the name of the stage
+     * @param threads
+     *            number of threads running the stage
+     * @param queue
+     *            the queue in front of the stage
+     */
+    StageStats( final String name, final int threads, final BlockingQueue<?> queue ) {
+        this.name    = name;
+        this.threads = threads;
+        this.queue   = queue;
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Record time spent waiting for the next stage
+     *
+     * @param nanos
+     *            the time
+     */
+    void blocked( final long nanos ) {
+        blockedNanos.addAndGet( nanos );
+    }
+
+
+    /**
+     * Record a processed batch
+     *
+     * @param items
+     *            number of items in the batch
+     * @param emitted
+     *            number of items emitted
+     * @param failed
+     *            number of items that failed
+     * @param nanos
+     *            time spent processing, including any time blocked
+     */
+    void processed( final int items, final long emitted, final int failed, final long nanos ) {
+        batches.incrementAndGet();
+        itemsIn.addAndGet( items );
+        itemsOut.addAndGet( emitted );
+        busyNanos.addAndGet( nanos );
+
+        if (failed > 0) {
+            errors.addAndGet( failed );
+        }
+    }
+
+
+    /**
+     * Mark the stage as started
+     */
+    void started() {
+        startNanos = System.nanoTime();
+    }
+
+
+    @Override
+    public String toString() {
+        return name + " [threads=" + threads + ", in=" + getItemsIn() + ", out=" + getItemsOut() + ", errors="
+               + getErrors() + ", queued=" + getQueuedBatches() + ", perSecond=" + Math.round( getThroughput() )
+               + ", meanNanos=" + Math.round( getMeanLatencyNanos() ) + "]";
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * @return number of batches taken
+     */
+    public long getBatches() {
+        return batches.get();
+    }
+
+
+    /**
+     * @return nanoseconds spent waiting for room in the next stage's queue, over all threads
+     */
+    public long getBlockedNanos() {
+        return blockedNanos.get();
+    }
+
+
+    /**
+     * @return nanoseconds spent processing items, not counting time blocked, over all threads
+     */
+    public long getBusyNanos() {
+        return busyNanos.get() - blockedNanos.get();
+    }
+
+
+    /**
+     * @return number of items that threw an exception
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+
+
+    /**
+     * @return number of items taken
+     */
+    public long getItemsIn() {
+        return itemsIn.get();
+    }
+
+
+    /**
+     * @return number of items emitted
+     */
+    public long getItemsOut() {
+        return itemsOut.get();
+    }
+
+
+    /**
+     * @return the mean time a thread spent on one item, in nanoseconds
+     */
+    public double getMeanLatencyNanos() {
+        final long items = getItemsIn();
+
+        return (items == 0)
+               ? 0
+               : (double) getBusyNanos() / items;
+    }
+
+
+    /**
+     * @return the name of the stage
+     */
+    public String getName() {
+        return name;
+    }
+
+
+    /**
+     * @return number of batches waiting in front of the stage
+     */
+    public int getQueuedBatches() {
+        return queue.size();
+    }
+
+
+    /**
+     * @return number of threads running the stage
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+
+    /**
+     * @return items taken per second since the stage started
+     */
+    public double getThroughput() {
+        final long start = startNanos;
+
+        if (start == 0) {
+            return 0;
+        }
+
+
+        final long elapsed = System.nanoTime() - start;
+
+        return (elapsed <= 0)
+               ? 0
+               : getItemsIn() * (double) TimeUnit.SECONDS.toNanos( 1 ) / elapsed;
+    }
+}
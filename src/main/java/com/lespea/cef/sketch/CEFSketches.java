@@ -0,0 +1,542 @@
+/**
+ * CEFSketches.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.sketch;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.utils.CEFScanner;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Approximate statistics over the fields of a CEF stream in fixed memory however many records go
+ * through: the most frequent values of a field with a {@link TopK}, the number of distinct values
+ * of a field with a {@link HyperLogLog}, the quantiles of a numeric field with a
+ * {@link QuantileDigest}, and the number of records of each severity.
+ * <p>
+ * The fields are set up first and can be header fields (<code>vendor</code>,
+ * <code>product</code>, <code>version</code>, <code>id</code>, <code>name</code> or
+ * <code>severity</code>) or extension keys:
+ *
+ * <pre>
+ * CEFSketches sketches = new CEFSketches().top( "id", 20 ).distinct( "src" ).quantiles( "in" );
+ * </pre>
+ *
+ * Every thread that adds records gets its own set of sketches, so the threads never wait on each
+ * other; the reads merge every thread's sketches into new ones. Each set has a lock of its own
+ * that only its thread and a read ever take, so a read sees a thread's sketches as of a record
+ * boundary.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class CEFSketches {
+
+    /** Number of severities */
+    private static final int SEVERITIES = 11;
+
+    //~--- fields -------------------------------------------------------------
+
+    /** The fields whose distinct values are counted */
+    private final List<Tracked<HyperLogLog>> distinct = new ArrayList<Tracked<HyperLogLog>>();
+
+    /** The fields whose quantiles are estimated */
+    private final List<Tracked<QuantileDigest>> quantiles = new ArrayList<Tracked<QuantileDigest>>();
+
+    /** The sketches of every thread that has added records */
+    private final List<Shard> shards = new CopyOnWriteArrayList<Shard>();
+
+    /** When the sketches were created */
+    private final long startNanos = System.nanoTime();
+
+    /** If records were added, after which the fields are fixed */
+    private volatile boolean started;
+
+    /** The fields whose most frequent values are tracked */
+    private final List<Tracked<TopK>> top = new ArrayList<Tracked<TopK>>();
+
+    /** The sketches of the current thread */
+    private final ThreadLocal<Shard> local = new ThreadLocal<Shard>() {
+        @Override
+        protected Shard initialValue() {
+            final Shard shard = new Shard();
+
+            shards.add( shard );
+
+            return shard;
+        }
+    };
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Add a record
+     *
+     * @param cef
+     *            the record
+     */
+    public void add( final CEF cef ) {
+        final Shard shard = local.get();
+
+        synchronized (shard) {
+            shard.severities[Math.min( Math.max( cef.getSeverity(), 0 ), CEFSketches.SEVERITIES - 1 )]++;
+
+            for (int i = 0; i < shard.tops.length; i++) {
+                final String value = top.get( i ).value( cef );
+
+                if (value != null) {
+                    shard.tops[i].add( value );
+                }
+            }
+
+
+            for (int i = 0; i < shard.distincts.length; i++) {
+                final String value = distinct.get( i ).value( cef );
+
+                if (value != null) {
+                    shard.distincts[i].add( value );
+                }
+            }
+
+
+            for (int i = 0; i < shard.digests.length; i++) {
+                final String value = quantiles.get( i ).value( cef );
+
+                if (value != null) {
+                    try {
+                        shard.digests[i].add( Double.parseDouble( value ) );
+                    } catch (final NumberFormatException e) {
+
+                        // Not a number so it's left out
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Count the distinct values of a field with the default precision
+     *
+     * @param field
+     *            the field
+     * @return this object
+     */
+    public CEFSketches distinct( final String field ) {
+        return distinct( field, HyperLogLog.DEFAULT_PRECISION );
+    }
+
+
+    /**
+     * Count the distinct values of a field
+     *
+     * @param field
+     *            the field
+     * @param precision
+     *            the precision of the {@link HyperLogLog}
+     * @return this object
+     */
+    public CEFSketches distinct( final String field, final int precision ) {
+        return track( distinct, new Tracked<HyperLogLog>( field, new HyperLogLog( precision ) ) );
+    }
+
+
+    /**
+     * Estimate the quantiles of a numeric field with the default compression; values that aren't
+     * numbers are left out
+     *
+     * @param field
+     *            the field
+     * @return this object
+     */
+    public CEFSketches quantiles( final String field ) {
+        return quantiles( field, QuantileDigest.DEFAULT_COMPRESSION );
+    }
+
+
+    /**
+     * Estimate the quantiles of a numeric field; values that aren't numbers are left out
+     *
+     * @param field
+     *            the field
+     * @param compression
+     *            the compression of the {@link QuantileDigest}
+     * @return this object
+     */
+    public CEFSketches quantiles( final String field, final int compression ) {
+        return track( quantiles, new Tracked<QuantileDigest>( field, new QuantileDigest( compression ) ) );
+    }
+
+
+    /**
+     * Track the most frequent values of a field, counted in a 2048 by 5 sketch
+     *
+     * @param field
+     *            the field
+     * @param k
+     *            number of values to track
+     * @return this object
+     */
+    public CEFSketches top( final String field, final int k ) {
+        return top( field, k, 2048, 5 );
+    }
+
+
+    /**
+     * Track the most frequent values of a field
+     *
+     * @param field
+     *            the field
+     * @param k
+     *            number of values to track
+     * @param width
+     *            number of counters in each row of the sketch
+     * @param depth
+     *            number of rows in the sketch
+     * @return this object
+     */
+    public CEFSketches top( final String field, final int k, final int width, final int depth ) {
+        return track( top, new Tracked<TopK>( field, new TopK( k, width, depth ) ) );
+    }
+
+
+    @Override
+    public String toString() {
+        return "CEFSketches [count=" + getCount() + ", top=" + top + ", distinct=" + distinct + ", quantiles="
+               + quantiles + ", threads=" + shards.size() + "]";
+    }
+
+
+    /**
+     * @param tracked
+     *            the fields of a kind
+     * @param field
+     *            the field
+     * @return the position of the field
+     */
+    private static int indexOf( final List<? extends Tracked<?>> tracked, final String field ) {
+        for (int i = 0; i < tracked.size(); i++) {
+            if (tracked.get( i ).field.equals( field )) {
+                return i;
+            }
+        }
+
+
+        throw new IllegalArgumentException( "The field " + field + " isn't tracked that way" );
+    }
+
+
+    /**
+     * Add a field to track
+     *
+     * @param <S>
+     *            the type of sketch
+     * @param kind
+     *            the fields of that kind
+     * @param tracked
+     *            the field
+     * @return this object
+     */
+    private synchronized <S> CEFSketches track( final List<Tracked<S>> kind, final Tracked<S> tracked ) {
+        if (started) {
+            throw new IllegalStateException( "Fields can't be added once records have been" );
+        }
+
+
+        for (final Tracked<S> existing : kind) {
+            if (existing.field.equals( tracked.field )) {
+                throw new IllegalArgumentException( "The field " + tracked.field + " is already tracked that way" );
+            }
+        }
+
+
+        kind.add( tracked );
+
+        return this;
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * @return number of records added
+     */
+    public long getCount() {
+        long count = 0;
+
+        for (final long severity : getSeverityCounts()) {
+            count += severity;
+        }
+
+
+        return count;
+    }
+
+
+    /**
+     * Get the merged quantile digest of a field
+     *
+     * @param field
+     *            the field
+     * @return the digest
+     */
+    public QuantileDigest getDigest( final String field ) {
+        final int            index  = CEFSketches.indexOf( quantiles, field );
+        final QuantileDigest merged = quantiles.get( index ).empty.copy();
+
+        for (final Shard shard : shards) {
+            synchronized (shard) {
+                merged.merge( shard.digests[index] );
+            }
+        }
+
+
+        return merged;
+    }
+
+
+    /**
+     * Estimate the number of distinct values of a field
+     *
+     * @param field
+     *            the field
+     * @return the estimate
+     */
+    public long getDistinct( final String field ) {
+        final int         index  = CEFSketches.indexOf( distinct, field );
+        final HyperLogLog merged = distinct.get( index ).empty.copy();
+
+        for (final Shard shard : shards) {
+            synchronized (shard) {
+                merged.merge( shard.distincts[index] );
+            }
+        }
+
+
+        return merged.estimate();
+    }
+
+
+    /**
+     * Estimate a quantile of a field
+     *
+     * @param field
+     *            the field
+     * @param q
+     *            the fraction of values at or under the one wanted, from 0 to 1
+     * @return the estimate or NaN if the field had no numbers
+     */
+    public double getQuantile( final String field, final double q ) {
+        return getDigest( field ).quantile( q );
+    }
+
+
+    /**
+     * @return number of records of each severity, indexed by severity
+     */
+    public long[] getSeverityCounts() {
+        final long[] counts = new long[CEFSketches.SEVERITIES];
+
+        for (final Shard shard : shards) {
+            synchronized (shard) {
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] += shard.severities[i];
+                }
+            }
+        }
+
+
+        return counts;
+    }
+
+
+    /**
+     * @return records of each severity per second since the sketches were created, indexed by
+     *         severity
+     */
+    public double[] getSeverityRates() {
+        final long[]   counts  = getSeverityCounts();
+        final double[] rates   = new double[counts.length];
+        final double   seconds = (double) (System.nanoTime() - startNanos) / TimeUnit.SECONDS.toNanos( 1 );
+
+        for (int i = 0; i < counts.length; i++) {
+            rates[i] = (seconds <= 0)
+                       ? 0
+                       : counts[i] / seconds;
+        }
+
+
+        return rates;
+    }
+
+
+    /**
+     * Get the most frequent values of a field
+     *
+     * @param field
+     *            the field
+     * @return the values, most frequent first
+     */
+    public List<TopK.Item> getTop( final String field ) {
+        return getTopK( field ).getTop();
+    }
+
+
+    /**
+     * Get the merged top-K of a field
+     *
+     * @param field
+     *            the field
+     * @return the top-K
+     */
+    public TopK getTopK( final String field ) {
+        final int  index  = CEFSketches.indexOf( top, field );
+        final TopK merged = top.get( index ).empty.copy();
+
+        for (final Shard shard : shards) {
+            synchronized (shard) {
+                merged.merge( shard.tops[index] );
+            }
+        }
+
+
+        return merged;
+    }
+
+
+    //~--- inner classes ------------------------------------------------------
+
+    /**
+     * The sketches of one thread
+     */
+    private final class Shard {
+
+        /** The distinct counts */
+        final HyperLogLog[] distincts;
+
+        /** The quantile digests */
+        final QuantileDigest[] digests;
+
+        /** Number of records of each severity */
+        final long[] severities = new long[CEFSketches.SEVERITIES];
+
+        /** The top values */
+        final TopK[] tops;
+
+
+        /**
+         * Create the sketches of every tracked field
+         */
+        Shard() {
+            synchronized (CEFSketches.this) {
+                started = true;
+            }
+
+
+            tops      = new TopK[top.size()];
+            distincts = new HyperLogLog[distinct.size()];
+            digests   = new QuantileDigest[quantiles.size()];
+
+            for (int i = 0; i < tops.length; i++) {
+                tops[i] = top.get( i ).empty.copy();
+            }
+
+
+            for (int i = 0; i < distincts.length; i++) {
+                distincts[i] = distinct.get( i ).empty.copy();
+            }
+
+
+            for (int i = 0; i < digests.length; i++) {
+                digests[i] = quantiles.get( i ).empty.copy();
+            }
+        }
+    }
+
+
+    /**
+     * A field and an empty sketch of the size it was set up with
+     *
+     * @param <S>
+     *            the type of sketch
+     */
+    private static final class Tracked<S> {
+
+        /** The empty sketch every thread's and every merge starts from */
+        final S empty;
+
+        /** The field */
+        final String field;
+
+        /** The header position of the field or -1 for an extension key */
+        private final int header;
+
+
+        /**
+         * @param field
+         *            the field
+         * @param empty
+         *            an empty sketch
+         */
+        Tracked( final String field, final S empty ) {
+            if (field == null) {
+                throw new IllegalArgumentException( "The field cannot be null" );
+            }
+
+
+            this.field  = field;
+            this.empty  = empty;
+            this.header = CEFScanner.headerIndex( field );
+        }
+
+
+        @Override
+        public String toString() {
+            return field;
+        }
+
+
+        /**
+         * @param cef
+         *            a record
+         * @return the value of the field in the record or null if it doesn't have it
+         */
+        String value( final CEF cef ) {
+            return (header < 0)
+                   ? cef.getExtension().get( field )
+                   : cef.getHeaderField( header );
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ * CountMinSketch.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.sketch;
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Estimates how many times each value was added in a fixed amount of memory.
+ * <p>
+ * Every value bumps one counter in each of <code>depth</code> rows of <code>width</code>
+ * counters, and its estimate is the smallest of those counters. An estimate is never below the
+ * real count, and with a width of <i>w</i> and a depth of <i>d</i> it's over by more than
+ * <i>e/w</i> of the total count with a probability of at most <i>e<sup>-d</sup></i>; 2048 by 5
+ * keeps the error under 0.14% of the total 99% of the time in 80KB.
+ * <p>
+ * Sketches of the same size can be merged by adding their counters, so each thread or host can
+ * keep its own. A sketch isn't thread safe.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class CountMinSketch {
+
+    /** The counters, row after row */
+    private final long[] counters;
+
+    /** Number of rows */
+    private final int depth;
+
+    /** The total of every count added */
+    private long total;
+
+    /** Number of counters in a row */
+    private final int width;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * @param width
+     *            number of counters in a row
+     * @param depth
+     *            number of rows
+     */
+    public CountMinSketch( final int width, final int depth ) {
+        if ((width <= 0) || (depth <= 0)) {
+            throw new IllegalArgumentException( "The width and depth must be positive" );
+        }
+
+
+        this.width    = width;
+        this.depth    = depth;
+        this.counters = new long[width * depth];
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Add to the count of a value
+     *
+     * @param value
+     *            the value
+     * @param count
+     *            how much to add
+     * @return the new estimate of the value's count
+     */
+    public long add( final CharSequence value, final long count ) {
+        final long hash     = Hashing.hash( value );
+        final int  first    = (int) hash;
+        final int  second   = (int) (hash >>> 32);
+        long       estimate = Long.MAX_VALUE;
+
+        for (int row = 0; row < depth; row++) {
+            final int index = index( row, first, second );
+
+            counters[index] += count;
+            estimate        = Math.min( estimate, counters[index] );
+        }
+
+
+        total += count;
+
+        return estimate;
+    }
+
+
+    /**
+     * @return a copy of this sketch
+     */
+    public CountMinSketch copy() {
+        final CountMinSketch copy = new CountMinSketch( width, depth );
+
+        System.arraycopy( counters, 0, copy.counters, 0, counters.length );
+        copy.total = total;
+
+        return copy;
+    }
+
+
+    /**
+     * Estimate how many times a value was added
+     *
+     * @param value
+     *            the value
+     * @return the estimate, never less than the real count
+     */
+    public long estimate( final CharSequence value ) {
+        final long hash     = Hashing.hash( value );
+        final int  first    = (int) hash;
+        final int  second   = (int) (hash >>> 32);
+        long       estimate = Long.MAX_VALUE;
+
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min( estimate, counters[index( row, first, second )] );
+        }
+
+
+        return estimate;
+    }
+
+
+    /**
+     * Add the counts of another sketch to this one
+     *
+     * @param other
+     *            a sketch of the same width and depth
+     */
+    public void merge( final CountMinSketch other ) {
+        if ((other.width != width) || (other.depth != depth)) {
+            throw new IllegalArgumentException( "Only sketches of the same size can be merged" );
+        }
+
+
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] += other.counters[i];
+        }
+
+
+        total += other.total;
+    }
+
+
+    @Override
+    public String toString() {
+        return "CountMinSketch [width=" + width + ", depth=" + depth + ", total=" + total + "]";
+    }
+
+
+    /**
+     * Find a value's counter in a row. The rows use the hashes <code>first + row * second</code>,
+     * which are as good as independent ones for this.
+     *
+     * @param row
+     *            the row
+     * @param first
+     *            the low half of the value's hash
+     * @param second
+     *            the high half of the value's hash
+     * @return the index of the counter
+     */
+    private int index( final int row, final int first, final int second ) {
+        return row * width + ((first + row * second) & Integer.MAX_VALUE) % width;
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * @return number of rows
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+
+    /**
+     * @return the total of every count added
+     */
+    public long getTotal() {
+        return total;
+    }
+
+
+    /**
+     * @return number of counters in a row
+     */
+    public int getWidth() {
+        return width;
+    }
+}
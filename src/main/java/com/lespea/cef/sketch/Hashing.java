@@ -0,0 +1,81 @@
+/**
+ * Hashing.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.sketch;
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * The 64 bit hash the sketches share, so a value lands in the same place whichever thread or
+ * process added it and sketches built apart can be merged.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+final class Hashing {
+
+    /** FNV-1a offset basis */
+    private static final long OFFSET = 0xCBF29CE484222325L;
+
+    /** FNV-1a prime */
+    private static final long PRIME = 0x100000001B3L;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * Only static methods
+     */
+    private Hashing() {}
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Hash some text: FNV-1a over the characters followed by the MurmurHash3 finalizer, which
+     * spreads every input bit over the whole result so the high and low halves can be used as
+     * two independent hashes
+     *
+     * @param value
+     *            the text
+     * @return the hash
+     */
+    static long hash( final CharSequence value ) {
+        long      hash   = Hashing.OFFSET;
+        final int length = value.length();
+
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ value.charAt( i )) * Hashing.PRIME;
+        }
+
+
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+}
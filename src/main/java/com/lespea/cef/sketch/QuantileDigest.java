@@ -0,0 +1,384 @@
+/**
+ * QuantileDigest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.sketch;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.Arrays;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Estimates the quantiles of a stream of numbers, such as the byte counts of an extension field,
+ * in a small amount of memory; a merging t-digest.
+ * <p>
+ * Values are summed up as centroids, a mean and a weight each, kept in order of their means. A
+ * centroid near the middle can hold many values but those near either end only a few, so the
+ * tails, where the interesting quantiles are, stay accurate: a centroid whose values cover the
+ * quantiles from <i>q</i> on can hold at most <i>4 n q (1 - q) / &delta;</i> of the <i>n</i>
+ * values, where <i>&delta;</i> is the compression. That keeps the digest to a few times
+ * <i>&delta;</i> centroids however many values go in. New values go into a buffer which is
+ * sorted and merged into the centroids when it fills up, so adding a value is usually just
+ * storing it.
+ * <p>
+ * Digests are merged by merging their centroids the same way, so the result doesn't depend on how
+ * the values were split up beyond the usual error. A digest isn't thread safe.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class QuantileDigest {
+
+    /** The compression used when none is given */
+    public static final int DEFAULT_COMPRESSION = 100;
+
+    //~--- fields -------------------------------------------------------------
+
+    /** Values not yet merged */
+    private final double[] buffer;
+
+    /** Number of values in the buffer */
+    private int buffered;
+
+    /** Number of centroids */
+    private int centroids;
+
+    /** The compression */
+    private final double compression;
+
+    /** The largest value */
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /** The means of the centroids in order */
+    private double[] means = new double[0];
+
+    /** The smallest value */
+    private double min = Double.POSITIVE_INFINITY;
+
+    /** The total weight of the centroids */
+    private double total;
+
+    /** The weights of the centroids */
+    private double[] weights = new double[0];
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * Create a digest with the default compression
+     */
+    public QuantileDigest() {
+        this( QuantileDigest.DEFAULT_COMPRESSION );
+    }
+
+
+    /**
+     * @param compression
+     *            how much the values are summed up; higher keeps more centroids and is more
+     *            accurate
+     */
+    public QuantileDigest( final double compression ) {
+        if (compression < 10) {
+            throw new IllegalArgumentException( "The compression must be at least 10" );
+        }
+
+
+        this.compression = compression;
+        this.buffer      = new double[(int) (compression * 5)];
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Add a value
+     *
+     * @param value
+     *            the value
+     */
+    public void add( final double value ) {
+        if (Double.isNaN( value )) {
+            throw new IllegalArgumentException( "A value can't be NaN" );
+        }
+
+
+        if (buffered == buffer.length) {
+            flush();
+        }
+
+
+        buffer[buffered++] = value;
+        min                = Math.min( min, value );
+        max                = Math.max( max, value );
+    }
+
+
+    /**
+     * @return a copy of this digest
+     */
+    public QuantileDigest copy() {
+        final QuantileDigest copy = new QuantileDigest( compression );
+
+        copy.merge( this );
+
+        return copy;
+    }
+
+
+    /**
+     * Merge another digest into this one
+     *
+     * @param other
+     *            the digest
+     */
+    public void merge( final QuantileDigest other ) {
+        flush();
+
+        final double[] otherValues = Arrays.copyOf( other.buffer, other.buffered );
+
+        Arrays.sort( otherValues );
+
+        // Merge the other's centroids with its sorted buffer, then that with this digest
+        final double[] ones = new double[otherValues.length];
+
+        Arrays.fill( ones, 1 );
+
+        final double[][] theirs = QuantileDigest.mergeSorted( other.means, other.weights, other.centroids, otherValues,
+                                                              ones, otherValues.length );
+
+        compress( theirs[0], theirs[1], other.centroids + otherValues.length );
+        min = Math.min( min, other.min );
+        max = Math.max( max, other.max );
+    }
+
+
+    /**
+     * Estimate the value a fraction of the values are at or under
+     *
+     * @param q
+     *            the fraction, from 0 to 1
+     * @return the estimate or NaN if there are no values
+     */
+    public double quantile( final double q ) {
+        if ((q < 0) || (q > 1)) {
+            throw new IllegalArgumentException( "The fraction must be from 0 to 1" );
+        }
+
+
+        flush();
+
+        if (centroids == 0) {
+            return Double.NaN;
+        }
+        else if (centroids == 1) {
+            return means[0];
+        }
+
+
+        final double index = q * total;
+
+        // Before the middle of the first centroid the values run from the smallest one up to it
+        if (index < weights[0] / 2) {
+            return min + (means[0] - min) * index / (weights[0] / 2);
+        }
+
+
+        double soFar = weights[0] / 2;
+
+        for (int i = 0; i < centroids - 1; i++) {
+            final double gap = (weights[i] + weights[i + 1]) / 2;
+
+            if (soFar + gap > index) {
+                return means[i] + (means[i + 1] - means[i]) * (index - soFar) / gap;
+            }
+
+
+            soFar += gap;
+        }
+
+
+        final double last = weights[centroids - 1] / 2;
+
+        return Math.min( max, means[centroids - 1] + (max - means[centroids - 1]) * (index - soFar) / last );
+    }
+
+
+    @Override
+    public String toString() {
+        return "QuantileDigest [count=" + getCount() + ", centroids=" + centroids + ", p50=" + quantile( 0.5 )
+               + ", p99=" + quantile( 0.99 ) + "]";
+    }
+
+
+    /**
+     * Merge sorted centroids into this digest's and sum them back up
+     *
+     * @param addMeans
+     *            the means of the centroids to add, in order
+     * @param addWeights
+     *            their weights
+     * @param count
+     *            number of centroids to add
+     */
+    private void compress( final double[] addMeans, final double[] addWeights, final int count ) {
+        if (count == 0) {
+            return;
+        }
+
+
+        final double[][] merged = QuantileDigest.mergeSorted( means, weights, centroids, addMeans, addWeights, count );
+        final double[]   mMeans = merged[0];
+        final double[]   mWts   = merged[1];
+        final int        length = centroids + count;
+        double           all    = 0;
+
+        for (int i = 0; i < length; i++) {
+            all += mWts[i];
+        }
+
+
+        // Sum neighbours up in place while the result stays under the size limit at both its ends
+        int    out   = 0;
+        double soFar = 0;
+
+        for (int i = 1; i < length; i++) {
+            final double proposed = mWts[out] + mWts[i];
+            final double q0       = soFar / all;
+            final double q2       = (soFar + proposed) / all;
+            final double limit    = all * Math.min( q0 * (1 - q0), q2 * (1 - q2) ) * 4 / compression;
+
+            if (proposed <= Math.max( limit, 1 )) {
+                mMeans[out] += (mMeans[i] - mMeans[out]) * mWts[i] / proposed;
+                mWts[out]   = proposed;
+            }
+            else {
+                soFar        += mWts[out];
+                out++;
+                mMeans[out]  = mMeans[i];
+                mWts[out]    = mWts[i];
+            }
+        }
+
+
+        centroids = out + 1;
+        means     = Arrays.copyOf( mMeans, centroids );
+        weights   = Arrays.copyOf( mWts, centroids );
+        total     = all;
+    }
+
+
+    /**
+     * Merge the buffer into the centroids
+     */
+    private void flush() {
+        if (buffered == 0) {
+            return;
+        }
+
+
+        final double[] values = Arrays.copyOf( buffer, buffered );
+        final double[] ones   = new double[buffered];
+
+        Arrays.sort( values );
+        Arrays.fill( ones, 1 );
+        buffered = 0;
+        compress( values, ones, values.length );
+    }
+
+
+    /**
+     * Merge two sets of sorted centroids
+     *
+     * @param means1
+     *            the means of the first set
+     * @param weights1
+     *            the weights of the first set
+     * @param count1
+     *            the size of the first set
+     * @param means2
+     *            the means of the second set
+     * @param weights2
+     *            the weights of the second set
+     * @param count2
+     *            the size of the second set
+     * @return the merged means and weights
+     */
+    private static double[][] mergeSorted( final double[] means1, final double[] weights1, final int count1,
+                                           final double[] means2, final double[] weights2, final int count2 ) {
+        final double[] means   = new double[count1 + count2];
+        final double[] weights = new double[count1 + count2];
+        int            i       = 0;
+        int            j       = 0;
+
+        for (int out = 0; out < means.length; out++) {
+            if ((j >= count2) || ((i < count1) && (means1[i] <= means2[j]))) {
+                means[out]   = means1[i];
+                weights[out] = weights1[i++];
+            }
+            else {
+                means[out]   = means2[j];
+                weights[out] = weights2[j++];
+            }
+        }
+
+
+        return new double[][] { means, weights };
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * @return the compression
+     */
+    public double getCompression() {
+        return compression;
+    }
+
+
+    /**
+     * @return number of values added
+     */
+    public long getCount() {
+        return Math.round( total ) + buffered;
+    }
+
+
+    /**
+     * @return the largest value or negative infinity if there are none
+     */
+    public double getMax() {
+        return max;
+    }
+
+
+    /**
+     * @return the smallest value or positive infinity if there are none
+     */
+    public double getMin() {
+        return min;
+    }
+}
@@ -0,0 +1,394 @@
+/**
+ * TopK.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.sketch;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Keeps track of the most frequent values, such as the top signature ids, without a counter per
+ * value.
+ * <p>
+ * The counts come from a {@link CountMinSketch}, and a min-heap holds the <code>k</code> values
+ * with the highest estimates seen so far. A value that's already in the heap just has its count
+ * updated in place; the heap is only put back in order lazily, when its smallest entry is about to
+ * be replaced, so the values that are hit most often cost a hash lookup on top of the sketch.
+ * <p>
+ * Merging adds the sketches together and keeps the top <code>k</code> of both sets of values by
+ * their merged estimates. A top-K isn't thread safe.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class TopK {
+
+    /** Orders the heap by the count an entry had when it went in */
+    private static final Comparator<Entry> HEAP_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare( final Entry o1, final Entry o2 ) {
+            return (o1.heapCount < o2.heapCount)
+                   ? -1
+                   : ((o1.heapCount == o2.heapCount)
+                      ? 0
+                      : 1);
+        }
+    };
+
+    //~--- fields -------------------------------------------------------------
+
+    /** The values being tracked */
+    private final Map<String, Entry> entries;
+
+    /** The tracked values, smallest count at the top */
+    private final PriorityQueue<Entry> heap;
+
+    /** Number of values tracked */
+    private final int k;
+
+    /** The counts */
+    private final CountMinSketch sketch;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * @param k
+     *            number of values to track
+     * @param width
+     *            number of counters in each row of the sketch
+     * @param depth
+     *            number of rows in the sketch
+     */
+    public TopK( final int k, final int width, final int depth ) {
+        this( k, new CountMinSketch( width, depth ) );
+    }
+
+
+    /**
+     * @param k
+     *            number of values to track
+     * @param sketch
+     *            the counts
+     */
+    private TopK( final int k, final CountMinSketch sketch ) {
+        if (k <= 0) {
+            throw new IllegalArgumentException( "The number of values must be positive" );
+        }
+
+
+        this.k       = k;
+        this.sketch  = sketch;
+        this.entries = new HashMap<String, Entry>( k * 2 );
+        this.heap    = new PriorityQueue<Entry>( k, TopK.HEAP_ORDER );
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Count a value once
+     *
+     * @param value
+     *            the value
+     */
+    public void add( final String value ) {
+        add( value, 1 );
+    }
+
+
+    /**
+     * Count a value
+     *
+     * @param value
+     *            the value
+     * @param count
+     *            how many times to count it
+     */
+    public void add( final String value, final long count ) {
+        offer( value, sketch.add( value, count ) );
+    }
+
+
+    /**
+     * @return a copy of this top-K
+     */
+    public TopK copy() {
+        final TopK copy = new TopK( k, sketch.copy() );
+
+        for (final Entry entry : entries.values()) {
+            copy.offer( entry.value, entry.count );
+        }
+
+
+        return copy;
+    }
+
+
+    /**
+     * Add the counts of another top-K to this one
+     *
+     * @param other
+     *            a top-K with a sketch of the same size
+     */
+    public void merge( final TopK other ) {
+        sketch.merge( other.sketch );
+
+        final Set<String> values = new HashSet<String>( entries.keySet() );
+
+        values.addAll( other.entries.keySet() );
+        entries.clear();
+        heap.clear();
+
+        for (final String value : values) {
+            offer( value, sketch.estimate( value ) );
+        }
+    }
+
+
+    @Override
+    public String toString() {
+        return "TopK " + getTop();
+    }
+
+
+    /**
+     * Track a value if its estimate is high enough
+     *
+     * @param value
+     *            the value
+     * @param estimate
+     *            its estimated count
+     */
+    private void offer( final String value, final long estimate ) {
+        final Entry tracked = entries.get( value );
+
+        if (tracked != null) {
+            tracked.count = estimate;
+
+            return;
+        }
+        else if (entries.size() >= k) {
+            final Entry smallest = smallest();
+
+            if (estimate <= smallest.count) {
+                return;
+            }
+
+
+            heap.poll();
+            entries.remove( smallest.value );
+        }
+
+
+        final Entry entry = new Entry( value, estimate );
+
+        entries.put( value, entry );
+        heap.add( entry );
+    }
+
+
+    /**
+     * Put the top of the heap in order and return it
+     *
+     * @return the entry with the smallest count
+     */
+    private Entry smallest() {
+        while (true) {
+            final Entry top = heap.peek();
+
+            if (top.heapCount == top.count) {
+                return top;
+            }
+
+
+            // Its count went up since it went in, so sink it to where it belongs now
+            heap.poll();
+            top.heapCount = top.count;
+            heap.add( top );
+        }
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * @return number of values tracked
+     */
+    public int getK() {
+        return k;
+    }
+
+
+    /**
+     * @return the tracked values, most frequent first
+     */
+    public List<Item> getTop() {
+        final List<Item> top = new ArrayList<Item>( entries.size() );
+
+        for (final Entry entry : entries.values()) {
+            top.add( new Item( entry.value, entry.count ) );
+        }
+
+
+        Collections.sort( top );
+
+        return top;
+    }
+
+
+    /**
+     * @return the total of every count added
+     */
+    public long getTotal() {
+        return sketch.getTotal();
+    }
+
+
+    //~--- inner classes ------------------------------------------------------
+
+    /**
+     * A tracked value
+     */
+    private static final class Entry {
+
+        /** The estimated count */
+        long count;
+
+        /** The count when the entry was last put in the heap */
+        long heapCount;
+
+        /** The value */
+        final String value;
+
+
+        /**
+         * @param value
+         *            the value
+         * @param count
+         *            the estimated count
+         */
+        Entry( final String value, final long count ) {
+            this.value     = value;
+            this.count     = count;
+            this.heapCount = count;
+        }
+    }
+
+
+    /**
+     * One of the most frequent values and its estimated count
+     */
+    public static final class Item implements Comparable<Item> {
+
+        /** The estimated count */
+        private final long count;
+
+        /** The value */
+        private final String value;
+
+
+        /**
+         * @param value
+         *            the value
+         * @param count
+         *            the estimated count
+         */
+        Item( final String value, final long count ) {
+            this.value = value;
+            this.count = count;
+        }
+
+
+        /**
+         * Most frequent first, then by value
+         *
+         * @param o
+         *            the other item
+         * @return the order
+         */
+        @Override
+        public int compareTo( final Item o ) {
+            if (count != o.count) {
+                return (count > o.count)
+                       ? -1
+                       : 1;
+            }
+
+
+            return value.compareTo( o.value );
+        }
+
+
+        @Override
+        public boolean equals( final Object obj ) {
+            if (!(obj instanceof Item)) {
+                return false;
+            }
+
+
+            return (count == ((Item) obj).count) && value.equals( ((Item) obj).value );
+        }
+
+
+        @Override
+        public int hashCode() {
+            return 31 * value.hashCode() + (int) (count ^ (count >>> 32));
+        }
+
+
+        @Override
+        public String toString() {
+            return value + "=" + count;
+        }
+
+
+        /**
+         * @return the estimated count, never less than the real one
+         */
+        public long getCount() {
+            return count;
+        }
+
+
+        /**
+         * @return the value
+         */
+        public String getValue() {
+            return value;
+        }
+    }
+}
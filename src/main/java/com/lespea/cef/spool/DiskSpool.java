@@ -0,0 +1,622 @@
+/**
+ * DiskSpool.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.spool;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.utils.Utf8;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Persistent first-in first-out spool of CEF events built on memory mapped segment files.
+ * <p>
+ * Every record is stored as <code>[int length][int crc32][UTF-8 bytes]</code>. Writes go straight
+ * into the mapped segment and are forced to disk in groups: either once
+ * <code>syncBatchSize</code> records have been appended or every <code>syncIntervalMillis</code>
+ * by a background thread, whichever comes first. When a segment fills up it is forced and a new
+ * one is started.
+ * <p>
+ * Records are handed out with {@link #poll()} and are only considered delivered once
+ * {@link #acknowledge()} durably records the read cursor, at which point any fully consumed
+ * segments are deleted. If the sender fails it can {@link #rewind()} to the last acknowledged
+ * record, and after a crash the spool resumes from there as well, which gives at-least-once
+ * delivery. On open the newest segment is scanned and the first record with a bad length or
+ * checksum marks the end of the valid data.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class DiskSpool implements Closeable {
+
+    /**
+     * Name of the file holding the acknowledged read cursor
+     */
+    private static final String CURSOR_FILE = "cursor";
+
+    /**
+     * Default number of records appended between forced syncs
+     */
+    public static final int DEFAULT_SYNC_BATCH_SIZE = 4096;
+
+    /**
+     * Default maximum time between forced syncs
+     */
+    public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 100;
+
+    /**
+     * Default size of every segment file
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Number of bytes in front of every record
+     */
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * Logger object
+     */
+    private static final Logger LOG = LoggerFactory.getLogger( DiskSpool.class );
+
+    /**
+     * Prefix of every segment file
+     */
+    private static final String SEGMENT_PREFIX = "spool-";
+
+    /**
+     * Suffix of every segment file
+     */
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    //~--- fields -------------------------------------------------------------
+
+    /** Position in the acknowledged segment */
+    private int ackPos;
+
+    /** Segment holding the acknowledged cursor */
+    private long ackSeq;
+
+    /** Checksum calculator */
+    private final CRC32 crc = new CRC32();
+
+    /** The file that stores the acknowledged cursor */
+    private final RandomAccessFile cursorFile;
+
+    /** Directory holding the spool */
+    private final File dir;
+
+    /** The oldest segment that still exists */
+    private long firstSeq;
+
+    /** Background thread forcing the group commits or null if disabled */
+    private final ScheduledExecutorService flusher;
+
+    /** Buffer of the segment being read */
+    private ByteBuffer readBuf;
+
+    /** Position of the next record to read */
+    private int readPos;
+
+    /** Segment being read */
+    private long readSeq;
+
+    /** Scratch space used to encode records and compute their checksum */
+    private ByteBuffer scratch = ByteBuffer.allocate( 1024 );
+
+    /** The size of every segment */
+    private final int segmentSize;
+
+    /** Number of records appended before a sync is forced */
+    private final int syncBatchSize;
+
+    /** Number of records appended since the last sync */
+    private int unsynced;
+
+    /** The mapped segment being written to; its position is the write position */
+    private MappedByteBuffer writeBuf;
+
+    /** Segment being written */
+    private long writeSeq;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * Open (or create) a spool using the default settings
+     *
+     * @param dir
+     *            the directory holding the spool
+     * @throws IOException
+     *             if the spool could not be opened
+     */
+    public DiskSpool( final File dir ) throws IOException {
+        this( dir, DiskSpool.DEFAULT_SEGMENT_SIZE, DiskSpool.DEFAULT_SYNC_BATCH_SIZE,
+              DiskSpool.DEFAULT_SYNC_INTERVAL_MILLIS );
+    }
+
+
+    /**
+     * Open (or create) a spool, recovering any data left behind by a previous run
+     *
+     * @param dir
+     *            the directory holding the spool
+     * @param segmentSize
+     *            the size of every segment file in bytes (also bounds the largest record); it must
+     *            match the size of the segments already in the spool
+     * @param syncBatchSize
+     *            the number of records appended before the segment is forced to disk
+     * @param syncIntervalMillis
+     *            the maximum time unsynced records wait before they are forced to disk, zero to
+     *            disable the background flush
+     * @throws IOException
+     *             if the spool could not be opened or holds segments of another size
+     */
+    public DiskSpool( final File dir, final int segmentSize, final int syncBatchSize, final long syncIntervalMillis )
+            throws IOException {
+        if (segmentSize <= DiskSpool.HEADER_SIZE) {
+            throw new IllegalArgumentException( "The segment size is too small" );
+        }
+        else if (syncBatchSize <= 0) {
+            throw new IllegalArgumentException( "The sync batch size must be positive" );
+        }
+        else if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException( "Unable to create the spool directory " + dir );
+        }
+
+
+        this.dir           = dir;
+        this.segmentSize   = segmentSize;
+        this.syncBatchSize = syncBatchSize;
+
+        long first = Long.MAX_VALUE;
+        long last  = -1;
+
+        for (final String fileName : dir.list()) {
+            if (fileName.startsWith( DiskSpool.SEGMENT_PREFIX ) && fileName.endsWith( DiskSpool.SEGMENT_SUFFIX )) {
+                final long seq = Long.parseLong( fileName.substring( DiskSpool.SEGMENT_PREFIX.length(),
+                                                                     fileName.length() - DiskSpool.SEGMENT_SUFFIX.length() ) );
+                final long length = new File( dir, fileName ).length();
+
+                // Resizing would cut off unread records or map past the end of the older segments
+                if ((length != segmentSize) && (length != 0)) {
+                    throw new IOException( "The spool segment " + fileName + " is " + length
+                                           + " bytes but the segment size is " + segmentSize );
+                }
+
+                first = Math.min( first, seq );
+                last  = Math.max( last, seq );
+            }
+        }
+
+
+        if (last < 0) {
+            first = 0;
+            last  = 0;
+        }
+
+
+        firstSeq = first;
+        writeSeq = last;
+        writeBuf = map( writeSeq, true );
+        recover();
+
+        cursorFile = new RandomAccessFile( new File( dir, DiskSpool.CURSOR_FILE ), "rw" );
+        readCursor();
+        rewind();
+
+        if (syncIntervalMillis > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor( new ThreadFactory() {
+                @Override
+                public Thread newThread( final Runnable r ) {
+                    final Thread thread = new Thread( r, "cef-spool-flusher" );
+
+                    thread.setDaemon( true );
+
+                    return thread;
+                }
+            } );
+            flusher.scheduleWithFixedDelay( new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        sync();
+                    }
+                    catch (final RuntimeException e) {
+                        DiskSpool.LOG.error( "Unable to sync the spool", e );
+                    }
+                }
+            }, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS );
+        }
+        else {
+            flusher = null;
+        }
+
+
+        DiskSpool.LOG.debug( "Opened the spool in {} with segments {} to {}", new Object[] { dir, first, last } );
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Durably record that every record returned by {@link #poll()} so far has been delivered.
+     * Segments that have been completely consumed are deleted.
+     *
+     * @throws IOException
+     *             if the cursor could not be written
+     */
+    public synchronized void acknowledge() throws IOException {
+        ackSeq = readSeq;
+        ackPos = readPos;
+
+        final ByteBuffer cursor = ByteBuffer.allocate( 16 );
+
+        cursor.putLong( ackSeq ).putInt( ackPos );
+        crc.reset();
+        crc.update( cursor.array(), 0, 12 );
+        cursor.putInt( (int) crc.getValue() );
+
+        cursorFile.seek( 0 );
+        cursorFile.write( cursor.array() );
+        cursorFile.getChannel().force( false );
+
+        while (firstSeq < ackSeq) {
+            final File segment = segmentFile( firstSeq++ );
+
+            if (!segment.delete()) {
+                DiskSpool.LOG.warn( "Unable to delete the consumed spool segment {}", segment );
+            }
+        }
+    }
+
+
+    /**
+     * Append an event to the spool
+     *
+     * @param cef
+     *            the event to append
+     * @throws IOException
+     *             if a new segment could not be created
+     */
+    public void append( final CEF cef ) throws IOException {
+        append( cef.toString() );
+    }
+
+
+    /**
+     * Append a rendered event to the spool. The record is durable once the next group commit
+     * happens or {@link #sync()} is called.
+     *
+     * @param cefStr
+     *            the rendered event, which cannot be empty
+     * @throws IOException
+     *             if a new segment could not be created
+     */
+    public synchronized void append( final CharSequence cefStr ) throws IOException {
+        final int length = Utf8.encodedLength( cefStr );
+        final int size   = DiskSpool.HEADER_SIZE + length;
+
+        if (length == 0) {
+            throw new IllegalArgumentException( "Empty records cannot be spooled" );
+        }
+        else if (size > segmentSize) {
+            throw new IllegalArgumentException( "The record (" + size + " bytes) is larger than a segment ("
+                                                + segmentSize + " bytes)" );
+        }
+        else if (scratch.capacity() < length) {
+            scratch = ByteBuffer.allocate( Math.max( length, scratch.capacity() * 2 ) );
+        }
+
+
+        scratch.clear();
+        Utf8.encode( cefStr, scratch );
+        crc.reset();
+        crc.update( scratch.array(), 0, length );
+
+        if (writeBuf.remaining() < size) {
+            roll();
+        }
+
+
+        writeBuf.putInt( length );
+        writeBuf.putInt( (int) crc.getValue() );
+        writeBuf.put( scratch.array(), 0, length );
+
+        if (++unsynced >= syncBatchSize) {
+            sync();
+        }
+    }
+
+
+    /**
+     * Sync any outstanding records and release the spool's resources
+     *
+     * @throws IOException
+     *             if the cursor file could not be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+
+
+        sync();
+        cursorFile.close();
+    }
+
+
+    /**
+     * @return if every appended record has been read
+     */
+    public synchronized boolean isEmpty() {
+        return (readSeq == writeSeq) && (readPos == writeBuf.position());
+    }
+
+
+    /**
+     * Get the next unread record. The record will be handed out again after a {@link #rewind()}
+     * or a restart until it is acknowledged.
+     *
+     * @return the next record or null if there isn't one
+     * @throws IOException
+     *             if the next segment could not be opened
+     */
+    public synchronized String poll() throws IOException {
+        while (true) {
+            if (readSeq == writeSeq) {
+                if (readPos >= writeBuf.position()) {
+                    return null;
+                }
+            }
+            else if ((readPos + DiskSpool.HEADER_SIZE > segmentSize) || (readBuf.getInt( readPos ) <= 0)) {
+                readSeq++;
+                readPos = 0;
+                readBuf = map( readSeq, false );
+
+                continue;
+            }
+
+
+            final int    length = readBuf.getInt( readPos );
+            final String record = Utf8.decode( readBuf, readPos + DiskSpool.HEADER_SIZE, length );
+
+            readPos += DiskSpool.HEADER_SIZE + length;
+
+            return record;
+        }
+    }
+
+
+    /**
+     * Move the read cursor back to the last acknowledged record so everything after it is handed
+     * out again
+     *
+     * @throws IOException
+     *             if the segment could not be opened
+     */
+    public synchronized void rewind() throws IOException {
+        readSeq = ackSeq;
+        readPos = ackPos;
+        readBuf = map( readSeq, false );
+    }
+
+
+    /**
+     * Force every appended record to disk
+     */
+    public synchronized void sync() {
+        if (unsynced > 0) {
+            writeBuf.force();
+            unsynced = 0;
+        }
+    }
+
+
+    /**
+     * Map a segment file
+     *
+     * @param seq
+     *            the segment's sequence number
+     * @param create
+     *            if the file should be created when it doesn't exist
+     * @return the mapped segment
+     * @throws IOException
+     *             if the file could not be mapped
+     */
+    private MappedByteBuffer map( final long seq, final boolean create ) throws IOException {
+        final File file = segmentFile( seq );
+
+        if (!create && !file.exists()) {
+            throw new IOException( "The spool segment " + file + " is missing" );
+        }
+
+
+        final RandomAccessFile raf = new RandomAccessFile( file, create
+                ? "rw"
+                : "r" );
+
+        try {
+            if (create && (raf.length() != segmentSize)) {
+                raf.setLength( segmentSize );
+            }
+
+
+            return raf.getChannel().map( create
+                                         ? FileChannel.MapMode.READ_WRITE
+                                         : FileChannel.MapMode.READ_ONLY, 0, segmentSize );
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+
+    /**
+     * Read the acknowledged cursor, falling back to the oldest segment if it's missing or corrupt
+     *
+     * @throws IOException
+     *             if the cursor file could not be read
+     */
+    private void readCursor() throws IOException {
+        ackSeq = firstSeq;
+        ackPos = 0;
+
+        if (cursorFile.length() < 16) {
+            return;
+        }
+
+
+        final byte[] bytes = new byte[16];
+
+        cursorFile.seek( 0 );
+        cursorFile.readFully( bytes );
+
+        final ByteBuffer cursor = ByteBuffer.wrap( bytes );
+        final long       seq    = cursor.getLong();
+        final int        pos    = cursor.getInt();
+
+        crc.reset();
+        crc.update( bytes, 0, 12 );
+
+        if (cursor.getInt() != (int) crc.getValue()) {
+            DiskSpool.LOG.warn( "The spool cursor is corrupt, replaying from the oldest segment" );
+        }
+        else if ((seq >= firstSeq) && (seq <= writeSeq)) {
+            ackSeq = seq;
+            ackPos = ((seq == writeSeq) && (pos > writeBuf.position()))
+                     ? writeBuf.position()
+                     : pos;
+        }
+    }
+
+
+    /**
+     * Find the end of the valid records in the newest segment and wipe anything after it
+     */
+    private void recover() {
+        int pos = 0;
+
+        while (pos + DiskSpool.HEADER_SIZE <= segmentSize) {
+            final int length = writeBuf.getInt( pos );
+
+            if ((length <= 0) || (length > segmentSize - pos - DiskSpool.HEADER_SIZE)) {
+                break;
+            }
+
+
+            if (scratch.capacity() < length) {
+                scratch = ByteBuffer.allocate( length );
+            }
+
+
+            final byte[] bytes = scratch.array();
+
+            for (int i = 0; i < length; i++) {
+                bytes[i] = writeBuf.get( pos + DiskSpool.HEADER_SIZE + i );
+            }
+
+
+            crc.reset();
+            crc.update( bytes, 0, length );
+
+            if (writeBuf.getInt( pos + 4 ) != (int) crc.getValue()) {
+                DiskSpool.LOG.warn( "Found a corrupt record in spool segment {} at {}", writeSeq, pos );
+
+                break;
+            }
+
+
+            pos += DiskSpool.HEADER_SIZE + length;
+        }
+
+
+        // Wipe any partial or stale data so it can never be mistaken for a valid record later
+        boolean wiped = false;
+
+        for (int i = pos; i < segmentSize; i++) {
+            if (writeBuf.get( i ) != 0) {
+                writeBuf.put( i, (byte) 0 );
+                wiped = true;
+            }
+        }
+
+
+        if (wiped) {
+            writeBuf.force();
+        }
+
+
+        writeBuf.position( pos );
+    }
+
+
+    /**
+     * Seal the current segment and start a new one
+     *
+     * @throws IOException
+     *             if the new segment could not be created
+     */
+    private void roll() throws IOException {
+        writeBuf.force();
+        unsynced = 0;
+
+        writeSeq++;
+        writeBuf = map( writeSeq, true );
+
+        DiskSpool.LOG.debug( "Rolled the spool to segment {}", writeSeq );
+    }
+
+
+    /**
+     * @param seq
+     *            the segment's sequence number
+     * @return the segment's file
+     */
+    private File segmentFile( final long seq ) {
+        return new File( dir, String.format( "%s%020d%s", DiskSpool.SEGMENT_PREFIX, seq, DiskSpool.SEGMENT_SUFFIX ) );
+    }
+}
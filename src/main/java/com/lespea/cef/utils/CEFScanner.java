@@ -0,0 +1,380 @@
+/**
+ * CEFScanner.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.utils;
+
+/**
+ * Utility functions that locate fields inside a rendered CEF string without parsing the whole
+ * thing.
+ * <p>
+ * Everything here works on the escaped text: offsets point into the original string and any
+ * values returned are still escaped. To compare against a plain value, escape it first with
+ * {@link StringUtils#escapeField(String)} or {@link StringUtils#escapeExtensionValue(String)}.
+ * <p>
+ * The header fields are numbered in the order they appear:
+ * <code>CEF:version|vendor|product|version|id|name|severity|extension</code> so
+ * {@link #HEADER_ID} is <code>4</code> and the extension starts after the
+ * {@link #HEADER_FIELD_COUNT}th bar.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class CEFScanner {
+
+    /**
+     * Index of the <code>CEF:version</code> header field
+     */
+    public static final int HEADER_CEF_VERSION = 0;
+
+    /**
+     * Number of header fields in front of the extension
+     */
+    public static final int HEADER_FIELD_COUNT = 7;
+
+    /**
+     * Index of the signature id header field
+     */
+    public static final int HEADER_ID = 4;
+
+    /**
+     * Index of the name header field
+     */
+    public static final int HEADER_NAME = 5;
+
+    /**
+     * Index of the device product header field
+     */
+    public static final int HEADER_PRODUCT = 2;
+
+    /**
+     * Index of the severity header field
+     */
+    public static final int HEADER_SEVERITY = 6;
+
+    /**
+     * Index of the device vendor header field
+     */
+    public static final int HEADER_VENDOR = 1;
+
+    /**
+     * Index of the device version header field
+     */
+    public static final int HEADER_VERSION = 3;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * Null constructor for utility class
+     */
+    private CEFScanner() {}
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Find where the extension starts
+     *
+     * @param line
+     *            the rendered CEF string
+     * @return the offset of the extension or -1 if the header is incomplete
+     */
+    public static int extensionStart( final CharSequence line ) {
+        return CEFScanner.headerFieldStart( line, CEFScanner.HEADER_FIELD_COUNT );
+    }
+
+
+    /**
+     * Get the escaped value of an extension key
+     *
+     * @param line
+     *            the rendered CEF string
+     * @param escapedKey
+     *            the escaped key to look for
+     * @return the escaped value or null if the key isn't present
+     */
+    public static String extensionValue( final CharSequence line, final String escapedKey ) {
+        final int start = CEFScanner.extensionValueStart( line, escapedKey );
+
+        if (start < 0) {
+            return null;
+        }
+
+
+        return line.subSequence( start, CEFScanner.extensionValueEnd( line, start ) ).toString();
+    }
+
+
+    /**
+     * Find where the value of the next extension pair ends. Values may contain spaces, so a value
+     * runs up to the space in front of the next unescaped <code>=</code> sign.
+     *
+     * @see #isExtensionEscape(CharSequence, int, int)
+     *
+     * @param line
+     *            the rendered CEF string
+     * @param valueStart
+     *            the offset the value starts at
+     * @return the offset just past the value
+     */
+    public static int extensionValueEnd( final CharSequence line, final int valueStart ) {
+        final int length    = line.length();
+        int       lastSpace = -1;
+
+        for (int i = valueStart; i < length; i++) {
+            final char c = line.charAt( i );
+
+            if (CEFScanner.isExtensionEscape( line, i, length )) {
+                i++;
+            }
+            else if (c == ' ') {
+                lastSpace = i;
+            }
+            else if ((c == '=') && (lastSpace >= 0)) {
+                return lastSpace;
+            }
+        }
+
+
+        return length;
+    }
+
+
+    /**
+     * Find where the value of an extension key starts
+     *
+     * @param line
+     *            the rendered CEF string
+     * @param escapedKey
+     *            the escaped key to look for
+     * @return the offset of the value or -1 if the key isn't present
+     */
+    public static int extensionValueStart( final CharSequence line, final String escapedKey ) {
+        final int start = CEFScanner.extensionStart( line );
+
+        if (start < 0) {
+            return -1;
+        }
+
+
+        final int length   = line.length();
+        int       keyStart = start;
+
+        for (int i = start; i < length; i++) {
+            final char c = line.charAt( i );
+
+            if (CEFScanner.isExtensionEscape( line, i, length )) {
+                i++;
+            }
+            else if (c == ' ') {
+                keyStart = i + 1;
+            }
+            else if (c == '=') {
+                if (CEFScanner.regionEquals( line, keyStart, i, escapedKey )) {
+                    return i + 1;
+                }
+
+
+                keyStart = i + 1;
+            }
+        }
+
+
+        return -1;
+    }
+
+
+    /**
+     * Map a header field name to its index. The names match the {@link com.lespea.cef.CEF} getters:
+     * <code>vendor</code>, <code>product</code>, <code>version</code>, <code>id</code>,
+     * <code>name</code> and <code>severity</code>.
+     *
+     * @param field
+     *            the field name
+     * @return the header index or -1 if the name isn't a header field
+     */
+    public static int headerIndex( final String field ) {
+        if ("vendor".equals( field )) {
+            return CEFScanner.HEADER_VENDOR;
+        }
+        else if ("product".equals( field )) {
+            return CEFScanner.HEADER_PRODUCT;
+        }
+        else if ("version".equals( field )) {
+            return CEFScanner.HEADER_VERSION;
+        }
+        else if ("id".equals( field )) {
+            return CEFScanner.HEADER_ID;
+        }
+        else if ("name".equals( field )) {
+            return CEFScanner.HEADER_NAME;
+        }
+        else if ("severity".equals( field )) {
+            return CEFScanner.HEADER_SEVERITY;
+        }
+
+
+        return -1;
+    }
+
+
+    /**
+     * Get the escaped text of a header field
+     *
+     * @param line
+     *            the rendered CEF string
+     * @param index
+     *            the index of the header field
+     * @return the escaped field or null if the header is incomplete
+     */
+    public static String headerField( final CharSequence line, final int index ) {
+        final int start = CEFScanner.headerFieldStart( line, index );
+
+        if (start < 0) {
+            return null;
+        }
+
+
+        final int end = CEFScanner.headerFieldEnd( line, start );
+
+        if ((end == line.length()) && (index < CEFScanner.HEADER_FIELD_COUNT - 1)) {
+            return null;
+        }
+
+
+        return line.subSequence( start, end ).toString();
+    }
+
+
+    /**
+     * Find the unescaped bar that ends a header field
+     *
+     * @param line
+     *            the rendered CEF string
+     * @param start
+     *            the offset the field starts at
+     * @return the offset of the bar or the length of the line if there isn't one
+     */
+    public static int headerFieldEnd( final CharSequence line, final int start ) {
+        final int length = line.length();
+
+        for (int i = start; i < length; i++) {
+            final char c = line.charAt( i );
+
+            if (c == '\\') {
+                i++;
+            }
+            else if (c == '|') {
+                return i;
+            }
+        }
+
+
+        return length;
+    }
+
+
+    /**
+     * Find where a header field starts
+     *
+     * @param line
+     *            the rendered CEF string
+     * @param index
+     *            the index of the header field (or {@link #HEADER_FIELD_COUNT} for the extension)
+     * @return the offset of the field or -1 if the line doesn't have that many fields
+     */
+    public static int headerFieldStart( final CharSequence line, final int index ) {
+        int start = 0;
+
+        for (int i = 0; i < index; i++) {
+            final int end = CEFScanner.headerFieldEnd( line, start );
+
+            if (end >= line.length()) {
+                return -1;
+            }
+
+
+            start = end + 1;
+        }
+
+
+        return start;
+    }
+
+
+    /**
+     * Tests if a region of the line is exactly the wanted text
+     *
+     * @param line
+     *            the rendered CEF string
+     * @param start
+     *            the start of the region (inclusive)
+     * @param end
+     *            the end of the region (exclusive)
+     * @param wanted
+     *            the text to compare against
+     * @return if the region matches
+     */
+    public static boolean regionEquals( final CharSequence line, final int start, final int end, final String wanted ) {
+        if (end - start != wanted.length()) {
+            return false;
+        }
+
+
+        for (int i = start; i < end; i++) {
+            if (line.charAt( i ) != wanted.charAt( i - start )) {
+                return false;
+            }
+        }
+
+
+        return true;
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * Tests if the char at an offset of extension text is a backslash that escapes the char after
+     * it. Only <code>\\</code> and <code>\=</code> change where the pairs split; any other backslash
+     * is a plain char, so a producer that doesn't escape backslashes (<code>C:\temp\ act=x</code>)
+     * doesn't hide the space in front of the next key.
+     *
+     * @param text
+     *            the escaped extension text
+     * @param i
+     *            the offset to check
+     * @param end
+     *            the end of the text (exclusive)
+     * @return if the char is an escaping backslash
+     */
+    public static boolean isExtensionEscape( final CharSequence text, final int i, final int end ) {
+        if ((text.charAt( i ) != '\\') || (i + 1 >= end)) {
+            return false;
+        }
+
+
+        final char next = text.charAt( i + 1 );
+
+        return (next == '\\') || (next == '=');
+    }
+}
@@ -0,0 +1,785 @@
+/**
+ * CEFTime.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.utils;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.text.DateFormatSymbols;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Parses and formats the time values of the <code>rt</code>, <code>start</code> and
+ * <code>end</code> extension fields without {@link java.text.SimpleDateFormat}.
+ * <p>
+ * The formats the CEF standard allows are accepted:
+ * <ul>
+ * <li>milliseconds since the epoch</li>
+ * <li><code>MMM dd yyyy HH:mm:ss.SSS zzz</code> and <code>MMM dd yyyy HH:mm:ss.SSS</code></li>
+ * <li><code>MMM dd yyyy HH:mm:ss zzz</code> and <code>MMM dd yyyy HH:mm:ss</code></li>
+ * <li>all of the above without the year, in which case the current year is used</li>
+ * </ul>
+ * A time zone can be <code>UTC</code>, <code>GMT</code>, <code>Z</code>, an offset such as
+ * <code>+0100</code> or <code>-05:30</code>, a zone id or one of the short names
+ * {@link java.text.SimpleDateFormat} knows (<code>EST</code>, <code>PDT</code>, ...). Times without
+ * a zone are in the zone the caller gives, which defaults to the JVM's.
+ * <p>
+ * Formatting always produces <code>MMM dd yyyy HH:mm:ss.SSS UTC</code>. Every thread keeps the
+ * rendered text of the last minute it formatted, so formatting a run of nearby times only fills in
+ * the seconds and milliseconds.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class CEFTime {
+
+    /** Returned when a value has no usable time */
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    /** Milliseconds in a day */
+    private static final long DAY = 86400000L;
+
+    /** Number of chars in a formatted time */
+    private static final int FORMATTED_LENGTH = 28;
+
+    /** Milliseconds in a minute */
+    private static final long MINUTE = 60000L;
+
+    /** The month abbreviations */
+    private static final String[] MONTHS = {
+        "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"
+    };
+
+    /** Number of chars in front of the seconds in a formatted time */
+    private static final int PREFIX_LENGTH = 18;
+
+    /** Per thread buffer holding the last formatted time */
+    private static final ThreadLocal<Formatted> FORMATTED = new ThreadLocal<Formatted>() {
+        @Override
+        protected Formatted initialValue() {
+            return new Formatted();
+        }
+    };
+
+    /** Zones that have already been looked up by name */
+    private static final Map<String, Zone> ZONES = new ConcurrentHashMap<String, Zone>();
+
+    /** Short zone names such as <code>EST</code> and <code>PDT</code>, loaded on first use */
+    private static volatile Map<String, Zone> shortNames;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * Null constructor for utility class
+     */
+    private CEFTime() {}
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Format a time as <code>MMM dd yyyy HH:mm:ss.SSS UTC</code>. Times outside of the years 0 to
+     * 9999 are written as epoch milliseconds, which is just as valid.
+     *
+     * @param millis
+     *            the time in epoch milliseconds
+     * @param sb
+     *            where to append the time
+     * @return the builder
+     */
+    public static StringBuilder format( final long millis, final StringBuilder sb ) {
+        final char[] chars = CEFTime.render( millis );
+
+        return (chars == null)
+               ? sb.append( millis )
+               : sb.append( chars, 0, CEFTime.FORMATTED_LENGTH );
+    }
+
+
+    /**
+     * Format a time as <code>MMM dd yyyy HH:mm:ss.SSS UTC</code>
+     *
+     * @param millis
+     *            the time in epoch milliseconds
+     * @return the formatted time
+     * @see #format(long, StringBuilder)
+     */
+    public static String format( final long millis ) {
+        final char[] chars = CEFTime.render( millis );
+
+        return (chars == null)
+               ? Long.toString( millis )
+               : new String( chars, 0, CEFTime.FORMATTED_LENGTH );
+    }
+
+
+    /**
+     * Parse a time using the JVM's zone for times without one
+     *
+     * @param value
+     *            the plain value
+     * @return the time in epoch milliseconds or {@link #NO_TIME}
+     */
+    public static long parse( final CharSequence value ) {
+        return (value == null)
+               ? CEFTime.NO_TIME
+               : CEFTime.parse( value, 0, value.length(), TimeZone.getDefault() );
+    }
+
+
+    /**
+     * Parse a time from a region of text
+     *
+     * @param value
+     *            the text
+     * @param from
+     *            the start of the time (inclusive)
+     * @param to
+     *            the end of the time (exclusive)
+     * @param zone
+     *            the zone of times that don't have one
+     * @return the time in epoch milliseconds or {@link #NO_TIME}
+     */
+    public static long parse( final CharSequence value, final int from, final int to, final TimeZone zone ) {
+        int end = to;
+
+        while ((end > from) && (value.charAt( end - 1 ) == ' ')) {
+            end--;
+        }
+
+
+        if (from >= end) {
+            return CEFTime.NO_TIME;
+        }
+        else if (CEFTime.isDigit( value.charAt( from ) )) {
+            return CEFTime.epochMillis( value, from, end );
+        }
+        else if (end - from < 14) {
+            return CEFTime.NO_TIME;
+        }
+
+
+        final int month = CEFTime.month( value, from );
+
+        if ((month < 0) || (value.charAt( from + 3 ) != ' ')) {
+            return CEFTime.NO_TIME;
+        }
+
+
+        // The day may be one or two digits
+        int pos = from + 4;
+        int day = CEFTime.digits( value, pos, pos + 2, end );
+
+        if (day < 0) {
+            day = CEFTime.digits( value, pos, pos + 1, end );
+            pos++;
+        }
+        else {
+            pos += 2;
+        }
+
+
+        if ((day < 0) || (pos >= end) || (value.charAt( pos++ ) != ' ')) {
+            return CEFTime.NO_TIME;
+        }
+
+
+        // A colon after two digits means there's no year
+        int year;
+
+        if ((pos + 2 < end) && (value.charAt( pos + 2 ) == ':')) {
+            year = -1;
+        }
+        else {
+            year = CEFTime.digits( value, pos, pos + 4, end );
+
+            if ((year < 0) || (pos + 4 >= end) || (value.charAt( pos + 4 ) != ' ')) {
+                return CEFTime.NO_TIME;
+            }
+
+
+            pos += 5;
+        }
+
+
+        final int hour   = CEFTime.digits( value, pos, pos + 2, end );
+        final int minute = CEFTime.digits( value, pos + 3, pos + 5, end );
+        final int second = CEFTime.digits( value, pos + 6, pos + 8, end );
+
+        if ((hour < 0) || (minute < 0) || (second < 0) || (value.charAt( pos + 2 ) != ':')
+                || (value.charAt( pos + 5 ) != ':') || (hour > 23) || (minute > 59) || (second > 59)) {
+            return CEFTime.NO_TIME;
+        }
+
+
+        pos += 8;
+
+        int millis = 0;
+
+        if ((pos < end) && (value.charAt( pos ) == '.')) {
+            final int start = ++pos;
+
+            while ((pos < end) && (pos - start < 3) && CEFTime.isDigit( value.charAt( pos ) )) {
+                millis = millis * 10 + (value.charAt( pos++ ) - '0');
+            }
+
+
+            if (pos == start) {
+                return CEFTime.NO_TIME;
+            }
+
+
+            for (int i = pos - start; i < 3; i++) {
+                millis *= 10;
+            }
+        }
+
+
+        Zone timeZone = null;
+
+        if (pos < end) {
+            if (value.charAt( pos ) != ' ') {
+                return CEFTime.NO_TIME;
+            }
+
+
+            timeZone = CEFTime.zone( value, pos + 1, end );
+
+            if (timeZone == null) {
+                return CEFTime.NO_TIME;
+            }
+        }
+
+
+        if (year < 0) {
+            year = CEFTime.yearOf( System.currentTimeMillis() + zone.getOffset( System.currentTimeMillis() ) );
+        }
+
+
+        if (day < 1 || (day > CEFTime.daysInMonth( year, month ))) {
+            return CEFTime.NO_TIME;
+        }
+
+
+        final long local = CEFTime.daysFromCivil( year, month, day ) * CEFTime.DAY + hour * 3600000L
+                           + minute * CEFTime.MINUTE + second * 1000L + millis;
+
+        return (timeZone == null)
+               ? CEFTime.toUtc( zone, local )
+               : timeZone.toUtc( local );
+    }
+
+
+    /**
+     * Convert a date to days since the epoch
+     *
+     * @param year
+     *            the year
+     * @param month
+     *            the month (0 based)
+     * @param day
+     *            the day of the month
+     * @return days since the epoch
+     */
+    private static long daysFromCivil( final int year, final int month, final int day ) {
+        final int  m   = month + 1;
+        final int  y   = (m <= 2)
+                         ? year - 1
+                         : year;
+        final int  era = ((y >= 0)
+                          ? y
+                          : y - 399) / 400;
+        final int  yoe = y - era * 400;
+        final int  doy = (153 * ((m > 2)
+                                 ? m - 3
+                                 : m + 9) + 2) / 5 + day - 1;
+        final long doe = yoe * 365L + yoe / 4 - yoe / 100 + doy;
+
+        return era * 146097L + doe - 719468;
+    }
+
+
+    /**
+     * Parse a run of digits
+     *
+     * @param value
+     *            the text
+     * @param from
+     *            the first digit
+     * @param to
+     *            just past the last digit
+     * @param end
+     *            the end of the text
+     * @return the number or -1 if they aren't all digits
+     */
+    private static int digits( final CharSequence value, final int from, final int to, final int end ) {
+        if (to > end) {
+            return -1;
+        }
+
+
+        int number = 0;
+
+        for (int i = from; i < to; i++) {
+            final char c = value.charAt( i );
+
+            if (!CEFTime.isDigit( c )) {
+                return -1;
+            }
+
+
+            number = number * 10 + (c - '0');
+        }
+
+
+        return number;
+    }
+
+
+    /**
+     * Parse epoch milliseconds
+     *
+     * @param value
+     *            the text
+     * @param from
+     *            the start
+     * @param to
+     *            the end
+     * @return the time or {@link #NO_TIME}
+     */
+    private static long epochMillis( final CharSequence value, final int from, final int to ) {
+        if (to - from > 18) {
+            return CEFTime.NO_TIME;
+        }
+
+
+        long millis = 0;
+
+        for (int i = from; i < to; i++) {
+            final char c = value.charAt( i );
+
+            if (!CEFTime.isDigit( c )) {
+                return CEFTime.NO_TIME;
+            }
+
+
+            millis = millis * 10 + (c - '0');
+        }
+
+
+        return millis;
+    }
+
+
+    /**
+     * Load the short zone names
+     *
+     * @return the names
+     */
+    private static Map<String, Zone> loadShortNames() {
+        final Map<String, Zone> names = new ConcurrentHashMap<String, Zone>();
+
+        for (final String[] strings : DateFormatSymbols.getInstance( Locale.US ).getZoneStrings()) {
+            final TimeZone zone = TimeZone.getTimeZone( strings[0] );
+
+            if ((strings.length > 2) && !names.containsKey( strings[2] )) {
+                names.put( strings[2], new Zone( zone.getRawOffset() ) );
+            }
+
+
+            if ((strings.length > 4) && !names.containsKey( strings[4] )) {
+                names.put( strings[4], new Zone( zone.getRawOffset() + zone.getDSTSavings() ) );
+            }
+        }
+
+
+        return names;
+    }
+
+
+    /**
+     * Parse a month abbreviation
+     *
+     * @param value
+     *            the text
+     * @param from
+     *            the start of the abbreviation
+     * @return the month (0 based) or -1
+     */
+    private static int month( final CharSequence value, final int from ) {
+        for (int m = 0; m < CEFTime.MONTHS.length; m++) {
+            final String name = CEFTime.MONTHS[m];
+
+            if ((Character.toLowerCase( value.charAt( from ) ) == Character.toLowerCase( name.charAt( 0 ) ))
+                    && (Character.toLowerCase( value.charAt( from + 1 ) ) == name.charAt( 1 ))
+                    && (Character.toLowerCase( value.charAt( from + 2 ) ) == name.charAt( 2 ))) {
+                return m;
+            }
+        }
+
+
+        return -1;
+    }
+
+
+    /**
+     * Render a time into the thread's buffer
+     *
+     * @param millis
+     *            the time
+     * @return the buffer or null if the year can't be written with four digits
+     */
+    private static char[] render( final long millis ) {
+        final Formatted formatted = CEFTime.FORMATTED.get();
+        long            minute    = millis / CEFTime.MINUTE;
+
+        if (millis % CEFTime.MINUTE < 0) {
+            minute--;
+        }
+
+
+        final char[] chars = formatted.chars;
+
+        if (minute != formatted.minute) {
+            final long days = (minute >= 0)
+                              ? minute / 1440
+                              : (minute - 1439) / 1440;
+            final int  year = CEFTime.yearOf( days * CEFTime.DAY );
+
+            if ((year < 0) || (year > 9999)) {
+                return null;
+            }
+
+
+            CEFTime.renderPrefix( chars, days, (int) (minute - days * 1440) );
+            formatted.minute = minute;
+        }
+
+
+        final int rest   = (int) (millis - minute * CEFTime.MINUTE);
+        final int second = rest / 1000;
+        final int milli  = rest % 1000;
+
+        chars[18] = (char) ('0' + second / 10);
+        chars[19] = (char) ('0' + second % 10);
+        chars[21] = (char) ('0' + milli / 100);
+        chars[22] = (char) ('0' + (milli / 10) % 10);
+        chars[23] = (char) ('0' + milli % 10);
+
+        return chars;
+    }
+
+
+    /**
+     * Render everything in front of the seconds
+     *
+     * @param chars
+     *            the buffer
+     * @param days
+     *            days since the epoch
+     * @param minuteOfDay
+     *            the minute of the day
+     */
+    private static void renderPrefix( final char[] chars, final long days, final int minuteOfDay ) {
+
+        // Days since 0000-03-01 split into eras of 400 years
+        final long z     = days + 719468;
+        final long era   = ((z >= 0)
+                            ? z
+                            : z - 146096) / 146097;
+        final int  doe   = (int) (z - era * 146097);
+        final int  yoe   = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        final int  doy   = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        final int  mp    = (5 * doy + 2) / 153;
+        final int  day   = doy - (153 * mp + 2) / 5 + 1;
+        final int  month = (mp < 10)
+                           ? mp + 2
+                           : mp - 10;
+        final int  year  = (int) (yoe + era * 400 + ((month <= 1)
+                                                     ? 1
+                                                     : 0));
+        final String name = CEFTime.MONTHS[month];
+
+        chars[0]  = name.charAt( 0 );
+        chars[1]  = name.charAt( 1 );
+        chars[2]  = name.charAt( 2 );
+        chars[3]  = ' ';
+        chars[4]  = (char) ('0' + day / 10);
+        chars[5]  = (char) ('0' + day % 10);
+        chars[6]  = ' ';
+        chars[7]  = (char) ('0' + year / 1000);
+        chars[8]  = (char) ('0' + (year / 100) % 10);
+        chars[9]  = (char) ('0' + (year / 10) % 10);
+        chars[10] = (char) ('0' + year % 10);
+        chars[11] = ' ';
+        chars[12] = (char) ('0' + minuteOfDay / 600);
+        chars[13] = (char) ('0' + (minuteOfDay / 60) % 10);
+        chars[14] = ':';
+        chars[15] = (char) ('0' + (minuteOfDay % 60) / 10);
+        chars[16] = (char) ('0' + minuteOfDay % 10);
+        chars[17] = ':';
+    }
+
+
+    /**
+     * Convert a local time to universal time. A local time that happens twice when the clocks go
+     * back is taken to be the earlier one, as {@link java.util.Calendar} does.
+     *
+     * @param zone
+     *            the zone of the local time
+     * @param local
+     *            the local time
+     * @return the universal time
+     */
+    private static long toUtc( final TimeZone zone, final long local ) {
+        final int  daylight = zone.getRawOffset() + zone.getDSTSavings();
+        final long early    = local - daylight;
+
+        return ((daylight != zone.getRawOffset()) && (zone.getOffset( early ) == daylight))
+               ? early
+               : local - zone.getOffset( local - zone.getRawOffset() );
+    }
+
+
+    /**
+     * Parse a time zone
+     *
+     * @param value
+     *            the text
+     * @param from
+     *            the start of the zone
+     * @param to
+     *            the end of the zone
+     * @return the zone or null if it isn't known
+     */
+    private static Zone zone( final CharSequence value, final int from, final int to ) {
+        final int length = to - from;
+
+        if (length == 0) {
+            return null;
+        }
+
+
+        final char first = value.charAt( from );
+
+        if ((first == '+') || (first == '-')) {
+            final int hours   = CEFTime.digits( value, from + 1, from + 3, to );
+            final int minutesAt = ((from + 3 < to) && (value.charAt( from + 3 ) == ':'))
+                                  ? from + 4
+                                  : from + 3;
+            final int minutes = CEFTime.digits( value, minutesAt, minutesAt + 2, to );
+
+            if ((hours < 0) || (minutes < 0) || (minutesAt + 2 != to) || (hours > 18) || (minutes > 59)) {
+                return null;
+            }
+
+
+            final int offset = (hours * 60 + minutes) * 60000;
+
+            return new Zone( (first == '-')
+                             ? -offset
+                             : offset );
+        }
+        else if ((length == 1) && (first == 'Z')) {
+            return Zone.UTC;
+        }
+        else if ((length == 3) && CEFScanner.regionEquals( value, from, to, "UTC" )) {
+            return Zone.UTC;
+        }
+        else if ((length == 3) && CEFScanner.regionEquals( value, from, to, "GMT" )) {
+            return Zone.UTC;
+        }
+
+
+        final String name = value.subSequence( from, to ).toString();
+        Zone         zone = CEFTime.ZONES.get( name );
+
+        if (zone == null) {
+            final TimeZone timeZone = TimeZone.getTimeZone( name );
+
+            if (timeZone.getID().equals( name )) {
+                zone = new Zone( timeZone );
+            }
+            else {
+                Map<String, Zone> names = CEFTime.shortNames;
+
+                if (names == null) {
+                    names              = CEFTime.loadShortNames();
+                    CEFTime.shortNames = names;
+                }
+
+
+                zone = names.get( name );
+            }
+
+
+            if (zone == null) {
+                return null;
+            }
+
+
+            CEFTime.ZONES.put( name, zone );
+        }
+
+
+        return zone;
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * Get the number of days in a month
+     *
+     * @param year
+     *            the year
+     * @param month
+     *            the month (0 based)
+     * @return the number of days
+     */
+    private static int daysInMonth( final int year, final int month ) {
+        switch (month) {
+        case 1 :
+            return (((year % 4 == 0) && (year % 100 != 0)) || (year % 400 == 0))
+                   ? 29
+                   : 28;
+
+        case 3 :
+        case 5 :
+        case 8 :
+        case 10 :
+            return 30;
+
+        default :
+            return 31;
+        }
+    }
+
+
+    /**
+     * @param c
+     *            a character
+     * @return if it's an ASCII digit
+     */
+    private static boolean isDigit( final char c ) {
+        return (c >= '0') && (c <= '9');
+    }
+
+
+    /**
+     * Get the year of a time
+     *
+     * @param millis
+     *            the time in epoch milliseconds
+     * @return the year
+     */
+    private static int yearOf( final long millis ) {
+        final long days = (millis >= 0)
+                          ? millis / CEFTime.DAY
+                          : (millis - CEFTime.DAY + 1) / CEFTime.DAY;
+        final long z    = days + 719468;
+        final long era  = ((z >= 0)
+                           ? z
+                           : z - 146096) / 146097;
+        final int  doe  = (int) (z - era * 146097);
+        final int  yoe  = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        final int  doy  = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        final int  mp   = (5 * doy + 2) / 153;
+
+        return (int) (yoe + era * 400 + ((mp >= 10)
+                                         ? 1
+                                         : 0));
+    }
+
+
+    //~--- inner classes ------------------------------------------------------
+
+    /**
+     * The last time a thread formatted
+     */
+    private static final class Formatted {
+
+        /** The formatted text */
+        final char[] chars = "Jan 01 1970 00:00:00.000 UTC".toCharArray();
+
+        /** The minute the prefix of the text is for */
+        long minute = 0;
+    }
+
+
+    /**
+     * A fixed offset or a full time zone
+     */
+    private static final class Zone {
+
+        /** Universal time */
+        static final Zone UTC = new Zone( 0 );
+
+        /** The offset when there's no time zone */
+        private final int offset;
+
+        /** The time zone or null for a fixed offset */
+        private final TimeZone timeZone;
+
+
+        /**
+         * @param offset
+         *            the fixed offset in milliseconds
+         */
+        Zone( final int offset ) {
+            this.offset   = offset;
+            this.timeZone = null;
+        }
+
+
+        /**
+         * @param timeZone
+         *            the time zone
+         */
+        Zone( final TimeZone timeZone ) {
+            this.offset   = 0;
+            this.timeZone = timeZone;
+        }
+
+
+        /**
+         * Convert a local time in this zone to universal time
+         *
+         * @param local
+         *            the local time
+         * @return the universal time
+         */
+        long toUtc( final long local ) {
+            return (timeZone == null)
+                   ? local - offset
+                   : CEFTime.toUtc( timeZone, local );
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/**
+ * CEFTruncator.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.utils;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.Extension;
+import com.lespea.cef.InvalidExtensionKey;
+import com.lespea.cef.InvalidField;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.Map;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Fits CEF objects into a byte budget, such as the 1024 or 8192 byte limit of a syslog transport,
+ * by shortening low priority extension values.
+ * <p>
+ * The values are trimmed in their plain form, a whole character (or surrogate pair) at a time,
+ * and then escaped again, so an escape sequence or a multi-byte UTF-8 character is never cut in
+ * half. The low priority keys are trimmed in the order given: a value is shortened (and the marker
+ * added) if that's enough, otherwise the pair is dropped and the next key is tried.
+ * <p>
+ * Truncators are immutable and can be shared between threads.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class CEFTruncator {
+
+    /** The plain keys that may be trimmed, most expendable first */
+    private final String[] lowPriorityKeys;
+
+    /** Appended to a shortened value */
+    private final String marker;
+
+    /** The encoded length of the marker */
+    private final int markerLength;
+
+    /** The byte budget */
+    private final int maxBytes;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * @param maxBytes
+     *            the most UTF-8 bytes a CEF string may have
+     * @param marker
+     *            appended to a shortened value (for example <code>"..."</code>); may be empty
+     * @param lowPriorityKeys
+     *            the plain extension keys that may be trimmed, most expendable first
+     */
+    public CEFTruncator( final int maxBytes, final String marker, final String... lowPriorityKeys ) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException( "The byte budget must be positive" );
+        }
+
+
+        this.maxBytes        = maxBytes;
+        this.marker          = marker;
+        this.markerLength    = StringUtils.escapedUtf8Length( marker, EscapeScanner.VALUE );
+        this.lowPriorityKeys = lowPriorityKeys.clone();
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Fit a CEF object into the budget
+     *
+     * @param cef
+     *            the CEF object
+     * @return the CEF object itself if it already fits, a trimmed copy, or null if it can't be made
+     *         to fit by trimming the low priority keys
+     */
+    public CEF fit( final CEF cef ) {
+        int excess = cef.getEncodedLength() - maxBytes;
+
+        if (excess <= 0) {
+            return cef;
+        }
+
+
+        final Map<String, String> fields = cef.getExtension().getFields();
+
+        for (final String key : lowPriorityKeys) {
+            final String value = fields.get( key );
+
+            if ((value == null) && !fields.containsKey( key )) {
+                continue;
+            }
+
+
+            final int valueLength = StringUtils.escapedUtf8Length( value, EscapeScanner.VALUE );
+            final int keep        = (value == null)
+                                    ? -1
+                                    : CEFTruncator.prefixFor( value, valueLength - excess - markerLength );
+
+            if (keep > 0) {
+                fields.put( key, value.substring( 0, keep ) + marker );
+                excess = 0;
+
+                break;
+            }
+
+
+            // Dropping the pair also saves the key, the '=' and a separating space
+            excess -= StringUtils.escapedUtf8Length( key, EscapeScanner.KEY ) + 1 + valueLength
+                      + ((fields.size() > 1)
+                         ? 1
+                         : 0);
+            fields.remove( key );
+
+            if (excess <= 0) {
+                break;
+            }
+        }
+
+
+        if (excess > 0) {
+            return null;
+        }
+
+
+        final CEF fitted;
+
+        try {
+            fitted = new CEF( cef.getCefVersion(), cef.getVendor(), cef.getProduct(), cef.getVersion(), cef.getId(),
+                              cef.getName(), cef.getSeverity(), new Extension( fields ) );
+        } catch (final InvalidField e) {
+            throw new IllegalStateException( "The fields of an existing CEF object became invalid", e );
+        } catch (final InvalidExtensionKey e) {
+            throw new IllegalStateException( "The keys of an existing CEF object became invalid", e );
+        }
+
+
+        // The costs above are worked out per field, so make sure the whole event really fits
+        return (fitted.getEncodedLength() <= maxBytes)
+               ? fitted
+               : null;
+    }
+
+
+    /**
+     * Find the longest prefix of a value whose escaped form fits in a number of bytes
+     *
+     * @param value
+     *            the plain value
+     * @param budget
+     *            the most bytes the escaped prefix may have
+     * @return the number of chars in the prefix
+     */
+    private static int prefixFor( final String value, final int budget ) {
+        int used = 0;
+        int i    = 0;
+
+        while (i < value.length()) {
+            final char c     = value.charAt( i );
+            int        chars = 1;
+            int        bytes;
+
+            if (c < 0x80) {
+                bytes = ((c == '=') || (c == '\\') || (c == '\r') || (c == '\n'))
+                        ? 2
+                        : 1;
+            }
+            else if (c < 0x800) {
+                bytes = 2;
+            }
+            else if (Character.isHighSurrogate( c ) && (i + 1 < value.length())
+                     && Character.isLowSurrogate( value.charAt( i + 1 ) )) {
+                bytes = 4;
+                chars = 2;
+            }
+            else if ((c >= Character.MIN_SURROGATE) && (c <= Character.MAX_SURROGATE)) {
+
+                // Encoded as '?'
+                bytes = 1;
+            }
+            else {
+                bytes = 3;
+            }
+
+
+            if (used + bytes > budget) {
+                break;
+            }
+
+
+            used += bytes;
+            i    += chars;
+        }
+
+
+        return i;
+    }
+}
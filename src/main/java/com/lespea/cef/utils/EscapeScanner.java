@@ -0,0 +1,385 @@
+/**
+ * EscapeScanner.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.utils;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.nio.ByteBuffer;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Finds the characters that need escaping (or aren't allowed) in the parts of a CEF string.
+ * <p>
+ * The characters are grouped into classes that are OR'ed together into a set, so
+ * <code>indexOf( value, 0, EscapeScanner.VALUE )</code> finds the first <code>=</code>, <code>\</code>,
+ * CR or LF.
+ * Every class is ASCII so the same sets work on chars and on UTF-8 bytes.
+ * <p>
+ * Strings are checked one char at a time against a lookup table. Bytes are checked eight at a
+ * time by loading them into a long and testing every lane for each wanted byte with the usual
+ * "has a zero byte" bit trick; only a word with a hit is looked at byte by byte. Setting the
+ * <code>com.lespea.cef.scalarEscapes</code> system property to <code>true</code> turns the word at
+ * a time scanning off.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class EscapeScanner {
+
+    /** The <code>\</code> character */
+    public static final int BACKSLASH = 1 << 0;
+
+    /** The <code>|</code> character */
+    public static final int BAR = 1 << 1;
+
+    /** The carriage return character */
+    public static final int CR = 1 << 2;
+
+    /** The <code>=</code> character */
+    public static final int EQUALS = 1 << 3;
+
+    /** The line feed character */
+    public static final int LF = 1 << 4;
+
+    /** Space, tab, vertical tab and form feed (the other whitespace is CR and LF) */
+    public static final int SPACE = 1 << 5;
+
+    /** CR and LF; not allowed in header fields */
+    public static final int NEWLINES = EscapeScanner.CR | EscapeScanner.LF;
+
+    /** Everything that makes a header field need escaping or invalid */
+    public static final int FIELD = EscapeScanner.BAR | EscapeScanner.BACKSLASH | EscapeScanner.NEWLINES;
+
+    /** Everything that makes an extension key need escaping or invalid */
+    public static final int KEY = EscapeScanner.EQUALS | EscapeScanner.SPACE | EscapeScanner.NEWLINES;
+
+    /** Everything that makes an extension value need escaping */
+    public static final int VALUE = EscapeScanner.EQUALS | EscapeScanner.BACKSLASH | EscapeScanner.NEWLINES;
+
+    /** The classes of the ASCII characters */
+    private static final byte[] CLASSES = new byte[128];
+
+    /** A one in every byte lane */
+    private static final long ONES = 0x0101010101010101L;
+
+    /** The high bit of every byte lane */
+    private static final long HIGHS = 0x8080808080808080L;
+
+    /** If bytes are scanned a word at a time */
+    private static final boolean WORDS = !Boolean.getBoolean( "com.lespea.cef.scalarEscapes" );
+
+    //~--- static initializers ------------------------------------------------
+
+    static {
+        EscapeScanner.CLASSES['\\'] = EscapeScanner.BACKSLASH;
+        EscapeScanner.CLASSES['|']  = EscapeScanner.BAR;
+        EscapeScanner.CLASSES['\r'] = EscapeScanner.CR;
+        EscapeScanner.CLASSES['=']  = EscapeScanner.EQUALS;
+        EscapeScanner.CLASSES['\n'] = EscapeScanner.LF;
+        EscapeScanner.CLASSES[' ']  = EscapeScanner.SPACE;
+        EscapeScanner.CLASSES['\t'] = EscapeScanner.SPACE;
+        EscapeScanner.CLASSES[0x0B] = EscapeScanner.SPACE;
+        EscapeScanner.CLASSES['\f'] = EscapeScanner.SPACE;
+    }
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * Null constructor for utility class
+     */
+    private EscapeScanner() {}
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Count the characters in the set. Every escape is a backslash in front of a single ASCII
+     * character so this is how much longer a string gets when it's escaped, in chars and in UTF-8
+     * bytes.
+     *
+     * @param chars
+     *            the characters
+     * @param set
+     *            the classes to count
+     * @return the number of characters in the set
+     */
+    public static int count( final CharSequence chars, final int set ) {
+        final int length = chars.length();
+        int       count  = 0;
+
+        for (int i = 0; i < length; i++) {
+            final char c = chars.charAt( i );
+
+            if ((c < 128) && ((EscapeScanner.CLASSES[c] & set) != 0)) {
+                count++;
+            }
+        }
+
+
+        return count;
+    }
+
+
+    /**
+     * Count the bytes of a UTF-8 buffer in the set, skipping a word at a time between them. The
+     * buffer's position and limit aren't used or changed.
+     *
+     * @param buf
+     *            the bytes
+     * @param from
+     *            the absolute offset to start at (inclusive)
+     * @param to
+     *            the absolute offset to stop at (exclusive)
+     * @param set
+     *            the classes to count
+     * @return the number of bytes in the set
+     */
+    public static int count( final ByteBuffer buf, final int from, final int to, final int set ) {
+        int count = 0;
+
+        for (int i = EscapeScanner.indexOf( buf, from, to, set ); i >= 0;
+                i = EscapeScanner.indexOf( buf, i + 1, to, set )) {
+            count++;
+        }
+
+
+        return count;
+    }
+
+
+    /**
+     * Find the first byte of a UTF-8 array in the set
+     *
+     * @param bytes
+     *            the bytes
+     * @param from
+     *            where to start (inclusive)
+     * @param to
+     *            where to stop (exclusive)
+     * @param set
+     *            the classes to look for
+     * @return the offset of the byte or -1 if there isn't one
+     */
+    public static int indexOf( final byte[] bytes, final int from, final int to, final int set ) {
+        int i = from;
+
+        if (EscapeScanner.WORDS) {
+            for (; i + 8 <= to; i += 8) {
+                final long word = (bytes[i] & 0xFFL) | ((bytes[i + 1] & 0xFFL) << 8) | ((bytes[i + 2] & 0xFFL) << 16)
+                                  | ((bytes[i + 3] & 0xFFL) << 24) | ((bytes[i + 4] & 0xFFL) << 32)
+                                  | ((bytes[i + 5] & 0xFFL) << 40) | ((bytes[i + 6] & 0xFFL) << 48)
+                                  | ((long) bytes[i + 7] << 56);
+
+                if (EscapeScanner.hit( word, set )) {
+                    final int found = EscapeScanner.scan( bytes, i, i + 8, set );
+
+                    if (found >= 0) {
+                        return found;
+                    }
+                }
+            }
+        }
+
+
+        return EscapeScanner.scan( bytes, i, to, set );
+    }
+
+
+    /**
+     * Find the first byte of a UTF-8 buffer in the set. The buffer's position and limit aren't used
+     * or changed.
+     *
+     * @param buf
+     *            the bytes
+     * @param from
+     *            the absolute offset to start at (inclusive)
+     * @param to
+     *            the absolute offset to stop at (exclusive)
+     * @param set
+     *            the classes to look for
+     * @return the offset of the byte or -1 if there isn't one
+     */
+    public static int indexOf( final ByteBuffer buf, final int from, final int to, final int set ) {
+        int i = from;
+
+        if (EscapeScanner.WORDS) {
+            for (; i + 8 <= to; i += 8) {
+                if (EscapeScanner.hit( buf.getLong( i ), set )) {
+                    final int found = EscapeScanner.scan( buf, i, i + 8, set );
+
+                    if (found >= 0) {
+                        return found;
+                    }
+                }
+            }
+        }
+
+
+        return EscapeScanner.scan( buf, i, to, set );
+    }
+
+
+    /**
+     * Find the first character in the set
+     *
+     * @param chars
+     *            the characters
+     * @param from
+     *            where to start (inclusive)
+     * @param set
+     *            the classes to look for
+     * @return the offset of the character or -1 if there isn't one
+     */
+    public static int indexOf( final CharSequence chars, final int from, final int set ) {
+        final int length = chars.length();
+
+        for (int i = from; i < length; i++) {
+            final char c = chars.charAt( i );
+
+            if ((c < 128) && ((EscapeScanner.CLASSES[c] & set) != 0)) {
+                return i;
+            }
+        }
+
+
+        return -1;
+    }
+
+
+    /**
+     * Tests if any byte lane of a word holds one of the wanted characters. A hit can be a false
+     * positive (a lane above a real match) but a miss is always exact.
+     *
+     * @param word
+     *            eight bytes
+     * @param set
+     *            the classes to look for
+     * @return if the word might hold one of the characters
+     */
+    private static boolean hit( final long word, final int set ) {
+        long found = 0;
+
+        if ((set & EscapeScanner.BACKSLASH) != 0) {
+            found |= EscapeScanner.zero( word ^ (EscapeScanner.ONES * '\\') );
+        }
+
+
+        if ((set & EscapeScanner.BAR) != 0) {
+            found |= EscapeScanner.zero( word ^ (EscapeScanner.ONES * '|') );
+        }
+
+
+        if ((set & EscapeScanner.CR) != 0) {
+            found |= EscapeScanner.zero( word ^ (EscapeScanner.ONES * '\r') );
+        }
+
+
+        if ((set & EscapeScanner.EQUALS) != 0) {
+            found |= EscapeScanner.zero( word ^ (EscapeScanner.ONES * '=') );
+        }
+
+
+        if ((set & EscapeScanner.LF) != 0) {
+            found |= EscapeScanner.zero( word ^ (EscapeScanner.ONES * '\n') );
+        }
+
+
+        if ((set & EscapeScanner.SPACE) != 0) {
+            found |= EscapeScanner.zero( word ^ (EscapeScanner.ONES * ' ') )
+                     | EscapeScanner.zero( word ^ (EscapeScanner.ONES * '\t') )
+                     | EscapeScanner.zero( word ^ (EscapeScanner.ONES * 0x0B) )
+                     | EscapeScanner.zero( word ^ (EscapeScanner.ONES * '\f') );
+        }
+
+
+        return found != 0;
+    }
+
+
+    /**
+     * Check a run of bytes one at a time
+     *
+     * @param bytes
+     *            the bytes
+     * @param from
+     *            where to start (inclusive)
+     * @param to
+     *            where to stop (exclusive)
+     * @param set
+     *            the classes to look for
+     * @return the offset of the byte or -1 if there isn't one
+     */
+    private static int scan( final byte[] bytes, final int from, final int to, final int set ) {
+        for (int i = from; i < to; i++) {
+            final int c = bytes[i];
+
+            if ((c >= 0) && ((EscapeScanner.CLASSES[c] & set) != 0)) {
+                return i;
+            }
+        }
+
+
+        return -1;
+    }
+
+
+    /**
+     * Check a run of bytes one at a time
+     *
+     * @param buf
+     *            the bytes
+     * @param from
+     *            where to start (inclusive)
+     * @param to
+     *            where to stop (exclusive)
+     * @param set
+     *            the classes to look for
+     * @return the offset of the byte or -1 if there isn't one
+     */
+    private static int scan( final ByteBuffer buf, final int from, final int to, final int set ) {
+        for (int i = from; i < to; i++) {
+            final int c = buf.get( i );
+
+            if ((c >= 0) && ((EscapeScanner.CLASSES[c] & set) != 0)) {
+                return i;
+            }
+        }
+
+
+        return -1;
+    }
+
+
+    /**
+     * Mark the zero byte lanes of a word
+     *
+     * @param word
+     *            eight bytes
+     * @return non-zero if there's a zero byte
+     */
+    private static long zero( final long word ) {
+        return (word - EscapeScanner.ONES) & ~word & EscapeScanner.HIGHS;
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * LineField.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.utils;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.InvalidExtensionKey;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Finds one field, a header field or an extension key given by name, in rendered CEF lines
+ * without parsing them, for tools that only need a few fields of each record.
+ * <p>
+ * The positions returned point into the escaped text; {@link #get(CharSequence)} unescapes the
+ * value. A line of UTF-8 bytes can be searched through a view that reads each byte as a char, and
+ * {@link #unescape(byte[], int, int)} then decodes just the value.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class LineField {
+
+    /** The escaped key if it's an extension key */
+    private final String escapedKey;
+
+    /** The header index or -1 */
+    private final int header;
+
+    /** The name of the field */
+    private final String name;
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * @param name
+     *            a header field name (see {@link CEFScanner#headerIndex(String)}) or an extension
+     *            key
+     */
+    public LineField( final String name ) {
+        this.name   = name;
+        this.header = CEFScanner.headerIndex( name );
+
+        try {
+            escapedKey = (header < 0)
+                         ? StringUtils.escapeExtensionKey( name )
+                         : null;
+        } catch (final InvalidExtensionKey e) {
+            throw new IllegalArgumentException( "Invalid extension key " + name );
+        }
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Find the end of the field's value
+     *
+     * @param line
+     *            the record
+     * @param start
+     *            what {@link #start(CharSequence)} returned
+     * @return the end of the escaped value (exclusive)
+     */
+    public int end( final CharSequence line, final int start ) {
+        return (header < 0)
+               ? CEFScanner.extensionValueEnd( line, start )
+               : CEFScanner.headerFieldEnd( line, start );
+    }
+
+
+    /**
+     * Get the field's value
+     *
+     * @param line
+     *            the record
+     * @return the unescaped value or null if it's missing
+     */
+    public String get( final CharSequence line ) {
+        final int start = start( line );
+
+        if (start < 0) {
+            return null;
+        }
+
+
+        return (header < 0)
+               ? StringUtils.unescapeExtensionValue( line, start, end( line, start ) )
+               : StringUtils.unescapeField( line, start, end( line, start ) );
+    }
+
+
+    /**
+     * Find the start of the field's value
+     *
+     * @param line
+     *            the record
+     * @return the start of the escaped value or -1 if it's missing or the line isn't a whole
+     *         record
+     */
+    public int start( final CharSequence line ) {
+        if (header < 0) {
+            return CEFScanner.extensionValueStart( line, escapedKey );
+        }
+
+
+        final int start = CEFScanner.headerFieldStart( line, header );
+
+        return ((start < 0) || (CEFScanner.extensionStart( line ) < 0))
+               ? -1
+               : start;
+    }
+
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+
+    /**
+     * Decode and unescape the field's value when the line is UTF-8 bytes read one byte per char.
+     * The escapes are all ASCII so they're removed after the bytes are decoded.
+     *
+     * @param utf8
+     *            the bytes of the line
+     * @param start
+     *            the start of the escaped value in the bytes
+     * @param end
+     *            the end of the escaped value (exclusive)
+     * @return the unescaped value
+     */
+    public String unescape( final byte[] utf8, final int start, final int end ) {
+        final String escaped = new String( utf8, start, end - start, Utf8.CHARSET );
+
+        return (header < 0)
+               ? StringUtils.unescapeExtensionValue( escaped, 0, escaped.length() )
+               : StringUtils.unescapeField( escaped, 0, escaped.length() );
+    }
+
+
+    //~--- get methods --------------------------------------------------------
+
+    /**
+     * @return the name of the field
+     */
+    public String getName() {
+        return name;
+    }
+
+
+    /**
+     * @return if the field is in the header
+     */
+    public boolean isHeader() {
+        return header >= 0;
+    }
+}
@@ -24,6 +24,7 @@ package com.lespea.cef.utils;
 
 //~--- non-JDK imports --------------------------------------------------------
 
+import com.lespea.cef.ErrorSink;
 import com.lespea.cef.InvalidExtensionKey;
 import com.lespea.cef.InvalidField;
 
@@ -52,18 +53,14 @@ public final class StringUtils {
     private static final Logger LOG = LoggerFactory.getLogger( StringUtils.class );
 
     /**
-     * Pattern used to determine if a field has any invalid characters
-     * <p>
-     * <code>/[\r\n]/</code>
+     * Characters that make an extension key invalid (<code>/\s/</code>)
      */
-    private static final Pattern INVALID_FIELD_PATTERN = Pattern.compile( "[\r\n]" );
+    private static final int INVALID_EXTENSION_KEY_CHARS = EscapeScanner.SPACE | EscapeScanner.NEWLINES;
 
     /**
-     * Pattern used to determine if a field has any invalid characters
-     * <p>
-     * <code>/\s/</code>
+     * If the shared stackless exceptions are thrown instead of new ones
      */
-    private static final Pattern INVALID_EXTENSION_KEY_PATTERN = Pattern.compile( "\\s" );
+    private static final boolean PREALLOCATED_EXCEPTIONS = Boolean.getBoolean( "com.lespea.cef.preallocatedExceptions" );
 
     /**
      * Pattern used to escape any of the characters that require escaping in the field part of a CEF
@@ -75,7 +72,7 @@ public final class StringUtils {
      * Pattern used to escape any of the characters that require escaping in the extension value
      * part of a CEF string
      */
-    private static final Pattern ESCAPE_EXTENSION_VALUE_PATTERN = Pattern.compile( "[=\r\n]" );
+    private static final Pattern ESCAPE_EXTENSION_VALUE_PATTERN = Pattern.compile( "[=\\\\\r\n]" );
 
     /**
      * Pattern used to escape any of the characters that require escaping in the extension value
@@ -94,6 +91,158 @@ public final class StringUtils {
 
     //~--- methods ------------------------------------------------------------
 
+    /**
+     * Check an extension key without throwing anything
+     *
+     * @param keyStr
+     *            the extension key to check
+     * @return {@link ErrorSink#VALID}, {@link ErrorSink#NULL_VALUE} or
+     *         {@link ErrorSink#INVALID_EXTENSION_KEY}
+     */
+    public static int checkExtensionKey( final String keyStr ) {
+        if (keyStr == null) {
+            return ErrorSink.NULL_VALUE;
+        }
+
+
+        return (EscapeScanner.indexOf( keyStr, 0, StringUtils.INVALID_EXTENSION_KEY_CHARS ) < 0)
+               ? ErrorSink.VALID
+               : ErrorSink.INVALID_EXTENSION_KEY;
+    }
+
+
+    /**
+     * Check a field without throwing anything
+     *
+     * @param fieldStr
+     *            the field to check
+     * @return {@link ErrorSink#VALID}, {@link ErrorSink#NULL_VALUE} or {@link ErrorSink#INVALID_FIELD}
+     */
+    public static int checkField( final String fieldStr ) {
+        if (fieldStr == null) {
+            return ErrorSink.NULL_VALUE;
+        }
+
+
+        return (EscapeScanner.indexOf( fieldStr, 0, EscapeScanner.NEWLINES ) < 0)
+               ? ErrorSink.VALID
+               : ErrorSink.INVALID_FIELD;
+    }
+
+
+    /**
+     * Get the length of a string once it's escaped, without escaping it. A null string counts as
+     * the four characters of <code>"null"</code> like it does when it's appended to a builder.
+     *
+     * @param str
+     *            the plain (valid) string
+     * @param escapes
+     *            the characters that get escaped; {@link EscapeScanner#FIELD},
+     *            {@link EscapeScanner#KEY} or {@link EscapeScanner#VALUE}
+     * @return the number of chars in the escaped string
+     */
+    public static int escapedLength( final CharSequence str, final int escapes ) {
+        return (str == null)
+               ? 4
+               : str.length() + EscapeScanner.count( str, escapes );
+    }
+
+
+    /**
+     * Get the number of UTF-8 bytes in a string once it's escaped, without escaping or encoding
+     * it
+     *
+     * @param str
+     *            the plain (valid) string
+     * @param escapes
+     *            the characters that get escaped; {@link EscapeScanner#FIELD},
+     *            {@link EscapeScanner#KEY} or {@link EscapeScanner#VALUE}
+     * @return the number of bytes in the escaped string
+     * @see #escapedLength(CharSequence, int)
+     */
+    public static int escapedUtf8Length( final CharSequence str, final int escapes ) {
+        return (str == null)
+               ? 4
+               : Utf8.encodedLength( str ) + EscapeScanner.count( str, escapes );
+    }
+
+
+    /**
+     * Escape an extension key without throwing anything. Nothing is logged either; the sink holds
+     * the details of any problem.
+     *
+     * @param keyStr
+     *            the text of the extension key that requires escaping
+     * @param errors
+     *            where a problem is recorded
+     * @return the escaped key or null if it's null or invalid
+     */
+    public static String escapeExtensionKey( final String keyStr, final ErrorSink errors ) {
+        if (keyStr == null) {
+            errors.reject( ErrorSink.NULL_VALUE, null, -1 );
+
+            return null;
+        }
+
+
+        final int special = EscapeScanner.indexOf( keyStr, 0, EscapeScanner.KEY );
+
+        if (special < 0) {
+            return keyStr;
+        }
+
+
+        final int bad = EscapeScanner.indexOf( keyStr, special, StringUtils.INVALID_EXTENSION_KEY_CHARS );
+
+        if (bad >= 0) {
+            errors.reject( ErrorSink.INVALID_EXTENSION_KEY, keyStr, bad );
+
+            return null;
+        }
+
+
+        return StringUtils.ESCAPE_EXTENSION_KEY_PATTERN.matcher( keyStr ).replaceAll( "\\\\=" );
+    }
+
+
+    /**
+     * Escape a field without throwing anything. Nothing is logged either; the sink holds the
+     * details of any problem.
+     *
+     * @param fieldStr
+     *            the text of the field that requires escaping
+     * @param errors
+     *            where a problem is recorded
+     * @return the escaped field or null if it's null or invalid
+     */
+    public static String escapeField( final String fieldStr, final ErrorSink errors ) {
+        if (fieldStr == null) {
+            errors.reject( ErrorSink.NULL_VALUE, null, -1 );
+
+            return null;
+        }
+
+
+        final int special = EscapeScanner.indexOf( fieldStr, 0, EscapeScanner.FIELD );
+
+        if (special < 0) {
+            return fieldStr;
+        }
+
+
+        final int bad = EscapeScanner.indexOf( fieldStr, special, EscapeScanner.NEWLINES );
+
+        if (bad >= 0) {
+            errors.reject( ErrorSink.INVALID_FIELD, fieldStr, bad );
+
+            return null;
+        }
+
+
+        return StringUtils.ESCAPE_FIELD_PATTERN.matcher( fieldStr ).replaceAll( "\\\\$1" );
+    }
+
+
     /**
      * Every key in a CEF extension map must escape the ='s character
      * <p>
@@ -113,10 +262,17 @@ public final class StringUtils {
         }
 
 
-        if (StringUtils.INVALID_EXTENSION_KEY_PATTERN.matcher( keyStr ).find()) {
+        final int special = EscapeScanner.indexOf( keyStr, 0, EscapeScanner.KEY );
+
+        if (special < 0) {
+            return keyStr;
+        }
+        else if (EscapeScanner.indexOf( keyStr, special, StringUtils.INVALID_EXTENSION_KEY_CHARS ) >= 0) {
             StringUtils.LOG.error( "The field string contained an invalid character" );
 
-            throw new InvalidExtensionKey( "The field string " + keyStr + " contained an invalid character" );
+            throw StringUtils.PREALLOCATED_EXCEPTIONS
+                  ? InvalidExtensionKey.PREALLOCATED
+                  : new InvalidExtensionKey( "The field string " + keyStr + " contained an invalid character" );
         }
 
 
@@ -129,8 +285,8 @@ public final class StringUtils {
 
 
     /**
-     * Every value in a CEF extension map must escape the = character and all newline characters (\r
-     * and \n) should be turned into their string equivalent.
+     * Every value in a CEF extension map must escape the = character and the backslash, and all
+     * newline characters (\r and \n) should be turned into their string equivalent.
      * <p>
      * Null strings return null for now.
      *
@@ -146,6 +302,12 @@ public final class StringUtils {
         }
 
 
+        // Most values don't need anything escaped so skip the regex for them
+        if (EscapeScanner.indexOf( valueStr, 0, EscapeScanner.VALUE ) < 0) {
+            return valueStr;
+        }
+
+
         final Matcher      matcher       = StringUtils.ESCAPE_EXTENSION_VALUE_PATTERN.matcher( valueStr );
         final StringBuffer escapedStrBuf = new StringBuffer( valueStr.length() );
 
@@ -211,10 +373,17 @@ public final class StringUtils {
         }
 
 
-        if (StringUtils.INVALID_FIELD_PATTERN.matcher( fieldStr ).find()) {
+        final int special = EscapeScanner.indexOf( fieldStr, 0, EscapeScanner.FIELD );
+
+        if (special < 0) {
+            return fieldStr;
+        }
+        else if (EscapeScanner.indexOf( fieldStr, special, EscapeScanner.NEWLINES ) >= 0) {
             StringUtils.LOG.error( "The field string contained an invalid character" );
 
-            throw new InvalidField( "The field string " + fieldStr + " contained an invalid character" );
+            throw StringUtils.PREALLOCATED_EXCEPTIONS
+                  ? InvalidField.PREALLOCATED
+                  : new InvalidField( "The field string " + fieldStr + " contained an invalid character" );
         }
 
 
@@ -226,6 +395,161 @@ public final class StringUtils {
     }
 
 
+    /**
+     * Reverse {@link #escapeExtensionKey(String)} on a region of escaped text
+     *
+     * @param escaped
+     *            the escaped text
+     * @param start
+     *            the start of the key (inclusive)
+     * @param end
+     *            the end of the key (exclusive)
+     * @return the plain key
+     */
+    public static String unescapeExtensionKey( final CharSequence escaped, final int start, final int end ) {
+        return StringUtils.unescape( escaped, start, end, false );
+    }
+
+
+    /**
+     * Reverse {@link #escapeExtensionValue(String)} on a region of escaped text. Only the sequences
+     * that method produces are changed; any other backslash is kept as is.
+     *
+     * @param escaped
+     *            the escaped text
+     * @param start
+     *            the start of the value (inclusive)
+     * @param end
+     *            the end of the value (exclusive)
+     * @return the plain value
+     */
+    public static String unescapeExtensionValue( final CharSequence escaped, final int start, final int end ) {
+        return StringUtils.unescape( escaped, start, end, true );
+    }
+
+
+    /**
+     * Reverse {@link #escapeField(String)} on a region of escaped text
+     *
+     * @param escaped
+     *            the escaped text
+     * @param start
+     *            the start of the field (inclusive)
+     * @param end
+     *            the end of the field (exclusive)
+     * @return the plain field
+     */
+    public static String unescapeField( final CharSequence escaped, final int start, final int end ) {
+        int i = start;
+
+        while ((i < end) && (escaped.charAt( i ) != '\\')) {
+            i++;
+        }
+
+
+        if (i == end) {
+            return escaped.subSequence( start, end ).toString();
+        }
+
+
+        final StringBuilder sb = new StringBuilder( end - start );
+
+        sb.append( escaped, start, i );
+
+        for (; i < end; i++) {
+            final char c = escaped.charAt( i );
+
+            if ((c == '\\') && (i + 1 < end)) {
+                final char next = escaped.charAt( i + 1 );
+
+                if ((next == '|') || (next == '\\')) {
+                    sb.append( next );
+                    i++;
+
+                    continue;
+                }
+            }
+
+
+            sb.append( c );
+        }
+
+
+        return sb.toString();
+    }
+
+
+    /**
+     * Remove the extension escapes from a region of text. The region is returned without copying
+     * it into a builder when it doesn't have any backslashes.
+     *
+     * @param escaped
+     *            the escaped text
+     * @param start
+     *            the start of the region (inclusive)
+     * @param end
+     *            the end of the region (exclusive)
+     * @param value
+     *            if the region is a value, so <code>\\</code>, <code>\r</code> and <code>\n</code>
+     *            are unescaped too
+     * @return the plain text
+     */
+    private static String unescape( final CharSequence escaped, final int start, final int end,
+                                    final boolean value ) {
+        int i = start;
+
+        while ((i < end) && (escaped.charAt( i ) != '\\')) {
+            i++;
+        }
+
+
+        if (i == end) {
+            return escaped.subSequence( start, end ).toString();
+        }
+
+
+        final StringBuilder sb = new StringBuilder( end - start );
+
+        sb.append( escaped, start, i );
+
+        for (; i < end; i++) {
+            final char c = escaped.charAt( i );
+
+            if ((c != '\\') || (i + 1 == end)) {
+                sb.append( c );
+
+                continue;
+            }
+
+
+            final char next = escaped.charAt( i + 1 );
+
+            if (next == '=') {
+                sb.append( '=' );
+                i++;
+            }
+            else if (value && (next == '\\')) {
+                sb.append( '\\' );
+                i++;
+            }
+            else if (value && (next == 'n')) {
+                sb.append( '\n' );
+                i++;
+            }
+            else if (value && (next == 'r')) {
+                sb.append( '\r' );
+                i++;
+            }
+            else {
+                sb.append( c );
+            }
+        }
+
+
+        return sb.toString();
+    }
+
+
     //~--- get methods --------------------------------------------------------
 
     /**
@@ -245,7 +569,7 @@ public final class StringUtils {
 
             isValid = false;
         }
-        else if (StringUtils.INVALID_EXTENSION_KEY_PATTERN.matcher( extensionKeyStr ).find()) {
+        else if (EscapeScanner.indexOf( extensionKeyStr, 0, StringUtils.INVALID_EXTENSION_KEY_CHARS ) >= 0) {
             isValid = false;
         }
         else {
@@ -301,7 +625,7 @@ public final class StringUtils {
 
             isValid = false;
         }
-        else if (StringUtils.INVALID_FIELD_PATTERN.matcher( fieldStr ).find()) {
+        else if (EscapeScanner.indexOf( fieldStr, 0, EscapeScanner.NEWLINES ) >= 0) {
             isValid = false;
         }
         else {
@@ -0,0 +1,182 @@
+/**
+ * Utf8.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.utils;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.metrics.CEFMetrics;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Allocation free UTF-8 helpers used when CEF strings are written into (or measured for) byte
+ * buffers.
+ * <p>
+ * Unpaired surrogates are encoded as <code>'?'</code>, which matches what
+ * {@link String#getBytes(Charset)} does for UTF-8.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public final class Utf8 {
+
+    /**
+     * The UTF-8 charset
+     */
+    public static final Charset CHARSET = Charset.forName( "UTF-8" );
+
+
+    //~--- constructors -------------------------------------------------------
+
+    /**
+     * Null constructor for utility class
+     */
+    private Utf8() {}
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Decode a run of UTF-8 bytes into a string
+     *
+     * @param buf
+     *            the buffer holding the bytes (its position and limit are not touched)
+     * @param offset
+     *            absolute offset of the first byte
+     * @param length
+     *            number of bytes to decode
+     * @return the decoded string
+     */
+    public static String decode( final ByteBuffer buf, final int offset, final int length ) {
+        if (buf.hasArray()) {
+            return new String( buf.array(), buf.arrayOffset() + offset, length, Utf8.CHARSET );
+        }
+
+
+        final byte[] bytes = new byte[length];
+
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buf.get( offset + i );
+        }
+
+
+        return new String( bytes, Utf8.CHARSET );
+    }
+
+
+    /**
+     * Encode the characters into the buffer at its current position, advancing the position.
+     * <p>
+     * The caller must make sure there is at least {@link #encodedLength(CharSequence)} bytes
+     * remaining in the buffer.
+     *
+     * @param chars
+     *            the characters to encode
+     * @param buf
+     *            the buffer to write into
+     * @return the number of bytes written
+     */
+    public static int encode( final CharSequence chars, final ByteBuffer buf ) {
+        final long timer = CEFMetrics.SERIALIZATION.start();
+        final int  start = buf.position();
+        final int  len   = chars.length();
+
+        for (int i = 0; i < len; i++) {
+            final char c = chars.charAt( i );
+
+            if (c < 0x80) {
+                buf.put( (byte) c );
+            }
+            else if (c < 0x800) {
+                buf.put( (byte) (0xC0 | (c >> 6)) );
+                buf.put( (byte) (0x80 | (c & 0x3F)) );
+            }
+            else if (Character.isHighSurrogate( c ) && (i + 1 < len)
+                     && Character.isLowSurrogate( chars.charAt( i + 1 ) )) {
+                final int cp = Character.toCodePoint( c, chars.charAt( ++i ) );
+
+                buf.put( (byte) (0xF0 | (cp >> 18)) );
+                buf.put( (byte) (0x80 | ((cp >> 12) & 0x3F)) );
+                buf.put( (byte) (0x80 | ((cp >> 6) & 0x3F)) );
+                buf.put( (byte) (0x80 | (cp & 0x3F)) );
+            }
+            else if ((c >= Character.MIN_SURROGATE) && (c <= Character.MAX_SURROGATE)) {
+                buf.put( (byte) '?' );
+            }
+            else {
+                buf.put( (byte) (0xE0 | (c >> 12)) );
+                buf.put( (byte) (0x80 | ((c >> 6) & 0x3F)) );
+                buf.put( (byte) (0x80 | (c & 0x3F)) );
+            }
+        }
+
+
+        CEFMetrics.SERIALIZATION.stop( timer );
+
+        return buf.position() - start;
+    }
+
+
+    /**
+     * Compute the number of bytes the characters take up once they are UTF-8 encoded without
+     * actually encoding them.
+     *
+     * @param chars
+     *            the characters to measure
+     * @return the encoded length in bytes
+     */
+    public static int encodedLength( final CharSequence chars ) {
+        final int len   = chars.length();
+        int       total = len;
+
+        for (int i = 0; i < len; i++) {
+            final char c = chars.charAt( i );
+
+            if (c < 0x80) {
+                continue;
+            }
+            else if (c < 0x800) {
+                total += 1;
+            }
+            else if (Character.isHighSurrogate( c ) && (i + 1 < len)
+                     && Character.isLowSurrogate( chars.charAt( i + 1 ) )) {
+
+                // Two chars become four bytes
+                total += 2;
+                i++;
+            }
+            else if ((c < Character.MIN_SURROGATE) || (c > Character.MAX_SURROGATE)) {
+                total += 2;
+            }
+        }
+
+
+        return total;
+    }
+}
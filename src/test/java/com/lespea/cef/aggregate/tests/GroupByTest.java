@@ -0,0 +1,333 @@
+/**
+ * GroupByTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.aggregate.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.Extension;
+import com.lespea.cef.aggregate.GroupBy;
+import com.lespea.cef.aggregate.GroupResult;
+import com.lespea.cef.filter.CEFFilter;
+import com.lespea.cef.utils.CEFTime;
+import com.lespea.cef.utils.Utf8;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure the parallel group-by gives exactly the counts and sums of a plain loop over the
+ * records, however the file is cut up
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class GroupByTest {
+
+    /** The hour the records start in */
+    private static final long T0 = 1700000000000L / 3600000 * 3600000;
+
+    //~--- fields -------------------------------------------------------------
+
+    /** The file of records */
+    private File file;
+
+    /** The lines in the file */
+    private final List<String> lines = new ArrayList<String>();
+
+    /** The records in the file */
+    private final List<CEF> records = new ArrayList<CEF>();
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Write a file of random records with a few lines that aren't records mixed in
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @BeforeClass
+    public void setUp() throws Exception {
+        final Random   random   = new Random( 11 );
+        final String[] products = { "Fire|Wall", "IDS", "Proxy\\Cache", "Caf\u00e9" };
+
+        file = File.createTempFile( "groupby", ".cef" );
+
+        final Writer out = new OutputStreamWriter( new FileOutputStream( file ), Utf8.CHARSET );
+
+        try {
+            for (int i = 0; i < 20000; i++) {
+                final String line;
+
+                if (i % 997 == 0) {
+                    line = "not a record " + i;
+                }
+                else {
+                    final Map<String, String> fields = new HashMap<String, String>();
+
+                    fields.put( "src", (i % 5 == 0)
+                                       ? "\\\\h\u00f6st" + random.nextInt( 5 ) + "\\"
+                                       : "10.0.0." + random.nextInt( 50 ) );
+
+                    if (i % 7 != 0) {
+                        fields.put( "in", Integer.toString( random.nextInt( 100000 ) ) );
+                    }
+
+
+                    fields.put( "out", (i % 11 == 0)
+                                       ? "lots"
+                                       : Integer.toString( -random.nextInt( 1000 ) ) );
+
+                    if (i % 13 != 0) {
+                        Extension.putTime( fields, "rt", GroupByTest.T0 + random.nextInt( 3 * 3600000 ) );
+                    }
+
+
+                    final String product = products[random.nextInt( products.length )];
+                    final CEF    cef     = new CEF( "Vendor" + random.nextInt( 2 ), product, "1.0",
+                                                    random.nextInt( 20 ), "Name", random.nextInt( 11 ),
+                                                    new Extension( fields ) );
+
+                    records.add( cef );
+                    line = cef.toString();
+                }
+
+
+                lines.add( line );
+                out.write( line );
+                out.write( (i % 3 == 0)
+                           ? "\r\n"
+                           : "\n" );
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+
+    /**
+     * Remove the file
+     */
+    @AfterClass
+    public void tearDown() {
+        file.delete();
+    }
+
+
+    /**
+     * Verify counts by header fields per hour match a plain loop
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testHourly() throws Exception {
+        final Map<String, long[]> expected = new HashMap<String, long[]>();
+
+        for (final CEF cef : records) {
+            final long   time = cef.getExtension().getTime( "rt" );
+            final long   hour = (time == CEFTime.NO_TIME)
+                                ? CEFTime.NO_TIME
+                                : time / 3600000 * 3600000;
+            final String key  = hour + "|" + cef.getVendor() + "|" + cef.getProduct() + "|" + cef.getId();
+
+            GroupByTest.add( expected, key, 1, 0 );
+        }
+
+
+        final ForkJoinPool pool = new ForkJoinPool( 4 );
+
+        try {
+            final GroupResult result = GroupBy.by( "vendor", "product", "id" ).per( TimeUnit.HOURS.toMillis( 1 ) )
+                                           .chunkBytes( 4096 ).run( file, pool );
+
+            Assert.assertEquals( expected.size(), result.getGroups().size() );
+            Assert.assertEquals( records.size(), result.getRecords() );
+            Assert.assertEquals( lines.size() - records.size(), result.getSkipped() );
+
+            for (final GroupResult.Group group : result.getGroups()) {
+                final String[] values = group.getValues();
+                final long[]   wanted = expected.get( group.getTime() + "|" + values[0] + "|" + values[1] + "|"
+                                                      + values[2] );
+
+                Assert.assertNotNull( wanted );
+                Assert.assertEquals( wanted[0], group.getCount() );
+            }
+
+
+            final GroupResult.Group biggest = result.getGroups().get( 0 );
+
+            Assert.assertSame( biggest, result.get( biggest.getTime(), biggest.getValues() ) );
+            Assert.assertTrue( Arrays.asList( "Fire|Wall", "IDS", "Proxy\\Cache", "Caf\u00e9" )
+                                     .contains( biggest.getValues()[1] ) );
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+
+    /**
+     * Verify sums by an extension field match a plain loop, skipping values that aren't numbers,
+     * and that the file and the lines give the same answer
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testSums() throws Exception {
+        final Map<String, long[]> expected = new HashMap<String, long[]>();
+
+        for (final CEF cef : records) {
+            final String in    = cef.getExtension().get( "in" );
+            final String out   = cef.getExtension().get( "out" );
+            final long   bytes = (in == null)
+                                 ? 0
+                                 : Long.parseLong( in );
+
+            GroupByTest.add( expected, cef.getExtension().get( "src" ), bytes, "lots".equals( out )
+                                                                               ? 0
+                                                                               : Long.parseLong( out ) );
+        }
+
+
+        final GroupBy     query  = GroupBy.by( "src" ).sum( "in" ).sum( "out" ).chunkBytes( 10000 );
+        final GroupResult result = query.run( file );
+        final GroupResult single = query.run( lines );
+
+        Assert.assertEquals( expected.size(), result.getGroups().size() );
+        Assert.assertEquals( lines.size(), result.getLines() );
+
+        for (final Map.Entry<String, long[]> entry : expected.entrySet()) {
+            final GroupResult.Group group = result.get( entry.getKey() );
+
+            Assert.assertEquals( entry.getValue()[0], group.getSum( "in" ) );
+            Assert.assertEquals( entry.getValue()[1], group.getSum( "out" ) );
+            Assert.assertEquals( group.getCount(), single.get( entry.getKey() ).getCount() );
+            Assert.assertEquals( group.getSum( "in" ), single.get( entry.getKey() ).getSum( "in" ) );
+        }
+
+
+        Assert.assertEquals( result.getSkipped(), single.getSkipped() );
+
+        try {
+            result.getGroups().get( 0 ).getSum( "src" );
+            Assert.fail();
+        } catch (final IllegalArgumentException e) {
+
+            // Expected
+        }
+    }
+
+
+    /**
+     * Verify the filter limits the records and a missing field groups as empty
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testWhere() throws Exception {
+        long high    = 0;
+        long noInput = 0;
+
+        for (final CEF cef : records) {
+            if (cef.getSeverity() >= 8) {
+                high++;
+
+                if (cef.getExtension().get( "in" ) == null) {
+                    noInput++;
+                }
+            }
+        }
+
+
+        final GroupResult result = GroupBy.by( "severity", "in" ).where( CEFFilter.compile( "severity >= 8" ) )
+                                          .chunkBytes( 777 ).run( file );
+        long              total  = 0;
+        long              empty  = 0;
+
+        for (final GroupResult.Group group : result.getGroups()) {
+            Assert.assertTrue( Integer.parseInt( group.getValues()[0] ) >= 8 );
+            total += group.getCount();
+
+            if (group.getValues()[1].length() == 0) {
+                empty += group.getCount();
+            }
+        }
+
+
+        Assert.assertEquals( high, total );
+        Assert.assertEquals( noInput, empty );
+        Assert.assertEquals( CEFTime.NO_TIME, result.getGroups().get( 0 ).getTime() );
+        Assert.assertEquals( 1, GroupBy.by().run( Arrays.asList( lines.get( 1 ) ) ).getGroups().size() );
+    }
+
+
+    /**
+     * @param groups
+     *            the expected groups
+     * @param key
+     *            a key
+     * @param first
+     *            what to add to the first total
+     * @param second
+     *            what to add to the second total
+     */
+    private static void add( final Map<String, long[]> groups, final String key, final long first,
+                             final long second ) {
+        long[] totals = groups.get( key );
+
+        if (totals == null) {
+            totals = new long[2];
+            groups.put( key, totals );
+        }
+
+
+        totals[0] += first;
+        totals[1] += second;
+    }
+}
@@ -0,0 +1,227 @@
+/**
+ * ArchiveSearchTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.archive.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.Extension;
+import com.lespea.cef.archive.ArchiveQuery;
+import com.lespea.cef.archive.ArchiveReader;
+import com.lespea.cef.archive.ArchiveWriter;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.io.File;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure the per block search index prunes blocks without losing matches
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class ArchiveSearchTest {
+
+    /** Number of events in the archive */
+    private static final int EVENTS = 5000;
+
+    //~--- fields -------------------------------------------------------------
+
+    /** The archive being searched */
+    private ArchiveReader reader;
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Close the archive
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @AfterClass
+    public void closeArchive() throws Exception {
+        reader.close();
+    }
+
+
+    /**
+     * Write an archive where every event has a unique source and user
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @BeforeClass
+    public void createArchive() throws Exception {
+        final File file = File.createTempFile( "cef-search", ".cefa" );
+
+        file.deleteOnExit();
+
+        final ArchiveWriter writer = new ArchiveWriter( file, 8192, Deflater.BEST_SPEED );
+
+        for (int i = 0; i < ArchiveSearchTest.EVENTS; i++) {
+            final Map<String, String> fields = new HashMap<String, String>();
+
+            fields.put( "src", "10.0." + (i / 256) + "." + (i % 256) );
+            fields.put( "suser", "user=" + i );
+            fields.put( "rt", Long.toString( 1000000L + i ) );
+
+            writer.add( i, new CEF( "Vendor", "Product", "1.0", i % 50, "Name|" + (i % 7), i % 11,
+                                    new Extension( fields ) ) );
+        }
+
+
+        writer.close();
+        reader = new ArchiveReader( file );
+    }
+
+
+    /**
+     * Verify a Bloom filtered lookup only reads a block or two and finds the event
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testBloomLookup() throws Exception {
+        final ArchiveQuery query = new ArchiveQuery().field( "suser", "user=1234" );
+
+        Assert.assertTrue( reader.getBlocks().size() > 20 );
+        Assert.assertTrue( reader.blocksMatching( query ).size() <= 2 );
+
+        final List<String> found = reader.search( query );
+
+        Assert.assertEquals( 1, found.size() );
+        Assert.assertTrue( found.get( 0 ).contains( "src=10.0.4.210" ) );
+    }
+
+
+    /**
+     * Verify header fields are matched in their escaped form
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testHeaderLookup() throws Exception {
+        final List<String> found = reader.search( new ArchiveQuery().field( "id", "7" ).field( "name", "Name|0" ) );
+
+        int expected = 0;
+
+        for (int i = 0; i < ArchiveSearchTest.EVENTS; i++) {
+            if ((i % 50 == 7) && (i % 7 == 0)) {
+                expected++;
+            }
+        }
+
+
+        Assert.assertEquals( expected, found.size() );
+    }
+
+
+    /**
+     * Verify the min/max indexes prune blocks and the records are filtered exactly
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testRanges() throws Exception {
+        final ArchiveQuery rtQuery = new ArchiveQuery().rt( 1000100, 1000199 );
+
+        Assert.assertTrue( reader.blocksMatching( rtQuery ).size() < 5 );
+        Assert.assertEquals( 100, reader.search( rtQuery ).size() );
+
+        final List<String> severe = reader.search( new ArchiveQuery().severity( 10, 10 ).between( 0, 999 ) );
+
+        Assert.assertEquals( 90, severe.size() );
+    }
+
+
+    /**
+     * Verify an interrupted parallel search cancels the blocks it was still waiting for
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testInterrupted() throws Exception {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor( 1, 1, 0, TimeUnit.MILLISECONDS,
+                                                                    new LinkedBlockingQueue<Runnable>() );
+        final CountDownLatch     release  = new CountDownLatch( 1 );
+
+        try {
+
+            // Keep the only thread busy so every block is still queued
+            executor.execute( new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        release.await();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            } );
+            Thread.currentThread().interrupt();
+
+            try {
+                reader.search( new ArchiveQuery(), executor );
+                Assert.fail();
+            } catch (final InterruptedException e) {
+
+                // Expected
+            }
+
+
+            Assert.assertEquals( reader.getBlocks().size(), executor.getQueue().size() );
+
+            for (final Runnable queued : executor.getQueue()) {
+                Assert.assertTrue( ((Future<?>) queued).isCancelled() );
+            }
+        }
+        finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * ArchiveTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.archive.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.archive.ArchiveBlock;
+import com.lespea.cef.archive.ArchiveReader;
+import com.lespea.cef.archive.ArchiveWriter;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure archives can be written and read back by time range
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class ArchiveTest {
+
+    /**
+     * Write an archive with one event per second
+     *
+     * @param count
+     *            number of events
+     * @return the archive file
+     * @throws IOException
+     *             if the archive could not be written
+     */
+    private static File writeArchive( final int count ) throws IOException {
+        final File file = File.createTempFile( "cef-archive", ".cefa" );
+
+        file.deleteOnExit();
+
+        final ArchiveWriter writer = new ArchiveWriter( file, 4096, Deflater.BEST_SPEED );
+
+        for (int i = 0; i < count; i++) {
+            writer.add( i * 1000L, "CEF:0|Vendor|Product|1.0|" + i + "|Event «" + i + "»|5|src=10.0.0.1" );
+        }
+
+
+        writer.close();
+
+        return file;
+    }
+
+
+    /**
+     * Verify a corrupt block is detected
+     *
+     * @throws IOException
+     *             on failure
+     */
+    @Test(expectedExceptions = IOException.class)
+    public void testCorruptBlock() throws IOException {
+        final File             file = ArchiveTest.writeArchive( 100 );
+        final RandomAccessFile raf  = new RandomAccessFile( file, "rw" );
+
+        raf.seek( 20 );
+        raf.write( raf.read() ^ 0xFF );
+        raf.close();
+
+        final ArchiveReader reader = new ArchiveReader( file );
+
+        try {
+            reader.read( reader.getBlocks().get( 0 ), Long.MIN_VALUE, Long.MAX_VALUE );
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+
+    /**
+     * Verify parallel reads return the same records in the same order
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testParallelRead() throws Exception {
+        final ArchiveReader   reader   = new ArchiveReader( ArchiveTest.writeArchive( 5000 ) );
+        final ExecutorService executor = Executors.newFixedThreadPool( 4 );
+
+        try {
+            final List<String> sequential = reader.read( 0, Long.MAX_VALUE );
+            final List<String> parallel   = reader.read( 0, Long.MAX_VALUE, executor );
+
+            Assert.assertEquals( 5000, sequential.size() );
+            Assert.assertEquals( sequential, parallel );
+        }
+        finally {
+            executor.shutdown();
+            reader.close();
+        }
+    }
+
+
+    /**
+     * Verify only the blocks overlapping a range are read and the records are filtered exactly
+     *
+     * @throws IOException
+     *             on failure
+     */
+    @Test
+    public void testTimeRange() throws IOException {
+        final ArchiveReader reader = new ArchiveReader( ArchiveTest.writeArchive( 5000 ) );
+
+        try {
+            Assert.assertTrue( reader.getBlocks().size() > 10 );
+
+            final List<ArchiveBlock> blocks = reader.blocksBetween( 2000000, 2010000 );
+
+            Assert.assertTrue( blocks.size() <= 2 );
+
+            final List<String> lines = reader.read( 2000000, 2010000 );
+
+            Assert.assertEquals( 11, lines.size() );
+            Assert.assertEquals( "CEF:0|Vendor|Product|1.0|2000|Event «2000»|5|src=10.0.0.1", lines.get( 0 ) );
+            Assert.assertEquals( "CEF:0|Vendor|Product|1.0|2010|Event «2010»|5|src=10.0.0.1", lines.get( 10 ) );
+        }
+        finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * CEFViewTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.buffer.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.Extension;
+import com.lespea.cef.buffer.CEFView;
+import com.lespea.cef.utils.CEFScanner;
+import com.lespea.cef.utils.Utf8;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.nio.ByteBuffer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure the flyweight view indexes and compares records correctly
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class CEFViewTest {
+
+    /**
+     * @return a record with escapes and non-ASCII text in the header and extension
+     * @throws Exception
+     *             on failure
+     */
+    private static byte[] record() throws Exception {
+        final Map<String, String> fields = new HashMap<String, String>();
+
+        fields.put( "act", "blocked" );
+        fields.put( "msg", "a b=c\nd caf\u00e9 \ud83d\ude00" );
+        fields.put( "k=ey", "v" );
+        fields.put( "dpt", "3389" );
+        fields.put( "fname", "C:\\temp\\" );
+
+        return (new CEF( "Ven|dor", "Prod\\uct", "1.0", 100, "Port scan", 7, new Extension( fields ) ) + "\n").getBytes(
+            Utf8.CHARSET );
+    }
+
+
+    /**
+     * Verify the accessors against both kinds of backing storage
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testAccessors() throws Exception {
+        final byte[]     bytes  = CEFViewTest.record();
+        final ByteBuffer direct = ByteBuffer.allocateDirect( bytes.length + 3 );
+
+        direct.position( 3 );
+        direct.put( bytes );
+
+        final CEFView view = new CEFView();
+
+        for (int round = 0; round < 2; round++) {
+            if (round == 0) {
+                Assert.assertTrue( view.wrap( bytes, 0, bytes.length ) );
+            }
+            else {
+                Assert.assertTrue( view.wrap( direct, 3, bytes.length ) );
+            }
+
+
+            Assert.assertEquals( 7, view.severity() );
+            Assert.assertEquals( 5, view.getPairCount() );
+            Assert.assertTrue( view.fieldEquals( CEFScanner.HEADER_VENDOR, "Ven|dor" ) );
+            Assert.assertTrue( view.fieldEquals( CEFScanner.HEADER_PRODUCT, "Prod\\uct" ) );
+            Assert.assertFalse( view.fieldEquals( CEFScanner.HEADER_PRODUCT, "Prod\\" ) );
+            Assert.assertEquals( 0, view.compareField( CEFScanner.HEADER_ID, "100".getBytes( Utf8.CHARSET ) ) );
+            Assert.assertTrue( view.compareField( CEFScanner.HEADER_ID, "2".getBytes( Utf8.CHARSET ) ) < 0 );
+            Assert.assertTrue( view.compareField( CEFScanner.HEADER_ID, "10".getBytes( Utf8.CHARSET ) ) > 0 );
+            Assert.assertTrue( view.extensionEquals( "act", "blocked".getBytes( Utf8.CHARSET ) ) );
+            Assert.assertFalse( view.extensionEquals( "act", "allowed".getBytes( Utf8.CHARSET ) ) );
+            Assert.assertTrue( view.extensionEquals( "msg", "a b=c\nd caf\u00e9 \ud83d\ude00" ) );
+            Assert.assertFalse( view.extensionEquals( "msg", "a b=c\nd cafe \ud83d\ude00" ) );
+            Assert.assertTrue( view.extensionEquals( "k=ey", "v" ) );
+            Assert.assertTrue( view.extensionEquals( "fname", "C:\\temp\\" ) );
+            Assert.assertFalse( view.extensionEquals( "fname", "C:\\temp\\\\" ) );
+            Assert.assertFalse( view.extensionEquals( "missing", "v" ) );
+            Assert.assertEquals( 3389, view.extensionLong( "dpt", -1 ) );
+            Assert.assertEquals( -1, view.extensionLong( "act", -1 ) );
+
+            final byte[] dst    = new byte[64];
+            final int    copied = view.copyValueTo( "act", dst, 2 );
+
+            Assert.assertEquals( "blocked", new String( dst, 2, copied, Utf8.CHARSET ) );
+            Assert.assertEquals( CEFView.MISSING, view.copyValueTo( "missing", dst, 0 ) );
+
+            final ByteBuffer out = ByteBuffer.allocate( 64 );
+
+            Assert.assertEquals( 5, view.copyValueTo( "k=ey", out ) + view.copyValueTo( "dpt", out ) );
+            Assert.assertEquals( 9, view.copyFieldTo( CEFScanner.HEADER_NAME, dst, 0 ) );
+        }
+    }
+
+
+    /**
+     * Verify the view is reusable for records of different shapes and grows past its initial size
+     */
+    @Test
+    public void testReuse() {
+        final CEFView       view = new CEFView();
+        final StringBuilder sb   = new StringBuilder( "CEF:0|V|P|1|1|N|3|" );
+
+        for (int i = 0; i < 100; i++) {
+            sb.append( "k" ).append( i ).append( "=v " ).append( i ).append( ' ' );
+        }
+
+
+        final byte[] big = sb.toString().trim().getBytes( Utf8.CHARSET );
+
+        Assert.assertTrue( view.wrap( big, 0, big.length ) );
+        Assert.assertEquals( 100, view.getPairCount() );
+        Assert.assertTrue( view.extensionEquals( "k99", "v 99" ) );
+
+        final byte[] noExtension = "CEF:0|V|P|1|1|N|5".getBytes( Utf8.CHARSET );
+
+        Assert.assertTrue( view.wrap( noExtension, 0, noExtension.length ) );
+        Assert.assertEquals( 5, view.severity() );
+        Assert.assertEquals( 0, view.getPairCount() );
+        Assert.assertEquals( CEFView.MISSING, view.indexOf( "k99" ) );
+
+        final byte[] shortHeader = "CEF:0|V|P".getBytes( Utf8.CHARSET );
+
+        Assert.assertFalse( view.wrap( shortHeader, 0, shortHeader.length ) );
+        Assert.assertEquals( CEFView.MISSING, view.severity() );
+    }
+}
@@ -0,0 +1,229 @@
+/**
+ * EventArenaTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.buffer.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.buffer.EventArena;
+import com.lespea.cef.utils.tests.TestHelpers;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure the off-heap arena stores and drains events correctly
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class EventArenaTest {
+
+    /**
+     * Build a small CEF event
+     *
+     * @param i
+     *            number used to make the event unique
+     * @return the event
+     * @throws Exception
+     *             if the event is invalid
+     */
+    private static CEF event( final int i ) throws Exception {
+        return new CEF( "Vendor", "Product", "1.0", i, "Name|" + i, 5,
+                        TestHelpers.extension( "src", "10.0.0." + i, "msg", "line one\nline «two» = " + i ) );
+    }
+
+
+    /**
+     * Verify events can be iterated, drained and that segments are reclaimed
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testAppendIterateDrain() throws Exception {
+        final EventArena   arena    = EventArena.direct( 256, 64 );
+        final List<String> expected = new ArrayList<String>();
+
+        for (int i = 0; i < 100; i++) {
+            final CEF cef = EventArenaTest.event( i );
+
+            Assert.assertTrue( arena.append( cef ) );
+            expected.add( cef.toString() );
+        }
+
+
+        Assert.assertEquals( 100, arena.getEvents() );
+        Assert.assertTrue( arena.getSegmentCount() > 1 );
+
+        final List<String> seen = new ArrayList<String>();
+
+        for (final String str : arena) {
+            seen.add( str );
+        }
+
+
+        Assert.assertEquals( expected, seen );
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        arena.drainTo( Channels.newChannel( out ) );
+
+        final StringBuilder wanted = new StringBuilder();
+
+        for (final String str : expected) {
+            wanted.append( str ).append( '\n' );
+        }
+
+
+        Assert.assertEquals( wanted.toString(), new String( out.toByteArray(), "UTF-8" ) );
+        Assert.assertTrue( arena.isEmpty() );
+        Assert.assertEquals( 0, arena.getBytes() );
+        Assert.assertEquals( 0, arena.getSegmentCount() );
+    }
+
+
+    /**
+     * Verify the arena refuses events once it's full
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testFull() throws Exception {
+        final EventArena arena = EventArena.direct( 16, 2 );
+
+        Assert.assertTrue( arena.append( "0123456789" ) );
+        Assert.assertTrue( arena.append( "0123456789" ) );
+        Assert.assertFalse( arena.append( "0123456789" ) );
+        Assert.assertEquals( 2, arena.getEvents() );
+    }
+
+
+    /**
+     * Verify the event count follows a channel that only takes a few bytes at a time
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testPartialDrain() throws Exception {
+        final EventArena arena  = EventArena.direct( 64, 4 );
+        final int[]      budget = new int[1];
+
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue( arena.append( "0123456789" ) );
+        }
+
+
+        final WritableByteChannel channel = new WritableByteChannel() {
+            @Override
+            public void close() {}
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public int write( final ByteBuffer src ) {
+                final int wrote = Math.min( budget[0], src.remaining() );
+
+                src.position( src.position() + wrote );
+                budget[0] -= wrote;
+
+                return wrote;
+            }
+        };
+
+        long written = 0;
+
+        while (!arena.isEmpty()) {
+            budget[0] = 7;
+            written   += arena.drainTo( channel );
+            Assert.assertEquals( 10 - written / 11, arena.getEvents() );
+            Assert.assertEquals( 110 - written, arena.getBytes() );
+        }
+
+
+        Assert.assertEquals( 110, written );
+        Assert.assertEquals( 0, arena.getSegmentCount() );
+    }
+
+
+    /**
+     * Verify a mapped arena works the same way and the visitor sees every record
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testMappedVisit() throws Exception {
+        final EventArena arena = EventArena.mapped( new File( System.getProperty( "java.io.tmpdir" ) ), 1024, 4 );
+
+        for (int i = 0; i < 10; i++) {
+            arena.append( "record " + i );
+        }
+
+
+        final int[] total = new int[1];
+
+        Assert.assertEquals( 10, arena.visit( new EventArena.RecordVisitor() {
+            @Override
+            public boolean visit( final ByteBuffer buf, final int offset, final int length ) {
+                total[0] += length;
+
+                return true;
+            }
+        } ) );
+        Assert.assertEquals( 10 * "record 0".length(), total[0] );
+    }
+
+
+    /**
+     * Verify newlines are refused
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNewline() throws Exception {
+        EventArena.direct( 64, 1 ).append( "bad\nrecord" );
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ * CEFToolTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.cli.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.cli.CEFTool;
+import com.lespea.cef.utils.Utf8;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import java.util.zip.GZIPOutputStream;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure the command line tool filters, converts and counts records correctly
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class CEFToolTest {
+
+    /** Some records, one with escapes everywhere */
+    private static final String INPUT = "CEF:0|Acme|FW|1|100|Denied|7|src=10.0.0.1 act=blocked dpt=22\n"
+                                        + "CEF:0|Acme|FW|1|101|Allowed|2|src=10.0.0.2 act=allowed dpt=443\r\n"
+                                        + "\n" + "not a CEF record\n"
+                                        + "CEF:0|Ac\\|me|FW|1|100|Denied|8|src=10.0.0.1 act=blocked "
+                                        + "msg=a\\=b, \"c\"\\nd\n";
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * @param input
+     *            standard in
+     * @param args
+     *            the command line
+     * @return what was written
+     */
+    private static String run( final String input, final String... args ) {
+        final ByteArrayOutputStream out  = new ByteArrayOutputStream();
+        final ByteArrayOutputStream err  = new ByteArrayOutputStream();
+        final ByteArrayInputStream  in   = new ByteArrayInputStream( input.getBytes( Utf8.CHARSET ) );
+        final int                   code = CEFTool.run( args, in, out, new PrintStream( err ) );
+
+        return (code == 0)
+               ? new String( out.toByteArray(), Utf8.CHARSET )
+               : "exit " + code;
+    }
+
+
+    /**
+     * Verify counting and grouping
+     */
+    @Test
+    public void testCount() {
+        Assert.assertEquals( "2\n", CEFToolTest.run( CEFToolTest.INPUT, "-c", "-f", "act = blocked" ) );
+        Assert.assertEquals( "4\n", CEFToolTest.run( CEFToolTest.INPUT, "-c" ) );
+        Assert.assertEquals( "blocked\t2\nallowed\t1\n\t1\n", CEFToolTest.run( CEFToolTest.INPUT, "-g", "act" ) );
+        Assert.assertEquals( "blocked,2\nallowed,1\n,1\n",
+                             CEFToolTest.run( CEFToolTest.INPUT, "-g", "act", "-o", "csv" ) );
+        Assert.assertEquals( "Acme\t1\nAc|me\t1\n",
+                             CEFToolTest.run( CEFToolTest.INPUT, "-g", "vendor", "-o", "tsv", "-f", "severity >= 5" ) );
+    }
+
+
+    /**
+     * Verify filtering and projecting
+     */
+    @Test
+    public void testFilter() {
+        Assert.assertEquals( "CEF:0|Acme|FW|1|100|Denied|7|src=10.0.0.1 act=blocked dpt=22\n",
+                             CEFToolTest.run( CEFToolTest.INPUT, "-f", "dpt in (22, 23)" ) );
+        Assert.assertEquals( "vendor,severity,msg,dpt\nAcme,7,,22\nAc|me,8,\"a=b, \"\"c\"\"\nd\",\n",
+                             CEFToolTest.run( CEFToolTest.INPUT, "-f", "src = 10.0.0.1", "-k",
+                                              "vendor,severity,msg,dpt", "-H" ) );
+        Assert.assertEquals( "Ac|me\ta=b, \"c\"\\nd\n",
+                             CEFToolTest.run( CEFToolTest.INPUT, "-f", "severity = 8", "-k", "vendor,msg", "-o",
+                                              "tsv" ) );
+        Assert.assertEquals( "{\"id\":\"100\",\"dpt\":\"22\"}\n{\"id\":\"100\",\"dpt\":null}\n",
+                             CEFToolTest.run( CEFToolTest.INPUT, "-f", "id = 100", "-k", "id,dpt", "-o", "json" ) );
+        Assert.assertEquals( "{\"cefVersion\":\"0\",\"vendor\":\"Ac|me\",\"product\":\"FW\",\"version\":\"1\","
+                             + "\"id\":\"100\","
+                             + "\"name\":\"Denied\",\"severity\":\"8\",\"src\":\"10.0.0.1\",\"act\":\"blocked\","
+                             + "\"msg\":\"a=b, \\\"c\\\"\\nd\"}\n",
+                             CEFToolTest.run( CEFToolTest.INPUT, "-f", "severity = 8", "-o", "json" ) );
+        Assert.assertEquals( "exit 2", CEFToolTest.run( "", "-f", "severity ==" ) );
+        Assert.assertEquals( "exit 2", CEFToolTest.run( "", "-o", "csv" ) );
+        Assert.assertEquals( "exit 2", CEFToolTest.run( "", "-x" ) );
+    }
+
+
+    /**
+     * Verify a .gz file that isn't gzip is reported rather than crashing the tool
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testNotGzip() throws Exception {
+        final File file = File.createTempFile( "cef", ".log.gz" );
+
+        try {
+            final OutputStream out = new FileOutputStream( file );
+
+            try {
+                out.write( CEFToolTest.INPUT.getBytes( Utf8.CHARSET ) );
+            } finally {
+                out.close();
+            }
+
+
+            Assert.assertEquals( "exit 1", CEFToolTest.run( "", "-c", file.getPath() ) );
+        } finally {
+            file.delete();
+        }
+    }
+
+
+    /**
+     * Verify large gzipped files are processed on several threads and come out in order
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testThreads() throws Exception {
+        final File          file     = File.createTempFile( "cef", ".log.gz" );
+        final StringBuilder expected = new StringBuilder();
+
+        try {
+            final OutputStream out = new GZIPOutputStream( new FileOutputStream( file ) );
+
+            try {
+                for (int i = 0; i < 50000; i++) {
+                    final String line = "CEF:0|Acme|FW|1|" + (i % 7) + "|Event|5|cnt=" + i + "\n";
+
+                    out.write( line.getBytes( Utf8.CHARSET ) );
+
+                    if (i % 7 == 3) {
+                        expected.append( i ).append( '\n' );
+                    }
+                }
+            } finally {
+                out.close();
+            }
+
+
+            Assert.assertEquals( expected.toString(),
+                                 CEFToolTest.run( "", "-t", "4", "-f", "id = 3", "-k", "cnt", file.getPath() ) );
+            Assert.assertEquals( "100000\n", CEFToolTest.run( "", "-t", "3", "-c", file.getPath(), file.getPath() ) );
+        } finally {
+            file.delete();
+        }
+    }
+}
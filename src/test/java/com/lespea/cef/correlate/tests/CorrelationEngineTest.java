@@ -0,0 +1,278 @@
+/**
+ * CorrelationEngineTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.correlate.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.Extension;
+import com.lespea.cef.correlate.CorrelationEngine;
+import com.lespea.cef.correlate.CorrelationRule;
+import com.lespea.cef.filter.CEFFilter;
+import com.lespea.cef.pipeline.Emitter;
+import com.lespea.cef.pipeline.PartitionedExecutor;
+import com.lespea.cef.utils.tests.TestHelpers;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure the correlation rules fire when their pattern shows up within the window and only
+ * then
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class CorrelationEngineTest {
+
+    /** The time the tests start at */
+    private static final long T0 = 1700000000000L;
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Verify the distinct rule counts different values of a key within the window
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testDistinct() throws Exception {
+        final CorrelationRule   rule   = CorrelationRule.distinct( "scan", "src", "id", 3, 60000 ).severity( 9 );
+        final CorrelationEngine engine = new CorrelationEngine( rule );
+        final Collector         out    = new Collector();
+
+        // Three ids, but the first falls out of the window before the third shows up
+        engine.correlate( CorrelationEngineTest.event( "10.0.0.1", 100, null, null ), CorrelationEngineTest.T0, out );
+        engine.correlate( CorrelationEngineTest.event( "10.0.0.1", 101, null, null ), CorrelationEngineTest.T0 + 30000,
+                          out );
+        engine.correlate( CorrelationEngineTest.event( "10.0.0.1", 102, null, null ), CorrelationEngineTest.T0 + 70000,
+                          out );
+        Assert.assertTrue( out.events.isEmpty() );
+
+        // Repeats don't count, other sources don't count, and the third id within the window fires
+        engine.correlate( CorrelationEngineTest.event( "10.0.0.1", 102, null, null ), CorrelationEngineTest.T0 + 71000,
+                          out );
+        engine.correlate( CorrelationEngineTest.event( "10.0.0.2", 103, null, null ), CorrelationEngineTest.T0 + 72000,
+                          out );
+        engine.correlate( CorrelationEngineTest.event( "10.0.0.1", 103, null, null ), CorrelationEngineTest.T0 + 73000,
+                          out );
+        Assert.assertEquals( 1, out.events.size() );
+
+        final CEF       fired     = out.events.get( 0 );
+        final Extension extension = fired.getExtension();
+
+        Assert.assertEquals( CorrelationEngine.VENDOR, fired.getVendor() );
+        Assert.assertEquals( CorrelationEngine.PRODUCT, fired.getProduct() );
+        Assert.assertEquals( "scan", fired.getId() );
+        Assert.assertEquals( 9, fired.getSeverity() );
+        Assert.assertEquals( "10.0.0.1", extension.get( "src" ) );
+        Assert.assertEquals( "3", extension.get( "cnt" ) );
+        Assert.assertEquals( "101,102,103", extension.get( "cs1" ) );
+        Assert.assertEquals( "id", extension.get( "cs1Label" ) );
+        Assert.assertEquals( CorrelationEngineTest.T0 + 30000, extension.getTime( "start" ) );
+        Assert.assertEquals( CorrelationEngineTest.T0 + 73000, extension.getTime( "end" ) );
+
+        // The key starts over once it fires
+        engine.correlate( CorrelationEngineTest.event( "10.0.0.1", 104, null, null ), CorrelationEngineTest.T0 + 74000,
+                          out );
+        Assert.assertEquals( 1, out.events.size() );
+        Assert.assertEquals( 1, engine.getFired() );
+    }
+
+
+    /**
+     * Verify idle keys expire and the number of keys is bounded
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testExpiry() throws Exception {
+        final CorrelationRule   rule   = CorrelationRule.distinct( "scan", "src", "dpt", 5, 1000 ).maxKeys( 100 );
+        final CorrelationEngine engine = new CorrelationEngine( rule );
+        final Collector         out    = new Collector();
+
+        for (int i = 0; i < 150; i++) {
+            engine.correlate( CorrelationEngineTest.event( "10.0.1." + i, 1, null, null ), CorrelationEngineTest.T0,
+                              out );
+        }
+
+
+        Assert.assertEquals( 100, engine.getKeys() );
+        Assert.assertEquals( 50, engine.getEvicted() );
+
+        // Every new record expires a couple of the old keys
+        for (int i = 0; i < 60; i++) {
+            engine.correlate( CorrelationEngineTest.event( "10.0.2." + i, 1, null, null ),
+                              CorrelationEngineTest.T0 + 5000, out );
+        }
+
+
+        Assert.assertEquals( 60, engine.getKeys() );
+        Assert.assertEquals( 50, engine.getEvicted() );
+        Assert.assertTrue( out.events.isEmpty() );
+    }
+
+
+    /**
+     * Verify the engine can run on the lanes of a partitioned executor and finds the same
+     * patterns as it does on one thread
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testPartitioned() throws Exception {
+        final CorrelationRule   rule   = CorrelationRule.distinct( "scan", "src", "id", 4, 10000 );
+        final CorrelationEngine single = new CorrelationEngine( rule );
+        final CorrelationEngine shared = new CorrelationEngine( rule );
+        final Collector         out    = new Collector();
+        final Collector         lanes  = new Collector();
+        final PartitionedExecutor<CEF> executor = new PartitionedExecutor<CEF>( shared, lanes, 4, 64, 4, "src" )
+                                                      .start();
+
+        for (int i = 0; i < 50000; i++) {
+            final Map<String, String> fields = new HashMap<String, String>();
+
+            fields.put( "src", "10.0." + (i % 97) + ".1" );
+            Extension.putTime( fields, "rt", CorrelationEngineTest.T0 + i * 10L );
+
+            final CEF cef = new CEF( "Vendor", "Product", "1.0", (i * 7) % 13, "Name", 5, new Extension( fields ) );
+
+            single.process( cef, out );
+            executor.submit( cef );
+        }
+
+
+        executor.close();
+
+        Assert.assertTrue( single.getFired() > 0 );
+        Assert.assertEquals( single.getFired(), shared.getFired() );
+        Assert.assertEquals( out.events.size(), lanes.events.size() );
+    }
+
+
+    /**
+     * Verify the sequence rule needs enough starting records for the key within the window
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testSequence() throws Exception {
+        final Collector         out    = new Collector();
+        final CorrelationEngine engine = new CorrelationEngine(
+                                             CorrelationRule.sequence( "brute", "suser",
+                                                 CEFFilter.compile( "outcome = failure" ),
+                                                 CEFFilter.compile( "outcome = success" ), 2, 60000 ).where(
+                                                     CEFFilter.compile( "id = 4625 or id = 4624" ) ) );
+
+        // A success after one failure isn't enough
+        engine.correlate( CorrelationEngineTest.event( null, 4625, "bob", "failure" ), CorrelationEngineTest.T0, out );
+        engine.correlate( CorrelationEngineTest.event( null, 4624, "bob", "success" ), CorrelationEngineTest.T0 + 1000,
+                          out );
+        Assert.assertTrue( out.events.isEmpty() );
+
+        // Records the where filter skips don't count
+        engine.correlate( CorrelationEngineTest.event( null, 1, "bob", "failure" ), CorrelationEngineTest.T0 + 2000,
+                          out );
+        engine.correlate( CorrelationEngineTest.event( null, 4625, "bob", "failure" ), CorrelationEngineTest.T0 + 3000,
+                          out );
+        engine.correlate( CorrelationEngineTest.event( null, 4625, "alice", "failure" ),
+                          CorrelationEngineTest.T0 + 4000, out );
+        engine.correlate( CorrelationEngineTest.event( null, 4624, "alice", "success" ),
+                          CorrelationEngineTest.T0 + 5000, out );
+        Assert.assertTrue( out.events.isEmpty() );
+
+        engine.correlate( CorrelationEngineTest.event( null, 4624, "bob", "success" ), CorrelationEngineTest.T0 + 6000,
+                          out );
+        Assert.assertEquals( 1, out.events.size() );
+        Assert.assertEquals( "bob", out.events.get( 0 ).getExtension().get( "suser" ) );
+        Assert.assertEquals( "3", out.events.get( 0 ).getExtension().get( "cnt" ) );
+        Assert.assertEquals( CorrelationEngineTest.T0, out.events.get( 0 ).getExtension().getTime( "start" ) );
+
+        // Failures that have fallen out of the window don't count
+        engine.correlate( CorrelationEngineTest.event( null, 4625, "carol", "failure" ),
+                          CorrelationEngineTest.T0 + 10000, out );
+        engine.correlate( CorrelationEngineTest.event( null, 4625, "carol", "failure" ),
+                          CorrelationEngineTest.T0 + 20000, out );
+        engine.correlate( CorrelationEngineTest.event( null, 4624, "carol", "success" ),
+                          CorrelationEngineTest.T0 + 75000, out );
+        Assert.assertEquals( 1, out.events.size() );
+    }
+
+
+    /**
+     * Build a record
+     *
+     * @param src
+     *            the source address or null
+     * @param id
+     *            the signature id
+     * @param suser
+     *            the user or null
+     * @param outcome
+     *            the outcome or null
+     * @return the record
+     * @throws Exception
+     *             on failure
+     */
+    private static CEF event( final String src, final int id, final String suser, final String outcome )
+            throws Exception {
+        return TestHelpers.event( id, "src", src, "suser", suser, "outcome", outcome );
+    }
+
+
+    //~--- inner classes ------------------------------------------------------
+
+    /**
+     * Collects what the engine emits
+     */
+    private static final class Collector implements Emitter<CEF> {
+
+        /** The records emitted */
+        final List<CEF> events = Collections.synchronizedList( new ArrayList<CEF>() );
+
+
+        @Override
+        public void emit( final CEF item ) {
+            events.add( item );
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ * EnricherTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.enrich.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.Extension;
+import com.lespea.cef.enrich.Enricher;
+import com.lespea.cef.enrich.LookupTable;
+import com.lespea.cef.enrich.ReloadingTable;
+import com.lespea.cef.utils.Utf8;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure lookup tables are loaded and joined onto events correctly
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class EnricherTest {
+
+    /** The asset table */
+    private static final String ASSETS = "# Assets\n" + "host,owner,zone,note\n" + "10.0.0.1,alice,dmz,\n"
+                                         + "2001:db8::1,bob,core,\"a, \"\"quoted\"\" = note\"\n"
+                                         + "Mail.Example.com,carol,mail,x\n" + "10.0.0.1,mallory,nowhere,dup\n";
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * @param path
+     *            the file
+     * @param text
+     *            what to write to it
+     * @throws IOException
+     *             on failure
+     */
+    private static void write( final File path, final String text ) throws IOException {
+        final FileOutputStream out = new FileOutputStream( path );
+
+        try {
+            out.write( text.getBytes( Utf8.CHARSET ) );
+        } finally {
+            out.close();
+        }
+    }
+
+
+    /**
+     * Verify pairs that wouldn't split back apart can't be appended
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testAppendExtension() throws Exception {
+        final CEF      cef      = new CEF( 0, "V", "P", "1", "100", "N", 5,
+                                           new Extension( new HashMap<String, String>() ) );
+        final String[] bad      = { "no pairs", " a=b", "junk a=b", "a=b=c", "a=b =c", "a=b\nc=d", "a=x\r",
+                                    "k\tey=v", "a=b c\td=e" };
+        final CEF      appended = cef.appendExtension( "a=b\\= c d=C:\\\\temp\\\\ e=" );
+
+        Assert.assertSame( cef, cef.appendExtension( "" ) );
+        Assert.assertEquals( "b= c", appended.getExtension().get( "a" ) );
+        Assert.assertEquals( "C:\\temp\\", appended.getExtension().get( "d" ) );
+        Assert.assertEquals( "", appended.getExtension().get( "e" ) );
+
+        for (final String pairs : bad) {
+            try {
+                cef.appendExtension( pairs );
+                Assert.fail( pairs );
+            } catch (final IllegalArgumentException e) {
+
+                // Expected
+            }
+        }
+    }
+
+
+    /**
+     * Verify events are enriched in both their object and rendered forms
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testEnrich() throws Exception {
+        final LookupTable         table  = LookupTable.load( new StringReader( EnricherTest.ASSETS ) );
+        final Enricher            joined = new Enricher().join( "src", table ).join( "dst", table, "dst" );
+        final Map<String, String> fields = new HashMap<String, String>();
+
+        fields.put( "src", "10.0.0.1" );
+        fields.put( "dst", "2001:DB8:0::1" );
+        fields.put( "zone", "original" );
+
+        final CEF cef      = new CEF( 0, "V", "P", "1", "100", "N", 5, new Extension( fields ) );
+        final CEF enriched = joined.enrich( cef );
+
+        Assert.assertEquals( "alice", enriched.getExtension().get( "owner" ) );
+        Assert.assertEquals( "original", enriched.getExtension().get( "zone" ) );
+        Assert.assertNull( enriched.getExtension().get( "note" ) );
+        Assert.assertEquals( "bob", enriched.getExtension().get( "dstowner" ) );
+        Assert.assertEquals( "a, \"quoted\" = note", enriched.getExtension().get( "dstnote" ) );
+        Assert.assertTrue( enriched.toString().startsWith( cef.toString() + " " ) );
+        Assert.assertEquals( enriched.toString(), joined.enrich( cef.toString() ) );
+        Assert.assertEquals( enriched.toString() + "\r\n", joined.enrich( cef.toString() + "\r\n" ) );
+        Assert.assertEquals( enriched.getEncodedLength(), enriched.toString().getBytes( Utf8.CHARSET ).length );
+
+        final CEF host = new CEF( 0, "V", "P", "1", "100", "N", 5, new Extension( new HashMap<String, String>() ) );
+        final String line = host.toString();
+
+        Assert.assertSame( host, joined.enrich( host ) );
+        Assert.assertSame( line, joined.enrich( line ) );
+        Assert.assertEquals( "CEF:0|V|P|1|100|N|5|owner=carol zone=mail note=x",
+                             new Enricher().join( "dhost", table ).enrich( line + "dhost=mail.example.COM" )
+                                 .replace( "dhost=mail.example.COM ", "" ) );
+    }
+
+
+    /**
+     * Verify the table is loaded again when its file changes
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testReload() throws Exception {
+        final File file = File.createTempFile( "lookup", ".csv" );
+
+        try {
+            EnricherTest.write( file, "ip,owner\n10.0.0.1,alice\n" );
+
+            final ReloadingTable table    = new ReloadingTable( file, 0 );
+            final Enricher       enricher = new Enricher().join( "src", table );
+            final String         line     = "CEF:0|V|P|1|100|N|5|src=10.0.0.1";
+
+            Assert.assertEquals( line + " owner=alice", enricher.enrich( line ) );
+
+            EnricherTest.write( file, "ip,owner\n10.0.0.1,bob\n" );
+            file.setLastModified( file.lastModified() + 2000 );
+            Assert.assertEquals( line + " owner=bob", enricher.enrich( line ) );
+
+            EnricherTest.write( file, "ip,bad key\n10.0.0.1,eve\n" );
+            file.setLastModified( file.lastModified() + 2000 );
+            Assert.assertEquals( line + " owner=bob", enricher.enrich( line ) );
+            Assert.assertEquals( 1, table.table().getRows() );
+        } finally {
+            file.delete();
+        }
+    }
+
+
+    /**
+     * Verify the table's keys and values
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testTable() throws Exception {
+        final LookupTable table = LookupTable.load( new StringReader( EnricherTest.ASSETS ) );
+
+        Assert.assertEquals( 4, table.getRows() );
+        Assert.assertEquals( 3, table.getColumns().length );
+        Assert.assertEquals( 0, table.find( "10.0.0.1" ) );
+        Assert.assertEquals( 0, table.find( "::ffff:10.0.0.1" ) );
+        Assert.assertEquals( 1, table.find( "2001:db8:0:0:0:0:0:1" ) );
+        Assert.assertEquals( 2, table.find( "MAIL.example.com" ) );
+        Assert.assertEquals( LookupTable.NOT_FOUND, table.find( "10.0.0.2" ) );
+        Assert.assertEquals( LookupTable.NOT_FOUND, table.find( "mail" ) );
+        Assert.assertEquals( LookupTable.NOT_FOUND, table.find( (String) null ) );
+        Assert.assertEquals( "a, \"quoted\" \\= note", table.getValue( 1, 2 ) );
+        Assert.assertNull( table.getValue( 0, 2 ) );
+        Assert.assertEquals( 2, table.find( "x mail.example.com y", 2, 18, new long[2] ) );
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * CEFFilterTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.filter.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.filter.CEFFilter;
+import com.lespea.cef.filter.FilterMatcher;
+import com.lespea.cef.filter.InvalidFilter;
+import com.lespea.cef.utils.Utf8;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.nio.ByteBuffer;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure filter expressions are compiled and evaluated correctly against raw records
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class CEFFilterTest {
+
+    /** A line with escapes in both the header and the extension */
+    private static final String LINE =
+        "CEF:0|Ven\\|dor|Prod\\\\uct|1.0|100|Port scan|7|src=10.0.0.1 msg=a b\\=c d\\n dpt=22 act=blocked";
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * @return expressions that can't be compiled
+     */
+    @DataProvider
+    public Object[][] badExpressions() {
+        return new Object[][] {
+            { "" }, { "severity >= high" }, { "(act = blocked" }, { "act blocked" }, { "act = \"open" },
+            { "dpt in (22" }, { "act = blocked )" }, { "src within (10.0.0.0/33)" }, { "src within (10.0.0)" }
+        };
+    }
+
+
+    /**
+     * @return expressions and if they match {@link #LINE}
+     */
+    @DataProvider
+    public Object[][] expressions() {
+        return new Object[][] {
+            { "severity >= 7", true }, { "severity > 7", false }, { "severity < 8 && severity <= 7", true },
+            { "act = blocked", true }, { "act == allowed", false }, { "act != allowed", true },
+            { "missing != allowed", false }, { "dpt in (21, 22, 23)", true }, { "dpt in (80, 443)", false },
+            { "dpt >= 22", true }, { "msg = \"a b=c d\"", false }, { "msg = \"a b=c d\n\"", true },
+            { "vendor = \"Ven|dor\"", true }, { "product = \"Prod\\\\uct\"", true }, { "name = \"Port scan\"", true },
+            { "id = 100", true }, { "exists src", true }, { "exists missing", false }, { "not exists missing", true },
+            { "!(act = blocked)", false }, { "severity >= 9 or act = blocked", true },
+            { "severity >= 7 AND (act = allowed OR dpt in (22))", true }, { "src = 10.0.0.1 and msg = x", false },
+            { "vendor = \"bad\nvalue\"", false }, { "vendor != \"bad\nvalue\"", true }, { "msg >= 1", false },
+            { "src within (10.0.0.0/8)", true }, { "src within (192.168.0.0/16, ::ffff:10.0.0.0/104)", true },
+            { "src within (10.0.0.2/32, fe80::/10)", false }, { "msg within (0.0.0.0/0)", false }
+        };
+    }
+
+
+    /**
+     * Verify bad expressions are rejected
+     *
+     * @param expression
+     *            the expression
+     * @throws InvalidFilter
+     *             always
+     */
+    @Test(
+        dataProvider       = "badExpressions",
+        expectedExceptions = InvalidFilter.class
+    )
+    public void testBadExpressions( final String expression ) throws InvalidFilter {
+        CEFFilter.compile( expression );
+    }
+
+
+    /**
+     * Verify a value ending in a backslash doesn't hide the key after it
+     *
+     * @throws InvalidFilter
+     *             on failure
+     */
+    @Test
+    public void testBackslashValue() throws InvalidFilter {
+        final String        line    = "CEF:0|V|P|1|1|N|5|fname=C:\\\\temp\\\\ act=blocked";
+        final byte[]        bytes   = line.getBytes( Utf8.CHARSET );
+        final CEFFilter     filter  = CEFFilter.compile( "act = blocked and fname = \"C:\\\\temp\\\\\"" );
+        final FilterMatcher matcher = filter.matcher();
+
+        Assert.assertTrue( filter.matches( line ) );
+        Assert.assertTrue( matcher.matches( bytes, 0, bytes.length ) );
+        Assert.assertTrue( matcher.matches( ByteBuffer.wrap( bytes ), 0, bytes.length ) );
+        Assert.assertTrue( CEFFilter.compile( "act = blocked" )
+                                    .matches( "CEF:0|V|P|1|1|N|5|fname=C:\\temp\\ act=blocked" ) );
+    }
+
+
+    /**
+     * Verify a byte buffer with other records around the one being tested
+     *
+     * @throws InvalidFilter
+     *             on failure
+     */
+    @Test
+    public void testBuffer() throws InvalidFilter {
+        final String     other  = "CEF:0|V|P|1|1|N|3|act=blocked\n";
+        final byte[]     line   = (CEFFilterTest.LINE + "\r\n").getBytes( Utf8.CHARSET );
+        final byte[]     first  = other.getBytes( Utf8.CHARSET );
+        final ByteBuffer buf    = ByteBuffer.allocateDirect( first.length * 2 + line.length );
+        final CEFFilter  filter = CEFFilter.compile( "severity >= 7 and act = blocked" );
+
+        buf.put( first ).put( line ).put( first );
+        Assert.assertFalse( filter.matches( buf, 0, first.length ) );
+        Assert.assertTrue( filter.matches( buf, first.length, line.length ) );
+        Assert.assertFalse( filter.matches( buf, first.length + line.length, first.length ) );
+    }
+
+
+    /**
+     * Verify every form of a record gives the same answer
+     *
+     * @param expression
+     *            the expression
+     * @param expected
+     *            if it matches {@link #LINE}
+     * @throws InvalidFilter
+     *             on failure
+     */
+    @Test(dataProvider = "expressions")
+    public void testExpressions( final String expression, final boolean expected ) throws InvalidFilter {
+        final CEFFilter     filter  = CEFFilter.compile( expression );
+        final FilterMatcher matcher = filter.matcher();
+        final byte[]        bytes   = ("xx" + CEFFilterTest.LINE + "\n").getBytes( Utf8.CHARSET );
+
+        Assert.assertEquals( expression, expected, filter.matches( CEFFilterTest.LINE ) );
+        Assert.assertEquals( expression, expected, matcher.matches( bytes, 2, bytes.length - 2 ) );
+        Assert.assertEquals( expression, expected, matcher.matches( ByteBuffer.wrap( bytes ), 2, bytes.length - 2 ) );
+        Assert.assertEquals( expression, filter.toString() );
+    }
+
+
+    /**
+     * Verify records with a short header don't match anything
+     *
+     * @throws InvalidFilter
+     *             on failure
+     */
+    @Test
+    public void testShortHeader() throws InvalidFilter {
+        Assert.assertFalse( CEFFilter.compile( "severity >= 0" ).matches( "CEF:0|V|P|1|1|N" ) );
+        Assert.assertTrue( CEFFilter.compile( "severity = 5" ).matches( "CEF:0|V|P|1|1|N|5" ) );
+        Assert.assertFalse( CEFFilter.compile( "exists act" ).matches( "CEF:0|V|P|1|1|N|5" ) );
+    }
+}
@@ -0,0 +1,278 @@
+/**
+ * CEFFlowTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.flow.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.flow.CEFPublisher;
+import com.lespea.cef.flow.CEFSubscriber;
+import com.lespea.cef.flow.Subscriber;
+import com.lespea.cef.flow.Subscription;
+import com.lespea.cef.utils.Utf8;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.nio.channels.Channels;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure records are only read as they're asked for and written out in batches
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class CEFFlowTest {
+
+    /**
+     * @param count
+     *            number of records
+     * @return the records, with a bad line after the first
+     */
+    private static String records( final int count ) {
+        final StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < count; i++) {
+            sb.append( "CEF:0|Acme|FW|1|" ).append( i ).append( "|Event \\| ").append( i ).append( "|5|cnt=" )
+              .append( i ).append( " msg=a\\=b\r\n" );
+
+            if (i == 0) {
+                sb.append( "not CEF\n\n" );
+            }
+        }
+
+
+        return sb.toString();
+    }
+
+
+    /**
+     * @param text
+     *            what to write
+     * @return a temporary file holding it
+     * @throws IOException
+     *             on failure
+     */
+    private static File write( final String text ) throws IOException {
+        final File         file = File.createTempFile( "flow", ".cef" );
+        final OutputStream out  = new FileOutputStream( file );
+
+        try {
+            out.write( text.getBytes( Utf8.CHARSET ) );
+        } finally {
+            out.close();
+        }
+
+
+        return file;
+    }
+
+
+    /**
+     * Verify only what's requested is delivered, and cancelling stops it
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testDemand() throws Exception {
+        final File file = CEFFlowTest.write( CEFFlowTest.records( 100 ) );
+
+        try {
+            final CEFPublisher   publisher = new CEFPublisher( file );
+            final Recorder       recorder  = new Recorder();
+
+            publisher.subscribe( recorder );
+            Thread.sleep( 50 );
+            Assert.assertTrue( recorder.events.isEmpty() );
+
+            recorder.subscription.request( 3 );
+
+            for (int i = 0; i < 3; i++) {
+                Assert.assertEquals( "next", recorder.events.poll( 5, TimeUnit.SECONDS ) );
+            }
+
+
+            Thread.sleep( 50 );
+            Assert.assertTrue( recorder.events.isEmpty() );
+            Assert.assertEquals( "2", recorder.items.get( 2 ).getId() );
+            Assert.assertEquals( "Event | 1", recorder.items.get( 1 ).getName() );
+            Assert.assertEquals( "a=b", recorder.items.get( 1 ).getExtension().get( "msg" ) );
+            Assert.assertEquals( 1, publisher.getSkipped() );
+
+            recorder.subscription.cancel();
+            recorder.subscription.request( 10 );
+            Thread.sleep( 50 );
+            Assert.assertTrue( recorder.events.isEmpty() );
+
+            final Recorder all = new Recorder();
+
+            publisher.subscribe( all );
+            all.subscription.request( Long.MAX_VALUE );
+            all.subscription.request( Long.MAX_VALUE );
+
+            for (int i = 0; i < 100; i++) {
+                Assert.assertEquals( "next", all.events.poll( 5, TimeUnit.SECONDS ) );
+            }
+
+
+            Assert.assertEquals( "complete", all.events.poll( 5, TimeUnit.SECONDS ) );
+
+            final Recorder bad = new Recorder();
+
+            publisher.subscribe( bad );
+            bad.subscription.request( 0 );
+            Assert.assertEquals( "error", bad.events.poll( 5, TimeUnit.SECONDS ) );
+        } finally {
+            file.delete();
+        }
+    }
+
+
+    /**
+     * Verify a channel is read once and copied through a subscriber
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testCopy() throws Exception {
+        final String                text  = CEFFlowTest.records( 5000 );
+        final ByteArrayOutputStream out   = new ByteArrayOutputStream();
+        final CEFPublisher          from  = new CEFPublisher( Channels.newChannel(
+                                                new ByteArrayInputStream( text.getBytes( Utf8.CHARSET ) ) ) );
+        final CEFSubscriber         to    = new CEFSubscriber( Channels.newChannel( out ), 64, 1024, true );
+
+        from.subscribe( to );
+        Assert.assertTrue( to.await( 10, TimeUnit.SECONDS ) );
+        Assert.assertEquals( 5000, to.getWritten() );
+        Assert.assertEquals( text.replace( "\r\n", "\n" ).replace( "not CEF\n\n", "" ),
+                             new String( out.toByteArray(), Utf8.CHARSET ) );
+
+        final Recorder second = new Recorder();
+
+        from.subscribe( second );
+        Assert.assertEquals( "error", second.events.poll( 5, TimeUnit.SECONDS ) );
+    }
+
+
+    /**
+     * Verify a failing write cancels the subscription and is reported
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testWriteFailure() throws Exception {
+        final File file = CEFFlowTest.write( CEFFlowTest.records( 1000 ) );
+
+        try {
+            final FileInputStream readOnly = new FileInputStream( file );
+            final CEFSubscriber   to       = new CEFSubscriber( Channels.newChannel( new OutputStream() {
+                @Override
+                public void write( final int b ) throws IOException {
+                    throw new IOException( "Disk full" );
+                }
+            } ), 10, 256, false );
+
+            new CEFPublisher( readOnly.getChannel() ).subscribe( to );
+
+            try {
+                to.await( 10, TimeUnit.SECONDS );
+                Assert.fail();
+            } catch (final IOException e) {
+                Assert.assertEquals( "Disk full", e.getMessage() );
+            }
+
+
+            readOnly.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+
+    //~--- inner classes ------------------------------------------------------
+
+    /**
+     * Records what it's sent
+     */
+    private static final class Recorder implements Subscriber<CEF> {
+
+        /** What happened, in order */
+        final BlockingQueue<String> events = new LinkedBlockingQueue<String>();
+
+        /** The items */
+        final List<CEF> items = new CopyOnWriteArrayList<CEF>();
+
+        /** The subscription */
+        volatile Subscription subscription;
+
+
+        @Override
+        public void onComplete() {
+            events.add( "complete" );
+        }
+
+
+        @Override
+        public void onError( final Throwable error ) {
+            events.add( "error" );
+        }
+
+
+        @Override
+        public void onNext( final CEF item ) {
+            items.add( item );
+            events.add( "next" );
+        }
+
+
+        @Override
+        public void onSubscribe( final Subscription subscription ) {
+            this.subscription = subscription;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+/**
+ * RateLimiterTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.limit.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.Extension;
+import com.lespea.cef.limit.RateLimiter;
+import com.lespea.cef.pipeline.Emitter;
+import com.lespea.cef.utils.tests.TestHelpers;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure each key gets its burst and rate, no more, and everything held back is summarized
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class RateLimiterTest {
+
+    /** A millisecond in nanoseconds */
+    private static final long MS = 1000000;
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Verify a key gets its burst at once and then the rate
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testBucket() throws Exception {
+        final RateLimiter limiter = new RateLimiter( 10, 5 );
+        final CEF         cef     = RateLimiterTest.event( 100, null );
+        final long        t0      = 1000 * RateLimiterTest.MS;
+
+        Assert.assertEquals( 5, RateLimiterTest.allowed( limiter, cef, t0, 20 ) );
+
+        // A token every 100ms
+        Assert.assertEquals( 0, RateLimiterTest.allowed( limiter, cef, t0 + 99 * RateLimiterTest.MS, 5 ) );
+        Assert.assertEquals( 1, RateLimiterTest.allowed( limiter, cef, t0 + 100 * RateLimiterTest.MS, 5 ) );
+        Assert.assertEquals( 2, RateLimiterTest.allowed( limiter, cef, t0 + 300 * RateLimiterTest.MS, 5 ) );
+
+        // Quiet for a long time only gives back the burst
+        Assert.assertEquals( 5, RateLimiterTest.allowed( limiter, cef, t0 + 60000 * RateLimiterTest.MS, 20 ) );
+
+        // Other signatures have their own buckets
+        Assert.assertEquals( 5, RateLimiterTest.allowed( limiter, RateLimiterTest.event( 101, null ),
+                                                         t0 + 60000 * RateLimiterTest.MS, 20 ) );
+        Assert.assertEquals( 2, limiter.getKeys() );
+
+        // Bars in the header don't make signatures run together
+        final Extension none = new Extension( new HashMap<String, String>() );
+
+        Assert.assertEquals( 5, RateLimiterTest.allowed( limiter, new CEF( "A|B", "C", "1.0", 7, "Name", 5, none ),
+                                                         t0, 20 ) );
+        Assert.assertEquals( 5, RateLimiterTest.allowed( limiter, new CEF( "A", "B|C", "1.0", 7, "Name", 5, none ),
+                                                         t0, 20 ) );
+        Assert.assertEquals( 4, limiter.getKeys() );
+    }
+
+
+    /**
+     * Verify threads racing for one bucket never get more than it holds
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testConcurrent() throws Exception {
+        final RateLimiter    limiter = new RateLimiter( 1000, 500 );
+        final CEF            cef     = RateLimiterTest.event( 100, null );
+        final AtomicLong     passed  = new AtomicLong();
+        final CountDownLatch ready   = new CountDownLatch( 1 );
+        final Thread[]       threads = new Thread[4];
+
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread( new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        ready.await();
+                    } catch (final InterruptedException e) {
+                        return;
+                    }
+
+
+                    passed.addAndGet( RateLimiterTest.allowed( limiter, cef, 5000 * RateLimiterTest.MS, 10000 ) );
+                }
+            } );
+            threads[t].start();
+        }
+
+
+        ready.countDown();
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+
+        Assert.assertEquals( 500, passed.get() );
+    }
+
+
+    /**
+     * Verify nothing dropped while another thread evicts the bucket goes missing from the summaries
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testConcurrentEviction() throws Exception {
+        final RateLimiter    limiter = new RateLimiter( 1, 1 ).maxKeys( 8 );
+        final CEF[]          events  = new CEF[40];
+        final AtomicLong     denied  = new AtomicLong();
+        final CountDownLatch ready   = new CountDownLatch( 1 );
+        final Thread[]       threads = new Thread[4];
+
+        for (int id = 0; id < events.length; id++) {
+            events[id] = RateLimiterTest.event( id, null );
+        }
+
+
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+
+            threads[t] = new Thread( new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        ready.await();
+                    } catch (final InterruptedException e) {
+                        return;
+                    }
+
+
+                    for (int i = 0; i < 50000; i++) {
+                        if (!limiter.allow( events[(i + offset) % events.length], 0 )) {
+                            denied.incrementAndGet();
+                        }
+                    }
+                }
+            } );
+            threads[t].start();
+        }
+
+
+        ready.countDown();
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+
+        final Collector out     = new Collector();
+        long            dropped = 0;
+
+        limiter.summarize( 1000, out );
+
+        for (final CEF summary : out.events) {
+            dropped += Long.parseLong( summary.getExtension().get( "cnt" ) );
+        }
+
+
+        Assert.assertEquals( denied.get(), dropped );
+    }
+
+
+    /**
+     * Verify the table stays bounded and what evicted keys dropped is still summarized
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testEviction() throws Exception {
+        final RateLimiter limiter = new RateLimiter( 1, 1 ).maxKeys( 10 );
+        final Collector   out     = new Collector();
+
+        for (int id = 0; id < 30; id++) {
+            Assert.assertEquals( 1, RateLimiterTest.allowed( limiter, RateLimiterTest.event( id, null ),
+                                                             RateLimiterTest.MS, 3 ) );
+            Assert.assertTrue( limiter.getKeys() <= 10 );
+        }
+
+
+        Assert.assertEquals( limiter.getKeys(), limiter.summarize( 1000, out ) - 1 );
+
+        long dropped = 0;
+
+        for (final CEF summary : out.events) {
+            dropped += Long.parseLong( summary.getExtension().get( "cnt" ) );
+        }
+
+
+        Assert.assertEquals( 30 * 2, dropped );
+        Assert.assertEquals( "*", out.events.get( out.events.size() - 1 ).getExtension().get( "cs1" ) );
+        Assert.assertEquals( "0", out.events.get( out.events.size() - 1 ).getExtension().get( "cn1" ) );
+
+        // Evicted keys keep what they sampled apart from what they dropped
+        final RateLimiter sampling = new RateLimiter( 1, 1 ).maxKeys( 10 ).sample( 2 );
+
+        out.events.clear();
+
+        for (int id = 0; id < 30; id++) {
+            Assert.assertEquals( 2, RateLimiterTest.allowed( sampling, RateLimiterTest.event( id, null ),
+                                                             RateLimiterTest.MS, 3 ) );
+        }
+
+
+        sampling.summarize( 1000, out );
+
+        final Extension evicted = out.events.get( out.events.size() - 1 ).getExtension();
+        long            sampled = 0;
+
+        dropped = 0;
+
+        for (final CEF summary : out.events) {
+            dropped += Long.parseLong( summary.getExtension().get( "cnt" ) );
+            sampled += Long.parseLong( summary.getExtension().get( "cn1" ) );
+        }
+
+
+        Assert.assertEquals( 30, dropped );
+        Assert.assertEquals( 30, sampled );
+        Assert.assertEquals( "*", evicted.get( "cs1" ) );
+        Assert.assertEquals( evicted.get( "cnt" ), evicted.get( "cn1" ) );
+    }
+
+
+    /**
+     * Verify sampling lets a share of what's over the limit through and both are summarized per
+     * device
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testSampleAndSummary() throws Exception {
+        final RateLimiter limiter = new RateLimiter( 1, 10 ).key( "dvc" ).sample( 100 ).severity( 6 );
+        final Collector   out     = new Collector();
+
+        Assert.assertEquals( 10 + 10, RateLimiterTest.allowed( limiter, RateLimiterTest.event( 100, "10.1.1.1" ),
+                                                               RateLimiterTest.MS, 1010 ) );
+        Assert.assertEquals( 10, RateLimiterTest.allowed( limiter, RateLimiterTest.event( 100, "10.1.1.2" ),
+                                                          RateLimiterTest.MS, 10 ) );
+        Assert.assertEquals( 10, RateLimiterTest.allowed( limiter, RateLimiterTest.event( 100, null ),
+                                                          RateLimiterTest.MS, 50 ) );
+
+        Assert.assertEquals( 2, limiter.summarize( 1700000000000L, out ) );
+        Collections.sort( out.events, new Comparator<CEF>() {
+            @Override
+            public int compare( final CEF o1, final CEF o2 ) {
+                return o1.getExtension().get( "cs2" ).compareTo( o2.getExtension().get( "cs2" ) );
+            }
+        } );
+
+        final CEF       device    = out.events.get( 1 );
+        final Extension extension = device.getExtension();
+
+        Assert.assertEquals( RateLimiter.VENDOR, device.getVendor() );
+        Assert.assertEquals( RateLimiter.SUMMARY_ID, device.getId() );
+        Assert.assertEquals( 6, device.getSeverity() );
+        Assert.assertEquals( "Vendor|Product|100", extension.get( "cs1" ) );
+        Assert.assertEquals( "dvc", extension.get( "cs2Label" ) );
+        Assert.assertEquals( "10.1.1.1", extension.get( "cs2" ) );
+        Assert.assertEquals( "990", extension.get( "cnt" ) );
+        Assert.assertEquals( "10", extension.get( "cn1" ) );
+        Assert.assertEquals( 1700000000000L, extension.getTime( "end" ) );
+        Assert.assertEquals( "", out.events.get( 0 ).getExtension().get( "cs2" ) );
+        Assert.assertEquals( "40", out.events.get( 0 ).getExtension().get( "cnt" ) );
+
+        // Counts start over after a summary
+        Assert.assertEquals( 0, limiter.summarize( 1700000060000L, out ) );
+    }
+
+
+    /**
+     * Verify the limiter passes records on and emits its summaries when run as a stage
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testStage() throws Exception {
+        final RateLimiter limiter = new RateLimiter( 0.001, 2 ).summaryEvery( 1 );
+        final Collector   out     = new Collector();
+
+        for (int i = 0; i < 5; i++) {
+            limiter.process( RateLimiterTest.event( 100, null ), out );
+        }
+
+
+        Thread.sleep( 5 );
+        limiter.process( RateLimiterTest.event( 100, null ), out );
+
+        // A slow start can put the summary interval in the middle of the records
+        int  passed  = 0;
+        long dropped = 0;
+
+        for (final CEF cef : out.events) {
+            if (RateLimiter.SUMMARY_ID.equals( cef.getId() )) {
+                dropped += Long.parseLong( cef.getExtension().get( "cnt" ) );
+            }
+            else {
+                passed++;
+            }
+        }
+
+
+        Assert.assertEquals( 2, passed );
+        Assert.assertEquals( 4, dropped );
+        Assert.assertEquals( RateLimiter.SUMMARY_ID, out.events.get( out.events.size() - 1 ).getId() );
+    }
+
+
+    /**
+     * Offer the same record a number of times at one instant
+     *
+     * @param limiter
+     *            the limiter
+     * @param cef
+     *            the record
+     * @param nanos
+     *            the time
+     * @param times
+     *            how many times
+     * @return how many went through
+     */
+    private static int allowed( final RateLimiter limiter, final CEF cef, final long nanos, final int times ) {
+        int allowed = 0;
+
+        for (int i = 0; i < times; i++) {
+            if (limiter.allow( cef, nanos )) {
+                allowed++;
+            }
+        }
+
+
+        return allowed;
+    }
+
+
+    /**
+     * Build a record
+     *
+     * @param id
+     *            the signature id
+     * @param dvc
+     *            the device address or null
+     * @return the record
+     * @throws Exception
+     *             on failure
+     */
+    private static CEF event( final int id, final String dvc ) throws Exception {
+        return TestHelpers.event( id, "dvc", dvc );
+    }
+
+
+    //~--- inner classes ------------------------------------------------------
+
+    /**
+     * Collects what's emitted
+     */
+    private static final class Collector implements Emitter<CEF> {
+
+        /** The records emitted */
+        final List<CEF> events = Collections.synchronizedList( new ArrayList<CEF>() );
+
+
+        @Override
+        public void emit( final CEF item ) {
+            events.add( item );
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/**
+ * LoadGeneratorTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.loadgen.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.Extension;
+import com.lespea.cef.LazyExtension;
+import com.lespea.cef.loadgen.EventMix;
+import com.lespea.cef.loadgen.LoadGenerator;
+import com.lespea.cef.utils.CEFScanner;
+import com.lespea.cef.utils.StringUtils;
+import com.lespea.cef.utils.Utf8;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure generated events are valid, follow the mix and are sent at the asked for rate
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class LoadGeneratorTest {
+
+    /**
+     * Verify the events follow the mix and read back the same
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testMix() throws Exception {
+        final EventMix mix = new EventMix().product( "V", "P", "1", 1 ).keys( 1, "src", "msg" ).valueLength( 10, 20 )
+                                           .signatures( 20, 1.5 ).severities( 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 1 )
+                                           .escapeRate( 0.05 );
+        final Random   random  = new Random( 42 );
+        final int[]    ids     = new int[20];
+        int            escaped = 0;
+
+        for (int i = 0; i < 10000; i++) {
+            final CEF       cef    = mix.next( random );
+            final Extension fields = cef.getExtension();
+            final String    line   = cef.toString();
+
+            Assert.assertEquals( "V", cef.getVendor() );
+            Assert.assertTrue( cef.getSeverity() >= 9 );
+            Assert.assertNull( fields.get( "dst" ) );
+            Assert.assertTrue( fields.get( "src" ).startsWith( "10." ) );
+            Assert.assertTrue( fields.get( "msg" ).length() >= 10 );
+            Assert.assertTrue( fields.get( "msg" ).length() <= 20 );
+            Assert.assertEquals( StringUtils.escapeField( cef.getName() ),
+                                 CEFScanner.headerField( line, CEFScanner.HEADER_NAME ) );
+
+            final LazyExtension parsed = new LazyExtension( line.substring( CEFScanner.extensionStart( line ) ) );
+
+            Assert.assertEquals( fields.get( "msg" ), parsed.get( "msg" ) );
+            Assert.assertEquals( fields.get( "src" ), parsed.get( "src" ) );
+
+            ids[Integer.parseInt( cef.getId() ) - 100]++;
+
+            if (line.indexOf( '\\' ) >= 0) {
+                escaped++;
+            }
+        }
+
+
+        Assert.assertTrue( ids[0] > ids[1] );
+        Assert.assertTrue( ids[1] > ids[19] );
+        Assert.assertTrue( escaped > 5000 );
+
+        final CEF clean = new EventMix().next( random );
+
+        Assert.assertEquals( -1, clean.toString().indexOf( '\\' ) );
+    }
+
+
+    /**
+     * Verify the rate is held and the limits are honoured
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testRate() throws Exception {
+        final LoadGenerator         generator = new LoadGenerator( new EventMix(), 100, 1 );
+        final ByteArrayOutputStream out       = new ByteArrayOutputStream();
+
+        Assert.assertEquals( 500, generator.run( out, 0, 500, 0 ) );
+        Assert.assertEquals( 500, LoadGeneratorTest.lines( out.toByteArray() ) );
+
+        final long start = System.nanoTime();
+        final long sent  = generator.run( new ByteArrayOutputStream(), 5000, 0, 400 );
+        final long took  = System.nanoTime() - start;
+
+        Assert.assertTrue( "sent " + sent, Math.abs( sent - 2000 ) <= 100 );
+        Assert.assertTrue( took >= 390000000L );
+        Assert.assertTrue( Math.abs( generator.getAchievedRate() - 5000 ) < 500 );
+        Assert.assertEquals( sent, generator.getSent() );
+    }
+
+
+    /**
+     * Verify events can be sent to a socket on the loopback address
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testSocket() throws Exception {
+        final ServerSocket server = new ServerSocket( 0, 1, InetAddress.getByName( null ) );
+        final AtomicLong   lines  = new AtomicLong();
+        final Thread       reader = new Thread( new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final Socket      socket = server.accept();
+                    final InputStream in     = socket.getInputStream();
+                    final byte[]      buf    = new byte[4096];
+                    int               read;
+
+                    while ((read = in.read( buf )) > 0) {
+                        for (int i = 0; i < read; i++) {
+                            if (buf[i] == '\n') {
+                                lines.incrementAndGet();
+                            }
+                        }
+                    }
+
+
+                    socket.close();
+                } catch (final Exception e) {
+                    lines.set( -1 );
+                }
+            }
+        } );
+
+        reader.start();
+
+        try {
+            final Socket       socket = new Socket( InetAddress.getByName( null ), server.getLocalPort() );
+            final OutputStream out    = socket.getOutputStream();
+
+            new LoadGenerator( new EventMix().escapeRate( 0.01 ), 1000, 7 ).run( out, 0, 20000, 0 );
+            socket.close();
+            reader.join();
+        } finally {
+            server.close();
+        }
+
+
+        Assert.assertEquals( 20000, lines.get() );
+    }
+
+
+    /**
+     * @param bytes
+     *            the output
+     * @return number of lines, each checked to be a CEF event
+     */
+    private static int lines( final byte[] bytes ) {
+        final String[] lines = new String( bytes, Utf8.CHARSET ).split( "\n" );
+
+        for (final String line : lines) {
+            Assert.assertTrue( line.startsWith( "CEF:0|" ) );
+        }
+
+
+        return lines.length;
+    }
+}
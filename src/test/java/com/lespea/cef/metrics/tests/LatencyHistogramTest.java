@@ -0,0 +1,246 @@
+/**
+ * LatencyHistogramTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.metrics.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.Extension;
+import com.lespea.cef.metrics.CEFMetrics;
+import com.lespea.cef.metrics.LatencyHistogram;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.lang.management.ManagementFactory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure the histograms give accurate percentiles, merge threads and can be switched off
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * @param expected
+     *            the exact value
+     * @param actual
+     *            the histogram's value
+     */
+    private static void assertClose( final long expected, final long actual ) {
+        Assert.assertTrue( expected + " vs " + actual,
+                           (actual >= expected) && (actual - expected <= Math.max( 1, expected / 30 )) );
+    }
+
+
+    /**
+     * Verify CEF construction is recorded and the histograms show up over JMX
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testCEFMetrics() throws Exception {
+        final Map<String, String> fields = new HashMap<String, String>();
+
+        fields.put( "src", "10.0.0.1" );
+        CEFMetrics.setEnabled( true );
+
+        try {
+            final long cefs       = CEFMetrics.CEF.getCount();
+            final long extensions = CEFMetrics.EXTENSION.getCount();
+
+            new CEF( 0, "V", "P", "1", "100", "N", 5, new Extension( fields ) );
+            Assert.assertEquals( cefs + 1, CEFMetrics.CEF.getCount() );
+            Assert.assertEquals( extensions + 1, CEFMetrics.EXTENSION.getCount() );
+
+            CEFMetrics.register();
+            CEFMetrics.register();
+
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName  name   = CEFMetrics.objectName( "CEF" );
+
+            Assert.assertEquals( CEFMetrics.CEF.getCount(), server.getAttribute( name, "Count" ) );
+            Assert.assertEquals( Boolean.TRUE, server.getAttribute( name, "Enabled" ) );
+            Assert.assertTrue( (Long) server.getAttribute( name, "P999" ) > 0 );
+
+            CEFMetrics.unregister();
+            Assert.assertFalse( server.isRegistered( name ) );
+        } finally {
+            CEFMetrics.setEnabled( false );
+        }
+
+
+        final long cefs = CEFMetrics.CEF.getCount();
+
+        new CEF( 0, "V", "P", "1", "100", "N", 5, new Extension( fields ) );
+        Assert.assertEquals( cefs, CEFMetrics.CEF.getCount() );
+    }
+
+
+    /**
+     * Verify the percentiles are within a bucket of the exact ones
+     */
+    @Test
+    public void testPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram( true );
+        final Random           random    = new Random( 40 );
+        final long[]           values    = new long[100000];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp( random.nextDouble() * 20 );
+            histogram.record( values[i] );
+        }
+
+
+        Arrays.sort( values );
+
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        Assert.assertEquals( values.length, snapshot.getCount() );
+        Assert.assertEquals( values[values.length - 1], snapshot.getMax() );
+        LatencyHistogramTest.assertClose( values[values.length / 2 - 1], histogram.getP50() );
+        LatencyHistogramTest.assertClose( values[values.length * 99 / 100 - 1], histogram.getP99() );
+        LatencyHistogramTest.assertClose( values[values.length * 999 / 1000 - 1], histogram.getP999() );
+        Assert.assertEquals( values[0], snapshot.getValueAtPercentile( 0 ) );
+
+        histogram.record( Long.MAX_VALUE );
+        Assert.assertEquals( Long.MAX_VALUE, histogram.getMax() );
+        Assert.assertEquals( Long.MAX_VALUE, histogram.snapshot().getValueAtPercentile( 100 ) );
+    }
+
+
+    /**
+     * Verify the counts of threads that come and go are kept once they're folded into the total,
+     * before and after a reset
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testThreadChurn() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram( true );
+
+        for (int round = 1; round <= 200; round++) {
+            final Thread thread = new Thread( new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 1; i <= 10; i++) {
+                        histogram.record( i );
+                    }
+                }
+            } );
+
+            thread.start();
+            thread.join();
+
+            if (round == 100) {
+                histogram.reset();
+            }
+            else if (round % 7 == 0) {
+                Assert.assertEquals( ((round < 100)
+                                      ? round
+                                      : round - 100) * 10, histogram.getCount() );
+            }
+        }
+
+
+        Assert.assertEquals( 1000, histogram.getCount() );
+        Assert.assertEquals( 10, histogram.getMax() );
+        Assert.assertEquals( 5.5, histogram.getMean(), 0.001 );
+    }
+
+
+    /**
+     * Verify what each thread records is merged, and reset and the switch work
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testThreads() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram( true );
+        final Thread[]         threads   = new Thread[4];
+
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t * 1000;
+
+            threads[t] = new Thread( new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 1; i <= 1000; i++) {
+                        histogram.record( offset + i );
+                    }
+                }
+            } );
+            threads[t].start();
+        }
+
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+
+        Assert.assertEquals( 4000, histogram.getCount() );
+        Assert.assertEquals( 4000, histogram.getMax() );
+        Assert.assertEquals( 2000.5, histogram.getMean(), 0.001 );
+        LatencyHistogramTest.assertClose( 2000, histogram.getP50() );
+        Assert.assertTrue( histogram.getEventsPerSecond() > 0 );
+
+        histogram.reset();
+        Assert.assertEquals( 0, histogram.getCount() );
+        Assert.assertEquals( 0, histogram.getMax() );
+        Assert.assertEquals( 0, histogram.getP99() );
+
+        histogram.record( 10 );
+        Assert.assertEquals( 1, histogram.getCount() );
+        Assert.assertEquals( 10, histogram.getMax() );
+
+        histogram.setEnabled( false );
+        Assert.assertEquals( 0, histogram.start() );
+        histogram.stop( histogram.start() );
+        Assert.assertEquals( 1, histogram.getCount() );
+
+        histogram.setEnabled( true );
+        histogram.stop( histogram.start() );
+        Assert.assertEquals( 2, histogram.getCount() );
+    }
+}
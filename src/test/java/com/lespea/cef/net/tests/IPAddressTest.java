@@ -0,0 +1,240 @@
+/**
+ * IPAddressTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.net.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.net.CIDRSet;
+import com.lespea.cef.net.IPAddress;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.net.InetAddress;
+
+import java.util.Random;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure addresses are parsed and formatted like {@link InetAddress} does and CIDR ranges match
+ * the right addresses
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class IPAddressTest {
+
+    /**
+     * @return text that isn't an address
+     */
+    @DataProvider
+    public Object[][] badAddresses() {
+        return new Object[][] {
+            { "" }, { "1.2.3" }, { "1.2.3.4.5" }, { "256.1.1.1" }, { "1..2.3" }, { "1.2.3.4 " }, { "a.b.c.d" },
+            { ":" }, { ":1" }, { "1:" }, { "1:2:3:4:5:6:7" }, { "1:2:3:4:5:6:7:8:9" }, { "1::2::3" }, { ":::" },
+            { "12345::" }, { "1:2:3:4:5:6:7:1.2.3.4" }, { "::1.2.3" }, { "fe80::1%eth0" }, { "g::1" }, { "host" }
+        };
+    }
+
+
+    /**
+     * @return addresses and their canonical form
+     */
+    @DataProvider
+    public Object[][] goodAddresses() {
+        return new Object[][] {
+            { "0.0.0.0", "0.0.0.0" }, { "255.255.255.255", "255.255.255.255" }, { "10.1.2.3", "10.1.2.3" },
+            { "::", "::" }, { "::1", "::1" }, { "1::", "1::" }, { "2001:DB8::1", "2001:db8::1" },
+            { "2001:0db8:0000:0000:0000:0000:0002:0001", "2001:db8::2:1" },
+            { "2001:db8:0:1:1:1:1:1", "2001:db8:0:1:1:1:1:1" }, { "2001:0:0:1:0:0:0:1", "2001:0:0:1::1" },
+            { "1:0:0:2:0:0:3:4", "1::2:0:0:3:4" }, { "::ffff:1.2.3.4", "::ffff:1.2.3.4" },
+            { "::ffff:0102:0304", "::ffff:1.2.3.4" }, { "64:ff9b::192.0.2.33", "64:ff9b::c000:221" },
+            { "1:2:3:4:5:6:7::", "1:2:3:4:5:6:7:0" }
+        };
+    }
+
+
+    /**
+     * Verify text that isn't an address is rejected
+     *
+     * @param text
+     *            the text
+     */
+    @Test(dataProvider = "badAddresses")
+    public void testBad( final String text ) {
+        Assert.assertEquals( IPAddress.INVALID, IPAddress.parse( text, 0, text.length(), new long[2] ) );
+        Assert.assertFalse( new CIDRSet().add( "::/0" ).add( "0.0.0.0/0" ).contains( text ) );
+    }
+
+
+    /**
+     * Verify ranges match exactly the addresses they cover
+     */
+    @Test
+    public void testCIDRSet() {
+        final Random  random = new Random( 37 );
+        final long[]  bases  = new long[200];
+        final int[]   sizes  = new int[bases.length];
+        final CIDRSet set    = new CIDRSet();
+
+        for (int i = 0; i < bases.length; i++) {
+            sizes[i] = 8 + random.nextInt( 25 );
+
+            final long mask = (0xFFFFFFFFL << (32 - sizes[i])) & 0xFFFFFFFFL;
+
+            bases[i] = random.nextLong() & mask;
+            set.addIPv4( bases[i] | (random.nextInt() & ~mask), sizes[i] );
+        }
+
+
+        for (int i = 0; i < 100000; i++) {
+            final long address  = (i % 2 == 0)
+                                  ? random.nextInt() & 0xFFFFFFFFL
+                                  : bases[i % bases.length] + random.nextInt( 1 << (32 - sizes[i % bases.length]) );
+            boolean    expected = false;
+
+            for (int b = 0; b < bases.length; b++) {
+                expected |= (address >>> (32 - sizes[b])) == (bases[b] >>> (32 - sizes[b]));
+            }
+
+
+            Assert.assertEquals( expected, set.containsIPv4( address ) );
+            Assert.assertEquals( expected, set.contains( IPAddress.toString( address ) ) );
+            Assert.assertEquals( expected, set.containsIPv6( 0, IPAddress.IPV4_MAPPED | address ) );
+        }
+
+
+        final CIDRSet v6 = new CIDRSet().add( "2001:db8::/32" ).add( "fe80::/10" ).add( "::1" );
+
+        Assert.assertEquals( 3, v6.size() );
+        Assert.assertTrue( v6.contains( "2001:db8:ffff::1" ) );
+        Assert.assertFalse( v6.contains( "2001:db9::1" ) );
+        Assert.assertTrue( v6.contains( "febf:1::" ) );
+        Assert.assertFalse( v6.contains( "fec0::" ) );
+        Assert.assertTrue( v6.contains( "::1" ) );
+        Assert.assertFalse( v6.contains( "::2" ) );
+        Assert.assertFalse( v6.contains( "10.0.0.1" ) );
+        Assert.assertTrue( new CIDRSet().add( "::ffff:10.0.0.0/104" ).contains( "10.200.0.1" ) );
+        Assert.assertTrue( new CIDRSet().add( "10.0.0.0/8" ).contains( "::ffff:10.0.0.1" ) );
+        Assert.assertTrue( new CIDRSet().add( "0.0.0.0/0" ).contains( "1.2.3.4" ) );
+        Assert.assertTrue( new CIDRSet().add( "x 10.0.0.0/8 y".subSequence( 2, 12 ) ).contains( "10.1.1.1" ) );
+
+        for (final String bad : new String[] { "10.0.0.0/", "10.0.0.0/33", "::/129", "10.0.0.0/8x", "nope/8" }) {
+            try {
+                new CIDRSet().add( bad );
+                Assert.fail( bad );
+            } catch (final IllegalArgumentException e) {
+
+                // Expected
+            }
+        }
+    }
+
+
+    /**
+     * Verify addresses parse to the same bytes as {@link InetAddress} and format canonically
+     *
+     * @param text
+     *            the address
+     * @param canonical
+     *            its canonical form
+     * @throws Exception
+     *             on failure
+     */
+    @Test(dataProvider = "goodAddresses")
+    public void testGood( final String text, final String canonical ) throws Exception {
+        final long[] address = new long[2];
+        final String padded  = " " + text + " ";
+        final int    type    = IPAddress.parse( padded, 1, padded.length() - 1, address );
+        final byte[] wanted  = InetAddress.getByName( text ).getAddress();
+
+        Assert.assertEquals( (text.indexOf( ':' ) < 0)
+                             ? IPAddress.IPV4
+                             : IPAddress.IPV6, type );
+        Assert.assertEquals( canonical, (type == IPAddress.IPV4)
+                                        ? IPAddress.toString( address[1] & 0xFFFFFFFFL )
+                                        : IPAddress.toString( address[0], address[1] ) );
+
+        // InetAddress turns IPv4-mapped addresses into plain IPv4 ones
+        for (int i = 0, skip = 16 - wanted.length; i < wanted.length; i++) {
+            Assert.assertEquals( wanted[i], (byte) (address[(i + skip) / 8] >>> (56 - 8 * ((i + skip) % 8))) );
+        }
+    }
+
+
+    /**
+     * Verify random addresses survive formatting and parsing
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        final Random random  = new Random( 6 );
+        final long[] address = new long[2];
+
+        for (int i = 0; i < 5000; i++) {
+
+            // Zero out random groups so the "::" shortening is exercised
+            long high = random.nextLong();
+            long low  = random.nextLong();
+
+            for (int g = 0; g < 4; g++) {
+                if (random.nextBoolean()) {
+                    high &= ~(0xFFFFL << (16 * g));
+                }
+
+
+                if (random.nextBoolean()) {
+                    low &= ~(0xFFFFL << (16 * g));
+                }
+            }
+
+
+            final String text = IPAddress.toString( high, low );
+
+            Assert.assertTrue( text, IPAddress.parseIPv6( text, 0, text.length(), address ) );
+            Assert.assertEquals( text, high, address[0] );
+            Assert.assertEquals( text, low, address[1] );
+
+            final byte[] wanted = InetAddress.getByName( text ).getAddress();
+
+            for (int b = 0, skip = 16 - wanted.length; b < wanted.length; b++) {
+                Assert.assertEquals( text, wanted[b], (byte) (address[(b + skip) / 8] >>> (56 - 8 * ((b + skip) % 8))) );
+            }
+
+
+            final long   v4     = random.nextInt() & 0xFFFFFFFFL;
+            final String dotted = IPAddress.toString( v4 );
+
+            Assert.assertEquals( dotted, v4, IPAddress.parseIPv4( dotted, 0, dotted.length() ) );
+            Assert.assertEquals( InetAddress.getByName( dotted ).getHostAddress(), dotted );
+        }
+    }
+}
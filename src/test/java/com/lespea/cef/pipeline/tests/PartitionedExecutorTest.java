@@ -0,0 +1,267 @@
+/**
+ * PartitionedExecutorTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.pipeline.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.pipeline.Emitter;
+import com.lespea.cef.pipeline.PartitionedExecutor;
+import com.lespea.cef.pipeline.Stage;
+import com.lespea.cef.pipeline.StageStats;
+import com.lespea.cef.utils.tests.TestHelpers;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure records with the same key stay in order on one lane and the lane stats add up
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class PartitionedExecutorTest {
+
+    /**
+     * Build a record
+     *
+     * @param src
+     *            the source address
+     * @param id
+     *            the signature id
+     * @param seq
+     *            the sequence number
+     * @return the record
+     * @throws Exception
+     *             on failure
+     */
+    private static CEF event( final String src, final int id, final int seq ) throws Exception {
+        return TestHelpers.event( id, "src", src, "cnt", Integer.toString( seq ) );
+    }
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Verify the lane comes from every key field and header fields work as keys
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testCompositeKey() throws Exception {
+        final PartitionedExecutor<Object> executor = new PartitionedExecutor<Object>( new Stage<CEF, Object>() {
+            @Override
+            public void process( final CEF item, final Emitter<? super Object> out ) throws Exception {
+                out.emit( item );
+            }
+        }, null, 16, 8, 2, "product", "id" );
+
+        boolean moved = false;
+
+        for (int id = 0; id < 100; id++) {
+            final int lane = executor.laneOf( PartitionedExecutorTest.event( "10.0.0.1", id, 0 ) );
+
+            Assert.assertTrue( (lane >= 0) && (lane < 16) );
+            Assert.assertEquals( lane, executor.laneOf( PartitionedExecutorTest.event( "10.0.0.2", id, 1 ) ) );
+            moved |= lane != executor.laneOf( PartitionedExecutorTest.event( "10.0.0.1", 0, 0 ) );
+        }
+
+
+        Assert.assertTrue( moved );
+
+        try {
+            new PartitionedExecutor<Object>( null, null, 1, 1, 1 );
+            Assert.fail();
+        } catch (final IllegalArgumentException e) {
+
+            // Expected
+        }
+    }
+
+
+    /**
+     * Verify a lane killed by an {@link Error} doesn't block the submitter or the close
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test( timeOut = 10000 )
+    public void testError() throws Exception {
+        final PartitionedExecutor<Object> executor = new PartitionedExecutor<Object>( new Stage<CEF, Object>() {
+            @Override
+            public void process( final CEF item, final Emitter<? super Object> out ) throws Exception {
+                throw new AssertionError( "broken" );
+            }
+        }, null, 2, 1, 1, "src" ).start();
+
+        for (int i = 0; i < 100; i++) {
+            executor.submit( PartitionedExecutorTest.event( "10.0.0.1", 1, i ) );
+        }
+
+
+        executor.close();
+
+        long errors = 0;
+
+        for (final StageStats lane : executor.getLaneStats()) {
+            errors += lane.getErrors();
+        }
+
+
+        Assert.assertEquals( 99, errors );
+    }
+
+
+    /**
+     * Verify every record of a key is processed in order on the same thread
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testOrdering() throws Exception {
+        final ConcurrentMap<String, Integer> last    = new ConcurrentHashMap<String, Integer>();
+        final ConcurrentMap<String, Thread>  threads = new ConcurrentHashMap<String, Thread>();
+        final AtomicLong                     errors  = new AtomicLong();
+        final AtomicLong                     emitted = new AtomicLong();
+        final PartitionedExecutor<String> executor = new PartitionedExecutor<String>( new Stage<CEF, String>() {
+            @Override
+            public void process( final CEF item, final Emitter<? super String> out ) throws Exception {
+                final String  src      = item.getExtension().get( "src" );
+                final int     seq      = Integer.parseInt( item.getExtension().get( "cnt" ) );
+                final Integer previous = last.put( src, seq );
+                final Thread  thread   = threads.putIfAbsent( src, Thread.currentThread() );
+
+                if (((previous == null)
+                     ? -1
+                     : previous) != seq - 1) {
+                    errors.incrementAndGet();
+                }
+
+
+                if ((thread != null) && (thread != Thread.currentThread())) {
+                    errors.incrementAndGet();
+                }
+
+
+                if (seq % 10 == 0) {
+                    out.emit( src );
+                }
+            }
+        }, new Emitter<String>() {
+            @Override
+            public void emit( final String item ) {
+                emitted.incrementAndGet();
+            }
+        }, 4, 32, 4, "src" ).start();
+
+        for (int seq = 0; seq < 2000; seq++) {
+            for (int src = 0; src < 50; src++) {
+                executor.submit( PartitionedExecutorTest.event( "10.0.0." + src, 1, seq ) );
+            }
+        }
+
+
+        executor.close();
+
+        Assert.assertEquals( 0, errors.get() );
+        Assert.assertEquals( 50, last.size() );
+        Assert.assertEquals( 50 * 200, emitted.get() );
+
+        final List<StageStats> stats = executor.getLaneStats();
+        long                   total = 0;
+
+        Assert.assertEquals( 4, stats.size() );
+
+        for (final StageStats lane : stats) {
+            total += lane.getItemsIn();
+            Assert.assertEquals( 0, lane.getErrors() );
+            Assert.assertEquals( 0, lane.getQueuedBatches() );
+        }
+
+
+        Assert.assertEquals( 50 * 2000, total );
+        Assert.assertTrue( executor.getSkew() >= 1 );
+        Assert.assertTrue( executor.getSkew() < 4 );
+
+        try {
+            executor.submit( PartitionedExecutorTest.event( "10.0.0.1", 1, 0 ) );
+            Assert.fail();
+        } catch (final IllegalStateException e) {
+
+            // Expected
+        }
+    }
+
+
+    /**
+     * Verify a single key lands on one lane and shows up as skew, and failures are counted
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testSkew() throws Exception {
+        final PartitionedExecutor<Object> executor = new PartitionedExecutor<Object>( new Stage<CEF, Object>() {
+            @Override
+            public void process( final CEF item, final Emitter<? super Object> out ) throws Exception {
+                if ("7".equals( item.getExtension().get( "cnt" ) )) {
+                    throw new IllegalStateException( "Bad record" );
+                }
+            }
+        }, null, 4, 16, 2, "src" ).start();
+
+        for (int i = 0; i < 1000; i++) {
+            executor.submit( PartitionedExecutorTest.event( "10.0.0.1", 1, i ) );
+        }
+
+
+        executor.flush();
+        executor.close();
+
+        long errors = 0;
+
+        for (final StageStats lane : executor.getLaneStats()) {
+            errors += lane.getErrors();
+            Assert.assertTrue( (lane.getItemsIn() == 0) || (lane.getItemsIn() == 1000) );
+        }
+
+
+        Assert.assertEquals( 1, errors );
+        Assert.assertEquals( 4.0, executor.getSkew(), 0.0001 );
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ * PipelineTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.pipeline.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.pipeline.Emitter;
+import com.lespea.cef.pipeline.Pipeline;
+import com.lespea.cef.pipeline.Stage;
+import com.lespea.cef.pipeline.StageStats;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure items flow through every stage exactly once and a slow stage holds back the source
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class PipelineTest {
+
+    /** Parses numbers and fails on anything else */
+    private static final Stage<String, Integer> PARSE = new Stage<String, Integer>() {
+        @Override
+        public void process( final String item, final Emitter<? super Integer> out ) throws Exception {
+            out.emit( Integer.valueOf( item ) );
+        }
+    };
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Verify a slow stage blocks the source once every queue is full
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testBackpressure() throws Exception {
+        final AtomicLong                  done     = new AtomicLong();
+        final Pipeline<String, Integer>   pipeline = Pipeline.<String>create( 4, 2 ).stage( "parse", 1, PipelineTest.PARSE );
+        final Pipeline<String, Object>    started  = pipeline.stage( "slow", 1, new Stage<Integer, Object>() {
+            @Override
+            public void process( final Integer item, final Emitter<? super Object> out ) throws Exception {
+                Thread.sleep( 1 );
+                done.incrementAndGet();
+            }
+        } ).start();
+
+        // Two queues of two batches, a batch in each stage and the pending batch
+        final long bound = (2 * 2 + 2 + 1) * 4;
+
+        for (int i = 0; i < 300; i++) {
+            started.submit( Integer.toString( i ) );
+            Assert.assertTrue( i + 1 - done.get() <= bound );
+        }
+
+
+        started.close();
+        Assert.assertEquals( 300, done.get() );
+        Assert.assertTrue( started.getStats().get( 0 ).getBlockedNanos() > 0 );
+    }
+
+
+    /**
+     * Verify a stage whose threads all die from an {@link Error} doesn't hang the pipeline
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test( timeOut = 10000 )
+    public void testError() throws Exception {
+        final AtomicLong done = new AtomicLong();
+        final Pipeline<String, Object> pipeline = Pipeline.<String>create( 1, 1 ).stage( "parse", 1, PipelineTest.PARSE )
+                                                    .stage( "broken", 2, new Stage<Integer, Integer>() {
+            @Override
+            public void process( final Integer item, final Emitter<? super Integer> out ) throws Exception {
+                throw new AssertionError( "broken" );
+            }
+        } ).stage( "count", 1, new Stage<Integer, Object>() {
+            @Override
+            public void process( final Integer item, final Emitter<? super Object> out ) throws Exception {
+                done.incrementAndGet();
+            }
+        } ).start();
+
+        for (int i = 0; i < 100; i++) {
+            pipeline.submit( Integer.toString( i ) );
+        }
+
+
+        pipeline.close();
+
+        Assert.assertEquals( 0, done.get() );
+        Assert.assertEquals( 100, pipeline.getStats().get( 0 ).getItemsOut() );
+        Assert.assertEquals( 98, pipeline.getStats().get( 1 ).getErrors() );
+    }
+
+
+    /**
+     * Verify every item goes through the stages once, bad ones are counted and the stats add up
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testStages() throws Exception {
+        final AtomicLong sum   = new AtomicLong();
+        final AtomicLong count = new AtomicLong();
+        final Pipeline<String, Integer> pipeline = Pipeline.<String>create( 64, 4 ).stage( "parse", 4, PipelineTest.PARSE )
+                                                     .stage( "evens", 0, new Stage<Number, Integer>() {
+            @Override
+            public void process( final Number item, final Emitter<? super Integer> out ) throws Exception {
+                if (item.intValue() % 2 == 0) {
+                    out.emit( item.intValue() );
+                    out.emit( -item.intValue() );
+                }
+            }
+        } ).stage( "sum", 2, new Stage<Integer, Integer>() {
+            @Override
+            public void process( final Integer item, final Emitter<? super Integer> out ) throws Exception {
+                if (item > 0) {
+                    sum.addAndGet( item );
+                }
+
+
+                count.incrementAndGet();
+                out.emit( item );
+            }
+        } ).start();
+
+        for (int i = 1; i <= 100000; i++) {
+            pipeline.submit( Integer.toString( i ) );
+        }
+
+
+        pipeline.submit( "not a number" );
+        pipeline.close();
+
+        Assert.assertEquals( 50000L * 50001, sum.get() );
+        Assert.assertEquals( 100000, count.get() );
+
+        final List<StageStats> stats = pipeline.getStats();
+
+        Assert.assertEquals( 3, stats.size() );
+        Assert.assertEquals( "parse", stats.get( 0 ).getName() );
+        Assert.assertEquals( 4, stats.get( 0 ).getThreads() );
+        Assert.assertEquals( 100001, stats.get( 0 ).getItemsIn() );
+        Assert.assertEquals( 100000, stats.get( 0 ).getItemsOut() );
+        Assert.assertEquals( 1, stats.get( 0 ).getErrors() );
+        Assert.assertEquals( Runtime.getRuntime().availableProcessors(), stats.get( 1 ).getThreads() );
+        Assert.assertEquals( 100000, stats.get( 1 ).getItemsOut() );
+        Assert.assertEquals( 100000, stats.get( 2 ).getItemsIn() );
+        Assert.assertEquals( 0, stats.get( 2 ).getQueuedBatches() );
+        Assert.assertTrue( stats.get( 2 ).getThroughput() > 0 );
+        Assert.assertTrue( stats.get( 0 ).getBatches() >= 100001 / 64 );
+
+        try {
+            pipeline.submit( "1" );
+            Assert.fail();
+        } catch (final IllegalStateException e) {
+
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * CEFSketchesTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.sketch.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.sketch.CEFSketches;
+import com.lespea.cef.utils.tests.TestHelpers;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.Test;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure records added from many threads at once come out in the merged sketches
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class CEFSketchesTest {
+
+    /**
+     * Verify the fields have to be set up before records are added
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testSetup() throws Exception {
+        final CEFSketches sketches = new CEFSketches().top( "id", 3 );
+
+        try {
+            sketches.top( "id", 5 );
+            Assert.fail();
+        } catch (final IllegalArgumentException e) {
+
+            // Expected
+        }
+
+
+        sketches.add( CEFSketchesTest.event( 1, 1, 1 ) );
+
+        try {
+            sketches.distinct( "src" );
+            Assert.fail();
+        } catch (final IllegalStateException e) {
+
+            // Expected
+        }
+
+
+        try {
+            sketches.getDistinct( "src" );
+            Assert.fail();
+        } catch (final IllegalArgumentException e) {
+
+            // Expected
+        }
+
+
+        Assert.assertEquals( "1", sketches.getTop( "id" ).get( 0 ).getValue() );
+        Assert.assertEquals( 1, sketches.getCount() );
+    }
+
+
+    /**
+     * Verify the sketches of every thread are merged on read
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testThreads() throws Exception {
+        final CEFSketches sketches = new CEFSketches().top( "id", 3 ).distinct( "src" ).quantiles( "in" ).quantiles(
+                                         "severity" );
+        final Thread[]    threads  = new Thread[4];
+        final Exception[] failure  = new Exception[1];
+
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+
+            threads[t] = new Thread( new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = offset; i < 40000; i += threads.length) {
+
+                            // Ids 0 to 2 are most of the records, in that order
+                            sketches.add( CEFSketchesTest.event( (i % 10 < 7)
+                                                                 ? i % 10 / 3
+                                                                 : 100 + i, i % 5000, i ) );
+                        }
+                    } catch (final Exception e) {
+                        failure[0] = e;
+                    }
+                }
+            } );
+            threads[t].start();
+        }
+
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+
+        Assert.assertNull( failure[0] );
+        Assert.assertEquals( 40000, sketches.getCount() );
+        Assert.assertEquals( "0", sketches.getTop( "id" ).get( 0 ).getValue() );
+        Assert.assertEquals( "1", sketches.getTop( "id" ).get( 1 ).getValue() );
+        Assert.assertEquals( "2", sketches.getTop( "id" ).get( 2 ).getValue() );
+        Assert.assertTrue( Math.abs( sketches.getTop( "id" ).get( 0 ).getCount() - 12000 ) < 200 );
+        Assert.assertTrue( Math.abs( sketches.getDistinct( "src" ) - 5000 ) < 5000 * 0.05 );
+        Assert.assertTrue( Math.abs( sketches.getQuantile( "in", 0.5 ) - 20000 ) < 400 );
+        Assert.assertTrue( Math.abs( sketches.getQuantile( "in", 0.99 ) - 39600 ) < 100 );
+        Assert.assertEquals( 40000, sketches.getDigest( "in" ).getCount() );
+        Assert.assertEquals( 5.0, sketches.getQuantile( "severity", 0.5 ), 0.0001 );
+
+        final long[] severities = sketches.getSeverityCounts();
+
+        Assert.assertEquals( 40000, severities[5] );
+        Assert.assertTrue( sketches.getSeverityRates()[5] > 0 );
+        Assert.assertEquals( 0.0, sketches.getSeverityRates()[4], 0.0 );
+    }
+
+
+    /**
+     * Build a record
+     *
+     * @param id
+     *            the signature id
+     * @param host
+     *            the number of the source address
+     * @param in
+     *            the bytes in
+     * @return the record
+     * @throws Exception
+     *             on failure
+     */
+    private static CEF event( final int id, final int host, final int in ) throws Exception {
+        return TestHelpers.event( id, "src", "10.0." + (host / 256) + "." + (host % 256), "in",
+                                  Integer.toString( in ) );
+    }
+}
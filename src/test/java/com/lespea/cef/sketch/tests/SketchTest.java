@@ -0,0 +1,243 @@
+/**
+ * SketchTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.sketch.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.sketch.CountMinSketch;
+import com.lespea.cef.sketch.HyperLogLog;
+import com.lespea.cef.sketch.QuantileDigest;
+import com.lespea.cef.sketch.TopK;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure the sketches stay within their error bounds and merge to the same answer as one
+ * sketch would give
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class SketchTest {
+
+    /**
+     * Verify the count-min estimates are never low and rarely far off
+     */
+    @Test
+    public void testCountMin() {
+        final CountMinSketch first  = new CountMinSketch( 2048, 5 );
+        final CountMinSketch second = new CountMinSketch( 2048, 5 );
+
+        for (int i = 0; i < 5000; i++) {
+            for (int j = 0; j <= i % 10; j++) {
+                ((i % 2 == 0)
+                 ? first
+                 : second).add( "value-" + i, 1 );
+            }
+        }
+
+
+        first.merge( second );
+        Assert.assertEquals( 5000 * 55 / 10, first.getTotal() );
+
+        int far = 0;
+
+        for (int i = 0; i < 5000; i++) {
+            final long estimate = first.estimate( "value-" + i );
+
+            Assert.assertTrue( estimate >= i % 10 + 1 );
+
+            if (estimate > i % 10 + 1 + first.getTotal() * Math.E / 2048) {
+                far++;
+            }
+        }
+
+
+        Assert.assertTrue( far < 50 );
+
+        try {
+            first.merge( new CountMinSketch( 1024, 5 ) );
+            Assert.fail();
+        } catch (final IllegalArgumentException e) {
+
+            // Expected
+        }
+    }
+
+
+    /**
+     * Verify the distinct counts stay within a few standard errors, before and after merging
+     */
+    @Test
+    public void testHyperLogLog() {
+        final HyperLogLog small = new HyperLogLog();
+
+        for (int i = 0; i < 100; i++) {
+            small.add( "10.0.0." + i );
+            small.add( "10.0.0." + i );
+        }
+
+
+        Assert.assertTrue( Math.abs( small.estimate() - 100 ) <= 2 );
+
+        final HyperLogLog first  = new HyperLogLog( 14 );
+        final HyperLogLog second = new HyperLogLog( 14 );
+
+        for (int i = 0; i < 1000000; i++) {
+            first.add( "host-" + i );
+            second.add( "host-" + (i + 500000) );
+        }
+
+
+        Assert.assertTrue( Math.abs( first.estimate() - 1000000 ) < 1000000 * 0.03 );
+        first.merge( second );
+        Assert.assertTrue( Math.abs( first.estimate() - 1500000 ) < 1500000 * 0.03 );
+        Assert.assertEquals( first.estimate(), first.copy().estimate() );
+        Assert.assertEquals( 0, new HyperLogLog().estimate() );
+    }
+
+
+    /**
+     * Verify the quantiles are close, especially in the tails, and merging doesn't hurt them
+     */
+    @Test
+    public void testQuantiles() {
+        final Random         random = new Random( 42 );
+        final double[]       values = new double[200000];
+        final QuantileDigest whole  = new QuantileDigest();
+        final QuantileDigest merged = new QuantileDigest();
+        final QuantileDigest[] parts = new QuantileDigest[] { new QuantileDigest(), new QuantileDigest(),
+                                                              new QuantileDigest() };
+
+        Assert.assertTrue( Double.isNaN( whole.quantile( 0.5 ) ) );
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp( random.nextGaussian() * 2 );
+            whole.add( values[i] );
+            parts[i % parts.length].add( values[i] );
+        }
+
+
+        for (final QuantileDigest part : parts) {
+            merged.merge( part );
+        }
+
+
+        Arrays.sort( values );
+
+        for (final double q : new double[] { 0.001, 0.01, 0.1, 0.5, 0.9, 0.99, 0.999 }) {
+            final double exact = values[(int) (q * values.length)];
+
+            // Check the rank of the estimate rather than the value, since the values are skewed
+            for (final QuantileDigest digest : new QuantileDigest[] { whole, merged }) {
+                final double rank = (double) SketchTest.rank( values, digest.quantile( q ) ) / values.length;
+
+                Assert.assertTrue( q + " of " + exact + " was " + digest.quantile( q ),
+                                   Math.abs( rank - q ) <= Math.max( 0.001, q * (1 - q) * 0.05 ) );
+            }
+        }
+
+
+        Assert.assertEquals( values.length, whole.getCount() );
+        Assert.assertEquals( values.length, merged.getCount() );
+        Assert.assertEquals( values[0], merged.quantile( 0 ) );
+        Assert.assertEquals( values[values.length - 1], merged.quantile( 1 ) );
+        Assert.assertEquals( whole.quantile( 0.5 ), whole.copy().quantile( 0.5 ) );
+    }
+
+
+    /**
+     * Verify the top-K finds the heavy hitters among lots of noise and merges
+     */
+    @Test
+    public void testTopK() {
+        final TopK   first  = new TopK( 5, 2048, 5 );
+        final TopK   second = new TopK( 5, 2048, 5 );
+        final Random random = new Random( 7 );
+        final int[]  bounds = { 10, 18, 24, 28, 30 };
+
+        for (int i = 0; i < 200000; i++) {
+            final TopK into = (i % 2 == 0)
+                              ? first
+                              : second;
+
+            // Five heavy ids at 10%, 8%, 6%, 4% and 2%, the rest spread over 100000 others
+            final int roll  = random.nextInt( 100 );
+            int       heavy = 0;
+
+            while ((heavy < bounds.length) && (roll >= bounds[heavy])) {
+                heavy++;
+            }
+
+
+            into.add( (heavy < bounds.length)
+                      ? "heavy-" + heavy
+                      : "noise-" + random.nextInt( 100000 ) );
+        }
+
+
+        first.merge( second );
+
+        final List<TopK.Item> top = first.getTop();
+
+        Assert.assertEquals( 5, top.size() );
+
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals( "heavy-" + i, top.get( i ).getValue() );
+        }
+
+
+        Assert.assertTrue( Math.abs( top.get( 0 ).getCount() - 20000 ) < 1000 );
+        Assert.assertEquals( 200000, first.getTotal() );
+        Assert.assertEquals( top, first.copy().getTop() );
+    }
+
+
+    /**
+     * @param sorted
+     *            sorted values
+     * @param value
+     *            a value
+     * @return number of values under it
+     */
+    private static int rank( final double[] sorted, final double value ) {
+        final int found = Arrays.binarySearch( sorted, value );
+
+        return (found < 0)
+               ? -found - 1
+               : found;
+    }
+}
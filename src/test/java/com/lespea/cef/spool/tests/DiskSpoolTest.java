@@ -0,0 +1,210 @@
+/**
+ * DiskSpoolTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.spool.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.spool.DiskSpool;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure the disk spool survives restarts and corruption
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class DiskSpoolTest {
+
+    /**
+     * Create an empty directory for a spool
+     *
+     * @return the directory
+     * @throws IOException
+     *             if the directory could not be created
+     */
+    private static File tempDir() throws IOException {
+        final File dir = File.createTempFile( "cef-spool", "" );
+
+        Assert.assertTrue( dir.delete() );
+        Assert.assertTrue( dir.mkdirs() );
+        dir.deleteOnExit();
+
+        return dir;
+    }
+
+
+    /**
+     * Verify acknowledged records are not handed out again after a restart and unacknowledged
+     * ones are
+     *
+     * @throws IOException
+     *             on failure
+     */
+    @Test
+    public void testAckAndRestart() throws IOException {
+        final File dir   = DiskSpoolTest.tempDir();
+        DiskSpool  spool = new DiskSpool( dir, 4096, 16, 0 );
+
+        for (int i = 0; i < 1000; i++) {
+            spool.append( "CEF:0|v|p|1|" + i + "|name|5|" );
+        }
+
+
+        Assert.assertTrue( dir.list().length > 3 );
+
+        for (int i = 0; i < 400; i++) {
+            Assert.assertEquals( "CEF:0|v|p|1|" + i + "|name|5|", spool.poll() );
+        }
+
+
+        spool.acknowledge();
+
+        for (int i = 400; i < 500; i++) {
+            Assert.assertEquals( "CEF:0|v|p|1|" + i + "|name|5|", spool.poll() );
+        }
+
+
+        spool.close();
+
+        spool = new DiskSpool( dir, 4096, 16, 0 );
+
+        for (int i = 400; i < 1000; i++) {
+            Assert.assertEquals( "CEF:0|v|p|1|" + i + "|name|5|", spool.poll() );
+        }
+
+
+        Assert.assertNull( spool.poll() );
+        Assert.assertTrue( spool.isEmpty() );
+        spool.acknowledge();
+        spool.close();
+
+        // Only the segment being written to (and the cursor) should remain
+        Assert.assertEquals( 2, dir.list().length );
+    }
+
+
+    /**
+     * Verify a spool can't be reopened with another segment size and nothing is lost trying
+     *
+     * @throws IOException
+     *             on failure
+     */
+    @Test
+    public void testSegmentSize() throws IOException {
+        final File dir   = DiskSpoolTest.tempDir();
+        DiskSpool  spool = new DiskSpool( dir, 4096, 16, 0 );
+
+        for (int i = 0; i < 200; i++) {
+            spool.append( "CEF:0|v|p|1|" + i + "|name|5|" );
+        }
+
+
+        spool.close();
+
+        for (final int size : new int[] { 1024, 8192 }) {
+            try {
+                new DiskSpool( dir, size, 16, 0 );
+                Assert.fail();
+            } catch (final IOException e) {
+
+                // Expected
+            }
+        }
+
+
+        spool = new DiskSpool( dir, 4096, 16, 0 );
+
+        for (int i = 0; i < 200; i++) {
+            Assert.assertEquals( "CEF:0|v|p|1|" + i + "|name|5|", spool.poll() );
+        }
+
+
+        Assert.assertNull( spool.poll() );
+        spool.close();
+    }
+
+
+    /**
+     * Verify a torn record is dropped during recovery and the spool keeps working
+     *
+     * @throws IOException
+     *             on failure
+     */
+    @Test
+    public void testCorruptTail() throws IOException {
+        final File dir   = DiskSpoolTest.tempDir();
+        DiskSpool  spool = new DiskSpool( dir, 4096, 16, 0 );
+
+        spool.append( "first" );
+        spool.append( "second" );
+        spool.close();
+
+        final RandomAccessFile raf = new RandomAccessFile( new File( dir, "spool-00000000000000000000.seg" ), "rw" );
+
+        // Flip a byte in the second record's payload
+        raf.seek( 8 + 5 + 8 );
+        raf.write( 'X' );
+        raf.close();
+
+        spool = new DiskSpool( dir, 4096, 16, 0 );
+        spool.append( "third" );
+        Assert.assertEquals( "first", spool.poll() );
+        Assert.assertEquals( "third", spool.poll() );
+        Assert.assertNull( spool.poll() );
+        spool.close();
+    }
+
+
+    /**
+     * Verify a rewind hands out the unacknowledged records again
+     *
+     * @throws IOException
+     *             on failure
+     */
+    @Test
+    public void testRewind() throws IOException {
+        final DiskSpool spool = new DiskSpool( DiskSpoolTest.tempDir(), 1024, 1, 10 );
+
+        spool.append( "a" );
+        spool.append( "b" );
+        Assert.assertEquals( "a", spool.poll() );
+        spool.acknowledge();
+        Assert.assertEquals( "b", spool.poll() );
+        spool.rewind();
+        Assert.assertEquals( "b", spool.poll() );
+        Assert.assertNull( spool.poll() );
+        spool.close();
+    }
+}
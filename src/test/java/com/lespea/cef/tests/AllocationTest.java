@@ -0,0 +1,354 @@
+/**
+ * AllocationTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import ch.qos.logback.classic.Level;
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.Extension;
+import com.lespea.cef.utils.StringUtils;
+import com.lespea.cef.utils.Utf8;
+
+import junit.framework.Assert;
+
+import org.slf4j.LoggerFactory;
+
+import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.lang.management.ManagementFactory;
+
+import java.nio.ByteBuffer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure the emit path doesn't start allocating more than it needs to.
+ * <p>
+ * Each operation is warmed up and then run many times while the bytes the thread allocates are
+ * counted with <code>com.sun.management.ThreadMXBean</code>, keeping the lowest of a few rounds so
+ * a stray allocation by the JVM itself (a JIT compile or a new TLAB) doesn't count against it. The
+ * budgets are the measured bytes per operation with some room for JVM differences, and anything
+ * under a byte per run more is let through since no real object is that small, so a change that
+ * adds a copy or a wrapper fails here rather than going unnoticed. Debug logging is turned off while measuring since it
+ * allocates far more than the code it describes. The tests are skipped on JVMs that can't count
+ * allocations.
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class AllocationTest {
+
+    /** Number of measuring rounds, of which the lowest counts */
+    private static final int ROUNDS = 3;
+
+    /** Number of times each operation is measured in a round */
+    private static final int RUNS = 20000;
+
+    /** Number of times each operation is run before measuring */
+    private static final int WARMUP = 20000;
+
+    //~--- fields -------------------------------------------------------------
+
+    /** The root logger's level before the tests */
+    private Level level;
+
+    /** Keeps results reachable so the work can't be skipped */
+    private Object sink;
+
+    /** The thread bean */
+    private com.sun.management.ThreadMXBean threads;
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * Get the mean number of bytes an operation allocates in the best of a few rounds
+     *
+     * @param op
+     *            the operation
+     * @return bytes per run
+     * @throws Exception
+     *             if the operation fails
+     */
+    private double measure( final Op op ) throws Exception {
+        for (int i = 0; i < AllocationTest.WARMUP; i++) {
+            sink = op.run();
+        }
+
+
+        final long id   = Thread.currentThread().getId();
+        double     best = Double.MAX_VALUE;
+
+        for (int round = 0; round < AllocationTest.ROUNDS; round++) {
+
+            // Calibrate against reading the counter itself
+            final long base   = threads.getThreadAllocatedBytes( id );
+            final long empty  = threads.getThreadAllocatedBytes( id ) - base;
+            final long before = threads.getThreadAllocatedBytes( id );
+
+            for (int i = 0; i < AllocationTest.RUNS; i++) {
+                sink = op.run();
+            }
+
+
+            final long after = threads.getThreadAllocatedBytes( id );
+
+            best = Math.min( best, (double) (after - before - empty) / AllocationTest.RUNS );
+        }
+
+
+        return best;
+    }
+
+
+    /**
+     * @param what
+     *            what was measured
+     * @param budget
+     *            the most bytes per run allowed
+     * @param op
+     *            the operation
+     * @throws Exception
+     *             if the operation fails
+     */
+    private void assertBudget( final String what, final long budget, final Op op ) throws Exception {
+        final double bytes = measure( op );
+
+        // Less than a byte a run over can only be the JVM, never an object the code made
+        Assert.assertTrue( what + " allocated " + bytes + " bytes per run, over the budget of " + budget,
+                           bytes < budget + 1 );
+    }
+
+
+    /**
+     * @param size
+     *            number of fields
+     * @param dirty
+     *            if the values need escaping
+     * @return a field map
+     */
+    private static Map<String, String> fields( final int size, final boolean dirty ) {
+        final Map<String, String> fields = new HashMap<String, String>();
+
+        for (int i = 0; i < size; i++) {
+            fields.put( "cs" + i, dirty
+                                  ? "value=" + i + "\n"
+                                  : "value " + i );
+        }
+
+
+        return fields;
+    }
+
+
+    /**
+     * Count allocations on this thread and quiet the logging
+     */
+    @BeforeClass
+    public void setUp() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        if (!(bean instanceof com.sun.management.ThreadMXBean)
+            || !((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            throw new SkipException( "This JVM can't count allocated bytes" );
+        }
+
+
+        threads = (com.sun.management.ThreadMXBean) bean;
+        threads.setThreadAllocatedMemoryEnabled( true );
+
+        final ch.qos.logback.classic.Logger root =
+            (ch.qos.logback.classic.Logger) LoggerFactory.getLogger( org.slf4j.Logger.ROOT_LOGGER_NAME );
+
+        level = root.getLevel();
+        root.setLevel( Level.WARN );
+    }
+
+
+    /**
+     * Put the logging back
+     */
+    @AfterClass
+    public void tearDown() {
+        if (level != null) {
+            ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger( org.slf4j.Logger.ROOT_LOGGER_NAME ))
+                .setLevel( level );
+        }
+    }
+
+
+    /**
+     * Verify building and rendering CEFs
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testCEF() throws Exception {
+        final Extension extension = new Extension( AllocationTest.fields( 8, false ) );
+
+        assertBudget( "clean CEF", 640, new Op() {
+            @Override
+            public Object run() throws Exception {
+                return new CEF( 0, "Vendor", "Product", "1.0", "100", "Name", 5, extension );
+            }
+        } );
+        assertBudget( "dirty CEF", 2304, new Op() {
+            @Override
+            public Object run() throws Exception {
+                return new CEF( 0, "Ven|dor", "Pro\\duct", "1.0", "100", "Na|me", 5, extension );
+            }
+        } );
+
+        final CEF cef = new CEF( 0, "Vendor", "Product", "1.0", "100", "Name", 5, extension );
+
+        assertBudget( "CEF toString", 0, new Op() {
+            @Override
+            public Object run() {
+                return cef.toString();
+            }
+        } );
+        final ByteBuffer buf = ByteBuffer.allocate( cef.getEncodedLength() );
+
+        assertBudget( "CEF encode", 0, new Op() {
+            @Override
+            public Object run() {
+                buf.clear();
+                Utf8.encode( cef.toString(), buf );
+
+                return buf;
+            }
+        } );
+    }
+
+
+    /**
+     * Verify escaping strings
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testEscaping() throws Exception {
+        final String clean = "A perfectly normal value with nothing to escape in it at all";
+        final String dirty = "A value = with\r\n a few | things \\ to escape";
+
+        assertBudget( "clean field", 0, new Op() {
+            @Override
+            public Object run() throws Exception {
+                return StringUtils.escapeField( clean );
+            }
+        } );
+        assertBudget( "clean key", 0, new Op() {
+            @Override
+            public Object run() throws Exception {
+                return StringUtils.escapeExtensionKey( "deviceCustomString1" );
+            }
+        } );
+        assertBudget( "clean value", 0, new Op() {
+            @Override
+            public Object run() {
+                return StringUtils.escapeExtensionValue( clean );
+            }
+        } );
+        assertBudget( "dirty field", 768, new Op() {
+            @Override
+            public Object run() throws Exception {
+                return StringUtils.escapeField( "A field | with \\ things" );
+            }
+        } );
+        assertBudget( "dirty key", 512, new Op() {
+            @Override
+            public Object run() throws Exception {
+                return StringUtils.escapeExtensionKey( "a=b" );
+            }
+        } );
+        assertBudget( "dirty value", 1408, new Op() {
+            @Override
+            public Object run() {
+                return StringUtils.escapeExtensionValue( dirty );
+            }
+        } );
+    }
+
+
+    /**
+     * Verify building extensions of a few sizes
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testExtension() throws Exception {
+        final int[]  sizes       = { 0, 1, 8, 64 };
+        final long[] cleanBudget = { 320, 448, 640, 2816 };
+        final long[] dirtyBudget = { 320, 1280, 7808, 62464 };
+
+        for (int i = 0; i < sizes.length; i++) {
+            final Map<String, String> clean = AllocationTest.fields( sizes[i], false );
+            final Map<String, String> dirty = AllocationTest.fields( sizes[i], true );
+
+            assertBudget( "clean extension of " + sizes[i], cleanBudget[i], new Op() {
+                @Override
+                public Object run() throws Exception {
+                    return new Extension( clean );
+                }
+            } );
+            assertBudget( "dirty extension of " + sizes[i], dirtyBudget[i], new Op() {
+                @Override
+                public Object run() throws Exception {
+                    return new Extension( dirty );
+                }
+            } );
+        }
+    }
+
+
+    //~--- inner interfaces ---------------------------------------------------
+
+    /**
+     * An operation to measure
+     */
+    private interface Op {
+
+        /**
+         * @return the result
+         * @throws Exception
+         *             on failure
+         */
+        Object run() throws Exception;
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * CEFParseTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.Extension;
+import com.lespea.cef.InvalidField;
+import com.lespea.cef.loadgen.EventMix;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure rendered CEF strings parse back into equal objects and bad ones are rejected
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class CEFParseTest {
+
+    /**
+     * @return lines that aren't valid CEF
+     */
+    @DataProvider
+    public Object[][] invalidLines() {
+        return new Object[][] {
+            { "" }, { "CEF0|V|P|1|100|N|5|" }, { "CEF:0|V|P|1|100|N|5" }, { "CEF:x|V|P|1|100|N|5|" },
+            { "CEF:0|V|P|1|100|N|11|" }, { "CEF:0|V|P|1|100|N||" }, { "CEF:0|V|P|1|100|N|-1|" },
+            { "CEF:0|V\\|P|1|100|N|5|" }, { "CEF:|V|P|1|100|N|5|" }, { "CEF:0|V|P\r|1|100|N|5|a=b" }
+        };
+    }
+
+
+    /**
+     * Verify values with backslashes in them parse back, including ones from a producer that
+     * doesn't escape them
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testBackslashValues() throws Exception {
+        final Map<String, String> fields = new HashMap<String, String>();
+
+        fields.put( "fname", "C:\\temp\\" );
+        fields.put( "act", "blocked" );
+        fields.put( "msg", "a\\=b\\" );
+
+        final CEF cef    = new CEF( "Ven\\dor", "Product", "1.0", "100", "Name", 5, new Extension( fields ) );
+        final CEF parsed = CEF.parse( cef.toString() );
+
+        Assert.assertEquals( cef, parsed );
+        Assert.assertEquals( cef.toString(), parsed.toString() );
+        Assert.assertEquals( "blocked", parsed.getExtension().get( "act" ) );
+        Assert.assertEquals( "C:\\temp\\", parsed.getExtension().get( "fname" ) );
+        Assert.assertEquals( fields, parsed.getExtension().getFields() );
+
+        final CEF bare = CEF.parse( "CEF:0|Vendor|Product|1.0|100|Name|5|fname=C:\\temp\\ act=blocked" );
+
+        Assert.assertEquals( "C:\\temp\\", bare.getExtension().get( "fname" ) );
+        Assert.assertEquals( "blocked", bare.getExtension().get( "act" ) );
+    }
+
+
+    /**
+     * Verify a bad line is rejected
+     *
+     * @param line
+     *            the line
+     * @throws InvalidField
+     *             always
+     */
+    @Test(
+        dataProvider = "invalidLines",
+        expectedExceptions = InvalidField.class
+    )
+    public void testInvalid( final String line ) throws InvalidField {
+        CEF.parse( line );
+    }
+
+
+    /**
+     * Verify generated events parse back into equal objects
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        final EventMix mix    = new EventMix().escapeRate( 0.05 );
+        final Random   random = new Random( 44 );
+
+        for (int i = 0; i < 2000; i++) {
+            final CEF cef    = mix.next( random );
+            final CEF parsed = CEF.parse( cef.toString() + "\r\n" );
+
+            Assert.assertEquals( cef, parsed );
+            Assert.assertEquals( cef.toString(), parsed.toString() );
+            Assert.assertEquals( cef.getName(), parsed.getName() );
+            Assert.assertEquals( cef.getEncodedLength(), parsed.getEncodedLength() );
+        }
+
+
+        final CEF parsed = CEF.parse( "CEF:1|V\\\\|P|1.0|100|N|10|" );
+
+        Assert.assertEquals( 1, parsed.getCefVersion() );
+        Assert.assertEquals( "V\\", parsed.getVendor() );
+        Assert.assertEquals( 10, parsed.getSeverity() );
+        Assert.assertNull( parsed.getExtension().get( "a" ) );
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * CEFPushParserTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+
+
+package com.lespea.cef.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.CEFPushParser;
+import com.lespea.cef.loadgen.EventMix;
+import com.lespea.cef.utils.Utf8;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.nio.ByteBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure records come out of the push parser the same however the bytes are cut up
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class CEFPushParserTest {
+
+    /**
+     * Feed text in pieces
+     *
+     * @param text
+     *            the text
+     * @param random
+     *            picks the piece sizes, or null for one byte at a time
+     * @param maxLine
+     *            the line limit
+     * @return what the handler saw
+     */
+    private static Collector parse( final String text, final Random random, final int maxLine ) {
+        final Collector     collector = new Collector();
+        final CEFPushParser parser    = new CEFPushParser( collector, maxLine );
+        final byte[]        bytes     = text.getBytes( Utf8.CHARSET );
+
+        for (int i = 0; i < bytes.length;) {
+            final int size = Math.min( bytes.length - i, (random == null)
+                                                         ? 1
+                                                         : 1 + random.nextInt( 40 ) );
+
+            if ((random != null) && random.nextBoolean()) {
+                parser.feed( ByteBuffer.wrap( bytes, i, size ).slice() );
+            }
+            else {
+                parser.feed( bytes, i, size );
+            }
+
+
+            i += size;
+        }
+
+
+        parser.finish();
+
+        return collector;
+    }
+
+
+    /**
+     * Verify broken lines are reported and skipped
+     */
+    @Test
+    public void testInvalid() {
+        final Collector collector = CEFPushParserTest.parse( "hello\n\r\n\nCEF:0|V|P|1|100|N|11|a=b\n"
+                                                             + "CEF:0|V|P|1|100|N|5|a=b\n" + "CEF:x|V|P|1|100|N|5|\n"
+                                                             + "CEF:0|V|P\r|1|100|N|5|\n" + "CEF:0|V|P|1|100\n"
+                                                             + "CEF:0|V|P|1|100|N|5|" + "0123456789" + "\n"
+                                                             + "CEF:0|V|P|1|100|N|5|" + "01234567890\n"
+                                                             + "CEF:0|V|P|1|1", null, 30 );
+
+        Assert.assertEquals( 2, collector.events.size() );
+        Assert.assertEquals( "a=b", collector.events.get( 0 ).getExtension().toString() );
+        Assert.assertEquals( 7, collector.invalid.size() );
+        Assert.assertEquals( "The line has no CEF header", collector.invalid.get( 0 ) );
+        Assert.assertEquals( "The severity is more than 10", collector.invalid.get( 1 ) );
+        Assert.assertEquals( "The CEF version isn't a number", collector.invalid.get( 2 ) );
+        Assert.assertEquals( "The line is longer than 30 characters", collector.invalid.get( 5 ) );
+        Assert.assertEquals( "The line ended in the middle of the header", collector.invalid.get( 6 ) );
+    }
+
+
+    /**
+     * Verify generated records parse to the same thing however they're cut up
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testPieces() throws Exception {
+        final EventMix      mix      = new EventMix().escapeRate( 0.05 )
+                                                     .product( "V\u00e9ndor", "\ud83d\udd25", "1", 1 );
+        final Random        random   = new Random( 45 );
+        final List<CEF>     expected = new ArrayList<CEF>();
+        final StringBuilder text     = new StringBuilder();
+
+        for (int i = 0; i < 500; i++) {
+            final CEF cef = mix.next( random );
+
+            expected.add( cef );
+            text.append( (i % 3 == 0)
+                         ? "<134>Oct 18 10:00:00 host "
+                         : "" );
+            text.append( cef ).append( (i % 2 == 0)
+                                       ? "\r\n"
+                                       : "\n" );
+        }
+
+
+        for (final Random pieces : new Random[] { null, new Random( 1 ), new Random( 2 ) }) {
+            final Collector collector = CEFPushParserTest.parse( text.toString(), pieces, 64 * 1024 );
+
+            Assert.assertEquals( 0, collector.invalid.size() );
+            Assert.assertEquals( expected, collector.events );
+
+            for (int i = 0; i < expected.size(); i++) {
+                Assert.assertEquals( expected.get( i ).toString(), collector.events.get( i ).toString() );
+                Assert.assertEquals( expected.get( i ).getName(), collector.events.get( i ).getName() );
+            }
+        }
+
+
+        final Collector bad = CEFPushParserTest.parse( "CEF:0|V\u00e9|P|1|1|N|5|a=b", null, 100 );
+
+        Assert.assertEquals( "V\u00e9", bad.events.get( 0 ).getVendor() );
+
+        final Collector     broken = new Collector();
+        final CEFPushParser parser = new CEFPushParser( broken );
+
+        parser.feed( new byte[] { 'C', 'E', 'F', ':', '0', '|', 'V', (byte) 0xC3, '|', 'P', '|', '1', '|', '1', '|',
+                                  'N', '|', '5', '|', 'x', '=', (byte) 0xE2, (byte) 0x82 }, 0, 23 );
+        parser.finish();
+        Assert.assertEquals( "V\ufffd", broken.events.get( 0 ).getVendor() );
+        Assert.assertEquals( "\ufffd", broken.events.get( 0 ).getExtension().get( "x" ) );
+        Assert.assertEquals( 1, parser.getEvents() );
+    }
+
+
+    //~--- inner classes ------------------------------------------------------
+
+    /**
+     * Collects what the parser finds
+     */
+    private static final class Collector implements CEFPushParser.Handler {
+
+        /** The records */
+        final List<CEF> events = new ArrayList<CEF>();
+
+        /** The reasons lines were skipped */
+        final List<String> invalid = new ArrayList<String>();
+
+
+        @Override
+        public void onEvent( final CEF cef ) {
+            events.add( cef );
+        }
+
+
+        @Override
+        public void onInvalid( final String reason ) {
+            invalid.add( reason );
+        }
+    }
+}
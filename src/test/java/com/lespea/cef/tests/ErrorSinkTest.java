@@ -0,0 +1,163 @@
+/**
+ * ErrorSinkTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.ErrorSink;
+import com.lespea.cef.Extension;
+import com.lespea.cef.InvalidExtensionKey;
+import com.lespea.cef.InvalidField;
+import com.lespea.cef.utils.StringUtils;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure the non-throwing validation API reports the same problems as the throwing one
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class ErrorSinkTest {
+
+    /**
+     * Verify the result codes
+     */
+    @Test
+    public void testCheckCodes() {
+        Assert.assertEquals( ErrorSink.VALID, StringUtils.checkField( "a|b\\c" ) );
+        Assert.assertEquals( ErrorSink.INVALID_FIELD, StringUtils.checkField( "a\nb" ) );
+        Assert.assertEquals( ErrorSink.NULL_VALUE, StringUtils.checkField( null ) );
+        Assert.assertEquals( ErrorSink.VALID, StringUtils.checkExtensionKey( "a=b" ) );
+        Assert.assertEquals( ErrorSink.INVALID_EXTENSION_KEY, StringUtils.checkExtensionKey( "a\tb" ) );
+        Assert.assertEquals( ErrorSink.NULL_VALUE, StringUtils.checkExtensionKey( null ) );
+    }
+
+
+    /**
+     * Verify the sink factories build the same objects as the constructors
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testCreate() throws Exception {
+        final ErrorSink           errors = new ErrorSink();
+        final Map<String, String> fields = new HashMap<String, String>();
+
+        fields.put( "k=ey", "v\n" );
+
+        final Extension ext = Extension.create( fields, errors );
+        final CEF       cef = CEF.create( 0, "Ven|dor", "P", "1", "2", "N", 5, ext, errors );
+
+        Assert.assertFalse( errors.hasErrors() );
+        Assert.assertEquals( new Extension( fields ), ext );
+        Assert.assertEquals( new CEF( 0, "Ven|dor", "P", "1", "2", "N", 5, ext ).toString(), cef.toString() );
+        Assert.assertEquals( "No errors", errors.toString() );
+    }
+
+
+    /**
+     * Verify problems are recorded, only the first in detail, and the sink can be reused
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testRejects() throws Exception {
+        final ErrorSink           errors = new ErrorSink();
+        final Map<String, String> fields = new HashMap<String, String>();
+
+        fields.put( "bad key", "v" );
+        Assert.assertNull( Extension.create( fields, errors ) );
+        Assert.assertEquals( ErrorSink.INVALID_EXTENSION_KEY, errors.getCode() );
+        Assert.assertEquals( 3, errors.getOffset() );
+        Assert.assertEquals( "bad key", errors.getValue() );
+
+        final Map<String, String> nullValue = new HashMap<String, String>();
+        final ErrorSink           nullSink  = new ErrorSink();
+
+        nullValue.put( "act", null );
+        Assert.assertNull( Extension.create( nullValue, nullSink ) );
+        Assert.assertEquals( ErrorSink.NULL_VALUE, nullSink.getCode() );
+
+        final Extension ext = new Extension( new HashMap<String, String>() );
+
+        Assert.assertNull( CEF.create( 0, "V", "P\r", "1", "2", "N", 5, ext, errors ) );
+        Assert.assertEquals( 2, errors.getCount() );
+        Assert.assertEquals( ErrorSink.INVALID_EXTENSION_KEY, errors.getCode() );
+
+        errors.clear();
+        Assert.assertNull( CEF.create( 0, "V", "P\r", "1", "2", "N", 5, ext, errors ) );
+        Assert.assertEquals( ErrorSink.INVALID_FIELD, errors.getCode() );
+        Assert.assertEquals( 1, errors.getOffset() );
+        Assert.assertTrue( errors.getMessage().contains( "at offset 1" ) );
+
+        errors.clear();
+        Assert.assertNull( CEF.create( 0, "V", "P", "1", "2", "N", 11, ext, errors ) );
+        Assert.assertEquals( ErrorSink.INVALID_SEVERITY, errors.getCode() );
+
+        errors.clear();
+        Assert.assertNull( CEF.create( 0, "V", null, "1", "2", "N", 1, ext, errors ) );
+        Assert.assertEquals( ErrorSink.NULL_VALUE, errors.getCode() );
+    }
+
+
+    /**
+     * Verify the shared exceptions don't carry a stack trace and can't be changed by whoever throws
+     * them
+     */
+    @Test
+    public void testPreallocated() {
+        Assert.assertEquals( 0, InvalidField.PREALLOCATED.getStackTrace().length );
+        Assert.assertEquals( 0, InvalidExtensionKey.PREALLOCATED.getStackTrace().length );
+        Assert.assertNotNull( InvalidField.PREALLOCATED.getMessage() );
+
+        InvalidField.PREALLOCATED.addSuppressed( new IllegalStateException() );
+        InvalidExtensionKey.PREALLOCATED.fillInStackTrace();
+        Assert.assertEquals( 0, InvalidField.PREALLOCATED.getSuppressed().length );
+        Assert.assertEquals( 0, InvalidExtensionKey.PREALLOCATED.getStackTrace().length );
+
+        try {
+            InvalidField.PREALLOCATED.initCause( new IllegalStateException() );
+            Assert.fail();
+        } catch (final IllegalStateException e) {
+
+            // Expected
+        }
+
+
+        Assert.assertNull( InvalidField.PREALLOCATED.getCause() );
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * LazyExtensionTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.Extension;
+import com.lespea.cef.InvalidExtensionKey;
+import com.lespea.cef.LazyExtension;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure the lazy extension reads its escaped text the same way a normal extension writes it
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class LazyExtensionTest {
+
+    /**
+     * @return fields with every kind of escape
+     */
+    private static Map<String, String> fields() {
+        final Map<String, String> fields = new HashMap<String, String>();
+
+        fields.put( "src", "10.0.0.1" );
+        fields.put( "msg", "a b=c\nd\re" );
+        fields.put( "k=ey", "v" );
+        fields.put( "path", "C:\\dir\\file" );
+        fields.put( "empty", "" );
+
+        return fields;
+    }
+
+
+    /**
+     * Verify single keys are found without building the map
+     *
+     * @throws InvalidExtensionKey
+     *             on failure
+     */
+    @Test
+    public void testGet() throws InvalidExtensionKey {
+        final Map<String, String> fields = LazyExtensionTest.fields();
+        final LazyExtension       lazy   = new LazyExtension( new Extension( fields ).toString() );
+
+        for (final Map.Entry<String, String> entry : fields.entrySet()) {
+            Assert.assertEquals( entry.getKey(), entry.getValue(), lazy.get( entry.getKey() ) );
+        }
+
+
+        Assert.assertNull( lazy.get( "missing" ) );
+        Assert.assertNull( lazy.get( "k" ) );
+        Assert.assertNull( lazy.get( "b" ) );
+    }
+
+
+    /**
+     * Verify the full map round trips and the lazy copy equals the original
+     *
+     * @throws InvalidExtensionKey
+     *             on failure
+     */
+    @Test
+    public void testRoundTrip() throws InvalidExtensionKey {
+        final Extension     ext  = new Extension( LazyExtensionTest.fields() );
+        final LazyExtension lazy = new LazyExtension( ext.toString() );
+
+        Assert.assertEquals( ext.toString(), lazy.toString() );
+        Assert.assertEquals( ext.hashCode(), lazy.hashCode() );
+        Assert.assertEquals( ext, lazy );
+        Assert.assertEquals( lazy, ext );
+        Assert.assertEquals( LazyExtensionTest.fields(), lazy.getFields() );
+        Assert.assertEquals( "10.0.0.1", lazy.get( "src" ) );
+        Assert.assertEquals( "10.0.0.1", ext.get( "src" ) );
+    }
+
+
+    /**
+     * Verify a value ending in a backslash doesn't swallow the pair after it
+     *
+     * @throws InvalidExtensionKey
+     *             on failure
+     */
+    @Test
+    public void testWindowsPath() throws InvalidExtensionKey {
+        final Map<String, String> fields = new HashMap<String, String>();
+
+        fields.put( "fname", "C:\\temp\\" );
+        fields.put( "act", "blocked" );
+        fields.put( "share", "\\\\host\\c$" );
+
+        final Extension     ext  = new Extension( fields );
+        final LazyExtension lazy = new LazyExtension( ext.toString() );
+
+        Assert.assertTrue( ext.toString(), ext.toString().contains( "C:\\\\temp\\\\" ) );
+        Assert.assertEquals( "blocked", lazy.get( "act" ) );
+        Assert.assertEquals( "C:\\temp\\", lazy.get( "fname" ) );
+        Assert.assertEquals( "\\\\host\\c$", lazy.get( "share" ) );
+        Assert.assertEquals( fields, lazy.getFields() );
+        Assert.assertEquals( ext, lazy );
+        Assert.assertEquals( lazy, ext );
+    }
+
+
+    /**
+     * Verify odd text is read leniently
+     */
+    @Test
+    public void testLenient() {
+        Assert.assertTrue( new LazyExtension( "" ).getFields().isEmpty() );
+        Assert.assertTrue( new LazyExtension( "no pairs here" ).getFields().isEmpty() );
+
+        final LazyExtension lazy = new LazyExtension( "junk a=1 a=2 b=x y" );
+
+        Assert.assertEquals( "1", lazy.get( "a" ) );
+        Assert.assertEquals( "1", lazy.getFields().get( "a" ) );
+        Assert.assertEquals( "x y", lazy.get( "b" ) );
+        Assert.assertEquals( 2, lazy.getFields().size() );
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * CEFScannerTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.utils.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.utils.CEFScanner;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure fields are located correctly in rendered CEF strings
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class CEFScannerTest {
+
+    /** A line with escapes in both the header and the extension */
+    private static final String LINE =
+        "CEF:0|Ven\\|dor|Prod\\\\uct|1.0|100|Port scan|7|src=10.0.0.1 msg=a b\\=c d\\n k\\=ey=v act=blocked";
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * @return extension keys and their escaped values
+     */
+    @DataProvider
+    public Object[][] extensionValues() {
+        return new Object[][] {
+            { "src", "10.0.0.1" }, { "msg", "a b\\=c d\\n" }, { "k\\=ey", "v" }, { "act", "blocked" },
+            { "missing", null }, { "c d\\n k", null }
+        };
+    }
+
+
+    /**
+     * @return header indexes and their escaped values
+     */
+    @DataProvider
+    public Object[][] headerFields() {
+        return new Object[][] {
+            { CEFScanner.HEADER_CEF_VERSION, "CEF:0" }, { CEFScanner.HEADER_VENDOR, "Ven\\|dor" },
+            { CEFScanner.HEADER_PRODUCT, "Prod\\\\uct" }, { CEFScanner.HEADER_VERSION, "1.0" },
+            { CEFScanner.HEADER_ID, "100" }, { CEFScanner.HEADER_NAME, "Port scan" },
+            { CEFScanner.HEADER_SEVERITY, "7" }
+        };
+    }
+
+
+    /**
+     * Verify a value ending in a backslash ends at the space in front of the next key, whether the
+     * backslashes are escaped or not
+     */
+    @Test
+    public void testBackslashValue() {
+        final String escaped = "CEF:0|Vendor|Product|1.0|100|Name|5|fname=C:\\\\temp\\\\ act=blocked";
+        final String bare    = "CEF:0|Vendor|Product|1.0|100|Name|5|fname=C:\\temp\\ act=blocked";
+
+        Assert.assertEquals( "C:\\\\temp\\\\", CEFScanner.extensionValue( escaped, "fname" ) );
+        Assert.assertEquals( "blocked", CEFScanner.extensionValue( escaped, "act" ) );
+        Assert.assertEquals( "C:\\temp\\", CEFScanner.extensionValue( bare, "fname" ) );
+        Assert.assertEquals( "blocked", CEFScanner.extensionValue( bare, "act" ) );
+        Assert.assertEquals( "b\\=c", CEFScanner.extensionValue( "CEF:0|v|p|1|id|n|5|a=b\\=c", "a" ) );
+    }
+
+
+    /**
+     * Verify extension values are found
+     *
+     * @param key
+     *            the escaped key
+     * @param value
+     *            the wanted escaped value
+     */
+    @Test(dataProvider = "extensionValues")
+    public void testExtensionValue( final String key, final String value ) {
+        Assert.assertEquals( value, CEFScanner.extensionValue( CEFScannerTest.LINE, key ) );
+    }
+
+
+    /**
+     * Verify header fields are found
+     *
+     * @param index
+     *            the header field index
+     * @param value
+     *            the wanted escaped value
+     */
+    @Test(dataProvider = "headerFields")
+    public void testHeaderField( final int index, final String value ) {
+        Assert.assertEquals( value, CEFScanner.headerField( CEFScannerTest.LINE, index ) );
+    }
+
+
+    /**
+     * Verify a short header is detected
+     */
+    @Test
+    public void testTruncatedHeader() {
+        Assert.assertNull( CEFScanner.headerField( "CEF:0|Vendor|Product", CEFScanner.HEADER_ID ) );
+        Assert.assertEquals( -1, CEFScanner.extensionStart( "CEF:0|Vendor|Product" ) );
+        Assert.assertEquals( 22, CEFScanner.extensionStart( "CEF:0|v|p|1|id|name|5|" ) );
+    }
+}
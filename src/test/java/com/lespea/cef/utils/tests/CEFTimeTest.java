@@ -0,0 +1,179 @@
+/**
+ * CEFTimeTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.utils.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.Extension;
+import com.lespea.cef.utils.CEFTime;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.text.SimpleDateFormat;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure times are parsed and formatted the same way {@link SimpleDateFormat} does
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class CEFTimeTest {
+
+    /** Milliseconds in a year, near enough */
+    private static final long YEAR = 365L * 86400000L;
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * @param pattern
+     *            the date pattern
+     * @param zone
+     *            the zone to format in
+     * @return a formatter
+     */
+    private static SimpleDateFormat formatter( final String pattern, final TimeZone zone ) {
+        final SimpleDateFormat format = new SimpleDateFormat( pattern, Locale.US );
+
+        format.setTimeZone( zone );
+
+        return format;
+    }
+
+
+    /**
+     * Verify the extension helpers
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testExtension() throws Exception {
+        final Map<String, String> fields = new HashMap<String, String>();
+
+        Extension.putTime( fields, "rt", 1318000000123L );
+        fields.put( "start", "1318000000000" );
+        fields.put( "end", "soon" );
+
+        final Extension extension = new Extension( fields );
+
+        Assert.assertEquals( "Oct 07 2011 15:06:40.123 UTC", extension.get( "rt" ) );
+        Assert.assertEquals( 1318000000123L, extension.getTime( "rt" ) );
+        Assert.assertEquals( 1318000000000L, extension.getTime( "start" ) );
+        Assert.assertEquals( CEFTime.NO_TIME, extension.getTime( "end" ) );
+        Assert.assertEquals( CEFTime.NO_TIME, extension.getTime( "missing" ) );
+    }
+
+
+    /**
+     * Verify formatting matches SimpleDateFormat, including runs within the same minute
+     */
+    @Test
+    public void testFormat() {
+        final TimeZone         utc    = TimeZone.getTimeZone( "UTC" );
+        final SimpleDateFormat format = CEFTimeTest.formatter( "MMM dd yyyy HH:mm:ss.SSS 'UTC'", utc );
+        final Random           random = new Random( 36 );
+
+        for (int i = 0; i < 10000; i++) {
+            final long millis = (i % 3 == 0)
+                                ? (long) (random.nextDouble() * 7000 * CEFTimeTest.YEAR) - 300 * CEFTimeTest.YEAR
+                                : 1318000000000L + random.nextInt( 120000 );
+
+            Assert.assertEquals( format.format( millis ), CEFTime.format( millis ) );
+        }
+
+
+        Assert.assertEquals( "Dec 31 1969 23:59:59.999 UTC", CEFTime.format( -1 ) );
+        Assert.assertEquals( "253402300800000", CEFTime.format( 253402300800000L ) );
+        Assert.assertEquals( "x 253402300800000",
+                             CEFTime.format( 253402300800000L, new StringBuilder( "x " ) ).toString() );
+    }
+
+
+    /**
+     * Verify all the accepted formats parse to what SimpleDateFormat gives
+     */
+    @Test
+    public void testParse() {
+        final TimeZone zone   = TimeZone.getTimeZone( "America/New_York" );
+        final Random   random = new Random( 18 );
+        final String[] patterns = {
+            "MMM dd yyyy HH:mm:ss.SSS zzz", "MMM dd yyyy HH:mm:ss.SSS", "MMM dd yyyy HH:mm:ss zzz", "MMM dd yyyy HH:mm:ss",
+            "MMM dd yyyy HH:mm:ss.SSS Z"
+        };
+
+        for (final String pattern : patterns) {
+            final SimpleDateFormat format = CEFTimeTest.formatter( pattern, zone );
+
+            for (int i = 0; i < 2000; i++) {
+                final long   millis = 946684800000L + (long) (random.nextDouble() * 40 * CEFTimeTest.YEAR);
+                final String text   = format.format( millis );
+                final long   wanted = pattern.contains( "SSS" )
+                                      ? millis
+                                      : millis - millis % 1000;
+
+                Assert.assertEquals( text, wanted, CEFTime.parse( text, 0, text.length(), zone ) );
+            }
+        }
+
+
+        final TimeZone utc = TimeZone.getTimeZone( "UTC" );
+
+        Assert.assertEquals( 1318000000123L, CEFTime.parse( "1318000000123" ) );
+        Assert.assertEquals( 1318000000123L, CEFTime.parse( "Oct 07 2011 15:06:40.123 UTC" ) );
+        Assert.assertEquals( 1318000000123L, CEFTime.parse( "oct 7 2011 15:06:40.123 GMT" ) );
+        Assert.assertEquals( 1318000000000L, CEFTime.parse( "Oct 07 2011 17:06:40 +02:00" ) );
+        Assert.assertEquals( 1318000000000L, CEFTime.parse( "Oct 07 2011 11:06:40 EDT" ) );
+        Assert.assertEquals( 1318000000100L, CEFTime.parse( "Oct 07 2011 15:06:40.1 Z " ) );
+        Assert.assertEquals( 1318000000000L, CEFTime.parse( "xOct 07 2011 15:06:40", 1, 21, utc ) );
+
+        final String yearless = "Jan 02 03:04:05.006";
+        final long   parsed   = CEFTime.parse( yearless, 0, yearless.length(), utc );
+
+        Assert.assertEquals( yearless, CEFTimeTest.formatter( "MMM dd HH:mm:ss.SSS", utc ).format( parsed ) );
+
+        for (final String bad : new String[] {
+            "", "  ", "Foo 07 2011 15:06:40", "Feb 30 2011 15:06:40", "Oct 07 2011 24:06:40", "Oct 07 2011 15:06",
+            "Oct 07 2011 15:06:40.", "Oct 07 2011 15:06:40 Nowhere", "Oct 07 2011 15:06:40 +25:00", "12a4",
+            "Oct 07 201 15:06:40", "Oct 07 2011 15:06:40x"
+        }) {
+            Assert.assertEquals( bad, CEFTime.NO_TIME, CEFTime.parse( bad ) );
+        }
+
+
+        Assert.assertEquals( CEFTime.NO_TIME, CEFTime.parse( null ) );
+    }
+}
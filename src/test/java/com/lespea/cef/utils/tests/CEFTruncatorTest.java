@@ -0,0 +1,165 @@
+/**
+ * CEFTruncatorTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.utils.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.Extension;
+import com.lespea.cef.utils.CEFTruncator;
+import com.lespea.cef.utils.Utf8;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.Test;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure encoded lengths are exact and events are trimmed to fit a byte budget
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class CEFTruncatorTest {
+
+    /** Value with escapes and multi-byte characters all the way through */
+    private static final String NOISY = "a=b\nc\u00e9\u20ac\ud83d\ude00 ";
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * @param msgRepeats
+     *            how many times {@link #NOISY} is repeated in the msg field
+     * @return an event with a big msg and request
+     * @throws Exception
+     *             on failure
+     */
+    private static CEF event( final int msgRepeats ) throws Exception {
+        final StringBuilder msg = new StringBuilder();
+
+        for (int i = 0; i < msgRepeats; i++) {
+            msg.append( CEFTruncatorTest.NOISY );
+        }
+
+
+        return new CEF( 0, "Ven|dor\u00e9", "Prod\\uct", "1.0", "100", "Port scan", 10,
+                        TestHelpers.extension( "msg", msg.toString(), "request", "http://example.com/" + msg, "src",
+                                               "10.0.0.1", "k=ey", "v\r" ) );
+    }
+
+
+    /**
+     * Verify the lengths are computed exactly without rendering
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testEncodedLength() throws Exception {
+        for (int repeats = 0; repeats < 20; repeats++) {
+            final CEF cef   = CEFTruncatorTest.event( repeats );
+            final int bytes = cef.toString().getBytes( Utf8.CHARSET ).length;
+
+            Assert.assertEquals( bytes, cef.getEncodedLength() );
+            Assert.assertEquals( bytes,
+                                 CEF.encodedLength( cef.getCefVersion(), cef.getVendor(), cef.getProduct(),
+                                                    cef.getVersion(), cef.getId(), cef.getName(), cef.getSeverity(),
+                                                    cef.getExtension() ) );
+            Assert.assertEquals( cef.getExtension().toString().getBytes( Utf8.CHARSET ).length,
+                                 Extension.encodedLength( cef.getExtension().getFields() ) );
+        }
+    }
+
+
+    /**
+     * Verify events are trimmed to the budget without breaking escapes or characters
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testFit() throws Exception {
+        final CEF          cef       = CEFTruncatorTest.event( 200 );
+        final CEFTruncator truncator = new CEFTruncator( 1024, "...", "request", "msg" );
+
+        Assert.assertSame( cef, new CEFTruncator( cef.getEncodedLength(), "..." ).fit( cef ) );
+
+        for (int budget = 1024; budget > 100; budget -= 37) {
+            final CEF fitted = new CEFTruncator( budget, "...", "request", "msg" ).fit( cef );
+
+            Assert.assertNotNull( fitted );
+            Assert.assertTrue( fitted.getEncodedLength() <= budget );
+            Assert.assertEquals( "10.0.0.1", fitted.getExtension().get( "src" ) );
+            Assert.assertEquals( "v\r", fitted.getExtension().get( "k=ey" ) );
+
+            final String msg = fitted.getExtension().get( "msg" );
+
+            if (msg != null) {
+                Assert.assertTrue( msg.endsWith( "..." ) );
+                Assert.assertTrue( CEFTruncatorTest.NOISY.startsWith( msg.substring( 0, Math.min( msg.length() - 3, 5 ) ) ) );
+                Assert.assertFalse( Character.isHighSurrogate( msg.charAt( msg.length() - 4 ) ) );
+            }
+        }
+
+
+        final CEF fitted = truncator.fit( cef );
+
+        Assert.assertNull( fitted.getExtension().get( "request" ) );
+        Assert.assertTrue( fitted.getEncodedLength() > 1000 );
+        Assert.assertNull( new CEFTruncator( 50, "", "request", "msg" ).fit( cef ) );
+    }
+
+
+    /**
+     * Verify backslashes, which are escaped in a value, are counted as two bytes
+     *
+     * @throws Exception
+     *             on failure
+     */
+    @Test
+    public void testWindowsPath() throws Exception {
+        final StringBuilder path = new StringBuilder( "C:" );
+
+        for (int i = 0; i < 50; i++) {
+            path.append( "\\dir" ).append( i );
+        }
+
+
+        final CEF cef = TestHelpers.event( 100, "msg", path.toString(), "src", "10.0.0.1" );
+
+        for (int budget = cef.getEncodedLength() - 1; budget > 100; budget -= 23) {
+            final CEF fitted = new CEFTruncator( budget, "...", "msg" ).fit( cef );
+
+            Assert.assertNotNull( fitted );
+            Assert.assertTrue( fitted.getEncodedLength() <= budget );
+            Assert.assertTrue( fitted.getEncodedLength() > budget - 8 );
+
+            final String msg = fitted.getExtension().get( "msg" );
+
+            Assert.assertTrue( path.toString().startsWith( msg.substring( 0, msg.length() - 3 ) ) );
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * EscapeScannerTest.java    2026-10-18
+ *
+ * Copyright 2026, Adam Lesperance
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+
+package com.lespea.cef.utils.tests;
+
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.utils.EscapeScanner;
+import com.lespea.cef.utils.Utf8;
+
+import junit.framework.Assert;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import java.util.Random;
+
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Make sure the escape scanner finds exactly the same characters a plain loop does
+ *
+ * @version 1.0, 2026-10-18
+ * @author Adam Lesperance
+ */
+public class EscapeScannerTest {
+
+    /** Characters the random strings are built from; every special character plus near misses */
+    private static final String ALPHABET = "ab|\\=\r\n \t\u000B\f<>}]\u00e9\u20ac";
+
+
+    /** Turns every byte into the char with the same value */
+    private static final Charset LATIN1 = Charset.forName( "ISO-8859-1" );
+
+
+    //~--- methods ------------------------------------------------------------
+
+    /**
+     * @return every set of classes worth checking
+     */
+    @DataProvider
+    public Object[][] sets() {
+        return new Object[][] {
+            { EscapeScanner.FIELD, "|\\\r\n" }, { EscapeScanner.VALUE, "=\\\r\n" },
+            { EscapeScanner.KEY, "= \t\u000B\f\r\n" }, { EscapeScanner.NEWLINES, "\r\n" }, { EscapeScanner.BAR, "|" }
+        };
+    }
+
+
+    /**
+     * Verify random strings and their bytes against a plain loop, starting at every offset
+     *
+     * @param set
+     *            the classes to look for
+     * @param wanted
+     *            the characters in those classes
+     */
+    @Test(dataProvider = "sets")
+    public void testRandom( final int set, final String wanted ) {
+        final Random random = new Random( set );
+
+        for (int round = 0; round < 500; round++) {
+            final StringBuilder sb     = new StringBuilder();
+            final int           length = random.nextInt( 80 );
+
+            for (int i = 0; i < length; i++) {
+
+                // Mostly clean text so whole words are skipped
+                sb.append( (random.nextInt( 30 ) == 0)
+                           ? EscapeScannerTest.ALPHABET.charAt( random.nextInt( EscapeScannerTest.ALPHABET.length() ) )
+                           : (char) ('a' + random.nextInt( 26 )) );
+            }
+
+
+            final String     text   = sb.toString();
+            final byte[]     bytes  = text.getBytes( Utf8.CHARSET );
+            final ByteBuffer direct = ByteBuffer.allocateDirect( bytes.length );
+
+            direct.put( bytes );
+
+            for (int from = 0; from <= text.length(); from++) {
+                Assert.assertEquals( text, EscapeScannerTest.expected( text, from, wanted ),
+                                     EscapeScanner.indexOf( text, from, set ) );
+            }
+
+
+            final String bytesAsText = new String( bytes, EscapeScannerTest.LATIN1 );
+
+            for (int from = 0; from <= bytes.length; from++) {
+                final int expected = EscapeScannerTest.expected( bytesAsText, from, wanted );
+
+                Assert.assertEquals( text, expected, EscapeScanner.indexOf( bytes, from, bytes.length, set ) );
+                Assert.assertEquals( text, expected, EscapeScanner.indexOf( direct, from, bytes.length, set ) );
+                Assert.assertEquals( text, EscapeScannerTest.count( bytesAsText, from, wanted ),
+                                     EscapeScanner.count( direct, from, bytes.length, set ) );
+            }
+        }
+    }
+
+
+    /**
+     * The plain counting loop
+     *
+     * @param text
+     *            the text
+     * @param from
+     *            where to start
+     * @param wanted
+     *            the characters to count
+     * @return the number of wanted characters
+     */
+    private static int count( final String text, final int from, final String wanted ) {
+        int count = 0;
+
+        for (int i = from; i < text.length(); i++) {
+            if (wanted.indexOf( text.charAt( i ) ) >= 0) {
+                count++;
+            }
+        }
+
+
+        return count;
+    }
+
+
+    /**
+     * The plain loop
+     *
+     * @param text
+     *            the text
+     * @param from
+     *            where to start
+     * @param wanted
+     *            the characters to look for
+     * @return the first offset or -1
+     */
+    private static int expected( final String text, final int from, final String wanted ) {
+        for (int i = from; i < text.length(); i++) {
+            if (wanted.indexOf( text.charAt( i ) ) >= 0) {
+                return i;
+            }
+        }
+
+
+        return -1;
+    }
+}
@@ -57,6 +57,17 @@ public class ExtensionTest {
     }
 
 
+    /**
+     * List of strings that contain backslashes and how they should look after being escaped.
+     *
+     * @return the grouping of strings to process
+     */
+    @DataProvider
+    public Object[][] backslashValues() {
+        return TestHelpers.genEscapeStrings( "C:\\temp\\", "C:\\\\temp\\\\" );
+    }
+
+
     /**
      * List of strings that contain carriage returns and how they should look after being escaped.
      *
@@ -86,7 +97,7 @@ public class ExtensionTest {
      */
     @DataProvider
     public Object[][] mixedValues() {
-        return TestHelpers.genEscapeStrings( "\r\n\n\r=\\", "\\r\\n\\n\\r\\=\\" );
+        return TestHelpers.genEscapeStrings( "\r\n\n\r=\\", "\\r\\n\\n\\r\\=\\\\" );
     }
 
 
@@ -233,6 +244,22 @@ public class ExtensionTest {
     }
 
 
+    /**
+     * Makes sure the backslash character is properly escaped in an extension value and unescaped
+     * again.
+     *
+     * @param unquotedStr
+     *            the string to quote
+     * @param quotedStr
+     *            what the string should be transformed to by the function
+     */
+    @Test(dataProvider = "backslashValues")
+    public void testValueBackslash( final String unquotedStr, final String quotedStr ) {
+        Assert.assertEquals( quotedStr, StringUtils.escapeExtensionValue( unquotedStr ) );
+        Assert.assertEquals( unquotedStr, StringUtils.unescapeExtensionValue( quotedStr, 0, quotedStr.length() ) );
+    }
+
+
     /**
      * Makes sure the carriage return character is properly escaped in an extension value.
      *
@@ -22,6 +22,21 @@
 
 package com.lespea.cef.utils.tests;
 
+//~--- non-JDK imports --------------------------------------------------------
+
+import com.lespea.cef.CEF;
+import com.lespea.cef.Extension;
+import com.lespea.cef.InvalidExtensionKey;
+import com.lespea.cef.InvalidField;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+//~--- classes ----------------------------------------------------------------
+
 /**
  * Helper functions to assist with testing
  *
@@ -35,6 +50,53 @@ public final class TestHelpers {
 
     //~--- methods ------------------------------------------------------------
 
+    /**
+     * Build a record with the usual test header (<code>Vendor|Product|1.0|id|Name|5</code>)
+     *
+     * @param id
+     *            the signature id
+     * @param pairs
+     *            the extension keys and values, one after the other; a pair with a null value is
+     *            left out
+     * @return the record
+     * @throws InvalidExtensionKey
+     *             if a key is invalid
+     * @throws InvalidField
+     *             if a header field is invalid
+     */
+    public static CEF event( final int id, final String... pairs ) throws InvalidExtensionKey, InvalidField {
+        return new CEF( "Vendor", "Product", "1.0", id, "Name", 5, TestHelpers.extension( pairs ) );
+    }
+
+
+    /**
+     * Build an extension
+     *
+     * @param pairs
+     *            the keys and values, one after the other; a pair with a null value is left out
+     * @return the extension
+     * @throws InvalidExtensionKey
+     *             if a key is invalid
+     */
+    public static Extension extension( final String... pairs ) throws InvalidExtensionKey {
+        if (pairs.length % 2 != 0) {
+            throw new IllegalArgumentException( "Every key needs a value" );
+        }
+
+
+        final Map<String, String> fields = new HashMap<String, String>();
+
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (pairs[i + 1] != null) {
+                fields.put( pairs[i], pairs[i + 1] );
+            }
+        }
+
+
+        return new Extension( fields );
+    }
+
+
     /**
      * Helper function to create strings that require escaping
      *